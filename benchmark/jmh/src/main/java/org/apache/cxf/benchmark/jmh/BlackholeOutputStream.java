@@ -0,0 +1,46 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.benchmark.jmh;
+
+import java.io.OutputStream;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * An OutputStream that hands everything written to it to a JMH
+ * {@link Blackhole} so the JIT cannot eliminate the writes.
+ */
+final class BlackholeOutputStream extends OutputStream {
+    private final Blackhole bh;
+    
+    BlackholeOutputStream(Blackhole bh) {
+        this.bh = bh;
+    }
+    
+    @Override
+    public void write(int b) {
+        bh.consume(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        bh.consume(b);
+        bh.consume(len);
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.benchmark.jmh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.io.CachedOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Writes a payload into a {@link CachedOutputStream} in 4K blocks and reads it
+ * back, both below the default 128K threshold and above it (temp file spill).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CachedOutputStreamBenchmark {
+    
+    @Param({"1024", "51200", "262144" })
+    private int payloadSize;
+    
+    private byte[] payload;
+    
+    @Setup
+    public void setUp() {
+        payload = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(payload);
+    }
+    
+    @Benchmark
+    public void writeAndRead(Blackhole bh) throws IOException {
+        CachedOutputStream cos = new CachedOutputStream();
+        try {
+            write(cos);
+            byte[] buffer = new byte[4096];
+            try (InputStream in = cos.getInputStream()) {
+                int n = in.read(buffer);
+                while (n != -1) {
+                    bh.consume(buffer);
+                    n = in.read(buffer);
+                }
+            }
+        } finally {
+            cos.close();
+        }
+    }
+
+    @Benchmark
+    public void writeAndCopy(Blackhole bh) throws IOException {
+        CachedOutputStream cos = new CachedOutputStream();
+        try {
+            write(cos);
+            BlackholeOutputStream out = new BlackholeOutputStream(bh);
+            cos.writeCacheTo(out);
+        } finally {
+            cos.close();
+        }
+    }
+
+    private void write(CachedOutputStream cos) throws IOException {
+        int off = 0;
+        while (off < payload.length) {
+            int len = Math.min(4096, payload.length - off);
+            cos.write(payload, off, len);
+            off += len;
+        }
+        cos.flush();
+    }
+}
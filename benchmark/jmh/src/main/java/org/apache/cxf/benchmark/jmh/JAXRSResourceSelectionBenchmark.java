@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.benchmark.jmh;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.jaxrs.JAXRSServerFactoryBean;
+import org.apache.cxf.jaxrs.JAXRSServiceImpl;
+import org.apache.cxf.jaxrs.impl.MetadataMap;
+import org.apache.cxf.jaxrs.lifecycle.SingletonResourceProvider;
+import org.apache.cxf.jaxrs.model.ClassResourceInfo;
+import org.apache.cxf.jaxrs.model.MethodDispatcher;
+import org.apache.cxf.jaxrs.model.OperationResourceInfo;
+import org.apache.cxf.jaxrs.model.URITemplate;
+import org.apache.cxf.jaxrs.utils.JAXRSUtils;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.service.Service;
+import org.apache.cxf.transport.local.LocalTransportFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Selects the root resource and the resource method of a request on an endpoint
+ * with many root resources and operations, with and without the routing index
+ * (see {@link JAXRSUtils#ROUTING_INDEX}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JAXRSResourceSelectionBenchmark {
+    private static final List<MediaType> ACCEPT = Collections.singletonList(MediaType.WILDCARD_TYPE);
+
+    @Param({"false", "true" })
+    private boolean routingIndex;
+
+    @Param({"30" })
+    private int resources;
+
+    @Param({"30" })
+    private int operations;
+
+    private Bus bus;
+    private Server server;
+    private String path;
+
+    @Setup
+    public void setUp() throws Exception {
+        bus = BusFactory.newInstance().createBus();
+
+        JAXRSServerFactoryBean sf = new JAXRSServerFactoryBean();
+        sf.setBus(bus);
+        sf.setResourceClasses(EchoResource.class);
+        sf.setResourceProvider(EchoResource.class, new SingletonResourceProvider(new EchoResource(), true));
+        sf.setTransportId(LocalTransportFactory.TRANSPORT_ID);
+        sf.setAddress("local://jmh/routing");
+        server = sf.create();
+
+        // resources x operations GET methods, "/resource{r}/operation{o}/{id}"
+        List<ClassResourceInfo> cris = ((JAXRSServiceImpl)server.getEndpoint().getService())
+            .getClassResourceInfos();
+        Method echo = EchoResource.class.getMethod("echo", String.class);
+        for (int r = 0; r < resources; r++) {
+            ClassResourceInfo cri = new ClassResourceInfo(EchoResource.class, EchoResource.class,
+                                                          true, false, bus);
+            cri.setMethodDispatcher(new MethodDispatcher());
+            cri.setURITemplate(URITemplate.createTemplate("/resource" + r));
+            for (int o = 0; o < operations; o++) {
+                OperationResourceInfo ori = new OperationResourceInfo(echo, cri);
+                ori.setURITemplate(URITemplate.createTemplate("/operation" + o + "/{id}"));
+                ori.setHttpMethod(HttpMethod.GET);
+                cri.getMethodDispatcher().bind(ori, echo);
+            }
+            cris.add(cri);
+        }
+        path = "/resource" + (resources - 1) + "/operation" + (operations - 1) + "/1";
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.destroy();
+        bus.shutdown(true);
+    }
+
+    @Benchmark
+    public OperationResourceInfo selectOperation() {
+        Message m = createMessage();
+        Map<ClassResourceInfo, MultivaluedMap<String, String>> matched =
+            JAXRSUtils.selectResourceClass(JAXRSUtils.getRootResources(m, path), path, m);
+        return JAXRSUtils.findTargetMethod(matched, m, HttpMethod.GET,
+                                           new MetadataMap<String, String>(), null, ACCEPT);
+    }
+
+    private Message createMessage() {
+        Endpoint endpoint = server.getEndpoint();
+        Exchange exchange = new ExchangeImpl();
+        exchange.put(Bus.class, bus);
+        exchange.put(Endpoint.class, endpoint);
+        exchange.put(Service.class, endpoint.getService());
+        Message m = new MessageImpl();
+        m.setExchange(exchange);
+        exchange.setInMessage(m);
+        m.put(JAXRSUtils.ROUTING_INDEX, routingIndex);
+        return m;
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.benchmark.jmh;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds the XML documents used by the benchmarks.
+ */
+final class Payloads {
+    static final String SOAP_NS = "http://schemas.xmlsoap.org/soap/envelope/";
+    static final String WSA_NS = "http://www.w3.org/2005/08/addressing";
+    static final String ECHO_NS = "http://jmh.benchmark.cxf.apache.org/";
+    
+    private Payloads() {
+    }
+    
+    /**
+     * A SOAP 1.1 envelope carrying a couple of WS-Addressing headers and 
+     * <code>items</code> repeated elements in the body.
+     */
+    static byte[] soapEnvelope(int items) {
+        StringBuilder b = new StringBuilder(items * 64 + 512);
+        b.append("<soap:Envelope xmlns:soap=\"").append(SOAP_NS).append("\">")
+            .append("<soap:Header>")
+            .append("<wsa:Action xmlns:wsa=\"").append(WSA_NS).append("\">urn:echo</wsa:Action>")
+            .append("<wsa:MessageID xmlns:wsa=\"").append(WSA_NS)
+            .append("\">urn:uuid:6b29fc40-ca47-1067-b31d-00dd010662da</wsa:MessageID>")
+            .append("</soap:Header>")
+            .append("<soap:Body><ns:echo xmlns:ns=\"").append(ECHO_NS).append("\">");
+        for (int x = 0; x < items; x++) {
+            b.append("<ns:item id=\"").append(x).append("\">value ").append(x).append("</ns:item>");
+        }
+        b.append("</ns:echo></soap:Body></soap:Envelope>");
+        return b.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    static String text(int length) {
+        StringBuilder b = new StringBuilder(length);
+        for (int x = 0; x < length; x++) {
+            b.append((char)('a' + x % 26));
+        }
+        return b.toString();
+    }
+}
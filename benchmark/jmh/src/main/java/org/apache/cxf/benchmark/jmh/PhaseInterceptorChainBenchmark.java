@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.benchmark.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.bus.managers.PhaseManagerImpl;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.phase.PhaseChainCache;
+import org.apache.cxf.phase.PhaseInterceptorChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of obtaining a chain from the {@link PhaseChainCache} and
+ * running a message through it with a configurable number of no-op interceptors
+ * spread over the default inbound phases.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PhaseInterceptorChainBenchmark {
+
+    @Param({"10", "40" })
+    private int interceptorCount;
+
+    private SortedSet<Phase> phases;
+    private PhaseChainCache cache;
+    private List<Interceptor<? extends Message>> busInterceptors;
+    private List<Interceptor<? extends Message>> endpointInterceptors;
+
+    @Setup
+    public void setUp() {
+        phases = new PhaseManagerImpl().getInPhases();
+        cache = new PhaseChainCache();
+        busInterceptors = new ArrayList<Interceptor<? extends Message>>();
+        endpointInterceptors = new ArrayList<Interceptor<? extends Message>>();
+        
+        Phase[] phaseArray = phases.toArray(new Phase[phases.size()]);
+        for (int x = 0; x < interceptorCount; x++) {
+            NoOpInterceptor interceptor = new NoOpInterceptor("noop" + x, 
+                                                              phaseArray[x % phaseArray.length].getName());
+            if (x % 2 == 0) {
+                busInterceptors.add(interceptor);
+            } else {
+                endpointInterceptors.add(interceptor);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean cachedChainIntercept() {
+        PhaseInterceptorChain chain = cache.get(phases, busInterceptors, endpointInterceptors);
+        return chain.doIntercept(createMessage());
+    }
+
+    /**
+     * Same as {@link #cachedChainIntercept()} with 64 threads sharing the cache,
+     * as they would on a busy endpoint.
+     */
+    @Benchmark
+    @Threads(64)
+    public boolean cachedChainInterceptConcurrent() {
+        PhaseInterceptorChain chain = cache.get(phases, busInterceptors, endpointInterceptors);
+        return chain.doIntercept(createMessage());
+    }
+
+    @Benchmark
+    public boolean newChainIntercept() {
+        PhaseInterceptorChain chain = new PhaseInterceptorChain(phases);
+        chain.add(busInterceptors);
+        chain.add(endpointInterceptors);
+        return chain.doIntercept(createMessage());
+    }
+
+    private static Message createMessage() {
+        Message message = new MessageImpl();
+        Exchange exchange = new ExchangeImpl();
+        exchange.setInMessage(message);
+        return message;
+    }
+    
+    static final class NoOpInterceptor extends AbstractPhaseInterceptor<Message> {
+        NoOpInterceptor(String id, String phase) {
+            super(id, phase);
+        }
+
+        public void handleMessage(Message message) {
+            // nothing, only the chain overhead is measured
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.benchmark.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.cxf.staxutils.StaxUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reads and writes one SOAP message per operation through the StAX factories
+ * {@link StaxUtils} shares between the threads.  The output goes to a
+ * Blackhole, so run through the BenchmarkRunner the gc.alloc.rate.norm column
+ * is what creating, using and closing a reader and a writer allocates per SOAP
+ * message, about 10KB for the default message with Woodstox 4.4.  Woodstox
+ * already recycles the buffers of closed readers and writers per thread and
+ * has no API to reset a reader or writer for another document, so the rest
+ * is per instance state that cannot be reused.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class StaxUtilsAllocationBenchmark {
+
+    @Param({"10" })
+    private int items;
+
+    private byte[] document;
+
+    @Setup
+    public void setUp() {
+        document = Payloads.soapEnvelope(items);
+    }
+
+    @Benchmark
+    public void readAndWriteMessage(Blackhole bh) throws XMLStreamException {
+        XMLStreamReader reader = StaxUtils.createXMLStreamReader(new ByteArrayInputStream(document));
+        XMLStreamWriter writer = StaxUtils.createXMLStreamWriter(new BlackholeOutputStream(bh));
+        try {
+            StaxUtils.copy(reader, writer);
+            writer.flush();
+        } finally {
+            StaxUtils.close(reader);
+            StaxUtils.close(writer);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.benchmark.jmh;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import javax.xml.soap.SOAPMessage;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
+import org.apache.cxf.binding.soap.Soap12;
+import org.apache.cxf.binding.soap.SoapBindingConfiguration;
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.frontend.ClientProxy;
+import org.apache.cxf.jaxws.JaxWsProxyFactoryBean;
+import org.apache.cxf.jaxws.JaxWsServerFactoryBean;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.cxf.transport.local.LocalConduit;
+import org.apache.cxf.transport.local.LocalTransportFactory;
+import org.apache.cxf.ws.policy.EffectivePolicy;
+import org.apache.cxf.ws.policy.WSPolicyFeature;
+import org.apache.cxf.ws.security.SecurityConstants;
+import org.apache.wss4j.common.crypto.Crypto;
+import org.apache.wss4j.common.crypto.CryptoFactory;
+import org.apache.wss4j.common.ext.WSPasswordCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A JAX-WS SOAP 1.2 echo round trip over the local transport, with the request
+ * and the response signed and encrypted according to a WS-SecurityPolicy
+ * AsymmetricBinding.  Both sides use the same key pair, so the numbers cover the
+ * policy driven DOM security interceptors and the crypto of both messages.
+ * <p>
+ * Direct dispatch copies the contents of a message, and the properties of the
+ * response, to the receiving side, so the SAAJ model and the effective policy of
+ * the sender are dropped before the receiver reads the message.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WSSecurityPolicyBenchmark {
+    private static final String ADDRESS = "local://jmh/soap12/wssec";
+    private static final String ALIAS = "myalias";
+
+    private static final String POLICY =
+        "<wsp:Policy xmlns:wsp=\"http://www.w3.org/ns/ws-policy\""
+        + " xmlns:sp=\"http://docs.oasis-open.org/ws-sx/ws-securitypolicy/200702\">"
+        + "<sp:AsymmetricBinding><wsp:Policy>"
+        + "<sp:InitiatorToken><wsp:Policy>"
+        + "<sp:X509Token sp:IncludeToken=\"http://docs.oasis-open.org/ws-sx/ws-securitypolicy/200702"
+        + "/IncludeToken/AlwaysToRecipient\">"
+        + "<wsp:Policy><sp:RequireIssuerSerialReference/></wsp:Policy></sp:X509Token>"
+        + "</wsp:Policy></sp:InitiatorToken>"
+        + "<sp:RecipientToken><wsp:Policy>"
+        + "<sp:X509Token sp:IncludeToken=\"http://docs.oasis-open.org/ws-sx/ws-securitypolicy/200702"
+        + "/IncludeToken/Never\">"
+        + "<wsp:Policy><sp:RequireIssuerSerialReference/></wsp:Policy></sp:X509Token>"
+        + "</wsp:Policy></sp:RecipientToken>"
+        + "<sp:AlgorithmSuite><wsp:Policy><sp:Basic128/></wsp:Policy></sp:AlgorithmSuite>"
+        + "<sp:Layout><wsp:Policy><sp:Lax/></wsp:Policy></sp:Layout>"
+        + "<sp:IncludeTimestamp/>"
+        + "<sp:OnlySignEntireHeadersAndBody/>"
+        + "</wsp:Policy></sp:AsymmetricBinding>"
+        + "<sp:Wss10><wsp:Policy><sp:MustSupportRefIssuerSerial/></wsp:Policy></sp:Wss10>"
+        + "<sp:SignedParts><sp:Body/></sp:SignedParts>"
+        + "<sp:EncryptedParts><sp:Body/></sp:EncryptedParts>"
+        + "</wsp:Policy>";
+
+    @Param({"64", "8192" })
+    private int textLength;
+
+    private Bus bus;
+    private Server server;
+    private EchoService client;
+    private String text;
+
+    @Setup
+    public void setUp() throws Exception {
+        bus = BusFactory.newInstance().createBus();
+
+        JaxWsServerFactoryBean sf = new JaxWsServerFactoryBean();
+        sf.setBus(bus);
+        sf.setServiceClass(EchoService.class);
+        sf.setServiceBean(new EchoServiceImpl());
+        sf.setTransportId(LocalTransportFactory.TRANSPORT_ID);
+        sf.setAddress(ADDRESS);
+        sf.setBindingConfig(createSoap12Config());
+        sf.getFeatures().add(createPolicyFeature());
+        sf.setProperties(createSecurityProperties());
+        sf.getInInterceptors().add(new DropSenderStateInterceptor());
+        server = sf.create();
+
+        JaxWsProxyFactoryBean cf = new JaxWsProxyFactoryBean();
+        cf.setBus(bus);
+        cf.setServiceClass(EchoService.class);
+        cf.setAddress(ADDRESS);
+        cf.setBindingConfig(createSoap12Config());
+        cf.getFeatures().add(createPolicyFeature());
+        cf.setProperties(createSecurityProperties());
+        cf.getInInterceptors().add(new DropSenderStateInterceptor());
+        client = cf.create(EchoService.class);
+        ClientProxy.getClient(client).getRequestContext().put(LocalConduit.DIRECT_DISPATCH, Boolean.TRUE);
+
+        text = Payloads.text(textLength);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ClientProxy.getClient(client).destroy();
+        server.destroy();
+        bus.shutdown(true);
+    }
+
+    @Benchmark
+    public String echo() {
+        return client.echo(text);
+    }
+
+    private static SoapBindingConfiguration createSoap12Config() {
+        SoapBindingConfiguration config = new SoapBindingConfiguration();
+        config.setVersion(Soap12.getInstance());
+        return config;
+    }
+
+    private static WSPolicyFeature createPolicyFeature() throws Exception {
+        Element policy = StaxUtils.read(new StringReader(POLICY)).getDocumentElement();
+        WSPolicyFeature feature = new WSPolicyFeature();
+        feature.setPolicyElements(Collections.singletonList(policy));
+        return feature;
+    }
+
+    private static Map<String, Object> createSecurityProperties() throws Exception {
+        Properties cryptoProperties = new Properties();
+        cryptoProperties.put("org.apache.wss4j.crypto.provider", "org.apache.wss4j.common.crypto.Merlin");
+        cryptoProperties.put("org.apache.wss4j.crypto.merlin.keystore.type", "jks");
+        cryptoProperties.put("org.apache.wss4j.crypto.merlin.keystore.password", "keyStorePassword");
+        cryptoProperties.put("org.apache.wss4j.crypto.merlin.keystore.alias", ALIAS);
+        cryptoProperties.put("org.apache.wss4j.crypto.merlin.keystore.file", "privatestore.jks");
+
+        Crypto crypto = CryptoFactory.getInstance(cryptoProperties);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(SecurityConstants.SIGNATURE_CRYPTO, crypto);
+        properties.put(SecurityConstants.ENCRYPT_CRYPTO, crypto);
+        properties.put(SecurityConstants.SIGNATURE_USERNAME, ALIAS);
+        properties.put(SecurityConstants.ENCRYPT_USERNAME, ALIAS);
+        properties.put(SecurityConstants.CALLBACK_HANDLER, new KeyPasswordCallback());
+        return properties;
+    }
+
+    private static final class KeyPasswordCallback implements CallbackHandler {
+        public void handle(Callback[] callbacks) {
+            for (Callback callback : callbacks) {
+                if (callback instanceof WSPasswordCallback) {
+                    ((WSPasswordCallback)callback).setPassword("myAliasPassword");
+                }
+            }
+        }
+    }
+
+    private static final class DropSenderStateInterceptor extends AbstractPhaseInterceptor<Message> {
+        DropSenderStateInterceptor() {
+            super(Phase.RECEIVE);
+        }
+
+        public void handleMessage(Message message) {
+            message.removeContent(SOAPMessage.class);
+            message.removeContent(Node.class);
+            message.remove(EffectivePolicy.class.getName());
+        }
+    }
+}
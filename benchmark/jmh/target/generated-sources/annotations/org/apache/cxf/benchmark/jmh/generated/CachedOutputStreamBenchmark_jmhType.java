@@ -0,0 +1,4 @@
+package org.apache.cxf.benchmark.jmh.generated;
+public class CachedOutputStreamBenchmark_jmhType extends CachedOutputStreamBenchmark_jmhType_B3 {
+}
+
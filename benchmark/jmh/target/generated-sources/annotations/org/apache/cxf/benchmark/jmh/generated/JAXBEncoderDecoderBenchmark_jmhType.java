@@ -0,0 +1,4 @@
+package org.apache.cxf.benchmark.jmh.generated;
+public class JAXBEncoderDecoderBenchmark_jmhType extends JAXBEncoderDecoderBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.apache.cxf.benchmark.jmh.generated;
+public class JAXRSResourceSelectionBenchmark_jmhType extends JAXRSResourceSelectionBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.apache.cxf.benchmark.jmh.generated;
+public class LocalJAXRSEchoBenchmark_jmhType extends LocalJAXRSEchoBenchmark_jmhType_B3 {
+}
+
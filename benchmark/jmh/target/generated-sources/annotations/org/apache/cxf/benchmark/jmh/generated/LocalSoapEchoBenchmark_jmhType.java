@@ -0,0 +1,4 @@
+package org.apache.cxf.benchmark.jmh.generated;
+public class LocalSoapEchoBenchmark_jmhType extends LocalSoapEchoBenchmark_jmhType_B3 {
+}
+
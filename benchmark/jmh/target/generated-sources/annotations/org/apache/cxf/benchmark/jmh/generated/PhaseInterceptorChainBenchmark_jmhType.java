@@ -0,0 +1,4 @@
+package org.apache.cxf.benchmark.jmh.generated;
+public class PhaseInterceptorChainBenchmark_jmhType extends PhaseInterceptorChainBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.apache.cxf.benchmark.jmh.generated;
+public class StaxUtilsAllocationBenchmark_jmhType extends StaxUtilsAllocationBenchmark_jmhType_B3 {
+}
+
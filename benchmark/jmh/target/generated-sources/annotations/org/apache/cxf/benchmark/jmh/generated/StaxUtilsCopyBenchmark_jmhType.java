@@ -0,0 +1,4 @@
+package org.apache.cxf.benchmark.jmh.generated;
+public class StaxUtilsCopyBenchmark_jmhType extends StaxUtilsCopyBenchmark_jmhType_B3 {
+}
+
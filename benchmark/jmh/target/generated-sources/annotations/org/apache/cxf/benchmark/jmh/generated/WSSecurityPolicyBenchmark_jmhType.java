@@ -0,0 +1,4 @@
+package org.apache.cxf.benchmark.jmh.generated;
+public class WSSecurityPolicyBenchmark_jmhType extends WSSecurityPolicyBenchmark_jmhType_B3 {
+}
+
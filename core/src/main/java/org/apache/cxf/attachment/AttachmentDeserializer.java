@@ -25,6 +25,7 @@ import java.io.PushbackInputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -40,6 +41,7 @@ import org.apache.cxf.helpers.IOUtils;
 import org.apache.cxf.io.CachedOutputStream;
 import org.apache.cxf.message.Attachment;
 import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageUtils;
 
 public class AttachmentDeserializer {
     public static final String ATTACHMENT_PART_HEADERS = AttachmentDeserializer.class.getName() + ".headers";
@@ -49,6 +51,14 @@ public class AttachmentDeserializer {
 
     public static final String ATTACHMENT_MAX_SIZE = "attachment-max-size";
 
+    /**
+     * Contextual property, usually set on the endpoint, which streams the attachments
+     * straight from the transport.  An attachment is only cached when a later part of
+     * the message is requested before it has been read, and no longer once it has been
+     * read to its end, so the last (or only) attachment of a message is never cached.
+     */
+    public static final String ATTACHMENT_STREAMING = "attachment-streaming";
+
     public static final int THRESHOLD = 1024 * 100; //100K (byte unit)
 
     private static final Pattern CONTENT_TYPE_BOUNDARY_PATTERN = Pattern.compile("boundary=\"?([^\";]*)");
@@ -59,6 +69,7 @@ public class AttachmentDeserializer {
             Pattern.compile("^--(\\S*)$", Pattern.MULTILINE);
 
     private boolean lazyLoading = true;
+    private boolean streaming;
 
     private int pbAmount = 2048;
     private PushbackInputStream stream;
@@ -77,6 +88,10 @@ public class AttachmentDeserializer {
     private InputStream body;
     
     private Set<DelegatingInputStream> loaded = new HashSet<DelegatingInputStream>();
+    private Map<DataSource, MimeBodyPartInputStream> partStreams =
+        new IdentityHashMap<DataSource, MimeBodyPartInputStream>();
+    private MimeBodyPartInputStream bodyPartStream;
+    private MimeBodyPartInputStream lastPartStream;
     private List<String> supportedTypes;
 
     public AttachmentDeserializer(Message message) {
@@ -86,6 +101,7 @@ public class AttachmentDeserializer {
     public AttachmentDeserializer(Message message, List<String> supportedTypes) {
         this.message = message;
         this.supportedTypes = supportedTypes;
+        this.streaming = MessageUtils.getContextualBoolean(message, ATTACHMENT_STREAMING, false);
     }
     
     public void initializeAttachments() throws IOException {
@@ -133,8 +149,9 @@ public class AttachmentDeserializer {
                 }
             }
 
-            body = new DelegatingInputStream(new MimeBodyPartInputStream(stream, boundary, pbAmount),
-                                             this);
+            bodyPartStream = new MimeBodyPartInputStream(stream, boundary, pbAmount);
+            lastPartStream = bodyPartStream;
+            body = new DelegatingInputStream(bodyPartStream, this);
             createCount++;
             message.setContent(InputStream.class, body);
         }
@@ -164,6 +181,7 @@ public class AttachmentDeserializer {
     }
     
     public AttachmentImpl readNext() throws IOException {
+        checkLastPartRead();
         // Cache any mime parts that are currently being streamed
         cacheStreamedAttachments();
         if (closed) {
@@ -180,9 +198,22 @@ public class AttachmentDeserializer {
         return (AttachmentImpl)createAttachment(headers);
     }
 
+    private void checkLastPartRead() {
+        if (streaming && lastPartStream != null && lastPartStream.isLastBoundaryFound()) {
+            // the closing boundary has been read, nothing more can come from the stream
+            closed = true;
+        }
+    }
+
+    private boolean isStreamedToEnd(MimeBodyPartInputStream partStream) {
+        // the rest of the part is buffered by the reader or gone, there is nothing to cache
+        return streaming && partStream != null && partStream.isBoundaryFound();
+    }
+
     private void cacheStreamedAttachments() throws IOException {
         if (body instanceof DelegatingInputStream
-            && !((DelegatingInputStream) body).isClosed()) {
+            && !((DelegatingInputStream) body).isClosed()
+            && !isStreamedToEnd(bodyPartStream)) {
 
             cache((DelegatingInputStream) body);
         }
@@ -192,7 +223,7 @@ public class AttachmentDeserializer {
             DataSource s = a.getDataHandler().getDataSource();
             if (s instanceof AttachmentDataSource) {
                 AttachmentDataSource ads = (AttachmentDataSource)s;
-                if (!ads.isCached()) {
+                if (!ads.isCached() && !isStreamedToEnd(partStreams.get(ads))) {
                     ads.cache(message);
                 }
             } else if (s.getInputStream() instanceof DelegatingInputStream) {
@@ -263,11 +294,15 @@ public class AttachmentDeserializer {
      * @throws IOException
      */
     private Attachment createAttachment(Map<String, List<String>> headers) throws IOException {
-        InputStream partStream = 
-            new DelegatingInputStream(new MimeBodyPartInputStream(stream, boundary, pbAmount),
-                                      this);
+        MimeBodyPartInputStream mimeStream = new MimeBodyPartInputStream(stream, boundary, pbAmount);
+        InputStream partStream = new DelegatingInputStream(mimeStream, this);
         createCount++;
-        return AttachmentUtil.createAttachment(partStream, headers);
+        lastPartStream = mimeStream;
+        Attachment attachment = AttachmentUtil.createAttachment(partStream, headers);
+        if (streaming) {
+            partStreams.put(attachment.getDataHandler().getDataSource(), mimeStream);
+        }
+        return attachment;
     }
 
     public boolean isLazyLoading() {
@@ -278,6 +313,14 @@ public class AttachmentDeserializer {
         this.lazyLoading = lazyLoading;
     }
 
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     public void markClosed(DelegatingInputStream delegatingInputStream) throws IOException {
         closedCount++;
         if (closedCount == createCount && !attachments.hasNext(false)) {
@@ -296,6 +339,7 @@ public class AttachmentDeserializer {
      * @throws IOException
      */
     public boolean hasNext() throws IOException {
+        checkLastPartRead();
         cacheStreamedAttachments();
         if (closed) {
             return false;
@@ -19,13 +19,18 @@
 
 package org.apache.cxf.attachment;
 
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.URLDecoder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -33,9 +38,12 @@ import java.util.List;
 import java.util.Map;
 
 import javax.activation.DataHandler;
+import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 
 import org.apache.cxf.common.util.Base64Utility;
 import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.io.FileChannelInputStream;
 import org.apache.cxf.message.Attachment;
 import org.apache.cxf.message.Message;
 
@@ -45,6 +53,7 @@ import org.apache.cxf.message.Message;
 public class AttachmentSerializer {
     // http://tools.ietf.org/html/rfc2387
     private static final String DEFAULT_MULTIPART_TYPE = "multipart/related";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
     
     private String contentTransferEncoding = "binary";
     
@@ -279,7 +288,7 @@ public class AttachmentSerializer {
                 if ("base64".equals(contentTransferEncoding)) {
                     encodeBase64(handler.getInputStream(), out, IOUtils.DEFAULT_BUFFER_SIZE);
                 } else {
-                    handler.writeTo(out);
+                    writeContent(handler);
                 }
             }
         }
@@ -291,6 +300,76 @@ public class AttachmentSerializer {
         out.flush();
     }
 
+    /**
+     * Writes the content of a binary attachment.  Content of files, either a FileDataSource
+     * or an attachment cached in a temporary file, is transferred to the channel of the
+     * output stream if it has one, the content of the other data sources of attachments is
+     * copied with a large buffer.
+     */
+    private void writeContent(DataHandler handler) throws IOException {
+        DataSource ds = handler.getDataSource();
+        if (!(ds instanceof FileDataSource || ds instanceof AttachmentDataSource
+            || ds instanceof LazyDataSource || ds instanceof ByteDataSource)) {
+            // e.g. the DataHandler wraps an object, only the handler knows how to write it
+            handler.writeTo(out);
+            return;
+        }
+        WritableByteChannel channel = getChannel();
+        if (channel != null && ds instanceof FileDataSource) {
+            try (FileChannel fc = FileChannel.open(((FileDataSource)ds).getFile().toPath(),
+                                                   StandardOpenOption.READ)) {
+                transfer(fc, 0, channel);
+            }
+            return;
+        }
+        InputStream in = ds.getInputStream();
+        try {
+            if (channel != null && in instanceof FileChannelInputStream) {
+                FileChannelInputStream fin = (FileChannelInputStream)in;
+                long length = fin.getLength();
+                long count = fin.transferTo(channel);
+                if (count != length) {
+                    throw new IOException("Could not transfer attachment content, "
+                                          + count + " of " + length + " bytes transferred");
+                }
+            } else if (channel != null && in instanceof FileInputStream) {
+                FileChannel fc = ((FileInputStream)in).getChannel();
+                transfer(fc, fc.position(), channel);
+            } else {
+                IOUtils.copy(in, out, COPY_BUFFER_SIZE);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private WritableByteChannel getChannel() throws IOException {
+        WritableByteChannel channel = null;
+        if (out instanceof FileOutputStream) {
+            channel = ((FileOutputStream)out).getChannel();
+        } else if (out instanceof WritableByteChannel) {
+            channel = (WritableByteChannel)out;
+        }
+        if (channel != null) {
+            // the part headers must reach the channel before the content
+            out.flush();
+        }
+        return channel;
+    }
+
+    private static void transfer(FileChannel fc, long position, WritableByteChannel target)
+        throws IOException {
+        long size = fc.size();
+        while (position < size) {
+            long n = fc.transferTo(position, size - position, target);
+            if (n <= 0) {
+                throw new IOException("Could not transfer attachment content, "
+                                      + (size - position) + " bytes left");
+            }
+            position += n;
+        }
+    }
+
     private int encodeBase64(InputStream input, OutputStream output, int bufferSize) throws IOException {
         int avail = input.available();
         if (avail > 262144) {
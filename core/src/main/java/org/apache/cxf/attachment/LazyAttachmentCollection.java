@@ -32,6 +32,12 @@ import javax.activation.DataHandler;
 
 import org.apache.cxf.message.Attachment;
 
+/**
+ * The attachments of a message, read from the message stream as they are requested.
+ * Reading an attachment caches the ones before it which have not been read yet, with
+ * {@link AttachmentDeserializer#ATTACHMENT_STREAMING} enabled the attachments read in
+ * order are handed out straight from the stream and never cached.
+ */
 public class LazyAttachmentCollection 
     implements Collection<Attachment> {
     
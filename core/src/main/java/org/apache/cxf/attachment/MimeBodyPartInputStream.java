@@ -33,6 +33,7 @@ public class MimeBodyPartInputStream extends InputStream {
     byte[] boundaryBuffer;
 
     private boolean closed;
+    private boolean lastBoundaryFound;
 
     public MimeBodyPartInputStream(PushbackInputStream inStreamParam, 
                                    byte[] boundaryParam,
@@ -174,6 +175,7 @@ public class MimeBodyPartInputStream extends InputStream {
                     // Last mime boundary should have a succeeding "--"
                     // as we are on it, read the terminating CRLF
                     i += 2;
+                    lastBoundaryFound = true;
                     //last mime boundary
                 }
 
@@ -249,6 +251,7 @@ public class MimeBodyPartInputStream extends InputStream {
             if (dashNext == 45 && value == 45) {
                 // Last mime boundary should have a succeeding "--"
                 // as we are on it, read the terminating CRLF
+                lastBoundaryFound = true;
                 inStream.read();
                 inStream.read();
             }
@@ -274,4 +277,19 @@ public class MimeBodyPartInputStream extends InputStream {
     public void close() throws IOException {
         this.closed = true;
     }
+
+    /**
+     * @return true once the part has been read up to the boundary following it
+     */
+    boolean isBoundaryFound() {
+        return boundaryFound;
+    }
+
+    /**
+     * @return true if the boundary following the part is the closing boundary
+     * of the multipart message
+     */
+    boolean isLastBoundaryFound() {
+        return lastBoundaryFound;
+    }
 }
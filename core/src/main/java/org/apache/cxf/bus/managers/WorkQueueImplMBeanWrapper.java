@@ -26,6 +26,7 @@ import org.apache.cxf.Bus;
 import org.apache.cxf.management.ManagedComponent;
 import org.apache.cxf.management.ManagementConstants;
 import org.apache.cxf.management.annotation.ManagedAttribute;
+import org.apache.cxf.management.annotation.ManagedOperation;
 import org.apache.cxf.management.annotation.ManagedResource;
 import org.apache.cxf.workqueue.AutomaticWorkQueueImpl;
 import org.apache.cxf.workqueue.WorkQueueManager;
@@ -103,6 +104,56 @@ public class WorkQueueImplMBeanWrapper implements ManagedComponent {
         aWorkQueue.setLowWaterMark(lwm);
     }
 
+    @ManagedAttribute(description = "The number of work items accepted")
+    public long getAcceptedCount() {
+        return aWorkQueue.getMetrics().getAcceptedCount();
+    }
+
+    @ManagedAttribute(description = "The number of work items completed")
+    public long getCompletedCount() {
+        return aWorkQueue.getMetrics().getCompletedCount();
+    }
+
+    @ManagedAttribute(description = "The number of work items rejected")
+    public long getRejectedCount() {
+        return aWorkQueue.getMetrics().getRejectedCount();
+    }
+
+    @ManagedAttribute(description = "The number of work items currently running")
+    public int getRunningCount() {
+        return aWorkQueue.getMetrics().getRunningCount();
+    }
+
+    @ManagedAttribute(description = "The largest number of work items run at the same time")
+    public int getPeakRunningCount() {
+        return aWorkQueue.getMetrics().getPeakRunningCount();
+    }
+
+    @ManagedAttribute(description = "The average time (ms) work items waited in the queue")
+    public double getAverageWaitTime() {
+        return aWorkQueue.getMetrics().getAverageWaitTime();
+    }
+
+    @ManagedAttribute(description = "The longest time (ms) a work item waited in the queue")
+    public double getMaxWaitTime() {
+        return aWorkQueue.getMetrics().getMaxWaitTime();
+    }
+
+    @ManagedAttribute(description = "The average time (ms) work items ran")
+    public double getAverageRunTime() {
+        return aWorkQueue.getMetrics().getAverageRunTime();
+    }
+
+    @ManagedAttribute(description = "The longest time (ms) a work item ran")
+    public double getMaxRunTime() {
+        return aWorkQueue.getMetrics().getMaxRunTime();
+    }
+
+    @ManagedOperation(description = "Resets the work item counters and times")
+    public void resetMetrics() {
+        aWorkQueue.getMetrics().reset();
+    }
+
     public ObjectName getObjectName() throws JMException {
         StringBuilder buffer = new StringBuilder();
         buffer.append(ManagementConstants.DEFAULT_DOMAIN_NAME).append(':');
@@ -20,8 +20,11 @@
 package org.apache.cxf.bus.managers;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,10 +36,12 @@ import org.apache.cxf.buslifecycle.BusLifeCycleListener;
 import org.apache.cxf.buslifecycle.BusLifeCycleManager;
 import org.apache.cxf.common.injection.NoJSR250Annotations;
 import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.common.util.PropertyUtils;
 import org.apache.cxf.configuration.ConfiguredBeanLocator;
 import org.apache.cxf.management.InstrumentationManager;
 import org.apache.cxf.workqueue.AutomaticWorkQueue;
 import org.apache.cxf.workqueue.AutomaticWorkQueueImpl;
+import org.apache.cxf.workqueue.ExecutorServiceWorkQueue;
 import org.apache.cxf.workqueue.WorkQueueManager;
 
 @NoJSR250Annotations(unlessNull = "bus")
@@ -44,12 +49,18 @@ public class WorkQueueManagerImpl implements WorkQueueManager {
 
     public static final String DEFAULT_QUEUE_NAME = "default";
     public static final String DEFAULT_WORKQUEUE_BEAN_NAME = "cxf.default.workqueue";
+    /**
+     * Bus property that makes the default work queue, if not configured otherwise,
+     * run every work item on its own (virtual, where supported) thread.
+     */
+    public static final String PER_TASK_THREADS_PROPERTY = "org.apache.cxf.workqueue.perTaskThreads";
 
     private static final Logger LOG =
         LogUtils.getL7dLogger(WorkQueueManagerImpl.class);
 
     Map<String, AutomaticWorkQueue> namedQueues 
         = new ConcurrentHashMap<String, AutomaticWorkQueue>(4, 0.75f, 2);
+    final List<WorkQueueManager.Listener> listeners = new CopyOnWriteArrayList<>();
     
     boolean inShutdown;
     InstrumentationManager imanager;
@@ -169,8 +180,28 @@ public class WorkQueueManagerImpl implements WorkQueueManager {
     public AutomaticWorkQueue getNamedWorkQueue(String name) {
         return namedQueues.get(name);
     }
+    
+    /**
+     * @return the named work queues currently registered
+     */
+    public Map<String, AutomaticWorkQueue> getNamedWorkQueues() {
+        return Collections.unmodifiableMap(namedQueues);
+    }
+    public void addListener(WorkQueueManager.Listener listener) {
+        synchronized (listeners) {
+            listeners.add(listener);
+            for (Map.Entry<String, AutomaticWorkQueue> e : namedQueues.entrySet()) {
+                listener.workQueueAdded(e.getKey(), e.getValue());
+            }
+        }
+    }
     public final void addNamedWorkQueue(String name, AutomaticWorkQueue q) {
-        namedQueues.put(name, q);
+        synchronized (listeners) {
+            namedQueues.put(name, q);
+            for (WorkQueueManager.Listener l : listeners) {
+                l.workQueueAdded(name, q);
+            }
+        }
         if (q instanceof AutomaticWorkQueueImpl) {
             AutomaticWorkQueueImpl impl = (AutomaticWorkQueueImpl)q;
             if (impl.isShared()) {
@@ -197,7 +228,12 @@ public class WorkQueueManagerImpl implements WorkQueueManager {
     }
     
     private AutomaticWorkQueue createAutomaticWorkQueue() {        
-        AutomaticWorkQueue q = new AutomaticWorkQueueImpl(DEFAULT_QUEUE_NAME);
+        AutomaticWorkQueue q;
+        if (bus != null && PropertyUtils.isTrue(bus.getProperty(PER_TASK_THREADS_PROPERTY))) {
+            q = ExecutorServiceWorkQueue.createPerTaskThreadWorkQueue(DEFAULT_QUEUE_NAME);
+        } else {
+            q = new AutomaticWorkQueueImpl(DEFAULT_QUEUE_NAME);
+        }
         addNamedWorkQueue(DEFAULT_QUEUE_NAME, q);
         return q;
     }
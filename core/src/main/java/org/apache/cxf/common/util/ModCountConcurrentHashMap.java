@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.common.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * ConcurrentHashMap that counts the modifications made through its own
+ * mutators so that views derived from it can cheaply tell if they are stale.
+ * Modifications made through the keySet/values/entrySet views or their
+ * iterators are not counted.
+ */
+public class ModCountConcurrentHashMap<K, V> extends ConcurrentHashMap<K, V> {
+    private static final long serialVersionUID = -4378224387926374587L;
+    private final AtomicInteger modCount = new AtomicInteger();
+
+    public ModCountConcurrentHashMap() {
+        super();
+    }
+    public ModCountConcurrentHashMap(int initialCapacity, float loadFactor, int concurrencyLevel) {
+        super(initialCapacity, loadFactor, concurrencyLevel);
+    }
+
+    public int getModCount() {
+        return modCount.get();
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V v = super.put(key, value);
+        modCount.incrementAndGet();
+        return v;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        V v = super.putIfAbsent(key, value);
+        if (v == null) {
+            modCount.incrementAndGet();
+        }
+        return v;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        super.putAll(m);
+        modCount.incrementAndGet();
+    }
+
+    @Override
+    public V remove(Object key) {
+        V v = super.remove(key);
+        if (v != null) {
+            modCount.incrementAndGet();
+        }
+        return v;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (super.remove(key, value)) {
+            modCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (super.replace(key, oldValue, newValue)) {
+            modCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        V v = super.replace(key, value);
+        if (v != null) {
+            modCount.incrementAndGet();
+        }
+        return v;
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        super.replaceAll(function);
+        modCount.incrementAndGet();
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V v = super.computeIfAbsent(key, mappingFunction);
+        modCount.incrementAndGet();
+        return v;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        V v = super.computeIfPresent(key, remappingFunction);
+        modCount.incrementAndGet();
+        return v;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        V v = super.compute(key, remappingFunction);
+        modCount.incrementAndGet();
+        return v;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        V v = super.merge(key, value, remappingFunction);
+        modCount.incrementAndGet();
+        return v;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        modCount.incrementAndGet();
+    }
+}
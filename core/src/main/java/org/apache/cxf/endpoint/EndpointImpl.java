@@ -46,6 +46,7 @@ import org.apache.cxf.interceptor.ClientFaultConverter;
 import org.apache.cxf.interceptor.InFaultChainInitiatorObserver;
 import org.apache.cxf.interceptor.MessageSenderInterceptor;
 import org.apache.cxf.interceptor.OutFaultChainInitiatorObserver;
+import org.apache.cxf.message.ContextualProperties;
 import org.apache.cxf.service.Service;
 import org.apache.cxf.service.model.BindingInfo;
 import org.apache.cxf.service.model.EndpointInfo;
@@ -66,6 +67,7 @@ public class EndpointImpl extends AbstractAttributedInterceptorProvider implemen
     private MessageObserver outFaultObserver;
     private List<Feature> activeFeatures;
     private List<Closeable> cleanupHooks;
+    private final ContextualProperties contextualProperties = new ContextualProperties();
 
     public EndpointImpl(Bus bus, Service s, QName endpointName) throws EndpointException {
         this(bus, s, s.getEndpointInfo(endpointName));
@@ -107,6 +109,14 @@ public class EndpointImpl extends AbstractAttributedInterceptorProvider implemen
         return service;
     }
 
+    /**
+     * The merged bus, service, binding and endpoint properties shared by the
+     * messages of this endpoint when resolving contextual properties.
+     */
+    public ContextualProperties getContextualProperties() {
+        return contextualProperties;
+    }
+
     public Binding getBinding() {
         return binding;
     }
@@ -29,6 +29,9 @@ import org.apache.cxf.management.ManagementConstants;
 import org.apache.cxf.management.annotation.ManagedAttribute;
 import org.apache.cxf.management.annotation.ManagedOperation;
 import org.apache.cxf.management.annotation.ManagedResource;
+import org.apache.cxf.phase.PhaseChainCache;
+import org.apache.cxf.transport.ChainInitiationObserver;
+import org.apache.cxf.transport.Destination;
 
 @ManagedResource(componentName = "Endpoint", 
                  description = "Responsible for managing server instances.")
@@ -87,6 +90,33 @@ public class ManagedEndpoint implements ManagedComponent, ServerLifeCycleListene
     public String getState() {
         return state.toString();
     }
+    
+    @ManagedAttribute(description = "Number of inbound chains created from a cached chain template")
+    public long getInboundChainCacheHits() {
+        PhaseChainCache cache = getInboundChainCache();
+        return cache == null ? 0 : cache.getHits();
+    }
+    
+    @ManagedAttribute(description = "Number of inbound chains built from the interceptor lists")
+    public long getInboundChainCacheMisses() {
+        PhaseChainCache cache = getInboundChainCache();
+        return cache == null ? 0 : cache.getMisses();
+    }
+    
+    @ManagedAttribute(description = "Number of cached inbound chain templates")
+    public int getInboundChainCacheSize() {
+        PhaseChainCache cache = getInboundChainCache();
+        return cache == null ? 0 : cache.getSize();
+    }
+    
+    private PhaseChainCache getInboundChainCache() {
+        Destination destination = server.getDestination();
+        if (destination != null 
+            && destination.getMessageObserver() instanceof ChainInitiationObserver) {
+            return ((ChainInitiationObserver)destination.getMessageObserver()).getChainCache();
+        }
+        return null;
+    }
         
     public ObjectName getObjectName() throws JMException {
         String busId = bus.getId();
@@ -0,0 +1,36 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.headers;
+
+import javax.xml.namespace.QName;
+
+/**
+ * A HeaderProcessor that is only used when the headers are read straight from the stream,
+ * e.g. by the streaming header mode of the SOAP binding.  Headers that are read into a DOM
+ * are left as DOM Elements, and outbound headers are not written with its DataBinding.
+ */
+public interface StreamingHeaderProcessor extends HeaderProcessor {
+
+    /**
+     * @param name the name of the header
+     * @return true if the header is read with the DataBinding of this processor
+     */
+    boolean canRead(QName name);
+
+}
@@ -31,9 +31,11 @@ import java.io.PushbackInputStream;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 
 import org.apache.cxf.io.CopyingOutputStream;
+import org.apache.cxf.io.FileChannelInputStream;
 import org.apache.cxf.io.Transferable;
 
 public final class IOUtils {
@@ -148,6 +150,15 @@ public final class IOUtils {
         if (output instanceof CopyingOutputStream) {
             return ((CopyingOutputStream)output).copyFrom(input);
         }
+        if (input instanceof FileChannelInputStream && output instanceof FileOutputStream) {
+            // socket streams are FileOutputStreams too but have no channel
+            FileChannel channel = ((FileOutputStream)output).getChannel();
+            if (channel != null) {
+                long count = ((FileChannelInputStream)input).transferTo(channel);
+                // -1 for more than 2GB, which do not fit the count
+                return count > Integer.MAX_VALUE ? -1 : (int)count;
+            }
+        }
         return copy(input, output, DEFAULT_BUFFER_SIZE);
     }
 
@@ -20,12 +20,12 @@
 package org.apache.cxf.interceptor;
 
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.cxf.common.util.ModCountConcurrentHashMap;
 import org.apache.cxf.common.util.ModCountCopyOnWriteArrayList;
 import org.apache.cxf.message.Message;
 
-public abstract class AbstractAttributedInterceptorProvider extends ConcurrentHashMap<String, Object>
+public abstract class AbstractAttributedInterceptorProvider extends ModCountConcurrentHashMap<String, Object>
     implements InterceptorProvider {
 
     private static final long serialVersionUID = -1915876045710441978L;
@@ -96,11 +96,11 @@ public class ServiceInvokerInterceptor extends AbstractPhaseInterceptor<Message>
             invocation.run();
         } else {
             exchange.put(Executor.class, executor);
-            // The current thread holds the lock on PhaseInterceptorChain.
-            // In order to avoid the executor threads deadlocking on any of
-            // synchronized PhaseInterceptorChain methods the current thread
-            // needs to release the chain lock and re-acquire it after the
-            // executor thread is done
+            // The current thread owns the PhaseInterceptorChain.
+            // In order to avoid the executor threads deadlocking when they
+            // resume or re-enter the chain the current thread lends the chain
+            // to the executor thread and waits in releaseAndAcquireChain until
+            // the executor thread is done
             
             final PhaseInterceptorChain chain = (PhaseInterceptorChain)message.getInterceptorChain();
             final AtomicBoolean contextSwitched = new AtomicBoolean(); 
@@ -0,0 +1,222 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.io;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cxf.Bus;
+
+/**
+ * Pool of fixed size byte[] chunks used by the in-memory part of the
+ * CachedOutputStream.  Each thread keeps a few chunks of its own so the
+ * common acquire/release cycle does not touch the shared queue.  The chunks
+ * kept by all the threads together are bounded as well; the chunks of threads
+ * that have died are no longer counted once their caches have been collected.
+ *
+ * The pool of a Bus is configured with the "bus.io.BufferPool.ChunkSize",
+ * "bus.io.BufferPool.MaxPooledChunks" and "bus.io.BufferPool.MaxThreadCachedChunks"
+ * properties.
+ */
+public class BufferPool {
+    public static final String CHUNK_SIZE_PROPERTY = "bus.io.BufferPool.ChunkSize";
+    public static final String MAX_POOLED_CHUNKS_PROPERTY = "bus.io.BufferPool.MaxPooledChunks";
+    public static final String MAX_THREAD_CACHED_CHUNKS_PROPERTY = "bus.io.BufferPool.MaxThreadCachedChunks";
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+    public static final int DEFAULT_MAX_POOLED_CHUNKS = 2048;
+    public static final int DEFAULT_MAX_THREAD_CACHED_CHUNKS = 512;
+
+    private static final int THREAD_CACHE_SIZE = 8;
+    private static final BufferPool DEFAULT_POOL = new BufferPool();
+
+    private final int chunkSize;
+    private final int maxPooledChunks;
+    private final int maxThreadCachedChunks;
+    private final Queue<byte[]> shared = new ConcurrentLinkedQueue<byte[]>();
+    private final AtomicInteger sharedCount = new AtomicInteger();
+    private final AtomicInteger threadCachedCount = new AtomicInteger();
+    private final ReferenceQueue<ThreadCache> staleCaches = new ReferenceQueue<ThreadCache>();
+    // keeps the references reachable until their caches have been collected
+    private final Map<ThreadCacheReference, Boolean> cacheReferences =
+        new ConcurrentHashMap<ThreadCacheReference, Boolean>();
+    private final ThreadLocal<ThreadCache> threadCache = new ThreadLocal<ThreadCache>() {
+        @Override
+        protected ThreadCache initialValue() {
+            ThreadCache cache = new ThreadCache();
+            cacheReferences.put(new ThreadCacheReference(cache, staleCaches), Boolean.TRUE);
+            return cache;
+        }
+    };
+
+    public BufferPool() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_POOLED_CHUNKS);
+    }
+
+    public BufferPool(Bus b) {
+        this(getIntProperty(b, CHUNK_SIZE_PROPERTY, DEFAULT_CHUNK_SIZE),
+             getIntProperty(b, MAX_POOLED_CHUNKS_PROPERTY, DEFAULT_MAX_POOLED_CHUNKS),
+             getIntProperty(b, MAX_THREAD_CACHED_CHUNKS_PROPERTY, DEFAULT_MAX_THREAD_CACHED_CHUNKS));
+    }
+
+    public BufferPool(int chunkSize, int maxPooledChunks) {
+        this(chunkSize, maxPooledChunks, Math.min(maxPooledChunks, DEFAULT_MAX_THREAD_CACHED_CHUNKS));
+    }
+
+    public BufferPool(int chunkSize, int maxPooledChunks, int maxThreadCachedChunks) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.maxPooledChunks = maxPooledChunks;
+        this.maxThreadCachedChunks = maxThreadCachedChunks;
+    }
+
+    /**
+     * Returns the pool registered on the Bus, or the JVM wide default pool
+     * if there is no Bus or the Bus does not provide one.
+     */
+    public static BufferPool getBufferPool(Bus b) {
+        if (b != null) {
+            BufferPool pool = b.getExtension(BufferPool.class);
+            if (pool != null) {
+                return pool;
+            }
+        }
+        return DEFAULT_POOL;
+    }
+
+    public static BufferPool getDefaultBufferPool() {
+        return DEFAULT_POOL;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getMaxPooledChunks() {
+        return maxPooledChunks;
+    }
+
+    /**
+     * @return the number of chunks currently held in the shared part of the pool
+     */
+    public int getPooledChunks() {
+        return sharedCount.get();
+    }
+
+    public int getMaxThreadCachedChunks() {
+        return maxThreadCachedChunks;
+    }
+
+    /**
+     * @return the number of chunks currently kept by the threads
+     */
+    public int getThreadCachedChunks() {
+        expungeStaleCaches();
+        return threadCachedCount.get();
+    }
+
+    public byte[] acquire() {
+        ThreadCache cache = threadCache.get();
+        int count = cache.count.get();
+        if (count > 0) {
+            byte[] chunk = cache.chunks[--count];
+            cache.chunks[count] = null;
+            cache.count.set(count);
+            threadCachedCount.decrementAndGet();
+            return chunk;
+        }
+        byte[] chunk = shared.poll();
+        if (chunk != null) {
+            sharedCount.decrementAndGet();
+            return chunk;
+        }
+        return new byte[chunkSize];
+    }
+
+    /**
+     * Hands a chunk back to the pool.  The caller must not use the chunk afterwards.
+     * Chunks that do not have the pool's chunk size are ignored.
+     */
+    public void release(byte[] chunk) {
+        if (chunk == null || chunk.length != chunkSize) {
+            return;
+        }
+        expungeStaleCaches();
+        ThreadCache cache = threadCache.get();
+        int count = cache.count.get();
+        if (count < THREAD_CACHE_SIZE) {
+            if (threadCachedCount.incrementAndGet() <= maxThreadCachedChunks) {
+                cache.chunks[count] = chunk;
+                cache.count.set(count + 1);
+                return;
+            }
+            threadCachedCount.decrementAndGet();
+        }
+        if (sharedCount.incrementAndGet() <= maxPooledChunks) {
+            shared.offer(chunk);
+        } else {
+            sharedCount.decrementAndGet();
+        }
+    }
+
+    private static int getIntProperty(Bus b, String key, int dflt) {
+        Object v = b == null ? null : b.getProperty(key);
+        if (v == null) {
+            return dflt;
+        }
+        return v instanceof Number ? ((Number)v).intValue() : Integer.parseInt(v.toString());
+    }
+
+    /**
+     * Stops counting the chunks of the caches of threads that have died.
+     */
+    private void expungeStaleCaches() {
+        Reference<? extends ThreadCache> ref = staleCaches.poll();
+        while (ref != null) {
+            ThreadCacheReference cacheRef = (ThreadCacheReference)ref;
+            if (cacheReferences.remove(cacheRef) != null) {
+                threadCachedCount.addAndGet(-cacheRef.count.get());
+            }
+            ref = staleCaches.poll();
+        }
+    }
+
+    private static final class ThreadCache {
+        final byte[][] chunks = new byte[THREAD_CACHE_SIZE][];
+        // only changed by the owning thread, read once the cache has been collected
+        final AtomicInteger count = new AtomicInteger();
+    }
+
+    private static final class ThreadCacheReference extends WeakReference<ThreadCache> {
+        final AtomicInteger count;
+
+        ThreadCacheReference(ThreadCache cache, ReferenceQueue<ThreadCache> queue) {
+            super(cache, queue);
+            count = cache.count;
+        }
+    }
+}
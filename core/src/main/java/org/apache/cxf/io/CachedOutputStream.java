@@ -48,10 +48,24 @@ import org.apache.cxf.helpers.IOUtils;
 import org.apache.cxf.helpers.LoadingByteArrayOutputStream;
 
 public class CachedOutputStream extends OutputStream {
+    /**
+     * Spill mode writing the temp file through a FileOutputStream (the default).
+     */
+    public static final String SPILL_MODE_STREAM = "stream";
+    /**
+     * Spill mode writing the temp file with gathering FileChannel writes.
+     */
+    public static final String SPILL_MODE_CHANNEL = "channel";
+    /**
+     * Spill mode writing the temp file through memory mapped, preallocated segments.
+     */
+    public static final String SPILL_MODE_MAPPED = "mapped";
+
     private static final File DEFAULT_TEMP_DIR;
     private static int defaultThreshold;
     private static long defaultMaxSize;
     private static String defaultCipherTransformation;
+    private static String defaultSpillMode;
     static {
         
         String s = SystemPropertyAction.getPropertyOrNull("org.apache.cxf.io.CachedOutputStream.OutputDirectory");
@@ -69,6 +83,7 @@ public class CachedOutputStream extends OutputStream {
         setDefaultThreshold(-1);
         setDefaultMaxSize(-1);
         setDefaultCipherTransformation(null);
+        setDefaultSpillMode(null);
     }
 
     protected boolean outputLocked;
@@ -86,8 +101,10 @@ public class CachedOutputStream extends OutputStream {
     private File outputDir = DEFAULT_TEMP_DIR;
     private boolean allowDeleteOfFile = true;
     private String cipherTransformation = defaultCipherTransformation;
+    private String spillMode = defaultSpillMode;
     private CipherPair ciphers;
 
+    private BufferPool bufferPool;
     private List<CachedOutputStreamCallback> callbacks;
     
     private List<Object> streamList = new ArrayList<Object>();
@@ -98,13 +115,14 @@ public class CachedOutputStream extends OutputStream {
 
     public CachedOutputStream(long threshold) {
         this.threshold = threshold; 
-        currentStream = new LoadingByteArrayOutputStream(2048);
-        inmem = true;
         readBusProperties();
+        currentStream = new ChunkedByteArrayOutputStream(bufferPool);
+        inmem = true;
     }
 
     private void readBusProperties() {
         Bus b = BusFactory.getThreadDefaultBus(false);
+        bufferPool = BufferPool.getBufferPool(b);
         if (b != null) {
             String v = getBusProperty(b, "bus.io.CachedOutputStream.Threshold", null);
             if (v != null && threshold == defaultThreshold) {
@@ -118,6 +136,10 @@ public class CachedOutputStream extends OutputStream {
             if (v != null) {
                 cipherTransformation = v;
             }
+            v = getBusProperty(b, "bus.io.CachedOutputStream.SpillMode", null);
+            if (v != null) {
+                spillMode = v;
+            }
         }
     }
 
@@ -216,6 +238,19 @@ public class CachedOutputStream extends OutputStream {
         postClose();
     }
 
+    /**
+     * Hands the chunks holding the in-memory content back to the buffer pool once the
+     * InputStreams reading them have been closed.  After {@link #close()} that happens
+     * anyway when the last InputStream is closed, as the temp file is deleted then; this
+     * call also recycles the chunks of content that is never read.  The content must not
+     * be used afterwards.
+     */
+    public void dispose() {
+        if (inmem && currentStream instanceof ChunkedByteArrayOutputStream) {
+            ((ChunkedByteArrayOutputStream)currentStream).dispose();
+        }
+    }
+
     public boolean equals(Object obj) {
         if (obj == this) {
             return true;
@@ -239,7 +274,7 @@ public class CachedOutputStream extends OutputStream {
      */
     public void resetOut(OutputStream out, boolean copyOldContent) throws IOException {
         if (out == null) {
-            out = new LoadingByteArrayOutputStream();
+            out = new ChunkedByteArrayOutputStream(bufferPool);
         }
 
         if (currentStream instanceof CachedOutputStream) {
@@ -253,6 +288,9 @@ public class CachedOutputStream extends OutputStream {
                     if (copyOldContent && byteOut.size() > 0) {
                         byteOut.writeTo(out);
                     }
+                    if (byteOut instanceof ChunkedByteArrayOutputStream) {
+                        ((ChunkedByteArrayOutputStream)byteOut).dispose();
+                    }
                 } else {
                     throw new IOException("Unknown format of currentStream");
                 }
@@ -328,7 +366,10 @@ public class CachedOutputStream extends OutputStream {
 
         long count = 0;
         if (inmem) {
-            if (currentStream instanceof LoadingByteArrayOutputStream) {
+            if (currentStream instanceof ChunkedByteArrayOutputStream) {
+                ChunkedByteArrayOutputStream cout = (ChunkedByteArrayOutputStream)currentStream;
+                out.append(IOUtils.newStringFromBytes(cout.toByteArray((int)limit), charsetName));
+            } else if (currentStream instanceof LoadingByteArrayOutputStream) {
                 LoadingByteArrayOutputStream lout = (LoadingByteArrayOutputStream)currentStream;
                 out.append(IOUtils.newStringFromBytes(lout.getRawBytes(), charsetName, 0, (int)limit));
             } else if (currentStream instanceof ByteArrayOutputStream) {
@@ -467,9 +508,18 @@ public class CachedOutputStream extends OutputStream {
             }
             
             currentStream = createOutputStream(tempFile);
-            bout.writeTo(currentStream);
+            if (currentStream instanceof FileChannelOutputStream
+                && bout instanceof ChunkedByteArrayOutputStream) {
+                ((FileChannelOutputStream)currentStream)
+                    .write(((ChunkedByteArrayOutputStream)bout).toByteBuffers());
+            } else {
+                bout.writeTo(currentStream);
+            }
             inmem = false;
             streamList.add(currentStream);
+            if (bout instanceof ChunkedByteArrayOutputStream) {
+                ((ChunkedByteArrayOutputStream)bout).dispose();
+            }
         } catch (Exception ex) {
             //Could be IOException or SecurityException or other issues.
             //Don't care what, just keep it in memory.
@@ -490,7 +540,9 @@ public class CachedOutputStream extends OutputStream {
     public InputStream getInputStream() throws IOException {
         flush();
         if (inmem) {
-            if (currentStream instanceof LoadingByteArrayOutputStream) {
+            if (currentStream instanceof ChunkedByteArrayOutputStream) {
+                return ((ChunkedByteArrayOutputStream) currentStream).createInputStream();
+            } else if (currentStream instanceof LoadingByteArrayOutputStream) {
                 return ((LoadingByteArrayOutputStream) currentStream).createInputStream();
             } else if (currentStream instanceof ByteArrayOutputStream) {
                 return new ByteArrayInputStream(((ByteArrayOutputStream) currentStream).toByteArray());
@@ -499,6 +551,12 @@ public class CachedOutputStream extends OutputStream {
             }
         } else {
             try {
+                if (currentStream instanceof FileChannelOutputStream) {
+                    InputStream in = new TrackedFileChannelInputStream(
+                        tempFile, ((FileChannelOutputStream)currentStream).getLength());
+                    streamList.add(in);
+                    return in;
+                }
                 InputStream fileInputStream = new TransferableFileInputStream(tempFile);
                 streamList.add(fileInputStream);
                 if (cipherTransformation != null) {
@@ -539,7 +597,7 @@ public class CachedOutputStream extends OutputStream {
                 }
             }
             deleteTempFile();
-            currentStream = new LoadingByteArrayOutputStream(1024);
+            currentStream = new ChunkedByteArrayOutputStream(bufferPool);
             inmem = true;
         }
     }
@@ -562,6 +620,16 @@ public class CachedOutputStream extends OutputStream {
     public void setCipherTransformation(String cipherTransformation) {
         this.cipherTransformation = cipherTransformation;
     }
+
+    /**
+     * Selects how the content is written to the temp file once the threshold
+     * is exceeded, one of {@link #SPILL_MODE_STREAM}, {@link #SPILL_MODE_CHANNEL}
+     * or {@link #SPILL_MODE_MAPPED}.  Encrypted temp files are always written
+     * as streams.
+     */
+    public void setSpillMode(String spillMode) {
+        this.spillMode = spillMode;
+    }
     
     public static void setDefaultMaxSize(long l) {
         if (l == -1) {
@@ -583,6 +651,12 @@ public class CachedOutputStream extends OutputStream {
         defaultThreshold = i;
         
     }
+    public static void setDefaultSpillMode(String n) {
+        if (n == null) {
+            n = SystemPropertyAction.getPropertyOrNull("org.apache.cxf.io.CachedOutputStream.SpillMode");
+        }
+        defaultSpillMode = n;
+    }
     public static void setDefaultCipherTransformation(String n) {
         if (n == null) {
             n = SystemPropertyAction.getPropertyOrNull("org.apache.cxf.io.CachedOutputStream.CipherTransformation");
@@ -591,6 +665,11 @@ public class CachedOutputStream extends OutputStream {
     }
 
     private OutputStream createOutputStream(File file) throws IOException {
+        if (cipherTransformation == null
+            && (SPILL_MODE_CHANNEL.equals(spillMode) || SPILL_MODE_MAPPED.equals(spillMode))) {
+            return new FileChannelOutputStream(file, SPILL_MODE_MAPPED.equals(spillMode),
+                                               FileChannelOutputStream.DEFAULT_SEGMENT_SIZE);
+        }
         OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
         if (cipherTransformation != null) {
             try {
@@ -614,6 +693,9 @@ public class CachedOutputStream extends OutputStream {
     }
 
     private InputStream createInputStream(File file) throws IOException {
+        if (currentStream instanceof FileChannelOutputStream) {
+            return new FileChannelInputStream(file, ((FileChannelOutputStream)currentStream).getLength());
+        }
         InputStream in = new FileInputStream(file);
         if (cipherTransformation != null) {
             in = new CipherInputStream(in, ciphers.getDecryptor()) {
@@ -629,6 +711,23 @@ public class CachedOutputStream extends OutputStream {
         return in;
     }
 
+    private class TrackedFileChannelInputStream extends FileChannelInputStream {
+        private boolean closed;
+
+        TrackedFileChannelInputStream(File file, long length) throws IOException {
+            super(file, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                super.close();
+                maybeDeleteTempFile(this);
+            }
+            closed = true;
+        }
+    }
+
     private class TransferableFileInputStream extends FileInputStream implements Transferable {
         private boolean closed;
         private File sourceFile;
@@ -0,0 +1,331 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.apache.cxf.helpers.IOUtils;
+
+/**
+ * ByteArrayOutputStream that keeps its content in fixed size chunks taken
+ * from a {@link BufferPool} instead of a single growing array, so the content
+ * is never copied while it grows.
+ *
+ * InputStreams created with {@link #createInputStream()} read the chunks
+ * directly.  The chunks go back to the pool once the last of those InputStreams
+ * is closed after the stream itself has been closed, or once they are all closed
+ * after {@link #dispose()}.  Like a temp file of the CachedOutputStream, the
+ * content is gone from then on.  InputStreams that are never closed simply keep
+ * their chunks out of the pool.
+ *
+ * Note: as with the LoadingByteArrayOutputStream, the output stream should no
+ * longer be written once an InputStream has been created.
+ */
+public class ChunkedByteArrayOutputStream extends ByteArrayOutputStream {
+    private final BufferPool pool;
+    private byte[][] chunks = new byte[8][];
+    private int chunkCount;
+    private int pos;
+    private int openReaders;
+    private boolean closed;
+    private boolean disposed;
+
+    public ChunkedByteArrayOutputStream() {
+        this(BufferPool.getDefaultBufferPool());
+    }
+    public ChunkedByteArrayOutputStream(BufferPool pool) {
+        super(0);
+        this.pool = pool;
+    }
+
+    @Override
+    public void write(int b) {
+        if (chunkCount == 0 || pos == chunks[chunkCount - 1].length) {
+            addChunk();
+        }
+        chunks[chunkCount - 1][pos++] = (byte)b;
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if ((off < 0) || (off > b.length) || (len < 0)
+            || ((off + len) - b.length > 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            if (chunkCount == 0 || pos == chunks[chunkCount - 1].length) {
+                addChunk();
+            }
+            byte[] chunk = chunks[chunkCount - 1];
+            int n = Math.min(len, chunk.length - pos);
+            System.arraycopy(b, off, chunk, pos, n);
+            pos += n;
+            off += n;
+            len -= n;
+            count += n;
+        }
+    }
+
+    private void addChunk() {
+        if (chunkCount == chunks.length) {
+            byte[][] newChunks = new byte[chunks.length * 2][];
+            System.arraycopy(chunks, 0, newChunks, 0, chunkCount);
+            chunks = newChunks;
+        }
+        chunks[chunkCount++] = pool.acquire();
+        pos = 0;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        int remaining = count;
+        for (int x = 0; x < chunkCount && remaining > 0; x++) {
+            int n = Math.min(remaining, chunks[x].length);
+            out.write(chunks[x], 0, n);
+            remaining -= n;
+        }
+    }
+
+    /**
+     * Wraps the chunks holding the content, for gathering writes.
+     */
+    ByteBuffer[] toByteBuffers() {
+        ByteBuffer[] buffers = new ByteBuffer[chunkCount];
+        int remaining = count;
+        for (int x = 0; x < chunkCount; x++) {
+            int n = Math.min(remaining, chunks[x].length);
+            buffers[x] = ByteBuffer.wrap(chunks[x], 0, n);
+            remaining -= n;
+        }
+        return buffers;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        return toByteArray(count);
+    }
+
+    /**
+     * Copies at most the given number of bytes from the start of the content.
+     */
+    public byte[] toByteArray(int limit) {
+        int length = Math.min(count, Math.max(limit, 0));
+        byte[] bytes = new byte[length];
+        int off = 0;
+        for (int x = 0; x < chunkCount && off < length; x++) {
+            int n = Math.min(length - off, chunks[x].length);
+            System.arraycopy(chunks[x], 0, bytes, off, n);
+            off += n;
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return IOUtils.newStringFromBytes(toByteArray());
+    }
+
+    @Override
+    public String toString(String charsetName) throws UnsupportedEncodingException {
+        return new String(toByteArray(), charsetName);
+    }
+
+    public String toString(Charset charset) {
+        return new String(toByteArray(), charset);
+    }
+
+    /**
+     * Discards the content, handing all the chunks but the first back to the pool.
+     * Must not be called while InputStreams created from this stream are still in use.
+     */
+    @Override
+    public void reset() {
+        for (int x = 1; x < chunkCount; x++) {
+            pool.release(chunks[x]);
+            chunks[x] = null;
+        }
+        chunkCount = Math.min(chunkCount, 1);
+        pos = 0;
+        count = 0;
+    }
+
+    /**
+     * The content stays available after close, until the last InputStream reading it is closed.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+    }
+
+    /**
+     * Creates an InputStream reading the current content without copying it.
+     */
+    public synchronized InputStream createInputStream() {
+        openReaders++;
+        return new ChunkedInputStream(chunks, count);
+    }
+
+    /**
+     * Hands the chunks back to the pool once all the InputStreams created from this
+     * stream have been closed.  The content must not be used afterwards.
+     */
+    public synchronized void dispose() {
+        disposed = true;
+        if (openReaders == 0) {
+            releaseChunks();
+        }
+    }
+
+    private synchronized void readerClosed() {
+        openReaders--;
+        if ((closed || disposed) && openReaders == 0) {
+            releaseChunks();
+        }
+    }
+
+    private void releaseChunks() {
+        for (int x = 0; x < chunkCount; x++) {
+            pool.release(chunks[x]);
+        }
+        chunks = new byte[8][];
+        chunkCount = 0;
+        pos = 0;
+        count = 0;
+        disposed = false;
+    }
+
+    private class ChunkedInputStream extends InputStream implements Transferable {
+        private final byte[][] data;
+        private final int length;
+        private int position;
+        private int markPosition;
+        private boolean closed;
+
+        ChunkedInputStream(byte[][] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+
+        @Override
+        public int read() {
+            if (position >= length) {
+                return -1;
+            }
+            int chunkSize = data[0].length;
+            int b = data[position / chunkSize][position % chunkSize] & 0xff;
+            position++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (position >= length) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int chunkSize = data[0].length;
+            int read = 0;
+            len = Math.min(len, length - position);
+            while (read < len) {
+                int chunkOffset = position % chunkSize;
+                int n = Math.min(len - read, chunkSize - chunkOffset);
+                System.arraycopy(data[position / chunkSize], chunkOffset, b, off + read, n);
+                read += n;
+                position += n;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            long k = Math.max(0, Math.min(n, length - position));
+            position += k;
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return length - position;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public void mark(int readlimit) {
+            markPosition = position;
+        }
+
+        @Override
+        public void reset() {
+            position = markPosition;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                readerClosed();
+            }
+        }
+
+        @Override
+        public void transferTo(File file) throws IOException {
+            try (FileOutputStream fout = new FileOutputStream(file)) {
+                int remaining = length;
+                for (int x = 0; remaining > 0; x++) {
+                    int n = Math.min(remaining, data[x].length);
+                    fout.write(data[x], 0, n);
+                    remaining -= n;
+                }
+            }
+        }
+
+        public String toString() {
+            byte[] bytes = new byte[length];
+            int oldPosition = position;
+            position = 0;
+            read(bytes, 0, length);
+            position = oldPosition;
+            return IOUtils.newStringFromBytes(bytes);
+        }
+    }
+}
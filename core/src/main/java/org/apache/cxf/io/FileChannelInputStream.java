@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputStream reading the first <code>length</code> bytes of a file through a
+ * FileChannel.  The content can be handed to another channel with
+ * {@link #transferTo(WritableByteChannel)}, which lets the operating system
+ * copy the data (sendfile) without bringing it into the JVM.
+ */
+public class FileChannelInputStream extends InputStream implements Transferable {
+    private static final long STALL_TIMEOUT = 30000L;
+    private static final int MAX_BACKOFF = 50;
+
+    private final FileChannel channel;
+    private final long length;
+    private final byte[] single = new byte[1];
+    private long position;
+    private long markPosition;
+    private boolean closed;
+
+    public FileChannelInputStream(File file, long length) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.length = length;
+    }
+
+    /**
+     * @return the number of bytes of the file the stream reads
+     */
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (position >= length) {
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        ByteBuffer bb = ByteBuffer.wrap(b, off, (int)Math.min(len, length - position));
+        int n = channel.read(bb, position);
+        if (n > 0) {
+            position += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        long k = Math.max(0, Math.min(n, length - position));
+        position += k;
+        return k;
+    }
+
+    @Override
+    public int available() {
+        return (int)Math.min(Integer.MAX_VALUE, length - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        markPosition = position;
+    }
+
+    @Override
+    public synchronized void reset() {
+        position = markPosition;
+    }
+
+    /**
+     * Transfers all the remaining content to the target channel.  A target that does not
+     * accept any data, such as a congested non-blocking channel, is retried for a while
+     * before an IOException is thrown, so the content is never silently truncated.
+     * @return the number of bytes transferred
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        long start = position;
+        long stalledSince = -1;
+        int backoff = 1;
+        while (position < length) {
+            long n = channel.transferTo(position, length - position, target);
+            if (n > 0) {
+                position += n;
+                stalledSince = -1;
+                backoff = 1;
+                continue;
+            }
+            if (channel.size() <= position) {
+                throw new IOException("Could not transfer the content, the file ends "
+                                      + (length - position) + " bytes early");
+            }
+            long now = System.currentTimeMillis();
+            if (stalledSince == -1) {
+                stalledSince = now;
+            } else if (now - stalledSince > STALL_TIMEOUT) {
+                throw new IOException("Could not transfer the content, "
+                                      + (length - position) + " bytes left");
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted transferring the content");
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        }
+        return position - start;
+    }
+
+    @Override
+    public void transferTo(File file) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                                                StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            transferTo(out);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.cxf.helpers.FileUtils;
+
+/**
+ * OutputStream writing the spilled content of a CachedOutputStream through a
+ * FileChannel.  Either the writes are staged in a buffer and written with
+ * gathering writes, or the file is preallocated in segments that are memory
+ * mapped and written directly.
+ */
+final class FileChannelOutputStream extends OutputStream {
+    static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+    private static final int STAGING_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final boolean mapped;
+    private final int segmentSize;
+    private ByteBuffer buffer;
+    private long segmentStart;
+    private long length;
+    private boolean closed;
+
+    FileChannelOutputStream(File file, boolean mapped, int segmentSize) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.mapped = mapped;
+        this.segmentSize = segmentSize;
+        if (!mapped) {
+            buffer = ByteBuffer.allocate(STAGING_SIZE);
+        }
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (mapped) {
+            nextSegmentIfFull();
+        } else if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte)b);
+        length++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (mapped) {
+            while (len > 0) {
+                nextSegmentIfFull();
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+                length += n;
+            }
+        } else if (len >= buffer.capacity()) {
+            drain();
+            writeFully(ByteBuffer.wrap(b, off, len));
+            length += len;
+        } else {
+            if (len > buffer.remaining()) {
+                drain();
+            }
+            buffer.put(b, off, len);
+            length += len;
+        }
+    }
+
+    /**
+     * Writes all the remaining bytes of the buffers, with a single gathering
+     * write where the channel allows it.
+     */
+    void write(ByteBuffer[] buffers) throws IOException {
+        ensureOpen();
+        if (mapped) {
+            for (ByteBuffer bb : buffers) {
+                while (bb.hasRemaining()) {
+                    nextSegmentIfFull();
+                    int n = Math.min(bb.remaining(), buffer.remaining());
+                    ByteBuffer slice = bb.slice();
+                    slice.limit(n);
+                    buffer.put(slice);
+                    bb.position(bb.position() + n);
+                    length += n;
+                }
+            }
+            return;
+        }
+        drain();
+        long total = 0;
+        for (ByteBuffer bb : buffers) {
+            total += bb.remaining();
+        }
+        long written = 0;
+        while (written < total) {
+            written += channel.write(buffers);
+        }
+        length += total;
+    }
+
+    private void nextSegmentIfFull() throws IOException {
+        if (buffer == null || !buffer.hasRemaining()) {
+            if (buffer != null) {
+                segmentStart += buffer.capacity();
+                // a full segment is not written again
+                FileUtils.unmap(buffer);
+                buffer = null;
+            }
+            // mapping beyond the end of the file grows (preallocates) it
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, segmentSize);
+            buffer = segment;
+        }
+    }
+
+    private void drain() throws IOException {
+        if (!mapped && buffer.position() > 0) {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+    }
+
+    private void writeFully(ByteBuffer bb) throws IOException {
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!closed) {
+            drain();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            drain();
+            if (mapped) {
+                // the last segment has to be unmapped before the unused part of
+                // the preallocated segment can be dropped
+                FileUtils.unmap(buffer);
+                buffer = null;
+                channel.truncate(length);
+            }
+        } finally {
+            if (mapped && buffer != null) {
+                FileUtils.unmap(buffer);
+                buffer = null;
+            }
+            closed = true;
+            channel.close();
+        }
+    }
+}
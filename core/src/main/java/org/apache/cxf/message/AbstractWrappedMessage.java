@@ -162,11 +162,9 @@ public abstract class AbstractWrappedMessage implements Message {
         return message.getContextualProperty(key);
     }  
     void setContextualProperty(String key, Object v) {
-        if (message instanceof MessageImpl) {
-            ((MessageImpl)message).setContextualProperty(key, v);
-        }  else if (message instanceof AbstractWrappedMessage) {
+        if (message instanceof AbstractWrappedMessage) {
             ((AbstractWrappedMessage)message).setContextualProperty(key, v);
-        } else {
+        } else if (!(message instanceof MessageImpl)) {
             //cannot set directly.  Just invalidate the cache.
             message.resetContextCache();
         }        
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.message;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.common.util.ModCountConcurrentHashMap;
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.service.Service;
+import org.apache.cxf.service.model.BindingInfo;
+import org.apache.cxf.service.model.EndpointInfo;
+
+/**
+ * Holds the merged bus, service, binding and endpoint properties that messages
+ * fall back to when resolving contextual properties.  The merged view is immutable
+ * and shared by all the messages of an endpoint.  It is rebuilt once one of the
+ * underlying property maps has been modified.
+ */
+public final class ContextualProperties implements Serializable {
+    private static final long serialVersionUID = 4317016482937408126L;
+    private static final int SOURCE_COUNT = 5;
+
+    private transient volatile Snapshot snapshot;
+
+    public ContextualProperties() {
+        //nothing
+    }
+
+    Map<String, Object> getProperties(Bus bus, Service service, Endpoint endpoint) {
+        Snapshot s = snapshot;
+        if (s != null && s.isCurrent(bus, service, endpoint)) {
+            return s.properties;
+        }
+        s = new Snapshot(bus, service, endpoint);
+        if (s.tracked) {
+            snapshot = s;
+        }
+        return s.properties;
+    }
+
+    static Map<String, Object> merge(Bus bus, Service service, Endpoint endpoint) {
+        Map<String, Object> o = new HashMap<String, Object>();
+        for (int x = 0; x < SOURCE_COUNT; x++) {
+            Map<String, Object> m = getSource(x, bus, service, endpoint);
+            if (m != null && m.size() > 0) {
+                o.putAll(m);
+            }
+        }
+        return Collections.unmodifiableMap(o);
+    }
+
+    /**
+     * Returns the property maps in increasing order of precedence.
+     */
+    private static Map<String, Object> getSource(int idx, Bus bus, Service service, Endpoint endpoint) {
+        switch (idx) {
+        case 0:
+            return bus == null ? null : bus.getProperties();
+        case 1:
+            return service;
+        case 2:
+            EndpointInfo ei = endpoint == null ? null : endpoint.getEndpointInfo();
+            BindingInfo bi = ei == null ? null : ei.getBinding();
+            return bi == null ? null : bi.getProperties();
+        case 3:
+            ei = endpoint == null ? null : endpoint.getEndpointInfo();
+            return ei == null ? null : ei.getProperties();
+        default:
+            return endpoint;
+        }
+    }
+
+    private static final class Snapshot {
+        final Bus bus;
+        final Service service;
+        final Endpoint endpoint;
+        final Map<?, ?> sources[] = new Map<?, ?>[SOURCE_COUNT];
+        final int modCounts[] = new int[SOURCE_COUNT];
+        final boolean tracked;
+        final Map<String, Object> properties;
+
+        Snapshot(Bus bus, Service service, Endpoint endpoint) {
+            this.bus = bus;
+            this.service = service;
+            this.endpoint = endpoint;
+            boolean t = true;
+            Map<String, Object> o = new HashMap<String, Object>();
+            for (int x = 0; x < SOURCE_COUNT; x++) {
+                Map<String, Object> m = getSource(x, bus, service, endpoint);
+                sources[x] = m;
+                if (m instanceof ModCountConcurrentHashMap) {
+                    // read before copying so a concurrent change makes the snapshot
+                    // look stale rather than going unnoticed
+                    modCounts[x] = ((ModCountConcurrentHashMap<?, ?>)m).getModCount();
+                } else if (m != null) {
+                    t = false;
+                }
+                if (m != null && m.size() > 0) {
+                    o.putAll(m);
+                }
+            }
+            tracked = t;
+            properties = Collections.unmodifiableMap(o);
+        }
+
+        boolean isCurrent(Bus b, Service s, Endpoint e) {
+            if (b != bus || s != service || e != endpoint) {
+                return false;
+            }
+            for (int x = 0; x < SOURCE_COUNT; x++) {
+                Map<String, Object> m = getSource(x, b, s, e);
+                if (m != sources[x]
+                    || m != null && ((ModCountConcurrentHashMap<?, ?>)m).getModCount() != modCounts[x]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -160,12 +160,11 @@ public class ExchangeImpl extends ConcurrentHashMap<String, Object>  implements
     }
 
     private void setMessageContextProperty(Message m, String key, Object value) {
-        if (m == null) {
+        if (m == null || m instanceof MessageImpl) {
+            //MessageImpl reads the exchange directly on each contextual lookup
             return;
         }
-        if (m instanceof MessageImpl) {
-            ((MessageImpl)m).setContextualProperty(key, value);
-        }  else if (m instanceof AbstractWrappedMessage) {
+        if (m instanceof AbstractWrappedMessage) {
             ((AbstractWrappedMessage)m).setContextualProperty(key, value);
         } else {
             //cannot set directly.  Just invalidate the cache.
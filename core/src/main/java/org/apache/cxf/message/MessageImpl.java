@@ -20,17 +20,16 @@
 package org.apache.cxf.message;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.cxf.Bus;
 import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.endpoint.EndpointImpl;
 import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.interceptor.InterceptorChain;
 import org.apache.cxf.service.Service;
-import org.apache.cxf.service.model.EndpointInfo;
 import org.apache.cxf.transport.Destination;
 
 public class MessageImpl extends StringMapImpl implements Message {
@@ -164,54 +163,60 @@ public class MessageImpl extends StringMapImpl implements Message {
         this.interceptorChain = ic;
     }
     public Object put(String key, Object value) {
-        if (contextCache != null) {
-            contextCache.put(key, value);
-        }
+        //contextual lookups read the message directly, this is kept for
+        //code compiled against the String keyed signature
         return super.put(key, value);
     }
+    /**
+     * Resolves the property from the message, then the exchange, then the shared
+     * snapshot of the endpoint, binding, service and bus properties.
+     */
     public Object getContextualProperty(String key) {
+        if (containsKey(key)) {
+            return get(key);
+        }
+        Exchange ex = getExchange();
+        if (ex == null) {
+            return null;
+        }
+        Object o = ex.get(key);
+        if (o != null) {
+            return o;
+        }
         if (contextCache == null) {
-            calcContextCache();
+            calcContextCache(ex);
         }
         return contextCache.get(key);
     }
     public Set<String> getContextualPropertyKeys() {
-        return contextCache.keySet();
-    }
-    
-    private void calcContextCache() {
-        Map<String, Object> o = new HashMap<String, Object>() {
-            private static final long serialVersionUID = 7067290677790419348L;
-
-            public void putAll(Map<? extends String, ? extends Object> m) {
-                if (m != null && m.size() > 0) {
-                    super.putAll(m);
-                }
-            }
-        };
+        Set<String> keys = new HashSet<String>();
         Exchange ex = getExchange();
         if (ex != null) {
-            Bus b = ex.getBus();
-            if (b != null) {
-                o.putAll(b.getProperties());
+            if (contextCache == null) {
+                calcContextCache(ex);
             }
-            Service sv = ex.getService(); 
-            if (sv != null) {
-                o.putAll(sv);
-            }
-            Endpoint ep = ex.getEndpoint(); 
-            if (ep != null) {
-                EndpointInfo ei = ep.getEndpointInfo();
-                if (ei != null) {
-                    o.putAll(ep.getEndpointInfo().getBinding().getProperties());
-                    o.putAll(ep.getEndpointInfo().getProperties());
-                }
-                o.putAll(ep);
+            keys.addAll(contextCache.keySet());
+            if (ex.size() > 0) {
+                keys.addAll(ex.keySet());
             }
         }
-        o.putAll(ex);
-        o.putAll(this);
-        contextCache = o;
+        keys.addAll(keySet());
+        return keys;
+    }
+    
+    private void calcContextCache(Exchange ex) {
+        Bus b = ex.getBus();
+        Service sv = ex.getService();
+        Endpoint ep = ex.getEndpoint();
+        ContextualProperties props = null;
+        if (ep instanceof EndpointImpl) {
+            props = ((EndpointImpl)ep).getContextualProperties();
+        }
+        if (props != null) {
+            contextCache = props.getProperties(b, sv, ep);
+        } else {
+            contextCache = ContextualProperties.merge(b, sv, ep);
+        }
     }
     public static void copyContent(Message m1, Message m2) {
         for (Class<?> c : m1.getContentFormats()) {
@@ -220,14 +225,7 @@ public class MessageImpl extends StringMapImpl implements Message {
     }
 
     public void resetContextCache() {
-        if (contextCache != null) {
-            contextCache = null;
-        }
+        contextCache = null;
     }
 
-    void setContextualProperty(String key, Object v) {
-        if (contextCache != null && !containsKey(key)) {
-            contextCache.put(key, v);
-        }
-    }
 }
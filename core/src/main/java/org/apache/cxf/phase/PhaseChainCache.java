@@ -23,7 +23,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.cxf.common.util.ModCountCopyOnWriteArrayList;
 import org.apache.cxf.interceptor.Interceptor;
@@ -35,32 +38,45 @@ import org.apache.cxf.message.Message;
  * phases supplied in the get() methods of this class are defined by default
  * within org.apache.cxf.phase.PhaseManagerImpl.  For an example of this class 
  * in use, check the sourcecode of org.apache.cxf.endpoint.ClientImpl.
+ * <p>
+ * Built chains are kept as immutable, array backed templates keyed by the 
+ * identity of the phase list and of the contributing interceptor lists (bus, 
+ * service, endpoint, binding, ...), so an endpoint alternating between several 
+ * combinations does not rebuild its chains. The chain returned for a request 
+ * shares the template until it is modified.
  */
 public final class PhaseChainCache {
+    static final int MAX_TEMPLATES = 32;
+    
     AtomicReference<ChainHolder> lastData = new AtomicReference<ChainHolder>();
     
+    private final ConcurrentMap<ChainKey, ChainHolder> templates 
+        = new ConcurrentHashMap<ChainKey, ChainHolder>(4, 0.75f, 2);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
     public PhaseInterceptorChain get(SortedSet<Phase> phaseList,
                                      List<Interceptor<? extends Message>> p1) {
-        return getChain(lastData, phaseList, p1);
+        return getChain(this, phaseList, p1);
     }
 
     public PhaseInterceptorChain get(SortedSet<Phase> phaseList,
                                      List<Interceptor<? extends Message>> p1,
                                      List<Interceptor<? extends Message>> p2) {
-        return getChain(lastData, phaseList, p1, p2);
+        return getChain(this, phaseList, p1, p2);
     }
     public PhaseInterceptorChain get(SortedSet<Phase> phaseList,
                                      List<Interceptor<? extends Message>> p1,
                                      List<Interceptor<? extends Message>> p2,
                                      List<Interceptor<? extends Message>> p3) {
-        return getChain(lastData, phaseList, p1, p2, p3);
+        return getChain(this, phaseList, p1, p2, p3);
     }
     public PhaseInterceptorChain get(SortedSet<Phase> phaseList,
                                      List<Interceptor<? extends Message>> p1,
                                      List<Interceptor<? extends Message>> p2,
                                      List<Interceptor<? extends Message>> p3,
                                      List<Interceptor<? extends Message>> p4) {
-        return getChain(lastData, phaseList, p1, p2, p3, p4);
+        return getChain(this, phaseList, p1, p2, p3, p4);
     }
     public PhaseInterceptorChain get(SortedSet<Phase> phaseList,
                                      List<Interceptor<? extends Message>> p1,
@@ -68,53 +84,152 @@ public final class PhaseChainCache {
                                      List<Interceptor<? extends Message>> p3,
                                      List<Interceptor<? extends Message>> p4,
                                      List<Interceptor<? extends Message>> p5) {
-        return getChain(lastData, phaseList, p1, p2, p3, p4, p5);
+        return getChain(this, phaseList, p1, p2, p3, p4, p5);
+    }
+    
+    /**
+     * @return the number of chains served from an existing template
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    /**
+     * @return the number of chains which had to be built from the interceptor lists
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    /**
+     * @return the number of chain templates currently cached
+     */
+    public int getSize() {
+        return templates.size();
+    }
+    
+    public void clear() {
+        templates.clear();
+        lastData.set(null);
     }
     
     @SafeVarargs
-    static PhaseInterceptorChain getChain(AtomicReference<ChainHolder> lastData,
+    static PhaseInterceptorChain getChain(PhaseChainCache cache,
                                           SortedSet<Phase> phaseList,
-                                         List<Interceptor<? extends Message>> ... providers) {
+                                          List<Interceptor<? extends Message>> ... providers) {
+        return cache.getChainFromTemplates(phaseList, providers);
+    }
+    
+    private PhaseInterceptorChain getChainFromTemplates(SortedSet<Phase> phaseList,
+                                                        List<Interceptor<? extends Message>>[] providers) {
         ChainHolder last = lastData.get();
         
         if (last == null 
-            || !last.matches(providers)) {
+            || !last.matches(phaseList, providers)) {
             
-            PhaseInterceptorChain chain = new PhaseInterceptorChain(phaseList);
-            List<ModCountCopyOnWriteArrayList<Interceptor<? extends Message>>> copy 
-                = new ArrayList<ModCountCopyOnWriteArrayList<
-                    Interceptor<? extends Message>>>(providers.length);
-            for (List<Interceptor<? extends Message>> p : providers) {
-                copy.add(new ModCountCopyOnWriteArrayList<Interceptor<? extends Message>>(p));
-                chain.add(p);
+            ChainKey key = new ChainKey(phaseList, providers);
+            last = templates.get(key);
+            if (last == null || !last.matches(phaseList, providers)) {
+                misses.increment();
+                last = createHolder(phaseList, providers);
+                if (templates.size() >= MAX_TEMPLATES) {
+                    // interceptor lists are being recreated, start again
+                    templates.clear();
+                }
+                templates.put(key, last);
+            } else {
+                hits.increment();
             }
-            last = new ChainHolder(chain, copy);
             lastData.set(last);
+        } else {
+            hits.increment();
         }
         
+        return new PhaseInterceptorChain(last.template);
+    }
+    
+    @SafeVarargs
+    private static ChainHolder createHolder(SortedSet<Phase> phaseList, 
+                                            List<Interceptor<? extends Message>> ... providers) {
+        PhaseInterceptorChain chain = new PhaseInterceptorChain(phaseList);
+        List<ModCountCopyOnWriteArrayList<Interceptor<? extends Message>>> copy 
+            = new ArrayList<ModCountCopyOnWriteArrayList<
+                Interceptor<? extends Message>>>(providers.length);
+        for (List<Interceptor<? extends Message>> p : providers) {
+            copy.add(new ModCountCopyOnWriteArrayList<Interceptor<? extends Message>>(p));
+            chain.add(p);
+        }
+        return new ChainHolder(phaseList, chain.createTemplate(), copy, providers.clone());
+    }
+    
+    /**
+     * Identity of the phase list and of the lists contributing the interceptors.
+     */
+    private static final class ChainKey {
+        private final Object[] lists;
+        private final int hashCode;
+        
+        ChainKey(SortedSet<Phase> phaseList, List<?>[] providers) {
+            lists = new Object[providers.length + 1];
+            lists[0] = phaseList;
+            int h = System.identityHashCode(phaseList);
+            for (int x = 0; x < providers.length; x++) {
+                lists[x + 1] = providers[x];
+                h = 31 * h + System.identityHashCode(providers[x]);
+            }
+            hashCode = h;
+        }
         
-        return last.chain.cloneChain();
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ChainKey)) {
+                return false;
+            }
+            Object[] other = ((ChainKey)o).lists;
+            if (other.length != lists.length) {
+                return false;
+            }
+            for (int x = 0; x < lists.length; x++) {
+                if (other[x] != lists[x]) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
     
     private static class ChainHolder {
         List<ModCountCopyOnWriteArrayList<Interceptor<? extends Message>>> lists;
-        PhaseInterceptorChain chain;
+        List<?>[] sources;
+        SortedSet<Phase> phases;
+        PhaseInterceptorChain.ChainTemplate template;
         
-        ChainHolder(PhaseInterceptorChain c, 
-                    List<ModCountCopyOnWriteArrayList<Interceptor<? extends Message>>> l) {
+        ChainHolder(SortedSet<Phase> p,
+                    PhaseInterceptorChain.ChainTemplate t, 
+                    List<ModCountCopyOnWriteArrayList<Interceptor<? extends Message>>> l,
+                    List<?>[] s) {
+            phases = p;
             lists = l;
-            chain = c;
+            sources = s;
+            template = t;
         }
         
         @SafeVarargs
-        final boolean matches(List<Interceptor<? extends Message>> ... providers) {
-            if (lists.size() == providers.length) {
+        final boolean matches(SortedSet<Phase> phaseList, List<Interceptor<? extends Message>> ... providers) {
+            if (phases == phaseList && lists.size() == providers.length) {
                 for (int x = 0; x < providers.length; x++) {
                     if (lists.get(x).size() != providers[x].size()) {
                         return false;
                     }
                     
-                    if (providers[x].getClass() == ModCountCopyOnWriteArrayList.class) {
+                    // the mod count only tells something about the very list the copy was made from
+                    if (providers[x] == sources[x]
+                        && providers[x].getClass() == ModCountCopyOnWriteArrayList.class) {
                         if (((ModCountCopyOnWriteArrayList<?>)providers[x]).getModCount()
                             != lists.get(x).getModCount()) {
                             return false;
@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -60,6 +61,12 @@ import org.apache.cxf.transport.MessageObserver;
  * has an ID. PhaseInterceptors can supply a Collection of IDs which they 
  * should run before or after, supplying fine grained ordering.
  * <p>
+ * The chain does not use monitors while a message is intercepted. A chain is
+ * only ever executed by one thread at a time: the thread running 
+ * {@link #doIntercept(Message)} owns the chain, and a {@link #resume()} coming 
+ * from another thread (typically a transport redispatching a suspended 
+ * Continuation) waits until the owner has left the chain before it continues. 
+ * Only that handoff falls back to a monitor.
  *  
  */
 public class PhaseInterceptorChain implements InterceptorChain {
@@ -69,6 +76,9 @@ public class PhaseInterceptorChain implements InterceptorChain {
 
     private static final ThreadLocal<Message> CURRENT_MESSAGE = new ThreadLocal<Message>();
     
+    private static final AtomicReferenceFieldUpdater<PhaseInterceptorChain, Thread> OWNER_UPDATER
+        = AtomicReferenceFieldUpdater.newUpdater(PhaseInterceptorChain.class, Thread.class, "owner");
+    
     private final Map<String, Integer> nameMap;
     private final Phase phases[];
 
@@ -83,10 +93,20 @@ public class PhaseInterceptorChain implements InterceptorChain {
     // Note no hasBefores[] is needed because implementation adds subsequent
     // interceptors to the end of the list by default.
     private boolean hasAfters[];
-
     
-    private State state;
-    private Message pausedMessage;
+    // chains handed out by the PhaseChainCache share an immutable template
+    // until they are modified, heads/tails/hasAfters are null until then
+    private ChainTemplate template;
+    
+    private volatile State state;
+    private volatile Message pausedMessage;
+    
+    // the thread currently executing the chain, null if nobody is
+    private volatile Thread owner;
+    // set by threads blocked in acquireChain(), the owner then needs to notify them
+    private volatile boolean ownerWaited;
+    // number of threads blocked in acquireChain(), guarded by the chain monitor
+    private int ownerWaiters;
     private MessageObserver faultObserver;
     private PhaseInterceptorIterator iterator;
     private final boolean isFineLogging;
@@ -96,6 +116,8 @@ public class PhaseInterceptorChain implements InterceptorChain {
     // doIntercept(), which will throw same fault multi-times
     private boolean faultOccurred;
     private boolean chainReleased;
+    // the owner waits in releaseAndAcquireChain(), guarded by the chain monitor
+    private boolean chainLent;
     
     
     private PhaseInterceptorChain(PhaseInterceptorChain src) {
@@ -108,6 +130,11 @@ public class PhaseInterceptorChain implements InterceptorChain {
         nameMap = src.nameMap;
         phases = src.phases;
         
+        if (src.template != null) {
+            template = src.template;
+            return;
+        }
+        
         int length = phases.length;
         hasAfters = new boolean[length];
         System.arraycopy(src.hasAfters, 0, hasAfters, 0, length);
@@ -135,6 +162,15 @@ public class PhaseInterceptorChain implements InterceptorChain {
         }
     }
     
+    PhaseInterceptorChain(ChainTemplate t) {
+        state = State.EXECUTING;
+        isFineLogging = LOG.isLoggable(Level.FINE);
+        
+        nameMap = t.nameMap;
+        phases = t.phases;
+        template = t;
+    }
+    
     public PhaseInterceptorChain(SortedSet<Phase> ps) {
         state = State.EXECUTING;
         isFineLogging = LOG.isLoggable(Level.FINE);
@@ -178,17 +214,22 @@ public class PhaseInterceptorChain implements InterceptorChain {
         
     }
     
-    public synchronized State getState() {
+    public State getState() {
         return state;
     }
     
     public synchronized void releaseAndAcquireChain() {
-        while (!chainReleased) {
-            try {
-                this.wait();
-            } catch (InterruptedException ex) {
-                // ignore
+        chainLent = true;
+        try {
+            while (!chainReleased) {
+                try {
+                    this.wait();
+                } catch (InterruptedException ex) {
+                    // ignore
+                }
             }
+        } finally {
+            chainLent = false;
         }
         chainReleased = false;
     }
@@ -202,9 +243,81 @@ public class PhaseInterceptorChain implements InterceptorChain {
         return new PhaseInterceptorChain(this);
     }
     
+    /**
+     * Captures the current layout of the chain as an immutable template
+     * new chains can be created from without rebuilding the interceptor list.
+     */
+    ChainTemplate createTemplate() {
+        if (template != null) {
+            return template;
+        }
+        int count = 0;
+        for (int x = 0; x < heads.length; x++) {
+            InterceptorHolder ih = heads[x];
+            while (ih != null && ih.phaseIdx == x) {
+                count++;
+                ih = ih.next;
+            }
+        }
+        @SuppressWarnings("unchecked")
+        PhaseInterceptor<? extends Message>[] interceptors = new PhaseInterceptor[count];
+        int[] phaseIdx = new int[count];
+        int idx = 0;
+        for (int x = 0; x < heads.length; x++) {
+            InterceptorHolder ih = heads[x];
+            while (ih != null && ih.phaseIdx == x) {
+                interceptors[idx] = ih.interceptor;
+                phaseIdx[idx] = x;
+                idx++;
+                ih = ih.next;
+            }
+        }
+        return new ChainTemplate(nameMap, phases, interceptors, phaseIdx, hasAfters.clone());
+    }
+    
+    /**
+     * Replaces the shared template with this chain's own linked list of 
+     * interceptors, prior to the chain being modified.
+     */
+    private void materialize() {
+        ChainTemplate t = template;
+        if (t == null) {
+            return;
+        }
+        int length = phases.length;
+        InterceptorHolder[] newHeads = new InterceptorHolder[length];
+        InterceptorHolder[] newTails = new InterceptorHolder[length];
+        InterceptorHolder[] holders = new InterceptorHolder[t.interceptors.length];
+        InterceptorHolder last = null;
+        for (int x = 0; x < holders.length; x++) {
+            InterceptorHolder ih = new InterceptorHolder(t.interceptors[x], t.phaseIdx[x]);
+            ih.prev = last;
+            if (last != null) {
+                last.next = ih;
+            }
+            if (newHeads[ih.phaseIdx] == null) {
+                newHeads[ih.phaseIdx] = ih;
+            }
+            newTails[ih.phaseIdx] = ih;
+            holders[x] = ih;
+            last = ih;
+        }
+        heads = newHeads;
+        tails = newTails;
+        hasAfters = t.hasAfters.clone();
+        template = null;
+        if (iterator != null) {
+            iterator.link(heads, holders);
+        }
+    }
+    
     private void updateIterator() {
         if (iterator == null) {
-            iterator = new PhaseInterceptorIterator(heads);
+            if (template != null) {
+                iterator = new PhaseInterceptorIterator(template);
+            } else {
+                iterator = new PhaseInterceptorIterator(heads);
+            }
             outputChainToLog(false);
             //System.out.println(toString());
         }
@@ -254,28 +367,92 @@ public class PhaseInterceptorChain implements InterceptorChain {
         }
     }
 
-    public synchronized void pause() {
-        state = State.PAUSED;
+    public void pause() {
         pausedMessage = CURRENT_MESSAGE.get();
+        state = State.PAUSED;
     }
-    public synchronized void unpause() {
-        if (state == State.PAUSED || state == State.SUSPENDED) {
+    public void unpause() {
+        State s = state;
+        if (s == State.PAUSED || s == State.SUSPENDED) {
             state = State.EXECUTING;
             pausedMessage = null;
         }
     }
     
-    public synchronized void suspend() {
-        state = State.SUSPENDED;
+    public void suspend() {
         pausedMessage = CURRENT_MESSAGE.get();
+        state = State.SUSPENDED;
     }
 
-    public synchronized void resume() {
-        if (state == State.PAUSED || state == State.SUSPENDED) {
-            state = State.EXECUTING;
-            Message m = pausedMessage;
-            pausedMessage = null;
-            doIntercept(m);
+    public void resume() {
+        // the thread which paused the chain may still be unwinding from doIntercept,
+        // don't touch the state until it has left
+        boolean acquired = acquireChain();
+        try {
+            State s = state;
+            if (s == State.PAUSED || s == State.SUSPENDED) {
+                Message m = pausedMessage;
+                pausedMessage = null;
+                state = State.EXECUTING;
+                doIntercept(m);
+            }
+        } finally {
+            releaseChain(acquired);
+        }
+    }
+    
+    /**
+     * Makes the current thread the owner of this chain, waiting for another 
+     * owning thread to leave the chain if needed.
+     * @return true if ownership was acquired, false if the current thread
+     *         already owned the chain or has been lent it by the owner 
+     */
+    private boolean acquireChain() {
+        Thread current = Thread.currentThread();
+        Thread o = owner;
+        if (o == current) {
+            return false;
+        }
+        if (o == null && OWNER_UPDATER.compareAndSet(this, null, current)) {
+            return true;
+        }
+        return acquireChainSlow(current);
+    }
+    
+    private boolean acquireChainSlow(Thread current) {
+        if (Thread.holdsLock(this) && chainLent) {
+            // the owner is blocked in releaseAndAcquireChain() and the current
+            // thread runs on its behalf, see ServiceInvokerInterceptor
+            return false;
+        }
+        synchronized (this) {
+            ++ownerWaiters;
+            try {
+                while (true) {
+                    ownerWaited = true;
+                    if (OWNER_UPDATER.compareAndSet(this, null, current)) {
+                        return true;
+                    }
+                    try {
+                        this.wait();
+                    } catch (InterruptedException ex) {
+                        // ignore
+                    }
+                }
+            } finally {
+                ownerWaited = --ownerWaiters > 0;
+            }
+        }
+    }
+    
+    private void releaseChain(boolean acquired) {
+        if (acquired) {
+            owner = null;
+            if (ownerWaited) {
+                synchronized (this) {
+                    this.notifyAll();
+                }
+            }
         }
     }
 
@@ -285,8 +462,17 @@ public class PhaseInterceptorChain implements InterceptorChain {
      * @param message the message 
      * @throws Exception
      */
+    public boolean doIntercept(Message message) {
+        boolean acquired = acquireChain();
+        try {
+            return doInterceptInternal(message);
+        } finally {
+            releaseChain(acquired);
+        }
+    }
+    
     @SuppressWarnings("unchecked")
-    public synchronized boolean doIntercept(Message message) {
+    private boolean doInterceptInternal(Message message) {
         updateIterator();
 
         Message oldMessage = CURRENT_MESSAGE.get();
@@ -435,17 +621,22 @@ public class PhaseInterceptorChain implements InterceptorChain {
      * @param startingAfterInterceptorID the id of the interceptor 
      * @throws Exception
      */
-    public synchronized boolean doInterceptStartingAfter(Message message,
-                                                         String startingAfterInterceptorID) {
-        updateIterator();
-        while (state == State.EXECUTING && iterator.hasNext()) {
-            PhaseInterceptor<? extends Message> currentInterceptor 
-                = (PhaseInterceptor<? extends Message>)iterator.next();
-            if (currentInterceptor.getId().equals(startingAfterInterceptorID)) {
-                break;
+    public boolean doInterceptStartingAfter(Message message,
+                                            String startingAfterInterceptorID) {
+        boolean acquired = acquireChain();
+        try {
+            updateIterator();
+            while (state == State.EXECUTING && iterator.hasNext()) {
+                PhaseInterceptor<? extends Message> currentInterceptor 
+                    = (PhaseInterceptor<? extends Message>)iterator.next();
+                if (currentInterceptor.getId().equals(startingAfterInterceptorID)) {
+                    break;
+                }
             }
+            return doInterceptInternal(message);
+        } finally {
+            releaseChain(acquired);
         }
-        return doIntercept(message);
     }
 
     /**
@@ -456,27 +647,35 @@ public class PhaseInterceptorChain implements InterceptorChain {
      * @param startingAtInterceptorID the id of the interceptor 
      * @throws Exception
      */
-    public synchronized boolean doInterceptStartingAt(Message message,
-                                                         String startingAtInterceptorID) {
-        updateIterator();
-        while (state == State.EXECUTING && iterator.hasNext()) {
-            PhaseInterceptor<? extends Message> currentInterceptor 
-                = (PhaseInterceptor<? extends Message>)iterator.next();
-            if (currentInterceptor.getId().equals(startingAtInterceptorID)) {
-                iterator.previous();
-                break;
+    public boolean doInterceptStartingAt(Message message,
+                                         String startingAtInterceptorID) {
+        boolean acquired = acquireChain();
+        try {
+            updateIterator();
+            while (state == State.EXECUTING && iterator.hasNext()) {
+                PhaseInterceptor<? extends Message> currentInterceptor 
+                    = (PhaseInterceptor<? extends Message>)iterator.next();
+                if (currentInterceptor.getId().equals(startingAtInterceptorID)) {
+                    iterator.previous();
+                    break;
+                }
             }
+            return doInterceptInternal(message);
+        } finally {
+            releaseChain(acquired);
         }
-        return doIntercept(message);
     }
 
-    public synchronized void reset() {
-        updateIterator();
-        if (state == State.COMPLETE) {
-            state = State.EXECUTING;
-            iterator.reset();
-        } else {
+    public void reset() {
+        boolean acquired = acquireChain();
+        try {
+            updateIterator();
+            if (state == State.COMPLETE) {
+                state = State.EXECUTING;
+            }
             iterator.reset();
+        } finally {
+            releaseChain(acquired);
         }
     }
     
@@ -500,6 +699,7 @@ public class PhaseInterceptorChain implements InterceptorChain {
     }
 
     public void remove(Interceptor<? extends Message> i) {
+        materialize();
         PhaseInterceptorIterator it = new PhaseInterceptorIterator(heads);
         while (it.hasNext()) {
             InterceptorHolder holder = it.nextInterceptorHolder();
@@ -510,7 +710,7 @@ public class PhaseInterceptorChain implements InterceptorChain {
         }
     }
 
-    public synchronized void abort() {
+    public void abort() {
         this.state = InterceptorChain.State.ABORTED;
     }
 
@@ -518,6 +718,7 @@ public class PhaseInterceptorChain implements InterceptorChain {
         return getIterator();
     }
     public ListIterator<Interceptor<? extends Message>> getIterator() {
+        materialize();
         return new PhaseInterceptorIterator(heads);
     }
 
@@ -550,6 +751,7 @@ public class PhaseInterceptorChain implements InterceptorChain {
     }
     
     private void insertInterceptor(int phase, PhaseInterceptor<? extends Message> interc, boolean force) {
+        materialize();
         InterceptorHolder ih = new InterceptorHolder(interc, phase);
         if (heads[phase] == null) {
             // no interceptors yet in this phase
@@ -688,6 +890,7 @@ public class PhaseInterceptorChain implements InterceptorChain {
         return toString(""); 
     }
     private String toString(String message) {
+        materialize();
         StringBuilder chain = new StringBuilder();
         
         chain.append("Chain ")
@@ -748,12 +951,34 @@ public class PhaseInterceptorChain implements InterceptorChain {
         InterceptorHolder prev;
         InterceptorHolder first;
         
+        // set while iterating over a template, pos is then the index of prev
+        PhaseInterceptor<? extends Message> flat[];
+        int pos = -1;
+        
         PhaseInterceptorIterator(InterceptorHolder h[]) {
             heads = h;
             first = findFirst();
         }
         
+        PhaseInterceptorIterator(ChainTemplate t) {
+            flat = t.interceptors;
+        }
+        
+        /**
+         * Continues at the same position on the linked list of the (now materialized) chain
+         */
+        void link(InterceptorHolder h[], InterceptorHolder holders[]) {
+            heads = h;
+            first = findFirst();
+            prev = pos >= 0 ? holders[pos] : null;
+            flat = null;
+        }
+        
         public void reset() {
+            if (flat != null) {
+                pos = -1;
+                return;
+            }
             prev = null;
             first = findFirst();
         }
@@ -769,6 +994,9 @@ public class PhaseInterceptorChain implements InterceptorChain {
         
         
         public boolean hasNext() {
+            if (flat != null) {
+                return pos + 1 < flat.length;
+            }
             if (prev == null) {
                 return first != null;
             }
@@ -776,6 +1004,12 @@ public class PhaseInterceptorChain implements InterceptorChain {
         }
 
         public Interceptor<? extends Message> next() {
+            if (flat != null) {
+                if (pos + 1 >= flat.length) {
+                    throw new NoSuchElementException();
+                }
+                return flat[++pos];
+            }
             if (prev == null) {
                 if (first == null) {
                     throw new NoSuchElementException();
@@ -805,9 +1039,18 @@ public class PhaseInterceptorChain implements InterceptorChain {
         }
         
         public boolean hasPrevious() {
+            if (flat != null) {
+                return pos >= 0;
+            }
             return prev != null;
         }
         public Interceptor<? extends Message> previous() {
+            if (flat != null) {
+                if (pos < 0) {
+                    throw new NoSuchElementException();
+                }
+                return flat[pos--];
+            }
             if (prev == null) {
                 throw new NoSuchElementException();
             }
@@ -834,6 +1077,30 @@ public class PhaseInterceptorChain implements InterceptorChain {
     }
 
     
+    /**
+     * The immutable, flattened layout of a chain: the interceptors in 
+     * execution order together with the index of the phase each belongs to.
+     */
+    static final class ChainTemplate {
+        final Map<String, Integer> nameMap;
+        final Phase phases[];
+        final PhaseInterceptor<? extends Message> interceptors[];
+        final int phaseIdx[];
+        final boolean hasAfters[];
+        
+        ChainTemplate(Map<String, Integer> nameMap,
+                      Phase phases[],
+                      PhaseInterceptor<? extends Message> interceptors[],
+                      int phaseIdx[],
+                      boolean hasAfters[]) {
+            this.nameMap = nameMap;
+            this.phases = phases;
+            this.interceptors = interceptors;
+            this.phaseIdx = phaseIdx;
+            this.hasAfters = hasAfters;
+        }
+    }
+    
     static final class InterceptorHolder {
         PhaseInterceptor<? extends Message> interceptor;
         InterceptorHolder next;
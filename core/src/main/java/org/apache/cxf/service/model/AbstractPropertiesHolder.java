@@ -23,11 +23,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.xml.namespace.QName;
 
+import org.apache.cxf.common.util.ModCountConcurrentHashMap;
+
 public abstract class AbstractPropertiesHolder implements Extensible {
     private AbstractPropertiesHolder delegate;
     private boolean delegateProperties;
@@ -124,7 +125,7 @@ public abstract class AbstractPropertiesHolder implements Extensible {
             return;
         }
         if (null == propertyMap.get()) {
-            propertyMap.compareAndSet(null, new ConcurrentHashMap<String, Object>(4, 0.75f, 2));
+            propertyMap.compareAndSet(null, new ModCountConcurrentHashMap<String, Object>(4, 0.75f, 2));
         }
         if (v == null) {
             propertyMap.get().remove(name);
@@ -79,6 +79,8 @@ public class AutomaticWorkQueueImpl implements AutomaticWorkQueue {
     boolean shared;
     int sharedCount;
     
+    final WorkQueueMetrics metrics = new WorkQueueMetrics();
+    
     private List<PropertyChangeListener> changeListenerList;
     
     public AutomaticWorkQueueImpl() {
@@ -150,6 +152,10 @@ public class AutomaticWorkQueueImpl implements AutomaticWorkQueue {
         return sharedCount;
     }
     
+    public WorkQueueMetrics getMetrics() {
+        return metrics;
+    }
+    
     protected synchronized ThreadPoolExecutor getExecutor() {
         if (executor == null) {
             threadFactory = createThreadFactory(name);
@@ -417,11 +423,22 @@ public class AutomaticWorkQueueImpl implements AutomaticWorkQueue {
     }
     
     public void execute(final Runnable command) {
+        Runnable r = wrap(command);
+        try {
+            addToQueue(r);
+        } catch (RejectedExecutionException ree) {
+            metrics.taskRejected();
+            throw ree;
+        }
+        metrics.taskAccepted();
+    }
+    
+    private Runnable wrap(final Runnable command) {
         //Grab the context classloader of this thread.   We'll make sure we use that 
         //on the thread the runnable actually runs on.
         
         final ClassLoader loader = Thread.currentThread().getContextClassLoader();
-        Runnable r = new Runnable() {
+        return metrics.wrap(new Runnable() {
             public void run() {
                 ClassLoaderHolder orig = ClassLoaderUtils.setThreadContextClassloader(loader);
                 try {
@@ -432,7 +449,10 @@ public class AutomaticWorkQueueImpl implements AutomaticWorkQueue {
                     }
                 }
             }
-        };
+        });
+    }
+    
+    private void addToQueue(Runnable r) {
         //The ThreadPoolExecutor in the JDK doesn't expand the number
         //of threads until the queue is full.   However, we would 
         //prefer the number of threads to expand immediately and 
@@ -467,17 +487,21 @@ public class AutomaticWorkQueueImpl implements AutomaticWorkQueue {
     
     // WorkQueue interface
     public void execute(Runnable work, long timeout) {
+        Runnable r = wrap(work);
         try {
-            execute(work);
+            addToQueue(r);
         } catch (RejectedExecutionException ree) {
             try {
-                if (!getExecutor().getQueue().offer(work, timeout, TimeUnit.MILLISECONDS)) {
+                if (!getExecutor().getQueue().offer(r, timeout, TimeUnit.MILLISECONDS)) {
+                    metrics.taskRejected();
                     throw ree;
                 }
             } catch (InterruptedException ie) {
+                metrics.taskRejected();
                 throw ree;
             }
         }    
+        metrics.taskAccepted();
     }
 
     public synchronized void schedule(final Runnable work, final long delay) {
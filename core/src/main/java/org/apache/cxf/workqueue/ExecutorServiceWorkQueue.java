@@ -0,0 +1,238 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.workqueue;
+
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.cxf.common.classloader.ClassLoaderUtils;
+import org.apache.cxf.common.classloader.ClassLoaderUtils.ClassLoaderHolder;
+import org.apache.cxf.common.injection.NoJSR250Annotations;
+import org.apache.cxf.common.logging.LogUtils;
+
+/**
+ * AutomaticWorkQueue backed by a caller supplied ExecutorService.  Unlike the
+ * AutomaticWorkQueueImpl, the queue does not manage any threads itself: sizing,
+ * queueing and rejection are all left to the ExecutorService.
+ *
+ * {@link #createPerTaskThreadWorkQueue(String)} creates a queue running each
+ * work item on its own thread, using virtual threads when the runtime supports them.
+ */
+@NoJSR250Annotations
+public class ExecutorServiceWorkQueue implements AutomaticWorkQueue {
+    private static final Logger LOG = LogUtils.getL7dLogger(ExecutorServiceWorkQueue.class);
+    private static final long MAX_RETRY_DELAY = 100L;
+
+    private final String name;
+    private final ExecutorService executor;
+    private final WorkQueueMetrics metrics = new WorkQueueMetrics();
+    private ScheduledExecutorService scheduler;
+
+    public ExecutorServiceWorkQueue(String name, ExecutorService executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("ExecutorService is required");
+        }
+        this.name = name;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a work queue starting a new thread for every work item.  On runtimes
+     * providing virtual threads (Java 21+) these are virtual threads, otherwise
+     * short lived daemon platform threads are used.
+     */
+    public static ExecutorServiceWorkQueue createPerTaskThreadWorkQueue(String name) {
+        ExecutorService ex = createVirtualThreadExecutor();
+        if (ex == null) {
+            ex = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.MILLISECONDS,
+                                        new SynchronousQueue<Runnable>(),
+                                        new PerTaskThreadFactory(name));
+        }
+        return new ExecutorServiceWorkQueue(name, ex);
+    }
+
+    /**
+     * @return an ExecutorService starting a virtual thread per task, or null if the
+     * runtime does not support virtual threads
+     */
+    static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method m = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)m.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Throwable t) {
+            // preview feature not enabled or similar, fall back to platform threads
+            LOG.log(Level.FINE, "Could not create a virtual thread executor", t);
+            return null;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executor;
+    }
+
+    public WorkQueueMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void execute(Runnable command) {
+        Runnable r = wrap(command);
+        try {
+            executor.execute(r);
+        } catch (RejectedExecutionException ree) {
+            metrics.taskRejected();
+            throw ree;
+        }
+        metrics.taskAccepted();
+    }
+
+    /**
+     * The ExecutorService has no way to wait for a work item to be accepted, so a
+     * rejected work item is offered again until the timeout has elapsed.  Work items
+     * are rejected right away once the ExecutorService has been shut down.
+     */
+    public void execute(Runnable work, long timeout) {
+        Runnable r = wrap(work);
+        long deadline = System.currentTimeMillis() + Math.max(0, timeout);
+        long backoff = 1;
+        while (true) {
+            try {
+                executor.execute(r);
+                break;
+            } catch (RejectedExecutionException ree) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || executor.isShutdown()) {
+                    metrics.taskRejected();
+                    throw ree;
+                }
+                try {
+                    Thread.sleep(Math.min(backoff, remaining));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    metrics.taskRejected();
+                    throw ree;
+                }
+                backoff = Math.min(backoff * 2, MAX_RETRY_DELAY);
+            }
+        }
+        metrics.taskAccepted();
+    }
+
+    private Runnable wrap(final Runnable command) {
+        //Grab the context classloader of this thread.   We'll make sure we use that
+        //on the thread the runnable actually runs on.
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return metrics.wrap(new Runnable() {
+            public void run() {
+                ClassLoaderHolder orig = ClassLoaderUtils.setThreadContextClassloader(loader);
+                try {
+                    command.run();
+                } finally {
+                    if (orig != null) {
+                        orig.reset();
+                    }
+                }
+            }
+        });
+    }
+
+    public void schedule(final Runnable work, final long delay) {
+        getScheduler().schedule(new Runnable() {
+            public void run() {
+                execute(work);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            ScheduledThreadPoolExecutor s = new ScheduledThreadPoolExecutor(1,
+                new PerTaskThreadFactory(name + "-scheduler"));
+            s.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            scheduler = s;
+        }
+        return scheduler;
+    }
+
+    public void shutdown(boolean processRemainingWorkItems) {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+        if (processRemainingWorkItems) {
+            executor.shutdown();
+        } else {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    public String toString() {
+        return super.toString() + " [name: " + name + ", executor: " + executor + "]";
+    }
+
+    static class PerTaskThreadFactory implements ThreadFactory {
+        final AtomicInteger threadNumber = new AtomicInteger(1);
+        final String name;
+        final ClassLoader loader;
+
+        PerTaskThreadFactory(String nm) {
+            name = nm;
+            //force the loader to be the loader of CXF, not the application loader
+            loader = ExecutorServiceWorkQueue.class.getClassLoader();
+        }
+
+        public Thread newThread(Runnable r) {
+            final Thread t = new Thread(r, name + "-workqueue-" + threadNumber.getAndIncrement());
+            AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+                public Boolean run() {
+                    t.setContextClassLoader(loader);
+                    return true;
+                }
+            });
+            t.setDaemon(true);
+            if (t.getPriority() != Thread.NORM_PRIORITY) {
+                t.setPriority(Thread.NORM_PRIORITY);
+            }
+            return t;
+        }
+    }
+}
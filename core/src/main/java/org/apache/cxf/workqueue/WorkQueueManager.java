@@ -18,8 +18,17 @@
  */
 package org.apache.cxf.workqueue;
 
+import java.util.concurrent.ExecutorService;
+
 public interface WorkQueueManager {
 
+    /**
+     * Notified of the work queues added to a manager
+     */
+    interface Listener {
+        void workQueueAdded(String name, AutomaticWorkQueue q);
+    }
+
     /**
      * Get the manager's default work queue.
      * @return AutomaticWorkQueue
@@ -38,6 +47,26 @@ public interface WorkQueueManager {
      * @param q
      */
     void addNamedWorkQueue(String name, AutomaticWorkQueue q);
+
+    /**
+     * Adds a named work queue that hands the work items to the given ExecutorService
+     * @param name
+     * @param executor
+     * @return the work queue that was added
+     */
+    default AutomaticWorkQueue addNamedWorkQueue(String name, ExecutorService executor) {
+        AutomaticWorkQueue q = new ExecutorServiceWorkQueue(name, executor);
+        addNamedWorkQueue(name, q);
+        return q;
+    }
+    
+    /**
+     * Adds a listener that is notified of the work queues already added and of those
+     * added later.  Managers that do not support listeners ignore it.
+     * @param listener
+     */
+    default void addListener(Listener listener) {
+    }
     
     /**
      * Shuts down the manager's work queue. If
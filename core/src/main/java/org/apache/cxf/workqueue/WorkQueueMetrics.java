@@ -0,0 +1,233 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.workqueue;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters kept by a work queue: how many work items were accepted, started,
+ * completed and rejected, how long they waited between being accepted and
+ * being started, how long they ran and how many ran at the same time.
+ *
+ * Listeners receive every individual timing, e.g. to feed histograms of a
+ * metrics library.
+ */
+public class WorkQueueMetrics {
+
+    /**
+     * Receives the individual events of a work queue.  Called on the threads
+     * submitting and running the work items, so implementations must be cheap
+     * and thread safe.
+     */
+    public interface Listener {
+        void taskStarted(long waitTimeInNS);
+
+        void taskCompleted(long runTimeInNS);
+
+        void taskRejected();
+    }
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalWaitTime = new LongAdder();
+    private final LongAdder totalRunTime = new LongAdder();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+    private final AtomicLong maxRunTime = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger peakRunning = new AtomicInteger();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    /**
+     * Returns the metrics kept by the work queue, or null if the work queue
+     * does not keep any.
+     */
+    public static WorkQueueMetrics getMetrics(WorkQueue q) {
+        if (q instanceof AutomaticWorkQueueImpl) {
+            return ((AutomaticWorkQueueImpl)q).getMetrics();
+        } else if (q instanceof ExecutorServiceWorkQueue) {
+            return ((ExecutorServiceWorkQueue)q).getMetrics();
+        }
+        return null;
+    }
+
+    public void addListener(Listener l) {
+        listeners.addIfAbsent(l);
+    }
+
+    public void removeListener(Listener l) {
+        listeners.remove(l);
+    }
+
+    /**
+     * Wraps the work item so that its wait and run times are recorded.  The
+     * returned Runnable must be handed to the executor right away, followed by
+     * either {@link #taskAccepted()} or {@link #taskRejected()}.
+     */
+    Runnable wrap(final Runnable work) {
+        pending.incrementAndGet();
+        final long queued = System.nanoTime();
+        return new Runnable() {
+            public void run() {
+                long start = System.nanoTime();
+                taskStarted(start - queued);
+                try {
+                    work.run();
+                } finally {
+                    taskCompleted(System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    void taskAccepted() {
+        accepted.increment();
+    }
+
+    void taskRejected() {
+        pending.decrementAndGet();
+        rejected.increment();
+        for (Listener l : listeners) {
+            l.taskRejected();
+        }
+    }
+
+    private void taskStarted(long waitTime) {
+        pending.decrementAndGet();
+        started.increment();
+        int r = running.incrementAndGet();
+        int peak = peakRunning.get();
+        while (r > peak && !peakRunning.compareAndSet(peak, r)) {
+            peak = peakRunning.get();
+        }
+        totalWaitTime.add(waitTime);
+        updateMax(maxWaitTime, waitTime);
+        for (Listener l : listeners) {
+            l.taskStarted(waitTime);
+        }
+    }
+
+    private void taskCompleted(long runTime) {
+        running.decrementAndGet();
+        completed.increment();
+        totalRunTime.add(runTime);
+        updateMax(maxRunTime, runTime);
+        for (Listener l : listeners) {
+            l.taskCompleted(runTime);
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the number of accepted work items that have not started yet
+     */
+    public int getPendingCount() {
+        return Math.max(0, pending.get());
+    }
+
+    /**
+     * @return the number of work items currently running
+     */
+    public int getRunningCount() {
+        return running.get();
+    }
+
+    /**
+     * @return the largest number of work items that ran at the same time
+     */
+    public int getPeakRunningCount() {
+        return peakRunning.get();
+    }
+
+    /**
+     * @return the average time, in milliseconds, between a work item being accepted and started
+     */
+    public double getAverageWaitTime() {
+        return average(totalWaitTime.sum(), started.sum());
+    }
+
+    public double getMaxWaitTime() {
+        return toMillis(maxWaitTime.get());
+    }
+
+    /**
+     * @return the average time, in milliseconds, the completed work items ran
+     */
+    public double getAverageRunTime() {
+        return average(totalRunTime.sum(), getCompletedCount());
+    }
+
+    public double getMaxRunTime() {
+        return toMillis(maxRunTime.get());
+    }
+
+    /**
+     * Resets the totals and maximums, the counts of pending and running items are kept.
+     */
+    public void reset() {
+        accepted.reset();
+        started.reset();
+        completed.reset();
+        rejected.reset();
+        totalWaitTime.reset();
+        totalRunTime.reset();
+        maxWaitTime.set(0);
+        maxRunTime.set(0);
+        peakRunning.set(running.get());
+    }
+
+    private static double average(long totalNS, long count) {
+        return count == 0 ? 0 : toMillis(totalNS) / count;
+    }
+
+    private static double toMillis(long ns) {
+        return (double)ns / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public String toString() {
+        return "accepted: " + getAcceptedCount() + ", completed: " + getCompletedCount()
+            + ", rejected: " + getRejectedCount() + ", pending: " + getPendingCount()
+            + ", running: " + getRunningCount() + ", peak running: " + getPeakRunningCount();
+    }
+}
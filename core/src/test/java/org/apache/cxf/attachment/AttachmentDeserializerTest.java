@@ -676,5 +676,86 @@ public class AttachmentDeserializerTest extends Assert {
         assertEquals(-1, ins.read(new byte[1000], 100, 600));
         ins.close();
     }
-}
 
+    @Test
+    public void testStreamingLastAttachment() throws Exception {
+        // read in order, the only attachment is not cached with streaming
+        assertFalse(readLastAttachment(true));
+        assertTrue(readLastAttachment(false));
+    }
+
+    private boolean readLastAttachment(boolean streaming) throws Exception {
+        byte[] data = createAttachmentData(300 * 1024);
+        Message message = createMultipartMessage(data);
+        message.put(AttachmentDeserializer.ATTACHMENT_STREAMING, streaming);
+        new AttachmentDeserializer(message).initializeAttachments();
+
+        assertEquals("<envelope/>", getString(message.getContent(InputStream.class)));
+        DataSource ds = AttachmentUtil.getAttachmentDataSource("att1", message.getAttachments());
+        InputStream ins = ds.getInputStream();
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        IOUtils.copy(ins, bout);
+        assertArrayEquals(data, bout.toByteArray());
+
+        // looking for more attachments does not need to cache the one read
+        assertEquals(1, message.getAttachments().size());
+        ins.close();
+        return ((AttachmentDataSource)message.getAttachments().iterator().next()
+            .getDataHandler().getDataSource()).isCached();
+    }
+
+    @Test
+    public void testStreamingAttachmentsOutOfOrder() throws Exception {
+        byte[] data1 = createAttachmentData(1000);
+        byte[] data2 = createAttachmentData(300 * 1024);
+        Message message = createMultipartMessage(data1, data2);
+        message.put(AttachmentDeserializer.ATTACHMENT_STREAMING, true);
+        new AttachmentDeserializer(message).initializeAttachments();
+        getString(message.getContent(InputStream.class));
+
+        DataSource ds1 = AttachmentUtil.getAttachmentDataSource("att1", message.getAttachments());
+        DataSource ds2 = AttachmentUtil.getAttachmentDataSource("att2", message.getAttachments());
+        InputStream ins2 = ds2.getInputStream();
+        assertArrayEquals(data2, IOUtils.readBytesFromStream(ins2));
+        assertEquals(2, message.getAttachments().size());
+
+        Iterator<Attachment> it = message.getAttachments().iterator();
+        AttachmentDataSource ads1 = (AttachmentDataSource)it.next().getDataHandler().getDataSource();
+        AttachmentDataSource ads2 = (AttachmentDataSource)it.next().getDataHandler().getDataSource();
+        // the first attachment had to be cached to get to the second one
+        assertTrue(ads1.isCached());
+        assertFalse(ads2.isCached());
+        assertArrayEquals(data1, IOUtils.readBytesFromStream(ds1.getInputStream()));
+    }
+
+    private static byte[] createAttachmentData(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte)('a' + i % 26);
+        }
+        return data;
+    }
+
+    private static Message createMultipartMessage(byte[]... attachments) throws IOException {
+        String boundary = "----=_Part_streaming";
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        bout.write(("--" + boundary + "\r\n"
+            + "Content-Type: text/xml; charset=UTF-8\r\n"
+            + "Content-Id: <root>\r\n\r\n"
+            + "<envelope/>").getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < attachments.length; i++) {
+            bout.write(("\r\n--" + boundary + "\r\n"
+                + "Content-Type: application/octet-stream\r\n"
+                + "Content-Transfer-Encoding: binary\r\n"
+                + "Content-Id: <att" + (i + 1) + ">\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            bout.write(attachments[i]);
+        }
+        bout.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        Message message = new MessageImpl();
+        message.setExchange(new ExchangeImpl());
+        message.put(Message.CONTENT_TYPE, "multipart/related; boundary=\"" + boundary + "\"");
+        message.setContent(InputStream.class, new ByteArrayInputStream(bout.toByteArray()));
+        return message;
+    }
+}
@@ -20,6 +20,9 @@ package org.apache.cxf.attachment;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -28,6 +31,7 @@ import java.util.Properties;
 
 import javax.activation.DataHandler;
 import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 import javax.mail.Session;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
@@ -236,6 +240,52 @@ public class AttachmentSerializerTest extends Assert {
         
     }
 
+    @Test
+    public void testFileAttachmentTransferredToChannel() throws Exception {
+        byte[] data = new byte[200000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte)(i % 251);
+        }
+        File attachmentFile = File.createTempFile("attachment", ".bin");
+        File messageFile = File.createTempFile("message", ".mime");
+        try {
+            try (OutputStream os = new FileOutputStream(attachmentFile)) {
+                os.write(data);
+            }
+            MessageImpl msg = new MessageImpl();
+            AttachmentImpl a = new AttachmentImpl("test.bin");
+            a.setDataHandler(new DataHandler(new FileDataSource(attachmentFile)));
+            Collection<Attachment> atts = new ArrayList<Attachment>();
+            atts.add(a);
+            msg.setAttachments(atts);
+            msg.put(Message.CONTENT_TYPE, "application/soap+xml");
+
+            String ct;
+            try (OutputStream out = new FileOutputStream(messageFile)) {
+                msg.setContent(OutputStream.class, out);
+                AttachmentSerializer serializer = new AttachmentSerializer(msg);
+                serializer.writeProlog();
+                ct = (String) msg.get(Message.CONTENT_TYPE);
+                out.write("<soap:Body/>".getBytes());
+                serializer.writeAttachments();
+            }
+
+            MimeMultipart multipart;
+            try (InputStream in = new FileInputStream(messageFile)) {
+                multipart = new MimeMultipart(new ByteArrayDataSource(in, ct));
+            }
+            assertEquals(2, multipart.getCount());
+            MimeBodyPart part = (MimeBodyPart) multipart.getBodyPart(1);
+            assertEquals("<test.bin>", part.getHeader("Content-ID")[0]);
+            ByteArrayOutputStream attachmentOut = new ByteArrayOutputStream();
+            IOUtils.copyAndCloseInput(part.getDataHandler().getInputStream(), attachmentOut);
+            assertArrayEquals(data, attachmentOut.toByteArray());
+        } finally {
+            attachmentFile.delete();
+            messageFile.delete();
+        }
+    }
+
     private static String escapeQuotes(String s) {
         return s.indexOf('"') != 0 ? s.replace("\"", "\\\"") : s;    
     }
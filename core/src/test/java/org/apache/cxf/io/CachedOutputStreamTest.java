@@ -22,6 +22,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.cxf.helpers.IOUtils;
+import org.junit.Test;
 
 public class CachedOutputStreamTest extends CachedStreamTestBase {
     
@@ -82,6 +89,100 @@ public class CachedOutputStreamTest extends CachedStreamTestBase {
     protected String readPartiallyFromStreamObject(Object cache, int len) throws IOException {
         return readPartiallyFromStream((InputStream)cache, len);
     }
+
+    @Test
+    public void testChannelSpillMode() throws IOException {
+        verifySpillMode(CachedOutputStream.SPILL_MODE_CHANNEL);
+    }
+
+    @Test
+    public void testMappedSpillMode() throws IOException {
+        verifySpillMode(CachedOutputStream.SPILL_MODE_MAPPED);
+    }
+
+    private void verifySpillMode(String mode) throws IOException {
+        byte[] data = new byte[200 * 1024 + 17];
+        for (int x = 0; x < data.length; x++) {
+            data[x] = (byte)(x % 251);
+        }
+        CachedOutputStream cos = new CachedOutputStream();
+        cos.setThreshold(64 * 1024);
+        cos.setSpillMode(mode);
+        cos.write(data, 0, 1000);
+        cos.write(data[1000]);
+        cos.write(data, 1001, data.length - 1001);
+        File tmp = cos.getTempFile();
+        assertNotNull(tmp);
+        assertEquals(data.length, cos.size());
+        assertTrue(Arrays.equals(data, cos.getBytes()));
+
+        InputStream in = cos.getInputStream();
+        assertTrue(in instanceof FileChannelInputStream);
+        cos.close();
+        assertEquals(data.length, tmp.length());
+        assertTrue(tmp.exists());
+
+        File copy = File.createTempFile("cos", ".tmp");
+        try {
+            ((Transferable)in).transferTo(copy);
+            assertTrue(Arrays.equals(data, Files.readAllBytes(copy.toPath())));
+        } finally {
+            copy.delete();
+        }
+        in.close();
+        assertFalse(tmp.exists());
+
+        cos = new CachedOutputStream();
+        cos.setThreshold(64 * 1024);
+        cos.setSpillMode(mode);
+        cos.write(data);
+        in = cos.getInputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy(in, out);
+        assertTrue(Arrays.equals(data, out.toByteArray()));
+        in.close();
+        cos.close();
+        assertNull(cos.getTempFile());
+    }
+
+    @Test
+    public void testTransferToSlowChannel() throws IOException {
+        byte[] data = new byte[100 * 1024];
+        for (int x = 0; x < data.length; x++) {
+            data[x] = (byte)(x % 251);
+        }
+        CachedOutputStream cos = new CachedOutputStream();
+        cos.setThreshold(1024);
+        cos.setSpillMode(CachedOutputStream.SPILL_MODE_CHANNEL);
+        cos.write(data);
+        FileChannelInputStream in = (FileChannelInputStream)cos.getInputStream();
+
+        // accepts nothing on every other call and a few bytes otherwise
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel target = new WritableByteChannel() {
+            private int calls;
+
+            public int write(ByteBuffer src) {
+                if (calls++ % 2 == 0) {
+                    return 0;
+                }
+                int n = Math.min(src.remaining(), 3000);
+                byte[] bytes = new byte[n];
+                src.get(bytes);
+                out.write(bytes, 0, n);
+                return n;
+            }
+
+            public boolean isOpen() {
+                return true;
+            }
+
+            public void close() {
+            }
+        };
+        assertEquals(data.length, in.transferTo(target));
+        assertTrue(Arrays.equals(data, out.toByteArray()));
+        in.close();
+        cos.close();
+    }
 }
-    
-   
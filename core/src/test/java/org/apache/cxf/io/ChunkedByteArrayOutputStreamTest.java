@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
+import org.apache.cxf.bus.extension.ExtensionManagerBus;
+import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChunkedByteArrayOutputStreamTest extends Assert {
+    private static final String CONTENT = "The quick brown fox jumps over the lazy dog";
+
+    @Test
+    public void testWriteAcrossChunks() throws Exception {
+        ChunkedByteArrayOutputStream out = new ChunkedByteArrayOutputStream(new BufferPool(8, 16));
+        byte[] bytes = CONTENT.getBytes("UTF-8");
+        out.write(bytes, 0, 5);
+        for (int x = 5; x < 11; x++) {
+            out.write(bytes[x]);
+        }
+        out.write(bytes, 11, bytes.length - 11);
+        assertEquals(bytes.length, out.size());
+        assertEquals(CONTENT, out.toString());
+        assertArrayEquals(bytes, out.toByteArray());
+
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        out.writeTo(copy);
+        assertEquals(CONTENT, copy.toString("UTF-8"));
+
+        InputStream in = out.createInputStream();
+        assertEquals('T', in.read());
+        in.mark(0);
+        assertEquals(4, in.skip(4));
+        byte[] buf = new byte[10];
+        assertEquals(10, in.read(buf));
+        assertEquals("uick brown", new String(buf, "UTF-8"));
+        in.reset();
+        assertEquals(CONTENT.substring(1), IOUtils.toString(in));
+        assertEquals(-1, in.read());
+        in.close();
+    }
+
+    @Test
+    public void testChunksReturnedAfterReadersClosed() throws Exception {
+        BufferPool pool = new BufferPool(8, 16);
+        ChunkedByteArrayOutputStream out = new ChunkedByteArrayOutputStream(pool);
+        out.write(CONTENT.getBytes("UTF-8"));
+        InputStream in = out.createInputStream();
+        out.dispose();
+        // the open reader keeps the chunks out of the pool
+        ChunkedByteArrayOutputStream other = new ChunkedByteArrayOutputStream(pool);
+        other.write(new byte[8]);
+        assertEquals(CONTENT, IOUtils.toString(in));
+        in.close();
+        assertEquals(0, out.size());
+
+        // the chunks are now back in the pool, the last one released is handed out first
+        byte[] chunk = pool.acquire();
+        assertEquals("dog", new String(chunk, 0, 3, "UTF-8"));
+    }
+
+    @Test
+    public void testThreadCachesBounded() throws Exception {
+        BufferPool pool = new BufferPool(8, 1, 2);
+        byte[][] chunks = new byte[4][];
+        for (int x = 0; x < chunks.length; x++) {
+            chunks[x] = pool.acquire();
+        }
+        for (byte[] chunk : chunks) {
+            pool.release(chunk);
+        }
+        assertEquals(2, pool.getThreadCachedChunks());
+        assertEquals(1, pool.getPooledChunks());
+
+        assertSame(chunks[1], pool.acquire());
+        assertEquals(1, pool.getThreadCachedChunks());
+    }
+
+    @Test
+    public void testCachedOutputStreamUsesBusPool() throws Exception {
+        Map<String, Object> props = Collections.<String, Object>singletonMap(BufferPool.CHUNK_SIZE_PROPERTY, "16");
+        Bus bus = new ExtensionManagerBus(null, props);
+        Bus oldBus = BusFactory.getAndSetThreadDefaultBus(bus);
+        try {
+            BufferPool pool = BufferPool.getBufferPool(bus);
+            assertEquals(16, pool.getChunkSize());
+            CachedOutputStream cos = new CachedOutputStream();
+            cos.setThreshold(1024);
+            cos.write(CONTENT.getBytes("UTF-8"));
+            assertTrue(cos.getOut() instanceof ChunkedByteArrayOutputStream);
+            InputStream in = cos.getInputStream();
+            cos.close();
+            // the content stays available after close, while it is read
+            assertEquals(CONTENT, new String(cos.getBytes(), "UTF-8"));
+            StringBuilder builder = new StringBuilder();
+            cos.writeCacheTo(builder, 9);
+            assertEquals("The quick", builder.toString());
+            assertEquals(CONTENT, IOUtils.toString(in));
+            in.close();
+            assertEquals(0, ((ChunkedByteArrayOutputStream)cos.getOut()).size());
+
+            // content that is never read is recycled by dispose
+            cos = new CachedOutputStream();
+            cos.setThreshold(1024);
+            cos.write(CONTENT.getBytes("UTF-8"));
+            cos.close();
+            assertEquals(CONTENT, new String(cos.getBytes(), "UTF-8"));
+            cos.dispose();
+            assertEquals(0, ((ChunkedByteArrayOutputStream)cos.getOut()).size());
+        } finally {
+            BusFactory.setThreadDefaultBus(oldBus);
+            bus.shutdown(true);
+        }
+    }
+
+    @Test
+    public void testChunksReleasedForInMemoryMessage() throws Exception {
+        BufferPool pool = new BufferPool(4096, 64, 0);
+        Map<String, Object> props =
+            Collections.<String, Object>singletonMap("bus.io.CachedOutputStream.Threshold", "131072");
+        Bus bus = new ExtensionManagerBus(null, props);
+        bus.setExtension(pool, BufferPool.class);
+        Bus oldBus = BusFactory.getAndSetThreadDefaultBus(bus);
+        try {
+            byte[] data = new byte[50 * 1024];
+            Message message = new MessageImpl();
+            message.setContent(InputStream.class, new ByteArrayInputStream(data));
+            // the message is cached in memory, as by a transport or the LoggingInInterceptor
+            DelegatingInputStream delegating = new DelegatingInputStream(message.getContent(InputStream.class));
+            delegating.cacheInput();
+            assertEquals(0, pool.getPooledChunks());
+
+            InputStream in = delegating.getInputStream();
+            assertEquals(data.length, IOUtils.readBytesFromStream(in).length);
+            in.close();
+            // the 13 chunks of the message are back in the pool
+            assertEquals(13, pool.getPooledChunks());
+        } finally {
+            BusFactory.setThreadDefaultBus(oldBus);
+            bus.shutdown(true);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.message;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.bus.extension.ExtensionManagerBus;
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.endpoint.EndpointImpl;
+import org.apache.cxf.service.Service;
+import org.apache.cxf.service.ServiceImpl;
+import org.apache.cxf.service.model.BindingInfo;
+import org.apache.cxf.service.model.EndpointInfo;
+import org.apache.cxf.service.model.ServiceInfo;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MessageImplTest extends Assert {
+    private Bus bus;
+    private Service service;
+    private EndpointInfo endpointInfo;
+    private EndpointImpl endpoint;
+    private Exchange exchange;
+
+    @Before
+    public void setUp() throws Exception {
+        bus = new ExtensionManagerBus();
+        service = new ServiceImpl();
+        ServiceInfo si = new ServiceInfo();
+        endpointInfo = new EndpointInfo(si, "http://schemas.xmlsoap.org/soap/http");
+        endpoint = new EndpointImpl(bus, service, endpointInfo);
+        endpointInfo.setBinding(new BindingInfo(si, "http://schemas.xmlsoap.org/wsdl/soap/"));
+        exchange = new ExchangeImpl();
+        exchange.put(Bus.class, bus);
+        exchange.put(Service.class, service);
+        exchange.put(Endpoint.class, endpoint);
+    }
+
+    @After
+    public void tearDown() {
+        bus.shutdown(true);
+    }
+
+    private Message createMessage() {
+        Message message = new MessageImpl();
+        exchange.setInMessage(message);
+        return message;
+    }
+
+    @Test
+    public void testContextualPropertyPrecedence() {
+        bus.setProperty("key", "bus");
+        assertEquals("bus", createMessage().getContextualProperty("key"));
+        service.put("key", "service");
+        assertEquals("service", createMessage().getContextualProperty("key"));
+        endpointInfo.getBinding().setProperty("key", "binding");
+        assertEquals("binding", createMessage().getContextualProperty("key"));
+        endpointInfo.setProperty("key", "endpointInfo");
+        assertEquals("endpointInfo", createMessage().getContextualProperty("key"));
+        endpoint.put("key", "endpoint");
+        Message message = createMessage();
+        assertEquals("endpoint", message.getContextualProperty("key"));
+        exchange.put("key", "exchange");
+        assertEquals("exchange", message.getContextualProperty("key"));
+        message.put("key", "message");
+        assertEquals("message", message.getContextualProperty("key"));
+        assertNull(message.getContextualProperty("missing"));
+    }
+
+    @Test
+    public void testContextualPropertyTracksChanges() {
+        Message message = createMessage();
+        assertNull(message.getContextualProperty("key"));
+        message.put("key", "message");
+        assertEquals("message", message.getContextualProperty("key"));
+        message.remove("key");
+        assertNull(message.getContextualProperty("key"));
+
+        bus.setProperty("key", "bus");
+        assertEquals("bus", createMessage().getContextualProperty("key"));
+        bus.getProperties().remove("key");
+        assertNull(createMessage().getContextualProperty("key"));
+        endpoint.put("key", "endpoint");
+        assertEquals("endpoint", createMessage().getContextualProperty("key"));
+        endpoint.remove("key");
+        assertNull(createMessage().getContextualProperty("key"));
+    }
+
+    @Test
+    public void testSnapshotSharedBetweenMessages() {
+        bus.setProperty("key", "bus");
+        ContextualProperties props = endpoint.getContextualProperties();
+        Map<String, Object> snapshot = props.getProperties(bus, service, endpoint);
+        assertSame(snapshot, props.getProperties(bus, service, endpoint));
+        assertEquals("bus", snapshot.get("key"));
+        try {
+            snapshot.put("key", "changed");
+            fail("snapshot should be immutable");
+        } catch (UnsupportedOperationException ex) {
+            //expected
+        }
+        endpointInfo.setProperty("other", "endpointInfo");
+        Map<String, Object> updated = props.getProperties(bus, service, endpoint);
+        assertNotSame(snapshot, updated);
+        assertEquals("endpointInfo", updated.get("other"));
+    }
+
+    @Test
+    public void testContextualPropertyKeys() {
+        bus.setProperty("bus.key", "bus");
+        service.put("service.key", "service");
+        endpointInfo.setProperty("endpointInfo.key", "endpointInfo");
+        exchange.put("exchange.key", "exchange");
+        Message message = createMessage();
+        message.put("message.key", "message");
+        Set<String> keys = message.getContextualPropertyKeys();
+        assertTrue(keys.contains("bus.key"));
+        assertTrue(keys.contains("service.key"));
+        assertTrue(keys.contains("endpointInfo.key"));
+        assertTrue(keys.contains("exchange.key"));
+        assertTrue(keys.contains("message.key"));
+    }
+}
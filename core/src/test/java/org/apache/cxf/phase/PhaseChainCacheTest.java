@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.phase;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.cxf.common.util.ModCountCopyOnWriteArrayList;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PhaseChainCacheTest extends Assert {
+    
+    private SortedSet<Phase> phases;
+    private PhaseChainCache cache;
+    private List<Interceptor<? extends Message>> bus;
+    private List<Interceptor<? extends Message>> endpoint1;
+    private List<Interceptor<? extends Message>> endpoint2;
+    
+    @Before
+    public void setUp() {
+        phases = new TreeSet<Phase>();
+        phases.add(new Phase("phase1", 1));
+        phases.add(new Phase("phase2", 2));
+        phases.add(new Phase("phase3", 3));
+        cache = new PhaseChainCache();
+        
+        bus = new ModCountCopyOnWriteArrayList<Interceptor<? extends Message>>();
+        bus.add(new RecordingInterceptor("phase1", "b1"));
+        endpoint1 = new ModCountCopyOnWriteArrayList<Interceptor<? extends Message>>();
+        endpoint1.add(new RecordingInterceptor("phase2", "e1"));
+        endpoint2 = new ModCountCopyOnWriteArrayList<Interceptor<? extends Message>>();
+        endpoint2.add(new RecordingInterceptor("phase3", "e2"));
+    }
+    
+    @Test
+    public void testAlternatingListsAreCached() {
+        for (int x = 0; x < 5; x++) {
+            assertEquals("[b1, e1]", ids(cache.get(phases, bus, endpoint1)));
+            assertEquals("[b1, e2]", ids(cache.get(phases, bus, endpoint2)));
+        }
+        assertEquals(2, cache.getMisses());
+        assertEquals(8, cache.getHits());
+        assertEquals(2, cache.getSize());
+    }
+    
+    @Test
+    public void testModifiedListRebuildsChain() {
+        cache.get(phases, bus, endpoint1);
+        endpoint1.add(new RecordingInterceptor("phase3", "e3"));
+        assertEquals("[b1, e1, e3]", ids(cache.get(phases, bus, endpoint1)));
+        assertEquals(2, cache.getMisses());
+        
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        cache.get(phases, bus, endpoint1);
+        assertEquals(3, cache.getMisses());
+    }
+    
+    @Test
+    public void testModifyingChainDoesNotAffectTemplate() {
+        PhaseInterceptorChain chain = cache.get(phases, bus, endpoint1);
+        chain.add(new RecordingInterceptor("phase1", "added"));
+        assertEquals("[b1, added, e1]", ids(chain));
+        assertEquals("[b1, e1]", ids(cache.get(phases, bus, endpoint1)));
+        
+        PhaseInterceptorChain clone = cache.get(phases, bus, endpoint1).cloneChain();
+        clone.remove(bus.get(0));
+        assertEquals("[e1]", ids(clone));
+        assertEquals("[b1, e1]", ids(cache.get(phases, bus, endpoint1)));
+    }
+    
+    @Test
+    public void testInterceptorAddedDuringExecution() {
+        List<Interceptor<? extends Message>> adding = new ArrayList<Interceptor<? extends Message>>();
+        RecordingInterceptor late = new RecordingInterceptor("phase3", "late");
+        RecordingInterceptor early = new RecordingInterceptor("phase1", "early");
+        adding.add(new AddingInterceptor("phase2", "adder", late, early));
+        
+        PhaseInterceptorChain chain = cache.get(phases, bus, adding);
+        Message m = new MessageImpl();
+        Exchange ex = new ExchangeImpl();
+        ex.setInMessage(m);
+        m.setInterceptorChain(chain);
+        assertTrue(chain.doIntercept(m));
+        
+        assertEquals(1, ((RecordingInterceptor)bus.get(0)).invoked);
+        assertEquals(1, late.invoked);
+        assertEquals("Interceptor added before the current position must not run", 0, early.invoked);
+        assertEquals("[b1, early, adder, late]", ids(chain));
+        assertEquals("[b1, adder]", ids(cache.get(phases, bus, adding)));
+    }
+    
+    private static String ids(PhaseInterceptorChain chain) {
+        List<String> ids = new ArrayList<String>();
+        Iterator<Interceptor<? extends Message>> it = chain.iterator();
+        while (it.hasNext()) {
+            ids.add(((PhaseInterceptor<? extends Message>)it.next()).getId());
+        }
+        return ids.toString();
+    }
+    
+    static class RecordingInterceptor extends AbstractPhaseInterceptor<Message> {
+        int invoked;
+        
+        RecordingInterceptor(String phase, String id) {
+            super(id, phase);
+        }
+        
+        public void handleMessage(Message message) {
+            invoked++;
+        }
+    }
+    
+    static class AddingInterceptor extends AbstractPhaseInterceptor<Message> {
+        private final Interceptor<? extends Message>[] toAdd;
+        
+        @SafeVarargs
+        AddingInterceptor(String phase, String id, Interceptor<? extends Message> ... toAdd) {
+            super(id, phase);
+            this.toAdd = toAdd;
+        }
+        
+        public void handleMessage(Message message) {
+            for (Interceptor<? extends Message> i : toAdd) {
+                message.getInterceptorChain().add(i);
+            }
+        }
+    }
+}
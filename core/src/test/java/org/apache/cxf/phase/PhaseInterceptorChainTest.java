@@ -392,6 +392,27 @@ public class PhaseInterceptorChainTest extends Assert {
         assertEquals(1, p3.invoked);
     }
     
+    @Test
+    public void testResumeFromOtherThreadWaitsForOwner() throws Exception {
+        HandoffPhaseInterceptor p1 = new HandoffPhaseInterceptor("phase1", "p1");
+        CountingPhaseInterceptor p2 = new CountingPhaseInterceptor("phase2", "p2");
+
+        message.getInterceptorChain();
+        EasyMock.expectLastCall().andReturn(chain).anyTimes();
+
+        control.replay();
+        chain.add(p1);
+        chain.add(p2);
+        
+        assertFalse(chain.doIntercept(message));
+        p1.resumer.join(10000);
+        
+        assertFalse("Chain resumed while still owned by the pausing thread", p1.resumedTooEarly);
+        assertEquals(1, p1.invoked);
+        assertEquals(1, p2.invoked);
+        assertSame(InterceptorChain.State.COMPLETE, chain.getState());
+    }
+    
     AbstractPhaseInterceptor<Message> setUpPhaseInterceptor(String phase, String id) throws Exception {
         return setUpPhaseInterceptor(phase, id, null, null);
     }
@@ -525,6 +546,35 @@ public class PhaseInterceptorChainTest extends Assert {
         }
     }
 
+    public class HandoffPhaseInterceptor extends CountingPhaseInterceptor {
+        volatile boolean left;
+        volatile boolean resumedTooEarly;
+        Thread resumer;
+        
+        public HandoffPhaseInterceptor(String phase, String id) {
+            super(phase, id);
+        }
+
+        public void handleMessage(final Message m) {
+            super.handleMessage(m);
+            final InterceptorChain c = m.getInterceptorChain();
+            c.pause();
+            resumer = new Thread() {
+                public void run() {
+                    c.resume();
+                    resumedTooEarly = !left;
+                }
+            };
+            resumer.start();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            left = true;
+        }
+    }
+    
     public class SuspendedInvocationInterceptor extends AbstractPhaseInterceptor<Message> {
         
         public SuspendedInvocationInterceptor(String phase, String id) {
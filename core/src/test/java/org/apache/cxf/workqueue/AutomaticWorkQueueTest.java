@@ -20,6 +20,7 @@
 package org.apache.cxf.workqueue;
 
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -107,6 +108,53 @@ public class AutomaticWorkQueueTest extends Assert {
     }
     
     
+    @Test
+    public void testMetrics() throws Exception {
+        workqueue = new AutomaticWorkQueueImpl(1, 0, 1, 1, DEFAULT_DEQUEUE_TIMEOUT);
+        WorkQueueMetrics metrics = workqueue.getMetrics();
+        assertSame(metrics, WorkQueueMetrics.getMetrics(workqueue));
+        final AtomicInteger rejections = new AtomicInteger();
+        metrics.addListener(new WorkQueueMetrics.Listener() {
+            public void taskStarted(long waitTimeInNS) {
+            }
+            public void taskCompleted(long runTimeInNS) {
+            }
+            public void taskRejected() {
+                rejections.incrementAndGet();
+            }
+        });
+
+        BlockingWorkItem running = new BlockingWorkItem();
+        BlockingWorkItem queued = new BlockingWorkItem();
+        workqueue.execute(running);
+        workqueue.execute(queued);
+        try {
+            workqueue.execute(new BlockingWorkItem());
+            fail("Should have failed with a RejectedExecutionException as the work queue is full");
+        } catch (RejectedExecutionException rex) {
+            // expected
+        }
+        for (int i = 0; i < 100 && metrics.getRunningCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, metrics.getAcceptedCount());
+        assertEquals(1, metrics.getRejectedCount());
+        assertEquals(1, rejections.get());
+        assertEquals(1, metrics.getRunningCount());
+        assertEquals(1, metrics.getPendingCount());
+
+        running.unblock();
+        queued.unblock();
+        for (int i = 0; i < 100 && metrics.getCompletedCount() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, metrics.getCompletedCount());
+        assertEquals(0, metrics.getPendingCount());
+        assertEquals(1, metrics.getPeakRunningCount());
+        assertTrue(metrics.getMaxWaitTime() >= metrics.getAverageWaitTime());
+        assertTrue(metrics.getAverageRunTime() > 0);
+    }
+
     @Test
     public void testEnqueue() {
         workqueue = new AutomaticWorkQueueImpl(DEFAULT_MAX_QUEUE_SIZE, INITIAL_SIZE,
@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.workqueue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.bus.extension.ExtensionManagerBus;
+import org.apache.cxf.bus.managers.WorkQueueManagerImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExecutorServiceWorkQueueTest extends Assert {
+
+    AutomaticWorkQueue workqueue;
+
+    @After
+    public void tearDown() throws Exception {
+        if (workqueue != null) {
+            workqueue.shutdown(true);
+            workqueue = null;
+        }
+    }
+
+    @Test
+    public void testExecuteWithContextClassLoader() throws Exception {
+        ExecutorService ex = Executors.newSingleThreadExecutor();
+        workqueue = new ExecutorServiceWorkQueue("test", ex);
+        final ClassLoader loader = new ClassLoader() { };
+        final AtomicReference<ClassLoader> seen = new AtomicReference<ClassLoader>();
+        final CountDownLatch done = new CountDownLatch(1);
+        ClassLoader orig = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            workqueue.execute(new Runnable() {
+                public void run() {
+                    seen.set(Thread.currentThread().getContextClassLoader());
+                    done.countDown();
+                }
+            });
+        } finally {
+            Thread.currentThread().setContextClassLoader(orig);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertSame(loader, seen.get());
+
+        workqueue.shutdown(true);
+        assertTrue(workqueue.isShutdown());
+        assertTrue(ex.isShutdown());
+    }
+
+    @Test
+    public void testPerTaskThreadsAreNotCapped() throws Exception {
+        workqueue = ExecutorServiceWorkQueue.createPerTaskThreadWorkQueue("pertask");
+        // more blocked work items than the default AutomaticWorkQueueImpl high water mark
+        final int count = 50;
+        final CountDownLatch started = new CountDownLatch(count);
+        final CountDownLatch release = new CountDownLatch(1);
+        for (int x = 0; x < count; x++) {
+            workqueue.execute(new Runnable() {
+                public void run() {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void testExecuteWithTimeout() throws Exception {
+        ThreadPoolExecutor ex = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                                                       new SynchronousQueue<Runnable>());
+        workqueue = new ExecutorServiceWorkQueue("timeout", ex);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        };
+        workqueue.execute(blocking);
+        try {
+            workqueue.execute(blocking, 50);
+            fail("Expected the work item to be rejected");
+        } catch (RejectedExecutionException ree) {
+            // the only thread is busy for longer than the timeout
+        }
+
+        // accepted once the thread is free again, within the timeout
+        final CountDownLatch done = new CountDownLatch(1);
+        release.countDown();
+        workqueue.execute(new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        }, 5000);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSchedule() throws Exception {
+        workqueue = ExecutorServiceWorkQueue.createPerTaskThreadWorkQueue("scheduled");
+        final CountDownLatch done = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        workqueue.schedule(new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        }, 100);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 90);
+    }
+
+    @Test
+    public void testWorkQueueManager() throws Exception {
+        Bus bus = new ExtensionManagerBus();
+        bus.setProperty(WorkQueueManagerImpl.PER_TASK_THREADS_PROPERTY, "true");
+        try {
+            WorkQueueManager mgr = bus.getExtension(WorkQueueManager.class);
+            assertTrue(mgr.getAutomaticWorkQueue() instanceof ExecutorServiceWorkQueue);
+            final List<String> added = new ArrayList<String>();
+            mgr.addListener(new WorkQueueManager.Listener() {
+                public void workQueueAdded(String name, AutomaticWorkQueue q) {
+                    added.add(name);
+                }
+            });
+            assertEquals(Arrays.asList(WorkQueueManagerImpl.DEFAULT_QUEUE_NAME), added);
+
+            ExecutorService ex = Executors.newCachedThreadPool();
+            AutomaticWorkQueue q = mgr.addNamedWorkQueue("custom", ex);
+            assertSame(q, mgr.getNamedWorkQueue("custom"));
+            assertEquals(Arrays.asList(WorkQueueManagerImpl.DEFAULT_QUEUE_NAME, "custom"), added);
+            assertSame(ex, ((ExecutorServiceWorkQueue)q).getExecutorService());
+        } finally {
+            bus.shutdown(true);
+        }
+    }
+}
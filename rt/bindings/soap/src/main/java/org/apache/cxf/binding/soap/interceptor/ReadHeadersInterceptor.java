@@ -27,15 +27,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
+import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Namespace;
 import javax.xml.stream.events.XMLEvent;
 
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
@@ -55,11 +58,14 @@ import org.apache.cxf.common.util.StringUtils;
 import org.apache.cxf.databinding.DataBinding;
 import org.apache.cxf.headers.HeaderManager;
 import org.apache.cxf.headers.HeaderProcessor;
+import org.apache.cxf.headers.StreamingHeaderProcessor;
 import org.apache.cxf.helpers.DOMUtils;
 import org.apache.cxf.helpers.ServiceUtils;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.message.MessageUtils;
 import org.apache.cxf.phase.Phase;
+import org.apache.cxf.staxutils.DepthXMLStreamReader;
+import org.apache.cxf.staxutils.FragmentStreamReader;
 import org.apache.cxf.staxutils.PartialXMLStreamReader;
 import org.apache.cxf.staxutils.StaxUtils;
 import org.apache.cxf.staxutils.StaxUtils.StreamToDOMContext;
@@ -72,6 +78,16 @@ public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
     public static final String BODY_EVENTS = "body.events";
     public static final String ENVELOPE_PREFIX = "envelope.prefix";
     public static final String BODY_PREFIX = "body.prefix";
+    /**
+     * Contextual property switching on the streaming header mode.  The SOAP headers are then
+     * read straight from the XMLStreamReader instead of copying the whole soap:Header into a
+     * DOM document first.  Headers in a namespace with a HeaderProcessor whose DataBinding
+     * reads XMLStreamReaders, such as the StreamingHeaderProcessors of WS-Addressing and WS-RM,
+     * are unmarshalled from the stream, only the remaining headers are read into DOM Elements.
+     * The mode is not used when the envelope is read into a DOM provided by someone else, e.g.
+     * the SAAJ model of the SAAJInInterceptor.
+     */
+    public static final String STREAMING_HEADERS = "org.apache.cxf.binding.soap.streamingHeaders";
     /**
      * 
      */
@@ -179,7 +195,7 @@ public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
                                         version.getVersionMismatch());                    
                 }
 
-                XMLStreamReader filteredReader = new PartialXMLStreamReader(xmlReader, message.getVersion()
+                DepthXMLStreamReader filteredReader = new PartialXMLStreamReader(xmlReader, message.getVersion()
                     .getBody());
 
                 Node nd = message.getContent(Node.class);
@@ -201,6 +217,10 @@ public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
                         addCurrentNamespaceDecls(xmlReader, bodyNC);
                     }
                     HeadersProcessor processor = new HeadersProcessor(soapVersion);
+                    if (MessageUtils.getContextualBoolean(message, STREAMING_HEADERS, false)) {
+                        processor.setHeaderReader(new StreamingHeaderReader(message, soapVersion,
+                            bus == null ? null : bus.getExtension(HeaderManager.class)));
+                    }
                     doc = processor.process(filteredReader);
                     if (doc != null) {
                         message.setContent(Node.class, doc);
@@ -250,7 +270,8 @@ public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
 
                             Object obj;
                             DataBinding dataBinding = null;
-                            if (p == null || p.getDataBinding() == null) {
+                            if (p == null || p.getDataBinding() == null
+                                || p instanceof StreamingHeaderProcessor) {
                                 obj = hel;
                             } else {
                                 dataBinding = p.getDataBinding();
@@ -332,6 +353,7 @@ public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
         private QName lastStartElementQName;
         private String envelopePrefix;
         private String bodyPrefix;
+        private StreamingHeaderReader headerReader;
 
         HeadersProcessor(SoapVersion version) {
             this.header = version.getHeader().getLocalPart();
@@ -340,7 +362,11 @@ public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
             this.body = version.getBody().getLocalPart();
         }
 
-        public Document process(XMLStreamReader reader) throws XMLStreamException {
+        public void setHeaderReader(StreamingHeaderReader headerReader) {
+            this.headerReader = headerReader;
+        }
+
+        public Document process(DepthXMLStreamReader reader) throws XMLStreamException {
             // number of elements read in
             int read = 0;
             int event = reader.getEventType();
@@ -363,6 +389,10 @@ public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
                     if (doc != null) {
                         //go on parsing the stream directly till the end and stop generating events
                         StaxUtils.readDocElements(doc, parent, reader, context);
+                    } else if (headerReader != null && isHeader(lastStartElementQName)) {
+                        //the header reader consumes everything up to the end of the soap:Header
+                        headerReader.readHeaders(reader, envEvents);
+                        read--;
                     }
                     break;
                 case XMLStreamConstants.END_ELEMENT:
@@ -401,8 +431,7 @@ public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
         private void addEvent(XMLEvent event) {
             if (event.isStartElement()) {
                 lastStartElementQName = event.asStartElement().getName();
-                if (header.equals(lastStartElementQName.getLocalPart())
-                    && ns.equals(lastStartElementQName.getNamespaceURI())) {
+                if (headerReader == null && isHeader(lastStartElementQName)) {
                     // process all events recorded so far
                     context = new StreamToDOMContext(true, false, false);
                     doc = DOMUtils.createDocument();
@@ -443,6 +472,10 @@ public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
             }
         }
         
+        private boolean isHeader(QName name) {
+            return header.equals(name.getLocalPart()) && ns.equals(name.getNamespaceURI());
+        }
+
         public List<XMLEvent> getBodyAttributeAndNamespaceEvents() {
             if (bodyEvents == null) {
                 return Collections.emptyList();
@@ -467,4 +500,141 @@ public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
             return bodyPrefix;
         }
     }
+
+    /**
+     * Reads the children of the soap:Header one at a time, see {@link #STREAMING_HEADERS}.
+     * Headers are unmarshalled straight from the stream when the HeaderProcessor registered
+     * for their namespace has a DataBinding reading XMLStreamReaders, all other headers are
+     * read into DOM Elements carrying the namespace declarations and attributes they would
+     * have inherited from the envelope, like the DOM based processing does.
+     */
+    private static class StreamingHeaderReader {
+        private final SoapMessage message;
+        private final SoapVersion version;
+        private final HeaderManager headerManager;
+        private final Map<String, String> namespaces = new HashMap<String, String>();
+        private Map<QName, String> headerAttributes;
+        private DocumentFragment fragment;
+
+        StreamingHeaderReader(SoapMessage message, SoapVersion version, HeaderManager headerManager) {
+            this.message = message;
+            this.version = version;
+            this.headerManager = headerManager;
+        }
+
+        /**
+         * Reads the headers, the reader must be on the soap:Header START_ELEMENT and is left on
+         * its END_ELEMENT.
+         */
+        void readHeaders(DepthXMLStreamReader reader, List<XMLEvent> envEvents) throws XMLStreamException {
+            if (envEvents != null) {
+                for (XMLEvent ev : envEvents) {
+                    if (ev.isNamespace()) {
+                        namespaces.put(((Namespace)ev).getPrefix(), ((Namespace)ev).getNamespaceURI());
+                    }
+                }
+            }
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                namespaces.put(reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
+            }
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                if (headerAttributes == null) {
+                    headerAttributes = new HashMap<QName, String>();
+                }
+                headerAttributes.put(reader.getAttributeName(i), reader.getAttributeValue(i));
+            }
+
+            int depth = reader.getDepth();
+            int event = reader.next();
+            while (reader.getDepth() >= depth) {
+                if (event == XMLStreamConstants.START_ELEMENT && reader.getDepth() == depth + 1) {
+                    // leaves the reader on or after the END_ELEMENT of the header
+                    readHeader(reader);
+                    event = reader.getEventType();
+                } else {
+                    event = reader.next();
+                }
+            }
+        }
+
+        private void readHeader(XMLStreamReader reader) throws XMLStreamException {
+            QName name = new QName(reader.getNamespaceURI(), reader.getLocalName());
+            String mu = getSoapAttribute(reader, version.getAttrNameMustUnderstand());
+            String act = getSoapAttribute(reader, version.getAttrNameRole());
+
+            HeaderProcessor p = headerManager == null ? null
+                : headerManager.getHeaderProcessor(name.getNamespaceURI());
+            if (p instanceof StreamingHeaderProcessor && !((StreamingHeaderProcessor)p).canRead(name)) {
+                p = null;
+            }
+            DataBinding dataBinding = p == null ? null : p.getDataBinding();
+            Object obj;
+            if (dataBinding != null && supportsStreamReader(dataBinding)) {
+                // JAXB unwraps a DepthXMLStreamReader and reads the reader inside it, so
+                // wrap the reader to keep its depth right
+                obj = dataBinding.createReader(XMLStreamReader.class).read(new DepthXMLStreamReader(reader));
+            } else {
+                Element hel = readElement(reader);
+                obj = dataBinding == null ? hel : dataBinding.createReader(Node.class).read(hel);
+            }
+
+            SoapHeader shead = new SoapHeader(name, obj, dataBinding);
+            if (!StringUtils.isEmpty(act)) {
+                shead.setActor(act);
+            }
+            shead.setMustUnderstand(Boolean.valueOf(mu) || "1".equals(mu));
+            shead.setDirection(SoapHeader.Direction.DIRECTION_IN);
+            message.getHeaders().add(shead);
+        }
+
+        private String getSoapAttribute(XMLStreamReader reader, String localName) {
+            String value = reader.getAttributeValue(version.getNamespace(), localName);
+            if (value == null && headerAttributes != null) {
+                value = headerAttributes.get(new QName(version.getNamespace(), localName));
+            }
+            return value;
+        }
+
+        private Element readElement(XMLStreamReader reader) throws XMLStreamException {
+            if (fragment == null) {
+                fragment = DOMUtils.createDocument().createDocumentFragment();
+            }
+            Document doc = fragment.getOwnerDocument();
+            StaxUtils.readDocElements(doc, fragment, new FragmentStreamReader(reader), true, false);
+            Element hel = (Element)fragment.getLastChild();
+
+            for (Map.Entry<String, String> entry : namespaces.entrySet()) {
+                String prefix = entry.getKey();
+                if (!StringUtils.isEmpty(prefix)
+                    && !hel.hasAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, prefix)) {
+                    hel.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                                       XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix, entry.getValue());
+                }
+            }
+            if (headerAttributes != null) {
+                for (Map.Entry<QName, String> entry : headerAttributes.entrySet()) {
+                    QName attName = entry.getKey();
+                    String attNs = StringUtils.isEmpty(attName.getNamespaceURI()) ? null
+                        : attName.getNamespaceURI();
+                    if (!hel.hasAttributeNS(attNs, attName.getLocalPart())) {
+                        String qname = StringUtils.isEmpty(attName.getPrefix()) ? attName.getLocalPart()
+                            : attName.getPrefix() + ":" + attName.getLocalPart();
+                        Attr attribute = doc.createAttributeNS(attNs, qname);
+                        attribute.setNodeValue(entry.getValue());
+                        hel.setAttributeNodeNS(attribute);
+                    }
+                }
+            }
+            return hel;
+        }
+
+        private static boolean supportsStreamReader(DataBinding dataBinding) {
+            for (Class<?> c : dataBinding.getSupportedReaderFormats()) {
+                if (c == XMLStreamReader.class) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
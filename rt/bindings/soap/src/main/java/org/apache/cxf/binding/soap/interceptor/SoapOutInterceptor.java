@@ -46,6 +46,7 @@ import org.apache.cxf.databinding.DataWriter;
 import org.apache.cxf.headers.Header;
 import org.apache.cxf.headers.HeaderManager;
 import org.apache.cxf.headers.HeaderProcessor;
+import org.apache.cxf.headers.StreamingHeaderProcessor;
 import org.apache.cxf.helpers.ServiceUtils;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.io.WriteOnCloseOutputStream;
@@ -159,7 +160,7 @@ public class SoapOutInterceptor extends AbstractSoapInterceptor {
                     if (b == null) {
                         HeaderProcessor hp = bus.getExtension(HeaderManager.class)
                                 .getHeaderProcessor(header.getName().getNamespaceURI());
-                        if (hp != null) {
+                        if (hp != null && !(hp instanceof StreamingHeaderProcessor)) {
                             b = hp.getDataBinding();
                         }
                     }
@@ -40,6 +40,7 @@ import javax.xml.soap.SOAPPart;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.Namespace;
 import javax.xml.stream.events.XMLEvent;
@@ -58,6 +59,7 @@ import org.apache.cxf.binding.soap.SoapHeader;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.interceptor.AbstractSoapInterceptor;
 import org.apache.cxf.binding.soap.interceptor.ReadHeadersInterceptor;
+import org.apache.cxf.binding.soap.interceptor.SoapOutInterceptor;
 import org.apache.cxf.common.i18n.BundleUtils;
 import org.apache.cxf.common.injection.NoJSR250Annotations;
 import org.apache.cxf.common.util.StringUtils;
@@ -65,12 +67,15 @@ import org.apache.cxf.databinding.DataBinding;
 import org.apache.cxf.headers.Header;
 import org.apache.cxf.headers.HeaderManager;
 import org.apache.cxf.headers.HeaderProcessor;
+import org.apache.cxf.headers.StreamingHeaderProcessor;
 import org.apache.cxf.helpers.DOMUtils;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.message.Attachment;
 import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageUtils;
 import org.apache.cxf.phase.Phase;
 import org.apache.cxf.phase.PhaseInterceptor;
+import org.apache.cxf.service.model.MessagePartInfo;
 import org.apache.cxf.staxutils.StaxUtils;
 import org.apache.cxf.staxutils.W3CDOMStreamWriter;
 
@@ -202,6 +207,11 @@ public class SAAJInInterceptor extends AbstractSoapInterceptor {
                 SOAPBody body = soapMessage.getSOAPBody();
                 events = (List<XMLEvent>)message.get(ReadHeadersInterceptor.BODY_EVENTS);
                 applyEvents(events, body);
+                if (node == null && message.hasHeaders()
+                    && MessageUtils.getContextualBoolean(message, ReadHeadersInterceptor.STREAMING_HEADERS,
+                                                         false)) {
+                    addStreamedHeaders(message, soapMessage);
+                }
             }
             message.setContent(Node.class, soapMessage.getSOAPPart());
 
@@ -263,6 +273,38 @@ public class SAAJInInterceptor extends AbstractSoapInterceptor {
         }
     }
     
+    /**
+     * With streaming headers the inbound headers were never added to a DOM, so they are
+     * written into the SOAPHeader here, marshalling the ones read by a DataBinding.
+     */
+    private static void addStreamedHeaders(SoapMessage message, SOAPMessage soapMessage)
+        throws SOAPException, XMLStreamException {
+        SOAPEnvelope env = soapMessage.getSOAPPart().getEnvelope();
+        SOAPHeader soapHeader = env.getHeader();
+        for (Header header : message.getHeaders()) {
+            if (header.getDirection() != Header.Direction.DIRECTION_IN) {
+                continue;
+            }
+            if (soapHeader == null) {
+                soapHeader = env.addHeader();
+            }
+            XMLStreamWriter writer = new SAAJStreamWriter(soapMessage.getSOAPPart(), soapHeader);
+            if (header instanceof SoapHeader) {
+                writer = new SoapOutInterceptor.SOAPHeaderWriter(writer, (SoapHeader)header,
+                                                                 message.getVersion(), env.getPrefix());
+            }
+            if (header.getDataBinding() != null) {
+                MessagePartInfo part = new MessagePartInfo(header.getName(), null);
+                part.setConcreteName(header.getName());
+                header.getDataBinding().createWriter(XMLStreamWriter.class)
+                    .write(header.getObject(), part, writer);
+            } else {
+                StaxUtils.copy((Element)header.getObject(), writer);
+            }
+            writer.flush();
+        }
+    }
+
     private static void adjustPrefixes(SOAPEnvelope env, String envPrefix, String bodyPrefix) throws SOAPException {
         SAAJUtils.adjustPrefix(env, envPrefix);
         SAAJUtils.adjustPrefix(env.getBody(), bodyPrefix);
@@ -296,7 +338,7 @@ public class SAAJInInterceptor extends AbstractSoapInterceptor {
                 
             Object obj;
             DataBinding dataBinding = null;
-            if (p == null || p.getDataBinding() == null) {
+            if (p == null || p.getDataBinding() == null || p instanceof StreamingHeaderProcessor) {
                 obj = elem;
             } else {
                 dataBinding = p.getDataBinding();
@@ -27,10 +27,17 @@ import java.util.List;
 
 import javax.activation.DataHandler;
 import javax.mail.util.ByteArrayDataSource;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
+import org.apache.cxf.Bus;
 import org.apache.cxf.BusFactory;
 import org.apache.cxf.annotations.SchemaValidation.SchemaValidationType;
 import org.apache.cxf.attachment.AttachmentImpl;
@@ -38,10 +45,15 @@ import org.apache.cxf.attachment.AttachmentUtil;
 import org.apache.cxf.binding.soap.interceptor.CheckFaultInterceptor;
 import org.apache.cxf.binding.soap.interceptor.ReadHeadersInterceptor;
 import org.apache.cxf.binding.soap.interceptor.StartBodyInterceptor;
+import org.apache.cxf.databinding.DataBinding;
 import org.apache.cxf.headers.Header;
+import org.apache.cxf.headers.HeaderManager;
+import org.apache.cxf.headers.HeaderProcessor;
 import org.apache.cxf.helpers.DOMUtils;
 import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.InterceptorProvider;
 import org.apache.cxf.interceptor.StaxInInterceptor;
+import org.apache.cxf.jaxb.JAXBDataBinding;
 import org.apache.cxf.message.Attachment;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.staxutils.StaxUtils;
@@ -166,6 +178,68 @@ public class ReadHeaderInterceptorTest extends TestBase {
 
         staxIntc.handleMessage(soapMessage);
         soapMessage.getInterceptorChain().doIntercept(soapMessage);
+        checkHeaders();
+        assertNotNull(soapMessage.getContent(Node.class));
+    }
+
+    @Test
+    public void testHandleStreamingHeader() throws Exception {
+        prepareSoapMessage("test-soap-header.xml");
+        soapMessage.put(ReadHeadersInterceptor.STREAMING_HEADERS, Boolean.TRUE);
+
+        staxIntc.handleMessage(soapMessage);
+        soapMessage.getInterceptorChain().doIntercept(soapMessage);
+        checkHeaders();
+        // no DOM document is built for the envelope
+        assertNull(soapMessage.getContent(Node.class));
+        for (Header hdr : soapMessage.getHeaders()) {
+            SoapHeader shdr = (SoapHeader)hdr;
+            assertTrue(shdr.isMustUnderstand());
+            assertEquals("http://schemas.xmlsoap.org/soap/actor/next", shdr.getActor());
+            // the envelope namespace declarations are still in scope
+            assertEquals("http://schemas.xmlsoap.org/soap/envelope/",
+                         ((Element)hdr.getObject()).lookupNamespaceURI("env"));
+        }
+    }
+
+    @Test
+    public void testHandleStreamingHeaderWithDataBinding() throws Exception {
+        Bus bus = BusFactory.newInstance().createBus();
+        try {
+            bus.getExtension(HeaderManager.class).registerHeaderProcessor(new HeaderProcessor() {
+                public String getNamespace() {
+                    return "http://mycompany.example.com/employees";
+                }
+                public DataBinding getDataBinding() {
+                    try {
+                        return new JAXBDataBinding(Passenger.class);
+                    } catch (JAXBException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                public InterceptorProvider getInterceptorProvider() {
+                    return null;
+                }
+            });
+            prepareSoapMessage("test-soap-header.xml");
+            soapMessage.put(ReadHeadersInterceptor.STREAMING_HEADERS, Boolean.TRUE);
+            staxIntc.handleMessage(soapMessage);
+            new ReadHeadersInterceptor(bus).handleMessage(soapMessage);
+
+            List<Header> headers = soapMessage.getHeaders();
+            assertEquals(2, headers.size());
+            assertEquals("reservation", ((Element)headers.get(0).getObject()).getLocalName());
+            // the passenger header is unmarshalled straight from the stream
+            Passenger passenger = (Passenger)headers.get(1).getObject();
+            assertEquals("Bob", passenger.name);
+            assertTrue(((SoapHeader)headers.get(1)).isMustUnderstand());
+            assertEquals("Body", soapMessage.getContent(XMLStreamReader.class).getLocalName());
+        } finally {
+            bus.shutdown(true);
+        }
+    }
+
+    private void checkHeaders() {
         // check the xmlReader should be placed on the first entry of the body element
         XMLStreamReader xmlReader = soapMessage.getContent(XMLStreamReader.class);
         assertEquals("check the first entry of body", "itinerary", xmlReader.getLocalName());
@@ -213,6 +287,13 @@ public class ReadHeaderInterceptorTest extends TestBase {
         }
     }
 
+    @XmlRootElement(name = "passenger", namespace = "http://mycompany.example.com/employees")
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class Passenger {
+        @XmlElement(namespace = "http://mycompany.example.com/employees")
+        String name;
+    }
+
     private void prepareSoapMessage(String message) throws IOException {
 
         soapMessage = TestUtil.createEmptySoapMessage(Soap12.getInstance(), chain);
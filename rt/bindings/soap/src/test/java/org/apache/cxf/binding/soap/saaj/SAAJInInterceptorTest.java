@@ -29,6 +29,7 @@ import javax.mail.util.ByteArrayDataSource;
 import javax.xml.soap.Detail;
 import javax.xml.soap.DetailEntry;
 import javax.xml.soap.SOAPFault;
+import javax.xml.soap.SOAPHeaderElement;
 import javax.xml.soap.SOAPMessage;
 import javax.xml.stream.XMLStreamReader;
 
@@ -103,6 +104,35 @@ public class SAAJInInterceptorTest extends TestBase {
         assertEquals(2, headerChilds.size());
     }
     
+    @Test
+    public void testHandleStreamingHeader() throws Exception {
+        prepareSoapMessage("../test-soap-header.xml");
+        soapMessage.put(ReadHeadersInterceptor.STREAMING_HEADERS, Boolean.TRUE);
+
+        staxIntc.handleMessage(soapMessage);
+        rhi.handleMessage(soapMessage);
+        sbi.handleMessage(soapMessage);
+        saajIntc.handleMessage(soapMessage);
+
+        XMLStreamReader xmlReader = soapMessage.getContent(XMLStreamReader.class);
+        assertEquals("check the first entry of body", "itinerary", xmlReader.getLocalName());
+
+        // the streamed headers end up in the SAAJ model
+        SOAPMessage parsedMessage = soapMessage.getContent(SOAPMessage.class);
+        Iterator<?> it = parsedMessage.getSOAPHeader().examineAllHeaderElements();
+        SOAPHeaderElement reservation = (SOAPHeaderElement)it.next();
+        assertEquals("reservation", reservation.getLocalName());
+        assertTrue(reservation.getMustUnderstand());
+        assertEquals("http://schemas.xmlsoap.org/soap/actor/next", reservation.getActor());
+        assertEquals("passenger", ((SOAPHeaderElement)it.next()).getLocalName());
+        assertFalse(it.hasNext());
+
+        assertEquals(2, soapMessage.getHeaders().size());
+        for (Header hdr : soapMessage.getHeaders()) {
+            assertSame(parsedMessage.getSOAPHeader(), ((Element)hdr.getObject()).getParentNode());
+        }
+    }
+    
     @Test
     public void testFaultDetail() throws Exception {
         try {
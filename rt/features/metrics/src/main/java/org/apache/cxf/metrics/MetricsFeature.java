@@ -19,8 +19,15 @@
 
 package org.apache.cxf.metrics;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 import org.apache.cxf.Bus;
 import org.apache.cxf.common.injection.NoJSR250Annotations;
+import org.apache.cxf.configuration.ConfiguredBeanLocator;
 import org.apache.cxf.endpoint.Client;
 import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.endpoint.Server;
@@ -33,6 +40,9 @@ import org.apache.cxf.metrics.interceptors.MetricsMessageInOneWayInterceptor;
 import org.apache.cxf.metrics.interceptors.MetricsMessageInPostInvokeInterceptor;
 import org.apache.cxf.metrics.interceptors.MetricsMessageInPreInvokeInterceptor;
 import org.apache.cxf.metrics.interceptors.MetricsMessageOutInterceptor;
+import org.apache.cxf.workqueue.AutomaticWorkQueue;
+import org.apache.cxf.workqueue.WorkQueueManager;
+import org.apache.cxf.workqueue.WorkQueueMetrics;
 
 /**
  * 
@@ -40,6 +50,7 @@ import org.apache.cxf.metrics.interceptors.MetricsMessageOutInterceptor;
 @NoJSR250Annotations
 public class MetricsFeature extends AbstractFeature {
     final MetricsProvider[] providers;
+    private final Set<Bus> workQueueBuses = Collections.newSetFromMap(new WeakHashMap<Bus, Boolean>());
     
     public MetricsFeature() {
         this.providers = null;
@@ -66,6 +77,7 @@ public class MetricsFeature extends AbstractFeature {
         provider.getOutInterceptors().add(out);
         provider.getOutFaultInterceptors().add(countingOut);
         provider.getOutFaultInterceptors().add(out);
+        registerWorkQueues(bus);
     }
     
     @Override
@@ -80,6 +92,7 @@ public class MetricsFeature extends AbstractFeature {
         client.getOutInterceptors().add(countingOut);
         client.getOutInterceptors().add(out);
         client.getOutInterceptors().add(new MetricsMessageClientOutInterceptor(providers));
+        registerWorkQueues(bus);
     }
     
     
@@ -101,5 +114,50 @@ public class MetricsFeature extends AbstractFeature {
         provider.getOutInterceptors().add(new MetricsMessageClientOutInterceptor(providers));
         provider.getOutFaultInterceptors().add(countingOut);
         provider.getOutFaultInterceptors().add(out);
+        registerWorkQueues(bus);
+    }
+    
+    /**
+     * Publishes the metrics of the work queues of the bus through the providers, including the
+     * work queues that are added to the bus later.
+     */
+    protected void registerWorkQueues(Bus bus) {
+        WorkQueueManager manager = bus == null ? null : bus.getExtension(WorkQueueManager.class);
+        if (manager == null) {
+            return;
+        }
+        final Collection<? extends MetricsProvider> ps = getMetricProviders(bus);
+        if (ps.isEmpty()) {
+            return;
+        }
+        synchronized (workQueueBuses) {
+            if (!workQueueBuses.add(bus)) {
+                return;
+            }
+        }
+        manager.addListener(new WorkQueueManager.Listener() {
+            public void workQueueAdded(String name, AutomaticWorkQueue q) {
+                WorkQueueMetrics metrics = WorkQueueMetrics.getMetrics(q);
+                if (metrics != null) {
+                    for (MetricsProvider p : ps) {
+                        WorkQueueMetrics.Listener l = p.createWorkQueueListener(name, metrics);
+                        if (l != null) {
+                            metrics.addListener(l);
+                        }
+                    }
+                }
+            }
+        });
+    }
+    
+    private Collection<? extends MetricsProvider> getMetricProviders(Bus bus) {
+        if (providers != null) {
+            return Arrays.asList(providers);
+        }
+        ConfiguredBeanLocator b = bus.getExtension(ConfiguredBeanLocator.class);
+        if (b == null) {
+            return Collections.emptyList();
+        }
+        return b.getBeansOfType(MetricsProvider.class);
     }
 }
@@ -21,6 +21,7 @@ package org.apache.cxf.metrics;
 
 import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.workqueue.WorkQueueMetrics;
 
 /**
  * 
@@ -33,4 +34,13 @@ public interface MetricsProvider {
     MetricsContext createOperationContext(Endpoint endpoint, BindingOperationInfo boi, boolean asClient, String cid);
 
     MetricsContext createResourceContext(Endpoint endpoint, String resourceName, boolean asClient, String cid);
+
+    /**
+     * Publishes the metrics of a work queue.  Called once per work queue; the returned
+     * listener, if any, is added to the work queue metrics.  By default the work queues are
+     * not published.
+     */
+    default WorkQueueMetrics.Listener createWorkQueueListener(String queueName, WorkQueueMetrics metrics) {
+        return null;
+    }
 }
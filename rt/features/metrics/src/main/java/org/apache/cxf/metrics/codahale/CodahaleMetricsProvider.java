@@ -19,12 +19,19 @@
 
 package org.apache.cxf.metrics.codahale;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.ObjectNameFactory;
+import com.codahale.metrics.Timer;
 
 import org.apache.cxf.Bus;
 import org.apache.cxf.common.injection.NoJSR250Annotations;
@@ -35,6 +42,7 @@ import org.apache.cxf.metrics.MetricsContext;
 import org.apache.cxf.metrics.MetricsProvider;
 import org.apache.cxf.service.Service;
 import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.workqueue.WorkQueueMetrics;
 
 /**
  * 
@@ -46,6 +54,8 @@ public class CodahaleMetricsProvider implements MetricsProvider {
 
     protected Bus bus;
     protected MetricRegistry registry;
+    private final Map<WorkQueueMetrics, WorkQueueMetrics.Listener> workQueueListeners 
+        = new ConcurrentHashMap<WorkQueueMetrics, WorkQueueMetrics.Listener>();
     
     /**
      * 
@@ -142,4 +152,52 @@ public class CodahaleMetricsProvider implements MetricsProvider {
         return new CodahaleMetricsContext(buffer.toString(), registry);
     }
 
+    /** {@inheritDoc}*/
+    @Override
+    public synchronized WorkQueueMetrics.Listener createWorkQueueListener(String queueName, 
+                                                                       final WorkQueueMetrics metrics) {
+        WorkQueueMetrics.Listener l = workQueueListeners.get(metrics);
+        if (l == null) {
+            String baseName = ManagementConstants.DEFAULT_DOMAIN_NAME + ":"
+                + ManagementConstants.BUS_ID_PROP + "=" + bus.getId() + ","
+                + ManagementConstants.TYPE_PROP + "=Metrics.WorkQueue,"
+                + ManagementConstants.NAME_PROP + "=\"" + escapePatternChars(queueName) + "\",";
+            registerGauge(baseName + "Attribute=Pending", new Gauge<Integer>() {
+                public Integer getValue() {
+                    return metrics.getPendingCount();
+                }
+            });
+            registerGauge(baseName + "Attribute=Running", new Gauge<Integer>() {
+                public Integer getValue() {
+                    return metrics.getRunningCount();
+                }
+            });
+            registerGauge(baseName + "Attribute=Peak Running", new Gauge<Integer>() {
+                public Integer getValue() {
+                    return metrics.getPeakRunningCount();
+                }
+            });
+            final Timer waitTime = registry.timer(baseName + "Attribute=Wait Time");
+            final Timer runTime = registry.timer(baseName + "Attribute=Run Time");
+            final Meter rejections = registry.meter(baseName + "Attribute=Rejections");
+            l = new WorkQueueMetrics.Listener() {
+                public void taskStarted(long waitTimeInNS) {
+                    waitTime.update(waitTimeInNS, TimeUnit.NANOSECONDS);
+                }
+                public void taskCompleted(long runTimeInNS) {
+                    runTime.update(runTimeInNS, TimeUnit.NANOSECONDS);
+                }
+                public void taskRejected() {
+                    rejections.mark();
+                }
+            };
+            workQueueListeners.put(metrics, l);
+        }
+        return l;
+    }
+
+    private void registerGauge(String name, Gauge<?> gauge) {
+        registry.remove(name);
+        registry.register(name, gauge);
+    }
 }
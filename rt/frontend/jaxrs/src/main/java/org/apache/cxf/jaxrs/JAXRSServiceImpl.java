@@ -40,6 +40,7 @@ import org.apache.cxf.jaxrs.model.ClassResourceInfo;
 import org.apache.cxf.jaxrs.model.OperationResourceInfo;
 import org.apache.cxf.jaxrs.model.Parameter;
 import org.apache.cxf.jaxrs.model.ParameterType;
+import org.apache.cxf.jaxrs.model.URITemplateIndex;
 import org.apache.cxf.jaxrs.utils.InjectionUtils;
 import org.apache.cxf.jaxrs.utils.JAXRSUtils;
 import org.apache.cxf.service.Service;
@@ -65,6 +66,7 @@ public class JAXRSServiceImpl extends AbstractAttributedInterceptorProvider impl
     private String address;
     private boolean createServiceModel;
     private QName serviceName;
+    private transient volatile URITemplateIndex<ClassResourceInfo> resourceIndex;
     
     public JAXRSServiceImpl(String address, QName qname) {
         this.address = address;
@@ -109,6 +111,22 @@ public class JAXRSServiceImpl extends AbstractAttributedInterceptorProvider impl
     public List<ClassResourceInfo> getClassResourceInfos() {
         return classResourceInfos;
     }
+
+    /**
+     * Returns the index of the root resources by their URI templates, it is
+     * rebuilt if root resources have been added since it was last built.
+     */
+    public URITemplateIndex<ClassResourceInfo> getResourceIndex() {
+        URITemplateIndex<ClassResourceInfo> index = resourceIndex;
+        if (index == null || index.size() != classResourceInfos.size()) {
+            index = new URITemplateIndex<ClassResourceInfo>();
+            for (ClassResourceInfo cri : classResourceInfos) {
+                index.add(cri.getURITemplate(), cri);
+            }
+            resourceIndex = index;
+        }
+        return index;
+    }
     
     public List<ServiceInfo> getServiceInfos() {
         if (!createServiceModel) {
@@ -155,8 +155,9 @@ public class JAXRSInInterceptor extends AbstractPhaseInterceptor<Message> {
 
         //1. Matching target resource class
         List<ClassResourceInfo> resources = JAXRSUtils.getRootResources(message);
+        List<ClassResourceInfo> candidates = JAXRSUtils.getRootResources(message, rawPath);
         Map<ClassResourceInfo, MultivaluedMap<String, String>> matchedResources = 
-            JAXRSUtils.selectResourceClass(resources, rawPath, message);
+            JAXRSUtils.selectResourceClass(candidates, rawPath, message);
         if (matchedResources == null) {
             org.apache.cxf.common.i18n.Message errorMsg = 
                 new org.apache.cxf.common.i18n.Message("NO_ROOT_EXC", 
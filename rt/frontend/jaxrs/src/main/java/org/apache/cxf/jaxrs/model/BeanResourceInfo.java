@@ -21,18 +21,23 @@ package org.apache.cxf.jaxrs.model;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.cxf.Bus;
 import org.apache.cxf.jaxrs.utils.AnnotationUtils;
+import org.apache.cxf.jaxrs.utils.ResourceUtils;
 
 public abstract class BeanResourceInfo extends AbstractResourceInfo {
     protected List<Field> paramFields;
     protected List<Method> paramMethods;
     private boolean paramsAvailable;
+    private final Map<Member, Parameter> parameters = new ConcurrentHashMap<Member, Parameter>();
     
     protected BeanResourceInfo(Bus bus) {
         super(bus);
@@ -67,6 +72,7 @@ public abstract class BeanResourceInfo extends AbstractResourceInfo {
                     }
                     paramsAvailable = true;
                     paramFields.add(f);
+                    getParameter(f);
                 }
             }
         }
@@ -99,6 +105,7 @@ public abstract class BeanResourceInfo extends AbstractResourceInfo {
         }
         paramsAvailable = true;
         paramMethods.add(m);
+        getParameter(m);
     }
     
     public List<Method> getParameterMethods() {
@@ -110,4 +117,30 @@ public abstract class BeanResourceInfo extends AbstractResourceInfo {
         return paramFields == null ? Collections.<Field>emptyList() 
                                     : Collections.unmodifiableList(paramFields);
     }
+    
+    /**
+     * Returns the parameter injected through the setter method, the parameters of
+     * the setters found when the class is introspected are created up front.
+     */
+    public Parameter getParameter(Method m) {
+        Parameter p = parameters.get(m);
+        if (p == null) {
+            p = ResourceUtils.getParameter(0, m.getAnnotations(), m.getParameterTypes()[0]);
+            parameters.put(m, p);
+        }
+        return p;
+    }
+    
+    /**
+     * Returns the parameter injected into the field, the parameters of the fields
+     * found when the class is introspected are created up front.
+     */
+    public Parameter getParameter(Field f) {
+        Parameter p = parameters.get(f);
+        if (p == null) {
+            p = ResourceUtils.getParameter(0, f.getAnnotations(), f.getType());
+            parameters.put(f, p);
+        }
+        return p;
+    }
 }
@@ -19,6 +19,7 @@
 package org.apache.cxf.jaxrs.model;
 
 import java.lang.reflect.Method;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -31,6 +32,7 @@ public class MethodDispatcher {
     private Map<Method, OperationResourceInfo> methodToOri = 
         new LinkedHashMap<Method, OperationResourceInfo>();
     private ConcurrentHashMap<Method, Method> proxyMethodMap = new ConcurrentHashMap<Method, Method>();
+    private volatile URITemplateIndex<OperationResourceInfo> oriIndex;
     
     public MethodDispatcher() {
         
@@ -52,6 +54,7 @@ public class MethodDispatcher {
         }
 
         oriToMethod.put(o, primary);
+        oriIndex = null;
     }
 
     public OperationResourceInfo getOperationResourceInfo(Method method) {
@@ -62,6 +65,25 @@ public class MethodDispatcher {
         return oriToMethod.keySet();
     }
 
+    /**
+     * Returns the operations whose URI templates may match the path, in the order
+     * they were bound, see {@link URITemplateIndex}.
+     */
+    public Collection<OperationResourceInfo> getOperationResourceInfos(String path) {
+        if (oriToMethod.size() < 2) {
+            return oriToMethod.keySet();
+        }
+        URITemplateIndex<OperationResourceInfo> index = oriIndex;
+        if (index == null) {
+            index = new URITemplateIndex<OperationResourceInfo>();
+            for (OperationResourceInfo ori : oriToMethod.keySet()) {
+                index.add(ori.getURITemplate(), ori);
+            }
+            oriIndex = index;
+        }
+        return index.getCandidates(path);
+    }
+
     public Method getMethod(OperationResourceInfo op) {
         return oriToMethod.get(op);
     }
@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.jaxrs.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.cxf.jaxrs.utils.HttpUtils;
+
+/**
+ * Routing index over the URI templates of resource classes or resource methods.
+ * <p>
+ * The templates are kept in a trie of path segments: literal segments are looked up
+ * by their value, segments consisting of a single template variable without a regular
+ * expression match any path segment, and a template is attached to the node at which
+ * its leading run of such segments ends, e.g. "/books/{id}/chapters/{c:\\d+}" is
+ * attached below books, {id} and chapters.
+ * <p>
+ * {@link #getCandidates(String)} walks the path segments of a request through the trie
+ * and returns the values of all the templates found on the way, in the order they were
+ * added.  The candidates are a superset of the templates matching the path, so callers
+ * still run {@link URITemplate#match} and their usual selection on them, but only on a
+ * few templates instead of all of them.
+ */
+public class URITemplateIndex<T> {
+    private static final String REGEX_CHARACTERS = "?[]{}|^\\";
+    private static final Comparator<Entry<?>> ORDER = new Comparator<Entry<?>>() {
+        public int compare(Entry<?> e1, Entry<?> e2) {
+            return e1.index < e2.index ? -1 : e1.index == e2.index ? 0 : 1;
+        }
+    };
+
+    private final Node<T> root = new Node<T>();
+    private int size;
+
+    public void add(URITemplate template, T value) {
+        int index = size++;
+        if (template == null) {
+            // can never match
+            return;
+        }
+        Node<T> node = root;
+        for (String segment : getIndexedSegments(template.getValue())) {
+            if (segment == null) {
+                if (node.variable == null) {
+                    node.variable = new Node<T>();
+                }
+                node = node.variable;
+            } else {
+                if (node.literals == null) {
+                    node.literals = new HashMap<String, Node<T>>();
+                }
+                Node<T> child = node.literals.get(segment);
+                if (child == null) {
+                    child = new Node<T>();
+                    node.literals.put(segment, child);
+                }
+                node = child;
+            }
+        }
+        if (node.values == null) {
+            node.values = new ArrayList<Entry<T>>(2);
+        }
+        node.values.add(new Entry<T>(index, value));
+    }
+
+    /**
+     * @return the number of values added to the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the values whose templates may match the path, in the order they were added.
+     */
+    public List<T> getCandidates(String path) {
+        List<Entry<T>> found = new ArrayList<Entry<T>>();
+        int nodes = collect(root, path == null ? "" : path, 0, found);
+        if (found.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (nodes > 1) {
+            Collections.sort(found, ORDER);
+        }
+        List<T> candidates = new ArrayList<T>(found.size());
+        for (Entry<T> e : found) {
+            candidates.add(e.value);
+        }
+        return candidates;
+    }
+
+    private static <T> int collect(Node<T> node, String path, int pos, List<Entry<T>> found) {
+        int nodes = 0;
+        if (node.values != null) {
+            found.addAll(node.values);
+            nodes++;
+        }
+        if (node.literals == null && node.variable == null) {
+            return nodes;
+        }
+        // templates never match empty segments, apart from the ones dropped when
+        // URITemplate retries a path with matrix parameters, so they are skipped
+        int start = pos;
+        while (start < path.length() && path.charAt(start) == '/') {
+            start++;
+        }
+        if (start == path.length()) {
+            return nodes;
+        }
+        int end = path.indexOf('/', start);
+        if (end == -1) {
+            end = path.length();
+        }
+        if (node.literals != null) {
+            // matrix parameters are ignored when matching literal segments
+            int semicolon = path.indexOf(';', start);
+            String segment = path.substring(start, semicolon != -1 && semicolon < end ? semicolon : end);
+            Node<T> child = node.literals.get(segment);
+            if (child != null) {
+                nodes += collect(child, path, end, found);
+            }
+        }
+        if (node.variable != null) {
+            nodes += collect(node.variable, path, end, found);
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the leading segments of the template which can be indexed, in the encoded
+     * form URITemplate matches them with; null stands for a segment made of a single
+     * variable without a regular expression.
+     */
+    static List<String> getIndexedSegments(String template) {
+        List<String> segments = new ArrayList<String>();
+        int start = template.startsWith("/") ? 1 : 0;
+        while (start < template.length()) {
+            int end = template.indexOf('/', start);
+            if (end == -1) {
+                end = template.length();
+            }
+            String segment = template.substring(start, end);
+            if (isVariable(segment)) {
+                segments.add(null);
+            } else if (isLiteral(segment)) {
+                segments.add(HttpUtils.encodePartiallyEncoded(segment, false));
+            } else {
+                break;
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.length() > 2 && segment.charAt(0) == '{'
+            && segment.indexOf('}') == segment.length() - 1
+            && segment.indexOf('{', 1) == -1 && segment.indexOf(':') == -1;
+    }
+
+    private static boolean isLiteral(String segment) {
+        if (segment.length() == 0 || segment.indexOf(';') != -1) {
+            return false;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (REGEX_CHARACTERS.indexOf(segment.charAt(i)) != -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Node<T> {
+        Map<String, Node<T>> literals;
+        Node<T> variable;
+        List<Entry<T>> values;
+    }
+
+    private static class Entry<T> {
+        final int index;
+        final T value;
+
+        Entry(int index, T value) {
+            this.index = index;
+            this.value = value;
+        }
+    }
+}
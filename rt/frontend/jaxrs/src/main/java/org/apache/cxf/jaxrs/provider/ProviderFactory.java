@@ -93,6 +93,8 @@ public abstract class ProviderFactory {
     private static final String BUS_PROVIDERS_ALL = "org.apache.cxf.jaxrs.bus.providers";
     private static final String PROVIDER_CACHE_ALLOWED = "org.apache.cxf.jaxrs.provider.cache.allowed";
     private static final String PROVIDER_CACHE_CHECK_ALL = "org.apache.cxf.jaxrs.provider.cache.checkAllCandidates";
+    private static final String PROVIDER_SELECTION_CACHE_ALLOWED = 
+        "org.apache.cxf.jaxrs.provider.selection.cache.allowed";
     
     protected Map<NameKey, ProviderInfo<ReaderInterceptor>> readerInterceptors = 
         new NameKeyMap<ProviderInfo<ReaderInterceptor>>(true);
@@ -121,9 +123,12 @@ public abstract class ProviderFactory {
     
     private ProviderCache providerCache;
     
+    private ProviderSelectionCache selectionCache;
+    
     protected ProviderFactory(Bus bus) {
         this.bus = bus;
         providerCache = initCache(bus);
+        selectionCache = initSelectionCache(bus);
     }
     
     public Bus getBus() {
@@ -138,6 +143,24 @@ public abstract class ProviderFactory {
         boolean checkAll = PropertyUtils.isTrue(theBus.getProperty(PROVIDER_CACHE_CHECK_ALL));
         return new ProviderCache(checkAll);
     }
+    /**
+     * The selection cache skips the isReadable/isWriteable checks for the requests of
+     * a shape seen before, so it is only enabled on request, for providers whose checks
+     * do not depend on the current request.
+     */
+    protected static ProviderSelectionCache initSelectionCache(Bus theBus) {
+        if (!PropertyUtils.isTrue(theBus.getProperty(PROVIDER_SELECTION_CACHE_ALLOWED))) {
+            return null;
+        }
+        return new ProviderSelectionCache();
+    }
+    
+    /**
+     * @return the selection cache, or null if it is not enabled
+     */
+    public ProviderSelectionCache getProviderSelectionCache() {
+        return selectionCache;
+    }
     protected static void initFactory(ProviderFactory factory) {
         factory.setProviders(false,
                              false,
@@ -368,8 +391,7 @@ public abstract class ProviderFactory {
             List<ReaderInterceptor> interceptors = null;
             if (size > 0) {
                 interceptors = new ArrayList<ReaderInterceptor>(size + 1);
-                List<ProviderInfo<ReaderInterceptor>> readers =
-                    getBoundFilters(readerInterceptors, names);
+                List<ProviderInfo<ReaderInterceptor>> readers = getBoundReaderInterceptors(names);
                 for (ProviderInfo<ReaderInterceptor> p : readers) {
                     injectContextValues(p, m);
                     interceptors.add(p.getProvider());
@@ -407,8 +429,7 @@ public abstract class ProviderFactory {
             List<WriterInterceptor> interceptors = null;
             if (size > 0) {
                 interceptors = new ArrayList<WriterInterceptor>(size + 1);
-                List<ProviderInfo<WriterInterceptor>> writers =
-                    getBoundFilters(writerInterceptors, names);
+                List<ProviderInfo<WriterInterceptor>> writers = getBoundWriterInterceptors(names);
                 for (ProviderInfo<WriterInterceptor> p : writers) {
                     injectContextValues(p, m);
                     interceptors.add(p.getProvider());
@@ -426,12 +447,61 @@ public abstract class ProviderFactory {
     
     
     
+    private List<ProviderInfo<ReaderInterceptor>> getBoundReaderInterceptors(Set<String> names) {
+        if (selectionCache == null) {
+            return getBoundFilters(readerInterceptors, names);
+        }
+        List<ProviderInfo<ReaderInterceptor>> list = selectionCache.getReaderInterceptors(names);
+        if (list == null) {
+            list = getBoundFilters(readerInterceptors, names);
+            selectionCache.putReaderInterceptors(names, list);
+        }
+        return list;
+    }
+    
+    private List<ProviderInfo<WriterInterceptor>> getBoundWriterInterceptors(Set<String> names) {
+        if (selectionCache == null) {
+            return getBoundFilters(writerInterceptors, names);
+        }
+        List<ProviderInfo<WriterInterceptor>> list = selectionCache.getWriterInterceptors(names);
+        if (list == null) {
+            list = getBoundFilters(writerInterceptors, names);
+            selectionCache.putWriterInterceptors(names, list);
+        }
+        return list;
+    }
+    
     @SuppressWarnings("unchecked")
     public <T> MessageBodyReader<T> createMessageBodyReader(Class<T> type,
                                                             Type genericType,
                                                             Annotation[] annotations,
                                                             MediaType mediaType,
                                                             Message m) {
+        // Step0: check the selection cache
+        if (selectionCache != null) {
+            ProviderInfo<MessageBodyReader<?>> ep = 
+                selectionCache.getReader(type, genericType, annotations, mediaType);
+            if (ep != null) {
+                injectSelectedContextValues(ep, m);
+                return (MessageBodyReader<T>)ep.getProvider();
+            }
+            MessageBodyReader<T> reader = 
+                doCreateMessageBodyReader(type, genericType, annotations, mediaType, m);
+            if (reader != null) {
+                selectionCache.putReader(type, genericType, annotations, mediaType, 
+                                         findProviderInfo(messageReaders, reader));
+            }
+            return reader;
+        }
+        return doCreateMessageBodyReader(type, genericType, annotations, mediaType, m);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <T> MessageBodyReader<T> doCreateMessageBodyReader(Class<T> type,
+                                                               Type genericType,
+                                                               Annotation[] annotations,
+                                                               MediaType mediaType,
+                                                               Message m) {
         // Step1: check the cache 
         
         if (providerCache != null) {
@@ -479,6 +549,31 @@ public abstract class ProviderFactory {
                                                             Annotation[] annotations,
                                                             MediaType mediaType,
                                                             Message m) {
+        // Step0: check the selection cache
+        if (selectionCache != null) {
+            ProviderInfo<MessageBodyWriter<?>> ep = 
+                selectionCache.getWriter(type, genericType, annotations, mediaType);
+            if (ep != null) {
+                injectSelectedContextValues(ep, m);
+                return (MessageBodyWriter<T>)ep.getProvider();
+            }
+            MessageBodyWriter<T> writer = 
+                doCreateMessageBodyWriter(type, genericType, annotations, mediaType, m);
+            if (writer != null) {
+                selectionCache.putWriter(type, genericType, annotations, mediaType, 
+                                         findProviderInfo(messageWriters, writer));
+            }
+            return writer;
+        }
+        return doCreateMessageBodyWriter(type, genericType, annotations, mediaType, m);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <T> MessageBodyWriter<T> doCreateMessageBodyWriter(Class<T> type,
+                                                               Type genericType,
+                                                               Annotation[] annotations,
+                                                               MediaType mediaType,
+                                                               Message m) {
         
         // Step1: check the cache. 
         if (providerCache != null) {
@@ -600,6 +695,16 @@ public abstract class ProviderFactory {
         injectContextProxies(messageReaders, messageWriters, contextResolvers, paramConverters,
             readerInterceptors.values(), writerInterceptors.values());
         checkParamConverterContexts();
+        clearSelectionCaches();
+    }
+    
+    private void clearSelectionCaches() {
+        if (providerCache != null) {
+            providerCache.destroy();
+        }
+        if (selectionCache != null) {
+            selectionCache.destroy();
+        }
     }
     
     private void checkParamConverterContexts() {
@@ -767,6 +872,22 @@ public abstract class ProviderFactory {
         return ep.isWriteable(type, genericType, annotations, mediaType);
     }
     
+    private void injectSelectedContextValues(ProviderInfo<?> pi, Message m) {
+        // as done by isReadable and isWriteable
+        if (m.get(ACTIVE_JAXRS_PROVIDER_KEY) != pi.getProvider()) {
+            injectContextValues(pi, m);
+        }
+    }
+    
+    private static <T> ProviderInfo<T> findProviderInfo(List<ProviderInfo<T>> list, Object provider) {
+        for (ProviderInfo<T> pi : list) {
+            if (pi.getProvider() == provider) {
+                return pi;
+            }
+        }
+        return null;
+    }
+    
     List<ProviderInfo<MessageBodyReader<?>>> getMessageReaders() {
         return Collections.unmodifiableList(messageReaders);
     }
@@ -893,6 +1014,7 @@ public abstract class ProviderFactory {
         readerInterceptors.clear();
         writerInterceptors.clear();
         paramConverters.clear();
+        clearSelectionCaches();
     }
     
     public void setBus(Bus bus) {
@@ -1325,6 +1447,7 @@ public abstract class ProviderFactory {
         this.providerComparator = providerComparator;
         sortReaders();
         sortWriters();
+        clearSelectionCaches();
     }
     
 }
@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.jaxrs.provider;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.WriterInterceptor;
+
+import org.apache.cxf.jaxrs.model.ProviderInfo;
+
+/**
+ * Remembers the MessageBodyReader and MessageBodyWriter selected for a given
+ * combination of type, generic type, annotations and media type, so that the
+ * isReadable and isWriteable checks of the providers are not repeated for every
+ * request of the same shape.  The annotations are compared by content, as many
+ * callers build a new annotation array on every call, e.g. when the entity
+ * annotations of a Response are merged with those of the resource method.
+ * <p>
+ * The interceptors bound to a set of name bindings are kept too.  ProviderFactory
+ * clears the cache whenever providers are registered, each map is cleared when it
+ * reaches the maximum size.
+ */
+public class ProviderSelectionCache {
+    private static final int MAX_SELECTION_CACHE_SIZE =
+        Integer.getInteger("org.apache.cxf.jaxrs.max_provider_selection_cache_size", 500);
+
+    private final Map<Key, ProviderInfo<MessageBodyReader<?>>> readers =
+        new ConcurrentHashMap<Key, ProviderInfo<MessageBodyReader<?>>>();
+    private final Map<Key, ProviderInfo<MessageBodyWriter<?>>> writers =
+        new ConcurrentHashMap<Key, ProviderInfo<MessageBodyWriter<?>>>();
+    private final Map<Set<String>, List<ProviderInfo<ReaderInterceptor>>> readerInterceptors =
+        new ConcurrentHashMap<Set<String>, List<ProviderInfo<ReaderInterceptor>>>();
+    private final Map<Set<String>, List<ProviderInfo<WriterInterceptor>>> writerInterceptors =
+        new ConcurrentHashMap<Set<String>, List<ProviderInfo<WriterInterceptor>>>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ProviderInfo<MessageBodyReader<?>> getReader(Class<?> type, Type genericType,
+                                                        Annotation[] annotations, MediaType mt) {
+        return count(readers.get(new Key(type, genericType, annotations, mt)));
+    }
+
+    public void putReader(Class<?> type, Type genericType, Annotation[] annotations, MediaType mt,
+                          ProviderInfo<MessageBodyReader<?>> reader) {
+        checkCacheSize(readers);
+        readers.put(new Key(type, genericType, annotations, mt), reader);
+    }
+
+    public ProviderInfo<MessageBodyWriter<?>> getWriter(Class<?> type, Type genericType,
+                                                        Annotation[] annotations, MediaType mt) {
+        return count(writers.get(new Key(type, genericType, annotations, mt)));
+    }
+
+    public void putWriter(Class<?> type, Type genericType, Annotation[] annotations, MediaType mt,
+                          ProviderInfo<MessageBodyWriter<?>> writer) {
+        checkCacheSize(writers);
+        writers.put(new Key(type, genericType, annotations, mt), writer);
+    }
+
+    public List<ProviderInfo<ReaderInterceptor>> getReaderInterceptors(Set<String> names) {
+        return readerInterceptors.get(getNamesKey(names));
+    }
+
+    public void putReaderInterceptors(Set<String> names, List<ProviderInfo<ReaderInterceptor>> list) {
+        checkCacheSize(readerInterceptors);
+        readerInterceptors.put(getNamesKey(names), Collections.unmodifiableList(list));
+    }
+
+    public List<ProviderInfo<WriterInterceptor>> getWriterInterceptors(Set<String> names) {
+        return writerInterceptors.get(getNamesKey(names));
+    }
+
+    public void putWriterInterceptors(Set<String> names, List<ProviderInfo<WriterInterceptor>> list) {
+        checkCacheSize(writerInterceptors);
+        writerInterceptors.put(getNamesKey(names), Collections.unmodifiableList(list));
+    }
+
+    public void destroy() {
+        readers.clear();
+        writers.clear();
+        readerInterceptors.clear();
+        writerInterceptors.clear();
+    }
+
+    /**
+     * @return the number of reader and writer lookups answered from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of reader and writer lookups not found in the cache
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double)h / total;
+    }
+
+    public void resetCounts() {
+        hits.reset();
+        misses.reset();
+    }
+
+    private <T> T count(T value) {
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    private static Set<String> getNamesKey(Set<String> names) {
+        return names == null ? Collections.<String>emptySet() : names;
+    }
+
+    private static void checkCacheSize(Map<?, ?> map) {
+        if (map.size() >= MAX_SELECTION_CACHE_SIZE) {
+            map.clear();
+        }
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+        private final Type genericType;
+        private final Annotation[] annotations;
+        private final MediaType mediaType;
+        private final int hashCode;
+
+        Key(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            this.type = type;
+            this.genericType = genericType;
+            this.annotations = annotations;
+            this.mediaType = mediaType;
+            int h = type.hashCode();
+            h = 31 * h + (genericType == null ? 0 : genericType.hashCode());
+            h = 31 * h + hashAnnotationTypes(annotations);
+            this.hashCode = 31 * h + (mediaType == null ? 0 : mediaType.hashCode());
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)o;
+            return type == other.type
+                && (annotations == other.annotations || Arrays.equals(annotations, other.annotations))
+                && (genericType == null ? other.genericType == null : genericType.equals(other.genericType))
+                && (mediaType == null ? other.mediaType == null : mediaType.equals(other.mediaType));
+        }
+
+        // Annotation.hashCode is computed from the member values on every call, so only
+        // the types are hashed and equals compares the values
+        private static int hashAnnotationTypes(Annotation[] anns) {
+            if (anns == null) {
+                return 0;
+            }
+            int h = 1;
+            for (Annotation a : anns) {
+                h = 31 * h + (a == null ? 0 : a.annotationType().hashCode());
+            }
+            return h;
+        }
+    }
+}
@@ -110,6 +110,13 @@ public final class InjectionUtils {
     
     private static final String IGNORE_MATRIX_PARAMETERS = "ignore.matrix.parameters";
     
+    private static final ClassValue<StringFactories> STRING_FACTORIES = new ClassValue<StringFactories>() {
+        @Override
+        protected StringFactories computeValue(Class<?> cls) {
+            return new StringFactories(cls);
+        }
+    };
+    
     private InjectionUtils() {
         
     }
@@ -428,12 +435,12 @@ public final class InjectionUtils {
         if (pClass == String.class && !adapterHasToBeUsed) {
             return pClass.cast(value);
         }
+        StringFactories factories = STRING_FACTORIES.get(cls);
         // check constructors accepting a single String value
         try {
-            Constructor<?> c = cls.getConstructor(new Class<?>[]{String.class});
-            result = c.newInstance(new Object[]{value});
-        } catch (NoSuchMethodException ex) {
-            // try valueOf
+            if (factories.constructor != null) {
+                result = factories.constructor.newInstance(new Object[]{value});
+            }
         } catch (WebApplicationException ex) {
             throw ex;
         } catch (Exception ex) {
@@ -446,10 +453,7 @@ public final class InjectionUtils {
         }
         if (result == null) {
             // check for valueOf(String) static methods
-            String[] methodNames = cls.isEnum() 
-                ? new String[] {"fromString", "fromValue", "valueOf"} 
-                : new String[] {"valueOf", "fromString"};
-            result = evaluateFactoryMethods(value, pType, result, cls, methodNames);
+            result = evaluateFactoryMethods(value, pType, result, cls, factories.methods);
         }
         
         if (adapterHasToBeUsed) {
@@ -515,11 +519,12 @@ public final class InjectionUtils {
     }
 
     private static Object evaluateFactoryMethods(String value, ParameterType pType, Object result,
-                                                 Class<?> cls, String[] methodNames) {
+                                                 Class<?> cls, List<Method> methods) {
         Exception factoryMethodEx = null; 
-        for (String mName : methodNames) {
+        for (Method m : methods) {
+            String mName = m.getName();
             try {
-                result = evaluateFactoryMethod(value, cls, pType, mName);
+                result = evaluateFactoryMethod(value, cls, m);
                 if (result != null) {
                     factoryMethodEx = null;
                     break;
@@ -546,16 +551,10 @@ public final class InjectionUtils {
 
     private static <T> T evaluateFactoryMethod(String value,
                                                Class<T> pClass,
-                                               ParameterType pType,
-                                               String methodName) 
+                                               Method m) 
         throws InvocationTargetException {
         try {
-            Method m = pClass.getMethod(methodName, new Class<?>[]{String.class});
-            if (Modifier.isStatic(m.getModifiers())) {
-                return pClass.cast(m.invoke(null, new Object[]{value}));
-            }
-        } catch (NoSuchMethodException ex) {
-            // no luck: try another factory methods
+            return pClass.cast(m.invoke(null, new Object[]{value}));
         } catch (IllegalAccessException ex) {
             // factory method is not accessible: try another
         }
@@ -1366,11 +1365,13 @@ public final class InjectionUtils {
             }
             return obj;
         } else {
-            try {
-                Constructor<?> c = cls.getConstructor(new Class<?>[]{String.class});
-                return c.newInstance(new Object[]{value});
-            } catch (Throwable ex) {
-                // try valueOf
+            Constructor<?> c = STRING_FACTORIES.get(cls).constructor;
+            if (c != null) {
+                try {
+                    return c.newInstance(new Object[]{value});
+                } catch (Throwable ex) {
+                    // try valueOf
+                }
             }
             return invokeValueOf(value, cls);
         }
@@ -1378,13 +1379,59 @@ public final class InjectionUtils {
     
     private static Object invokeValueOf(String value, Class<?> cls) {
         try {
-            Method m  = cls.getMethod("valueOf", new Class[]{String.class});
+            Method m = STRING_FACTORIES.get(cls).valueOf;
+            if (m == null) {
+                throw new NoSuchMethodException(cls.getName() + ".valueOf(String)");
+            }
             return m.invoke(null, value);
         } catch (Exception ex) {
             throw new RuntimeException(ex);
         }
     }
     
+    /**
+     * The public constructor and static factory methods accepting a single String,
+     * looked up once per class.  The factory methods are listed in the order they
+     * are tried in.
+     */
+    private static final class StringFactories {
+        final Constructor<?> constructor;
+        final Method valueOf;
+        final List<Method> methods;
+        
+        StringFactories(Class<?> cls) {
+            Constructor<?> c = null;
+            try {
+                c = cls.getConstructor(new Class<?>[]{String.class});
+            } catch (NoSuchMethodException ex) {
+                // try valueOf
+            }
+            constructor = c;
+            valueOf = getStaticMethod(cls, "valueOf");
+            String[] methodNames = cls.isEnum() 
+                ? new String[] {"fromString", "fromValue", "valueOf"} 
+                : new String[] {"valueOf", "fromString"};
+            List<Method> list = new ArrayList<Method>(methodNames.length);
+            for (String mName : methodNames) {
+                Method m = getStaticMethod(cls, mName);
+                if (m != null) {
+                    list.add(m);
+                }
+            }
+            methods = list;
+        }
+        
+        private static Method getStaticMethod(Class<?> cls, String methodName) {
+            try {
+                Method m = cls.getMethod(methodName, new Class<?>[]{String.class});
+                return Modifier.isStatic(m.getModifiers()) ? m : null;
+            } catch (NoSuchMethodException ex) {
+                // no luck: try another factory methods
+                return null;
+            }
+        }
+    }
+    
     public static Class<?> getRawResponseClass(Object targetObject) {
         if (targetObject != null) {
             Class<?> targetClass = targetObject.getClass();
@@ -30,6 +30,7 @@ import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -154,6 +155,7 @@ public final class JAXRSUtils {
     public static final String PARTIAL_HIERARCHICAL_MEDIA_SUBTYPE_CHECK = 
         "media.subtype.partial.check"; 
     public static final String DOC_LOCATION = "wadl.location";
+    public static final String ROUTING_INDEX = "resource.routing.index";
     public static final String MEDIA_TYPE_Q_PARAM = "q";
     public static final String MEDIA_TYPE_QS_PARAM = "qs";
     private static final String MEDIA_TYPE_DISTANCE_PARAM = "d";
@@ -255,8 +257,7 @@ public final class JAXRSUtils {
         MultivaluedMap<String, String> values = 
             (MultivaluedMap<String, String>)message.get(URITemplate.TEMPLATE_PARAMETERS);
         for (Method m : bri.getParameterMethods()) {
-            Parameter p = ResourceUtils.getParameter(0, m.getAnnotations(), 
-                                                     m.getParameterTypes()[0]);
+            Parameter p = bri.getParameter(m);
             Object o;
             
             if (p.getType() == ParameterType.BEAN) {
@@ -274,8 +275,7 @@ public final class JAXRSUtils {
         }
         // Param fields
         for (Field f : bri.getParameterFields()) {
-            Parameter p = ResourceUtils.getParameter(0, f.getAnnotations(), 
-                                                     f.getType());
+            Parameter p = bri.getParameter(f);
             Object o = null;
             
             if (p.getType() == ParameterType.BEAN) {
@@ -378,6 +378,7 @@ public final class JAXRSUtils {
         
         final boolean isFineLevelLoggable = LOG.isLoggable(Level.FINE); 
         final boolean getMethod = HttpMethod.GET.equals(httpMethod);
+        final boolean useRoutingIndex = useRoutingIndex(message);
         
         MediaType requestType;
         try {
@@ -410,7 +411,10 @@ public final class JAXRSUtils {
                 
             }
             
-            for (OperationResourceInfo ori : resource.getMethodDispatcher().getOperationResourceInfos()) {
+            Collection<OperationResourceInfo> oris = useRoutingIndex
+                ? resource.getMethodDispatcher().getOperationResourceInfos(path)
+                : resource.getMethodDispatcher().getOperationResourceInfos();
+            for (OperationResourceInfo ori : oris) {
                 boolean added = false;
                 
                 URITemplate uriTemplate = ori.getURITemplate();
@@ -572,6 +576,25 @@ public final class JAXRSUtils {
         Service service = message.getExchange().getService();
         return ((JAXRSServiceImpl)service).getClassResourceInfos();
     }
+
+    /**
+     * Returns the root resources whose URI templates may match the path, in their
+     * original order.  All the root resources are returned when FINE logging is
+     * enabled so that {@link #selectResourceClass} reports every mismatch, or when
+     * the {@link #ROUTING_INDEX} property is set to false.
+     */
+    public static List<ClassResourceInfo> getRootResources(Message message, String path) {
+        List<ClassResourceInfo> resources = getRootResources(message);
+        if (resources.size() < 2 || !useRoutingIndex(message)) {
+            return resources;
+        }
+        Service service = message.getExchange().getService();
+        return ((JAXRSServiceImpl)service).getResourceIndex().getCandidates(path);
+    }
+    
+    private static boolean useRoutingIndex(Message message) {
+        return !LOG.isLoggable(Level.FINE) && MessageUtils.getContextualBoolean(message, ROUTING_INDEX, true);
+    }
     
     public static boolean noResourceMethodForOptions(Response exResponse, String httpMethod) {
         return exResponse != null && exResponse.getStatus() == 405 
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.jaxrs.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.cxf.jaxrs.impl.MetadataMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class URITemplateIndexTest extends Assert {
+
+    private static final String[] TEMPLATES = {
+        "/",
+        "/books",
+        "/books/{id}",
+        "/books/{id}/chapters",
+        "/books/{id}/chapters/{c:\\d+}",
+        "/books/sub",
+        "/{any}",
+        "/{a}-{b}",
+        "/{path:.*}",
+        "/bookstore/books",
+        "/books;x=1",
+        "/caf\u00e9",
+        "/a b/{id}",
+        "/items/",
+        "/authors/{id}/books/{bookId}"
+    };
+
+    private static final String[] PATHS = {
+        "/",
+        "",
+        "/books",
+        "/books/",
+        "/books/123",
+        "/books/123/",
+        "/books/123/chapters",
+        "/books/123/chapters/4",
+        "/books/123/chapters/four",
+        "/books/sub",
+        "/books;a=b/123",
+        "/books/123;a=b/chapters",
+        "//books;a=b",
+        "/books//123;a=b",
+        "/bookstore/books/1",
+        "/x-y",
+        "/caf%C3%A9",
+        "/a%20b/1",
+        "/items",
+        "/items/",
+        "/authors/1/books/2",
+        "/unknown/path/here"
+    };
+
+    @Test
+    public void testIndexedSegments() {
+        assertEquals(Arrays.asList("books", null, "chapters"),
+                     URITemplateIndex.getIndexedSegments("/books/{id}/chapters/{c:\\d+}"));
+        assertEquals(Collections.emptyList(), URITemplateIndex.getIndexedSegments("/"));
+        assertEquals(Collections.emptyList(), URITemplateIndex.getIndexedSegments("/{a}-{b}"));
+        assertEquals(Arrays.asList("a%20b"), URITemplateIndex.getIndexedSegments("/a b/{id: \\d+}"));
+        assertEquals(Arrays.asList("items"), URITemplateIndex.getIndexedSegments("/items/"));
+    }
+
+    @Test
+    public void testCandidates() {
+        URITemplateIndex<String> index = newIndex();
+        assertEquals(Arrays.asList("/", "/books", "/{any}", "/{a}-{b}", "/{path:.*}", "/books;x=1"),
+                     index.getCandidates("/books"));
+        assertEquals(Arrays.asList("/", "/books", "/books/{id}", "/books/{id}/chapters",
+                                   "/books/{id}/chapters/{c:\\d+}", "/{any}", "/{a}-{b}",
+                                   "/{path:.*}", "/books;x=1"),
+                     index.getCandidates("/books/123/chapters/4"));
+        assertEquals(Arrays.asList("/", "/{any}", "/{a}-{b}", "/{path:.*}", "/bookstore/books",
+                                   "/books;x=1"),
+                     index.getCandidates("/bookstore/books/1"));
+    }
+
+    @Test
+    public void testCandidatesIncludeAllMatches() {
+        URITemplateIndex<String> index = newIndex();
+        for (String path : PATHS) {
+            List<String> candidates = index.getCandidates(path);
+            List<String> matches = new ArrayList<String>();
+            for (String t : TEMPLATES) {
+                if (new URITemplate(t).match(path, new MetadataMap<String, String>())) {
+                    matches.add(t);
+                }
+            }
+            assertTrue(path + ": " + matches + " not in " + candidates, candidates.containsAll(matches));
+        }
+    }
+
+    @Test
+    public void testNullTemplate() {
+        URITemplateIndex<String> index = new URITemplateIndex<String>();
+        index.add(null, "none");
+        index.add(new URITemplate("/books"), "books");
+        assertEquals(2, index.size());
+        assertEquals(Collections.singletonList("books"), index.getCandidates("/books"));
+        assertEquals(Collections.emptyList(), index.getCandidates("/authors"));
+    }
+
+    private static URITemplateIndex<String> newIndex() {
+        URITemplateIndex<String> index = new URITemplateIndex<String>();
+        for (String t : TEMPLATES) {
+            index.add(new URITemplate(t), t);
+        }
+        return index;
+    }
+}
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -258,6 +259,47 @@ public class ProviderFactoryTest extends Assert {
         assertSame(wc2, readers.get(8).getProvider());
     }
     
+    @Test
+    public void testProviderSelectionCache() throws Exception {
+        Bus bus = BusFactory.newInstance().createBus();
+        bus.setProperty("org.apache.cxf.jaxrs.provider.selection.cache.allowed", "true");
+        try {
+            ProviderFactory pf = ServerProviderFactory.createInstance(bus);
+            CountingBooleanReader reader = new CountingBooleanReader();
+            pf.registerUserProvider(reader);
+            Annotation[] anns = new Annotation[0];
+            MediaType mt = MediaType.valueOf("application/x-boolean");
+            for (int i = 0; i < 3; i++) {
+                assertSame(reader, pf.createMessageBodyReader(Boolean.class, Boolean.class, anns,
+                                                              mt, new MessageImpl()));
+            }
+            assertEquals(1, reader.checks);
+            ProviderSelectionCache cache = pf.getProviderSelectionCache();
+            assertEquals(2, cache.getHitCount());
+            assertEquals(1, cache.getMissCount());
+            
+            // annotations are compared by content
+            pf.createMessageBodyReader(Boolean.class, Boolean.class, new Annotation[0],
+                                       mt, new MessageImpl());
+            assertEquals(1, reader.checks);
+            Method m = ProviderFactoryTest.class.getMethod("testProviderSelectionCache");
+            pf.createMessageBodyReader(Boolean.class, Boolean.class, m.getAnnotations(),
+                                       mt, new MessageImpl());
+            assertEquals(2, reader.checks);
+            pf.createMessageBodyReader(Boolean.class, Boolean.class, m.getAnnotations(),
+                                       mt, new MessageImpl());
+            assertEquals(2, reader.checks);
+            
+            // registering providers invalidates the selection
+            CountingBooleanReader2 reader2 = new CountingBooleanReader2();
+            pf.registerUserProvider(reader2);
+            assertSame(reader2, pf.createMessageBodyReader(Boolean.class, Boolean.class, anns,
+                                                           mt, new MessageImpl()));
+        } finally {
+            bus.shutdown(true);
+        }
+    }
+    
     @Test
     public void testCustomJaxbProvider() {
         ProviderFactory pf = ServerProviderFactory.getInstance();
@@ -1135,6 +1177,18 @@ public class ProviderFactoryTest extends Assert {
     @Consumes("text/plain")
     public static class CustomBooleanReader2 extends CustomBooleanReader {
         
+    }
+    @Consumes("application/x-boolean")
+    public static class CountingBooleanReader2 extends CountingBooleanReader {
+        
+    }
+    public static class CountingBooleanReader extends CustomBooleanReader {
+        private int checks;
+        @Override
+        public boolean isReadable(Class<?> type, Type type1, Annotation[] antns, MediaType mt) {
+            checks++;
+            return super.isReadable(type, type1, antns, mt);
+        }
     }
     public static class CustomBooleanReader implements MessageBodyReader<Boolean> {
         @Override
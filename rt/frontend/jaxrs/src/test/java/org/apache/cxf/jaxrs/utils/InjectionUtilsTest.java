@@ -149,6 +149,20 @@ public class InjectionUtilsTest extends Assert {
         assertEquals("Type is wrong", CarType.AUDI, carType);
     }
 
+    @Test
+    public void testHandleParameterWithStringFactories() {
+        for (int i = 0; i < 2; i++) {
+            assertEquals("ctr:a", InjectionUtils.handleParameter("a", false, ConstructorValue.class,
+                ConstructorValue.class, null, ParameterType.QUERY, null).value);
+            assertEquals("valueOf:b", InjectionUtils.handleParameter("b", false, FactoryValue.class,
+                FactoryValue.class, null, ParameterType.QUERY, null).value);
+            assertEquals("fromString:c", InjectionUtils.handleParameter("c", false, FromStringValue.class,
+                FromStringValue.class, null, ParameterType.QUERY, null).value);
+            assertEquals("valueOf:d", 
+                ((FactoryValue)InjectionUtils.convertStringToPrimitive("d", FactoryValue.class)).value);
+        }
+    }
+    
     @Test
     public void testGenericInterfaceType() throws NoSuchMethodException {
         Type str = InjectionUtils.getGenericResponseType(GenericInterface.class.getMethod("get"),
@@ -319,6 +333,31 @@ public class InjectionUtilsTest extends Assert {
         }
 
     }
+    public static class ConstructorValue {
+        private final String value;
+        public ConstructorValue(String v) {
+            value = "ctr:" + v;
+        }
+        public static ConstructorValue valueOf(String v) {
+            throw new IllegalStateException();
+        }
+    }
+    public static class FactoryValue {
+        private String value;
+        public static FactoryValue valueOf(String v) {
+            FactoryValue f = new FactoryValue();
+            f.value = "valueOf:" + v;
+            return f;
+        }
+    }
+    public static class FromStringValue {
+        private String value;
+        public static FromStringValue fromString(String v) {
+            FromStringValue f = new FromStringValue();
+            f.value = "fromString:" + v;
+            return f;
+        }
+    }
     interface GenericInterface<A> {
         A get();
         List<A> list();
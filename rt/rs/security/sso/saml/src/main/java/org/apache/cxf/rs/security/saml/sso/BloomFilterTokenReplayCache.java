@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.rs.security.saml.sso;
+
+import org.apache.cxf.rt.security.cache.BloomFilterReplayCache;
+
+/**
+ * A TokenReplayCache on the BloomFilterReplayCache, for a high rate of SAML SSO responses, which
+ * does not keep every identifier for its whole TTL. As the Bloom filters of past windows do not
+ * hold the identifiers, getId returns the given identifier if the cache contains it.
+ * The default TTL is 60 minutes and the max TTL is 12 hours.
+ */
+public class BloomFilterTokenReplayCache extends BloomFilterReplayCache implements TokenReplayCache<String> {
+    
+    public BloomFilterTokenReplayCache() {
+        super(EHCacheTokenReplayCache.DEFAULT_TTL, EHCacheTokenReplayCache.MAX_TTL);
+    }
+    
+    /**
+     * Return the given identifier if it is contained in the cache, otherwise null.
+     * @param id The identifier to check
+     */
+    public String getId(String id) {
+        return contains(id) ? id : null;
+    }
+    
+    /**
+     * Add the given identifier to the cache. It will be cached for a default amount of time.
+     * @param id The identifier to be added
+     */
+    public void putId(String id) {
+        add(id);
+    }
+    
+    /**
+     * Add the given identifier to the cache.
+     * @param id The identifier to be added
+     * @param timeToLive The length of time to cache the Identifier in seconds
+     */
+    public void putId(String id, long timeToLive) {
+        add(id, timeToLive);
+    }
+    
+}
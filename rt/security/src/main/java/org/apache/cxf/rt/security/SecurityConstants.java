@@ -261,6 +261,15 @@ public class SecurityConstants {
     public static final String STS_CLIENT_SOAP12_BINDING =
         "security.sts.client-soap12-binding";
 
+    /**
+     * Whether to share the tokens issued by the STS between the STSClients of the bus. Concurrent
+     * requests for the same token are then sent to the STS once, and a cached token is renewed
+     * before it expires. A token is only shared by requests to the same STS, with the same request
+     * parameters and STSClient properties. Default is "false".
+     */
+    public static final String STS_ISSUED_TOKEN_CACHE =
+        "security.sts.issued-token-cache";
+
     /**
      * 
      * A Crypto object to be used for the STS. If this is not defined then the 
@@ -351,7 +360,7 @@ public class SecurityConstants {
             DISABLE_STS_CLIENT_WSMEX_CALL_USING_EPR_ADDRESS, STS_TOKEN_CRYPTO,
             STS_TOKEN_PROPERTIES, STS_TOKEN_USERNAME, STS_TOKEN_ACT_AS, STS_TOKEN_ON_BEHALF_OF,
             STS_CLIENT, STS_APPLIES_TO, CACHE_ISSUED_TOKEN_IN_ENDPOINT, PREFER_WSMEX_OVER_STS_CLIENT_CONFIG,
-            STS_TOKEN_IMMINENT_EXPIRY_VALUE
+            STS_TOKEN_IMMINENT_EXPIRY_VALUE, STS_ISSUED_TOKEN_CACHE
         }));
         COMMON_PROPERTIES = Collections.unmodifiableSet(s);
     }
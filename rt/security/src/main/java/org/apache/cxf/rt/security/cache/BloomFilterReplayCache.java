@@ -0,0 +1,335 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.rt.security.cache;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A replay cache for a high rate of identifiers, such as nonces, timestamps and message ids, that
+ * does not hold on to every identifier for its whole TTL. The identifiers of the current time
+ * window are kept in an exact concurrent set. When the window ends, its identifiers are moved
+ * into a Bloom filter, sized for their number, which is kept until the last of them expires.
+ * <p>
+ * A Bloom filter may report an identifier that was never added, so a new identifier may be taken
+ * for a replay with the configured false positive probability, which bounds the probability for a
+ * lookup over all the filters of the TTL. Windows are closed early once they hold the maximum
+ * number of entries, in which case more filters are checked than the bound accounts for. An
+ * identifier also stays in its filter until the last identifier of its window expires.
+ * <p>
+ * The default TTL is 5 minutes and the max TTL is 1 hour, as for the WSS4J ReplayCache.
+ */
+public class BloomFilterReplayCache implements Closeable {
+    public static final long DEFAULT_TTL = 60L * 5L;
+    public static final long MAX_TTL = DEFAULT_TTL * 12L;
+    public static final long DEFAULT_WINDOW = 10L;
+    public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 1.0E-6;
+    public static final int DEFAULT_MAX_WINDOW_ENTRIES = 1000000;
+
+    private final long maxTtl;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger windowEntries = new AtomicInteger();
+    private volatile long ttl;
+    private volatile long window = DEFAULT_WINDOW;
+    private volatile double falsePositiveProbability = DEFAULT_FALSE_POSITIVE_PROBABILITY;
+    private volatile int maxWindowEntries = DEFAULT_MAX_WINDOW_ENTRIES;
+
+    // guarded by the lock, read under the read lock and changed under the write lock
+    private Map<String, Long> current = new ConcurrentHashMap<>();
+    private List<Filter> filters = Collections.emptyList();
+    // the first call opens the first window
+    private volatile long windowEnd;
+
+    public BloomFilterReplayCache() {
+        this(DEFAULT_TTL, MAX_TTL);
+    }
+
+    /**
+     * @param ttl the default TTL in seconds
+     * @param maxTtl the maximum TTL in seconds
+     */
+    public BloomFilterReplayCache(long ttl, long maxTtl) {
+        this.ttl = ttl;
+        this.maxTtl = maxTtl;
+    }
+
+    /**
+     * Set a new (default) TTL value in seconds
+     * @param newTtl a new (default) TTL value in seconds
+     */
+    public void setTTL(long newTtl) {
+        ttl = newTtl;
+    }
+
+    public long getTTL() {
+        return ttl;
+    }
+
+    /**
+     * Set the length in seconds of the windows whose identifiers are kept in an exact set. It
+     * applies from the next window.
+     */
+    public void setWindow(long window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("The window must be at least one second");
+        }
+        this.window = window;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * Set the probability that a lookup takes an identifier that was not added for a replay. It
+     * applies to the filters of the next windows.
+     */
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        if (!(falsePositiveProbability > 0.0 && falsePositiveProbability < 1.0)) {
+            throw new IllegalArgumentException("The false positive probability must be between 0 and 1");
+        }
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * Set the number of identifiers after which a window is closed early, which bounds the size
+     * of the exact set.
+     */
+    public void setMaxWindowEntries(int maxWindowEntries) {
+        if (maxWindowEntries < 1) {
+            throw new IllegalArgumentException("The maximum number of window entries must be positive");
+        }
+        this.maxWindowEntries = maxWindowEntries;
+    }
+
+    public int getMaxWindowEntries() {
+        return maxWindowEntries;
+    }
+
+    /**
+     * Add the given identifier to the cache. It will be cached for a default amount of time.
+     * @param identifier The identifier to be added
+     */
+    public void add(String identifier) {
+        add(identifier, ttl);
+    }
+
+    /**
+     * Add the given identifier to the cache to be cached for the given time
+     * @param identifier The identifier to be added
+     * @param timeToLive The length of time to cache the Identifier in seconds
+     */
+    public void add(String identifier, long timeToLive) {
+        if (identifier == null || "".equals(identifier)) {
+            return;
+        }
+        long parsedTTL = timeToLive;
+        if (timeToLive < 0 || timeToLive > maxTtl) {
+            parsedTTL = ttl;
+        }
+        long now = currentTimeMillis();
+        rotate(now);
+        lock.readLock().lock();
+        try {
+            if (current.put(identifier, now + parsedTTL * 1000L) == null) {
+                windowEntries.incrementAndGet();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return true if the given identifier is contained in the cache
+     * @param identifier The identifier to check
+     */
+    public boolean contains(String identifier) {
+        if (identifier == null) {
+            return false;
+        }
+        long now = currentTimeMillis();
+        rotate(now);
+        lock.readLock().lock();
+        try {
+            Long expires = current.get(identifier);
+            if (expires != null && expires > now) {
+                return true;
+            }
+            long hash = hash(identifier);
+            for (Filter filter : filters) {
+                if (filter.expires > now && filter.mightContain(hash)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            current = new ConcurrentHashMap<>();
+            windowEntries.set(0);
+            filters = Collections.emptyList();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of identifiers in the exact set of the current window
+     */
+    public int getWindowEntries() {
+        return windowEntries.get();
+    }
+
+    /**
+     * @return the number of Bloom filters of past windows
+     */
+    public int getFilterCount() {
+        lock.readLock().lock();
+        try {
+            return filters.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Close the current window if it ended or is full. Its identifiers that did not expire yet
+     * go into a new filter, and the filters whose identifiers all expired are dropped.
+     */
+    private void rotate(long now) {
+        if (now < windowEnd && windowEntries.get() < maxWindowEntries) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (now < windowEnd && windowEntries.get() < maxWindowEntries) {
+                return;
+            }
+            List<Filter> newFilters = new ArrayList<>(filters.size() + 1);
+            List<String> identifiers = new ArrayList<>(current.size());
+            long expires = now;
+            for (Map.Entry<String, Long> entry : current.entrySet()) {
+                if (entry.getValue() > now) {
+                    identifiers.add(entry.getKey());
+                    expires = Math.max(expires, entry.getValue());
+                }
+            }
+            if (!identifiers.isEmpty()) {
+                // the share of the probability of a lookup over the windows of the max TTL
+                long windowMillis = window * 1000L;
+                long windows = (maxTtl * 1000L + windowMillis - 1) / windowMillis + 1;
+                newFilters.add(new Filter(identifiers, expires, falsePositiveProbability / windows));
+            }
+            for (Filter filter : filters) {
+                if (filter.expires > now) {
+                    newFilters.add(filter);
+                }
+            }
+            filters = newFilters;
+            current = new ConcurrentHashMap<>();
+            windowEntries.set(0);
+            windowEnd = now + window * 1000L;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A 64 bit FNV-1a hash of the characters with the MurmurHash3 finalizer
+     */
+    private static long hash(String identifier) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < identifier.length(); i++) {
+            h ^= identifier.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * An immutable Bloom filter of the identifiers of a window, with the bit positions derived
+     * from the hash of an identifier by double hashing.
+     */
+    private static final class Filter {
+        private final long[] bits;
+        private final long numBits;
+        private final int numHashes;
+        private final long expires;
+
+        Filter(List<String> identifiers, long expires, double probability) {
+            int n = identifiers.size();
+            double ln2 = Math.log(2);
+            long m = Math.max(64L, (long)Math.ceil(-n * Math.log(probability) / (ln2 * ln2)));
+            bits = new long[(int)((m + 63L) >>> 6)];
+            numBits = bits.length * 64L;
+            numHashes = Math.max(1, (int)Math.round((double)numBits / n * ln2));
+            this.expires = expires;
+            for (String identifier : identifiers) {
+                long hash = hash(identifier);
+                long h2 = mix(hash ^ 0x9e3779b97f4a7c15L) | 1L;
+                for (int i = 0; i < numHashes; i++) {
+                    long index = Math.floorMod(hash + i * h2, numBits);
+                    bits[(int)(index >>> 6)] |= 1L << index;
+                }
+            }
+        }
+
+        boolean mightContain(long hash) {
+            long h2 = mix(hash ^ 0x9e3779b97f4a7c15L) | 1L;
+            for (int i = 0; i < numHashes; i++) {
+                long index = Math.floorMod(hash + i * h2, numBits);
+                if ((bits[(int)(index >>> 6)] & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
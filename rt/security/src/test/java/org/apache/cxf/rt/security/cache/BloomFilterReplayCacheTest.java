@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.rt.security.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BloomFilterReplayCacheTest extends Assert {
+
+    @Test
+    public void testWindows() {
+        TestReplayCache cache = new TestReplayCache();
+        cache.add("nonce1");
+        cache.add("nonce2", 20L);
+        assertTrue(cache.contains("nonce1"));
+        assertFalse(cache.contains("nonce3"));
+        assertEquals(2, cache.getWindowEntries());
+
+        // the next window moves the identifiers into a filter
+        cache.time += BloomFilterReplayCache.DEFAULT_WINDOW * 1000L;
+        cache.add("nonce3");
+        assertEquals(1, cache.getWindowEntries());
+        assertEquals(1, cache.getFilterCount());
+        assertTrue(cache.contains("nonce1"));
+        assertTrue(cache.contains("nonce2"));
+        assertTrue(cache.contains("nonce3"));
+
+        // the filter is kept until its last identifier expires
+        cache.time += BloomFilterReplayCache.DEFAULT_TTL * 1000L;
+        assertFalse(cache.contains("nonce1"));
+        assertFalse(cache.contains("nonce3"));
+        assertEquals(0, cache.getFilterCount());
+    }
+
+    @Test
+    public void testExpiryInWindow() {
+        TestReplayCache cache = new TestReplayCache();
+        cache.add("nonce", 1L);
+        cache.time += 1000L;
+        assertFalse(cache.contains("nonce"));
+
+        // expired identifiers are not moved into a filter
+        cache.time += BloomFilterReplayCache.DEFAULT_WINDOW * 1000L;
+        assertFalse(cache.contains("nonce"));
+        assertEquals(0, cache.getFilterCount());
+    }
+
+    @Test
+    public void testFalsePositives() {
+        TestReplayCache cache = new TestReplayCache();
+        cache.setFalsePositiveProbability(0.01);
+        cache.setMaxWindowEntries(10000);
+        for (int i = 0; i < 10000; i++) {
+            cache.add("added" + i);
+        }
+        // a full window is closed early
+        cache.add("added");
+        assertEquals(1, cache.getFilterCount());
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(cache.contains("added" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (cache.contains("other" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("False positives: " + falsePositives, falsePositives <= 100);
+    }
+
+    private static final class TestReplayCache extends BloomFilterReplayCache {
+        private long time = 1000000L;
+
+        @Override
+        protected long currentTimeMillis() {
+            return time;
+        }
+    }
+}
@@ -0,0 +1,583 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.asyncclient.hc5;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.Principal;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import javax.net.ssl.SSLSession;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.common.util.StringUtils;
+import org.apache.cxf.configuration.jsse.TLSClientParameters;
+import org.apache.cxf.helpers.HttpHeaderHelper;
+import org.apache.cxf.io.CacheAndWriteOutputStream;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageUtils;
+import org.apache.cxf.service.model.EndpointInfo;
+import org.apache.cxf.transport.http.Address;
+import org.apache.cxf.transport.http.Headers;
+import org.apache.cxf.transport.http.URLConnectionHTTPConduit;
+import org.apache.cxf.transport.http.asyncclient.hc5.AsyncHTTP2ConduitFactory.UseHttp2Policy;
+import org.apache.cxf.transport.https.HttpsURLConnectionInfo;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
+import org.apache.cxf.version.Version;
+import org.apache.cxf.ws.addressing.EndpointReferenceType;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.nio.support.classic.ContentOutputStream;
+import org.apache.hc.core5.http.nio.support.classic.SharedOutputBuffer;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * HTTP conduit sending the requests as streams of HTTP/2 connections shared by all
+ * the conduits of the {@link AsyncHTTP2ConduitFactory}, so that any number of
+ * concurrent requests to a host need a single connection.
+ * <p>
+ * Request bodies are streamed to the connection while they are written, response
+ * bodies are read from a SharedInputBuffer filled as the DATA frames arrive.
+ * HTTP/2 is used as set by the {@link #USE_HTTP2} property of the message, else by
+ * the UseHttp2Policy of the factory, which is NEVER unless configured.  The other
+ * requests, and those through a proxy or with a configured SSLSocketFactory, use the
+ * HttpURLConnection of the parent conduit.
+ */
+public class AsyncHTTP2Conduit extends URLConnectionHTTPConduit {
+    public static final String USE_HTTP2 = "use.http2.conduit";
+
+    private static final Set<String> CONNECTION_HEADERS = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+    static {
+        CONNECTION_HEADERS.addAll(Arrays.asList(HttpHeaderHelper.CONNECTION, HttpHeaderHelper.TRANSFER_ENCODING,
+                                                HttpHeaderHelper.CONTENT_LENGTH, "Keep-Alive", "Proxy-Connection",
+                                                "Upgrade", "Host", "TE"));
+    }
+
+    final AsyncHTTP2ConduitFactory factory;
+
+    public AsyncHTTP2Conduit(Bus b,
+                             EndpointInfo ei,
+                             EndpointReferenceType t,
+                             AsyncHTTP2ConduitFactory factory) throws IOException {
+        super(b, ei, t);
+        this.factory = factory;
+    }
+
+    public AsyncHTTP2ConduitFactory getAsyncHTTP2ConduitFactory() {
+        return factory;
+    }
+
+    @Override
+    protected void setupConnection(Message message, Address address, HTTPClientPolicy csPolicy) throws IOException {
+        URI uri = address.getURI();
+        String scheme = uri.getScheme();
+        if (!useHttp2(message, uri, csPolicy)) {
+            message.put(USE_HTTP2, Boolean.FALSE);
+            super.setupConnection(message, address, csPolicy);
+            return;
+        }
+        if (StringUtils.isEmpty(uri.getPath())) {
+            uri = uri.resolve("/");
+        }
+
+        message.put(USE_HTTP2, Boolean.TRUE);
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("HTTP/2 connection to " + uri.toString() + " has been set up");
+        }
+        message.put("http.scheme", scheme);
+        String httpRequestMethod =
+            (String)message.get(Message.HTTP_REQUEST_METHOD);
+        if (httpRequestMethod == null) {
+            httpRequestMethod = "POST";
+            message.put(Message.HTTP_REQUEST_METHOD, httpRequestMethod);
+        }
+        message.put(BasicHttpRequest.class, new BasicHttpRequest(httpRequestMethod, uri));
+    }
+
+    private boolean useHttp2(Message message, URI uri, HTTPClientPolicy csPolicy) {
+        if (factory.isShutdown()) {
+            return false;
+        }
+        Object o = message.getContextualProperty(USE_HTTP2);
+        if (o == null) {
+            o = factory.getUseHttp2Policy();
+        }
+        switch (UseHttp2Policy.getPolicy(o)) {
+        case ALWAYS:
+            break;
+        case ASYNC_ONLY:
+            if (message.getExchange() == null || message.getExchange().isSynchronous()) {
+                return false;
+            }
+            break;
+        case NEVER:
+        default:
+            return false;
+        }
+        String scheme = uri.getScheme();
+        if ("https".equals(scheme)) {
+            TLSClientParameters clientParameters = message.get(TLSClientParameters.class);
+            if (clientParameters == null) {
+                clientParameters = tlsClientParameters;
+            }
+            if (clientParameters != null && clientParameters.getSSLSocketFactory() != null) {
+                //the connections of the HTTP/2 client cannot be created
+                //from the configured SSLSocketFactory
+                return false;
+            }
+        } else if (!"http".equals(scheme)) {
+            return false;
+        }
+        // the HTTP/2 client does not tunnel through proxies
+        Proxy proxy = proxyFactory.createProxy(csPolicy, uri);
+        return proxy == null || proxy.type() == Proxy.Type.DIRECT;
+    }
+
+    protected OutputStream createOutputStream(Message message,
+                                              boolean needToCacheRequest,
+                                              boolean isChunking,
+                                              int chunkThreshold) throws IOException {
+        if (Boolean.TRUE.equals(message.get(USE_HTTP2))) {
+            BasicHttpRequest request = message.get(BasicHttpRequest.class);
+            try {
+                return new H2WrappedOutputStream(message,
+                                                 needToCacheRequest,
+                                                 isChunking,
+                                                 chunkThreshold,
+                                                 getConduitName(),
+                                                 request.getUri());
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+        return super.createOutputStream(message, needToCacheRequest, isChunking, chunkThreshold);
+    }
+
+    public class H2WrappedOutputStream extends WrappedOutputStream {
+        final HTTPClientPolicy csPolicy;
+
+        BasicHttpRequest request;
+        String contentType;
+        long contentLength = -1;
+
+        boolean isAsync;
+        CXFH2ResponseInputStream inbuf;
+        SharedOutputBuffer outbuf;
+
+        // Objects for the response
+        volatile HttpResponse httpResponse;
+        volatile EntityDetails responseEntity;
+        volatile Exception exception;
+
+        private Future<Boolean> exchange;
+        private volatile AsyncHTTP2ConduitFactory.TlsClient tlsClient;
+
+        public H2WrappedOutputStream(Message message,
+                                     boolean needToCacheRequest,
+                                     boolean isChunking,
+                                     int chunkThreshold,
+                                     String conduitName,
+                                     URI uri) {
+            super(message,
+                  needToCacheRequest,
+                  isChunking,
+                  chunkThreshold,
+                  conduitName,
+                  uri);
+            csPolicy = getClient(message);
+            request = message.get(BasicHttpRequest.class);
+            int bufSize = csPolicy.getChunkLength() > 0 ? csPolicy.getChunkLength() : 16320;
+            inbuf = new CXFH2ResponseInputStream(bufSize, csPolicy.getReceiveTimeout());
+            outbuf = new SharedOutputBuffer(bufSize);
+        }
+
+        protected void setProtocolHeaders() throws IOException {
+            Headers h = new Headers(outMessage);
+            contentType = h.determineContentType();
+            boolean addHeaders = MessageUtils.isTrue(outMessage.getContextualProperty(Headers.ADD_HEADERS_PROPERTY));
+
+            for (Map.Entry<String, List<String>> header : h.headerMap().entrySet()) {
+                String name = header.getKey();
+                if (HttpHeaderHelper.CONTENT_TYPE.equalsIgnoreCase(name) || isConnectionHeader(name)) {
+                    continue;
+                }
+                if (addHeaders || HttpHeaderHelper.COOKIE.equalsIgnoreCase(name)) {
+                    for (String s : header.getValue()) {
+                        request.addHeader(name, s);
+                    }
+                } else {
+                    StringBuilder b = new StringBuilder();
+                    for (int i = 0; i < header.getValue().size(); i++) {
+                        b.append(header.getValue().get(i));
+                        if (i + 1 < header.getValue().size()) {
+                            b.append(',');
+                        }
+                    }
+                    request.setHeader(name, b.toString());
+                }
+            }
+            if (!request.containsHeader("User-Agent")) {
+                request.setHeader("User-Agent", Version.getCompleteVersionString());
+            }
+        }
+
+        /**
+         * HTTP/2 frames the messages itself and rejects the HTTP/1.1 connection headers.
+         */
+        private boolean isConnectionHeader(String name) {
+            return CONNECTION_HEADERS.contains(name);
+        }
+
+        protected void setFixedLengthStreamingMode(int i) {
+            contentLength = i;
+        }
+
+        @Override
+        public void thresholdReached() throws IOException {
+            // nothing to switch, HTTP/2 always frames the body
+        }
+
+        protected void handleNoOutput() throws IOException {
+            connect(false);
+        }
+
+        protected void setupWrappedStream() throws IOException {
+            connect(true);
+            wrappedStream = new ContentOutputStream(outbuf);
+
+            // If we need to cache for retransmission, store data in a
+            // CacheAndWriteOutputStream. Otherwise write directly to the output stream.
+            if (cachingForRetransmission) {
+                cachedStream = new CacheAndWriteOutputStream(wrappedStream);
+                wrappedStream = cachedStream;
+            }
+        }
+
+        protected void connect(boolean output) throws IOException {
+            if (exchange != null) {
+                return;
+            }
+            final AsyncHTTP2ConduitFactory.TlsClient leased;
+            final CloseableHttpAsyncClient client;
+            if ("https".equals(url.getScheme())) {
+                leased = factory.acquireClient(getTLSClientParameters());
+                tlsClient = leased;
+                client = leased.getClient();
+            } else {
+                leased = null;
+                client = factory.getClient();
+            }
+
+            CXFH2ResponseCallback responseCallback = new CXFH2ResponseCallback() {
+                public void responseReceived(HttpResponse response, EntityDetails entity) {
+                    responseEntity = entity;
+                    setHttpResponse(response);
+                }
+                public void failed(Exception ex) {
+                    setException(ex);
+                }
+            };
+
+            FutureCallback<Boolean> callback = new FutureCallback<Boolean>() {
+                public void completed(Boolean result) {
+                    release(leased);
+                }
+                public void failed(Exception ex) {
+                    release(leased);
+                    setException(ex);
+                    inbuf.abort();
+                    outbuf.abort();
+                }
+                public void cancelled() {
+                    release(leased);
+                    inbuf.abort();
+                    outbuf.abort();
+                }
+            };
+
+            HttpClientContext ctx = HttpClientContext.create();
+            ctx.setRequestConfig(RequestConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(csPolicy.getConnectionTimeout()))
+                .setResponseTimeout(Timeout.ofMilliseconds(csPolicy.getReceiveTimeout()))
+                .build());
+
+            CXFH2EntityProducer entityProducer = output
+                ? new CXFH2EntityProducer(outbuf, contentType, contentLength) : null;
+            try {
+                exchange = client.execute(new BasicRequestProducer(request, entityProducer),
+                                          new CXFH2ResponseConsumer(inbuf, responseCallback),
+                                          ctx,
+                                          callback);
+            } catch (RuntimeException ex) {
+                // not executed, so the callback is not called
+                release(leased);
+                throw ex;
+            }
+        }
+
+        private void release(AsyncHTTP2ConduitFactory.TlsClient leased) {
+            if (leased != null) {
+                leased.release();
+            }
+        }
+
+        private TLSClientParameters getTLSClientParameters() {
+            TLSClientParameters clientParameters = outMessage.get(TLSClientParameters.class);
+            if (clientParameters == null) {
+                clientParameters = getTlsClientParameters();
+            }
+            if (clientParameters == null) {
+                clientParameters = new TLSClientParameters();
+            }
+            return clientParameters;
+        }
+
+        protected synchronized void setHttpResponse(HttpResponse r) {
+            httpResponse = r;
+            if (isAsync) {
+                //got a response, need to start the response processing now
+                try {
+                    handleResponseOnWorkqueue(false, true);
+                    isAsync = false;
+                } catch (Exception ex) {
+                    //ignore, the exception is reported on getResponseCode
+                }
+            }
+            notifyAll();
+        }
+
+        protected synchronized void setException(Exception ex) {
+            exception = ex;
+            if (isAsync) {
+                try {
+                    handleResponseOnWorkqueue(false, true);
+                    isAsync = false;
+                } catch (Exception ex2) {
+                    LOG.log(Level.WARNING, "Could not handle the response", ex2);
+                }
+            }
+            notifyAll();
+        }
+
+        protected synchronized HttpResponse getHttpResponse() throws IOException {
+            long timeout = csPolicy.getReceiveTimeout();
+            long end = System.currentTimeMillis() + timeout;
+            while (httpResponse == null && exception == null) {
+                long wait = timeout <= 0 ? 0 : end - System.currentTimeMillis();
+                if (timeout > 0 && wait <= 0) {
+                    break;
+                }
+                try {
+                    wait(wait);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (httpResponse == null) {
+                outbuf.abort();
+                inbuf.abort();
+                if (exception != null) {
+                    if (exception instanceof IOException) {
+                        throw (IOException)exception;
+                    }
+                    if (exception instanceof RuntimeException) {
+                        throw (RuntimeException)exception;
+                    }
+                    throw new IOException(exception);
+                }
+                throw new SocketTimeoutException("Read Timeout");
+            }
+            return httpResponse;
+        }
+
+        protected synchronized void handleResponseAsync() throws IOException {
+            if (httpResponse != null || exception != null) {
+                handleResponseOnWorkqueue(false, true);
+            } else {
+                isAsync = true;
+            }
+        }
+
+        protected void closeInputStream() throws IOException {
+            byte bytes[] = new byte[1024];
+            while (inbuf.read(bytes, 0, bytes.length) != -1) {
+                //nothing
+            }
+        }
+
+        protected InputStream getInputStream() throws IOException {
+            return inbuf;
+        }
+
+        protected boolean usingProxy() {
+            return false;
+        }
+
+        protected HttpsURLConnectionInfo getHttpsURLConnectionInfo() throws IOException {
+            if ("http".equals(outMessage.get("http.scheme"))) {
+                return null;
+            }
+            connect(true);
+            CXFH2TlsStrategy tlsStrategy = tlsClient == null ? null : tlsClient.getTlsStrategy();
+            SSLSession session = null;
+            if (tlsStrategy != null) {
+                try {
+                    session = tlsStrategy.getSession(url.getHost(), csPolicy.getConnectionTimeout());
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (session == null) {
+                throw new IOException("No SSLSession detected");
+            }
+
+            String method = (String)outMessage.get(Message.HTTP_REQUEST_METHOD);
+            String cipherSuite = session.getCipherSuite();
+            Certificate[] localCerts = session.getLocalCertificates();
+            Principal principal = session.getLocalPrincipal();
+            Certificate[] serverCerts = session.getPeerCertificates();
+            Principal peer = session.getPeerPrincipal();
+            return new HttpsURLConnectionInfo(url, method, cipherSuite, localCerts, principal, serverCerts, peer);
+        }
+
+        protected int getResponseCode() throws IOException {
+            return getHttpResponse().getCode();
+        }
+
+        protected String getResponseMessage() throws IOException {
+            HttpResponse response = getHttpResponse();
+            String reason = response.getReasonPhrase();
+            if (reason == null) {
+                // HTTP/2 has no reason phrase
+                reason = EnglishReasonPhraseCatalog.INSTANCE.getReason(response.getCode(), Locale.ENGLISH);
+            }
+            return reason;
+        }
+
+        private String readHeaders(Headers h) throws IOException {
+            h.headerMap().clear();
+            String ct = null;
+            for (Header header : getHttpResponse().getHeaders()) {
+                List<String> s = h.headerMap().get(header.getName());
+                if (s == null) {
+                    s = new ArrayList<String>(1);
+                    h.headerMap().put(header.getName(), s);
+                }
+                s.add(header.getValue());
+                if (HttpHeaderHelper.CONTENT_TYPE.equalsIgnoreCase(header.getName())) {
+                    ct = header.getValue();
+                }
+            }
+            return ct;
+        }
+
+        protected void updateResponseHeaders(Message inMessage) throws IOException {
+            Headers h = new Headers(inMessage);
+            inMessage.put(Message.CONTENT_TYPE, readHeaders(h));
+            cookies.readFromHeaders(h);
+        }
+
+        protected InputStream getPartialResponse() throws IOException {
+            int responseCode = getResponseCode();
+            if (responseEntity != null
+                && (responseCode == HttpURLConnection.HTTP_ACCEPTED
+                    || responseCode == HttpURLConnection.HTTP_OK)) {
+                if (responseEntity.getContentLength() > 0) {
+                    return getInputStream();
+                }
+                // ensure a response of unknown length is non-empty
+                PushbackInputStream pin = new PushbackInputStream(getInputStream());
+                int c = pin.read();
+                if (c != -1) {
+                    pin.unread((byte)c);
+                    return pin;
+                }
+            }
+            return null;
+        }
+
+        protected void updateCookiesBeforeRetransmit() throws IOException {
+            Headers h = new Headers();
+            readHeaders(h);
+            cookies.readFromHeaders(h);
+        }
+
+        protected void retransmitStream() throws IOException {
+            cachingForRetransmission = false; //already cached
+            setupWrappedStream();
+            cachedStream.writeCacheTo(wrappedStream);
+            wrappedStream.flush();
+            wrappedStream.close();
+        }
+
+        protected void setupNewConnection(String newURL) throws IOException {
+            httpResponse = null;
+            responseEntity = null;
+            exception = null;
+            exchange = null;
+            isAsync = false;
+            contentLength = -1;
+
+            //reset the buffers
+            int bufSize = csPolicy.getChunkLength() > 0 ? csPolicy.getChunkLength() : 16320;
+            inbuf = new CXFH2ResponseInputStream(bufSize, csPolicy.getReceiveTimeout());
+            outbuf = new SharedOutputBuffer(bufSize);
+            try {
+                if (defaultAddress.getString().equals(newURL)) {
+                    setupConnection(outMessage, defaultAddress, csPolicy);
+                } else {
+                    Address address = new Address(newURL);
+                    this.url = address.getURI();
+                    setupConnection(outMessage, address, csPolicy);
+                }
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+            if (!Boolean.TRUE.equals(outMessage.get(USE_HTTP2))) {
+                throw new IOException("Can not retransmit to " + newURL + " over HTTP/2");
+            }
+            request = outMessage.get(BasicHttpRequest.class);
+        }
+    }
+}
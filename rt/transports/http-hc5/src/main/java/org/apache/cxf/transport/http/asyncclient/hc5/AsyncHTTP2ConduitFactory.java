@@ -0,0 +1,425 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.asyncclient.hc5;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.buslifecycle.BusLifeCycleListener;
+import org.apache.cxf.buslifecycle.BusLifeCycleManager;
+import org.apache.cxf.common.injection.NoJSR250Annotations;
+import org.apache.cxf.common.util.SystemPropertyAction;
+import org.apache.cxf.configuration.jsse.TLSClientParameters;
+import org.apache.cxf.configuration.security.FiltersType;
+import org.apache.cxf.service.model.EndpointInfo;
+import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transport.http.HTTPConduitFactory;
+import org.apache.cxf.transport.http.HTTPTransportFactory;
+import org.apache.cxf.ws.addressing.EndpointReferenceType;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * Creates {@link AsyncHTTP2Conduit}s and the HTTP/2 clients they share.
+ * <p>
+ * A client keeps a single connection per host and multiplexes the concurrent
+ * requests to that host as streams of this connection.  Plain "http" addresses use
+ * h2c with prior knowledge, "https" addresses negotiate h2 with ALPN.  There is one
+ * client for h2c and one per set of equal TLSClientParameters, so conduits configured
+ * the same way share their connections.  The clients for https are kept by a copy of
+ * the TLSClientParameters, so changing the parameters afterwards selects another
+ * client.  At most {@link #MAX_TLS_CLIENTS} of them are kept, the least recently used
+ * one is dropped when another one is needed and closed once its requests are done.
+ * <p>
+ * As the servers must support HTTP/2, it is only used when enabled with the
+ * {@link #USE_POLICY} property, the other requests use HTTP/1.1.
+ */
+@NoJSR250Annotations
+public class AsyncHTTP2ConduitFactory implements HTTPConduitFactory {
+
+    public static final String THREAD_COUNT = "org.apache.cxf.transport.http.async.h2.ioThreadCount";
+    public static final String SO_TIMEOUT = "org.apache.cxf.transport.http.async.h2.SO_TIMEOUT";
+    public static final String TCP_NODELAY = "org.apache.cxf.transport.http.async.h2.TCP_NODELAY";
+    public static final String CONNECTION_MAX_IDLE
+        = "org.apache.cxf.transport.http.async.h2.CONNECTION_MAX_IDLE";
+    public static final String INITIAL_WINDOW_SIZE
+        = "org.apache.cxf.transport.http.async.h2.initialWindowSize";
+    public static final String MAX_TLS_CLIENTS = "org.apache.cxf.transport.http.async.h2.MAX_TLS_CLIENTS";
+
+    //CXF specific
+    public static final String USE_POLICY = "org.apache.cxf.transport.http.async.h2.usePolicy";
+
+    public enum UseHttp2Policy {
+        ALWAYS, ASYNC_ONLY, NEVER;
+
+        public static UseHttp2Policy getPolicy(Object st) {
+            if (st instanceof UseHttp2Policy) {
+                return (UseHttp2Policy)st;
+            } else if (st instanceof String) {
+                String s = ((String)st).toUpperCase();
+                if ("ALWAYS".equals(s)) {
+                    return ALWAYS;
+                } else if ("ASYNC_ONLY".equals(s)) {
+                    return ASYNC_ONLY;
+                } else if ("NEVER".equals(s)) {
+                    return NEVER;
+                } else {
+                    st = Boolean.parseBoolean(s);
+                }
+            }
+            if (st instanceof Boolean) {
+                return ((Boolean)st).booleanValue() ? ALWAYS : NEVER;
+            }
+            return NEVER;
+        }
+    };
+
+    final ConcurrentMap<TLSClientParameters, TlsClient> tlsClients
+        = new ConcurrentHashMap<TLSClientParameters, TlsClient>();
+    volatile CloseableHttpAsyncClient client;
+
+    volatile boolean isShutdown;
+    UseHttp2Policy policy = UseHttp2Policy.NEVER;
+    int maxTlsClients = 16;
+    int ioThreadCount = Runtime.getRuntime().availableProcessors();
+    int soTimeout;
+    boolean tcpNoDelay = true;
+    int connectionMaxIdle = 60000;
+    int initialWindowSize = H2Config.DEFAULT.getInitialWindowSize();
+
+    AsyncHTTP2ConduitFactory() {
+        super();
+    }
+
+    public AsyncHTTP2ConduitFactory(Map<String, Object> conf) {
+        this();
+        setProperties(conf);
+    }
+
+    public AsyncHTTP2ConduitFactory(Bus b) {
+        this();
+        addListener(b);
+        setProperties(b.getProperties());
+    }
+
+    private void setProperties(Map<String, Object> s) {
+        if (s == null) {
+            return;
+        }
+        Object st = s.get(USE_POLICY);
+        if (st == null) {
+            st = SystemPropertyAction.getPropertyOrNull(USE_POLICY);
+        }
+        policy = UseHttp2Policy.getPolicy(st);
+        maxTlsClients = getInt(s.get(MAX_TLS_CLIENTS), maxTlsClients);
+        ioThreadCount = getInt(s.get(THREAD_COUNT), ioThreadCount);
+        soTimeout = getInt(s.get(SO_TIMEOUT), soTimeout);
+        connectionMaxIdle = getInt(s.get(CONNECTION_MAX_IDLE), connectionMaxIdle);
+        initialWindowSize = getInt(s.get(INITIAL_WINDOW_SIZE), initialWindowSize);
+        Object o = s.get(TCP_NODELAY);
+        if (o instanceof String) {
+            tcpNoDelay = Boolean.parseBoolean((String)o);
+        } else if (o instanceof Boolean) {
+            tcpNoDelay = (Boolean)o;
+        }
+    }
+
+    private static int getInt(Object s, int defaultv) {
+        int i = defaultv;
+        if (s instanceof String) {
+            i = Integer.parseInt((String)s);
+        } else if (s instanceof Number) {
+            i = ((Number)s).intValue();
+        }
+        if (i == -1) {
+            i = defaultv;
+        }
+        return i;
+    }
+
+    public UseHttp2Policy getUseHttp2Policy() {
+        return policy;
+    }
+
+    public boolean isShutdown() {
+        return isShutdown;
+    }
+
+    @Override
+    public HTTPConduit createConduit(HTTPTransportFactory f,
+                                     Bus bus,
+                                     EndpointInfo localInfo,
+                                     EndpointReferenceType target) throws IOException {
+        return createConduit(bus, localInfo, target);
+    }
+
+    public HTTPConduit createConduit(Bus bus,
+                                     EndpointInfo localInfo,
+                                     EndpointReferenceType target) throws IOException {
+        if (isShutdown) {
+            return null;
+        }
+        return new AsyncHTTP2Conduit(bus, localInfo, target, this);
+    }
+
+    /**
+     * Returns the client for h2c requests.
+     */
+    public CloseableHttpAsyncClient getClient() throws IOException {
+        CloseableHttpAsyncClient c = client;
+        if (c == null) {
+            synchronized (this) {
+                if (isShutdown) {
+                    throw new IOException("HTTP/2 client is shut down");
+                }
+                c = client;
+                if (c == null) {
+                    c = createClient(null);
+                    client = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Returns the client for https requests with the TLSClientParameters.  The client is
+     * not closed before it is released, which the caller does once its request is done.
+     */
+    public TlsClient acquireClient(TLSClientParameters tlsClientParameters) throws IOException {
+        while (true) {
+            if (isShutdown) {
+                throw new IOException("HTTP/2 client is shut down");
+            }
+            TlsClient c = tlsClients.get(tlsClientParameters);
+            if (c == null) {
+                c = createTlsClient(tlsClientParameters);
+            }
+            if (c.acquire()) {
+                return c;
+            }
+            // closed as it was dropped, so another one is created
+            tlsClients.remove(c.tlsParameters, c);
+        }
+    }
+
+    /**
+     * Returns the TLS strategy of the client for the TLSClientParameters, null if the
+     * client has not been created or was dropped.
+     */
+    public CXFH2TlsStrategy getTlsStrategy(TLSClientParameters tlsClientParameters) {
+        TlsClient c = tlsClients.get(tlsClientParameters);
+        return c == null ? null : c.tlsStrategy;
+    }
+
+    private TlsClient createTlsClient(TLSClientParameters tlsClientParameters) throws IOException {
+        synchronized (tlsClients) {
+            if (isShutdown) {
+                throw new IOException("HTTP/2 client is shut down");
+            }
+            TlsClient c = tlsClients.get(tlsClientParameters);
+            if (c != null) {
+                return c;
+            }
+            TLSClientParameters tlsParameters = copy(tlsClientParameters);
+            try {
+                CXFH2TlsStrategy tls = CXFH2TlsStrategy.create(tlsParameters);
+                c = new TlsClient(createClient(tls), tls, tlsParameters);
+            } catch (GeneralSecurityException ex) {
+                throw new IOException(ex);
+            }
+            tlsClients.put(tlsParameters, c);
+            while (tlsClients.size() > maxTlsClients) {
+                TlsClient eldest = null;
+                for (TlsClient tc : tlsClients.values()) {
+                    if (tc != c && (eldest == null || tc.lastUsed < eldest.lastUsed)) {
+                        eldest = tc;
+                    }
+                }
+                tlsClients.remove(eldest.tlsParameters, eldest);
+                eldest.drop();
+            }
+            return c;
+        }
+    }
+
+    private static TLSClientParameters copy(TLSClientParameters p) {
+        TLSClientParameters c = new TLSClientParameters();
+        c.setDisableCNCheck(p.isDisableCNCheck());
+        c.setSSLSocketFactory(p.getSSLSocketFactory());
+        c.setSslCacheTimeout(p.getSslCacheTimeout());
+        c.setUseHttpsURLConnectionDefaultSslSocketFactory(p.isUseHttpsURLConnectionDefaultSslSocketFactory());
+        c.setUseHttpsURLConnectionDefaultHostnameVerifier(p.isUseHttpsURLConnectionDefaultHostnameVerifier());
+        c.setHostnameVerifier(p.getHostnameVerifier());
+        c.setJsseProvider(p.getJsseProvider());
+        c.setSecureSocketProtocol(p.getSecureSocketProtocol());
+        c.setCertAlias(p.getCertAlias());
+        c.setSecureRandom(p.getSecureRandom());
+        c.setKeyManagers(p.getKeyManagers() == null ? null : p.getKeyManagers().clone());
+        c.setTrustManagers(p.getTrustManagers() == null ? null : p.getTrustManagers().clone());
+        c.setCipherSuites(new ArrayList<String>(p.getCipherSuites()));
+        if (p.getCipherSuitesFilter() != null) {
+            FiltersType filters = new FiltersType();
+            filters.getInclude().addAll(p.getCipherSuitesFilter().getInclude());
+            filters.getExclude().addAll(p.getCipherSuitesFilter().getExclude());
+            c.setCipherSuitesFilter(filters);
+        }
+        c.setCertConstraints(p.getCertConstraints());
+        return c;
+    }
+
+    protected CloseableHttpAsyncClient createClient(CXFH2TlsStrategy tlsStrategy) {
+        IOReactorConfig config = IOReactorConfig.custom()
+            .setIoThreadCount(ioThreadCount)
+            .setSoTimeout(Timeout.ofMilliseconds(soTimeout))
+            .setTcpNoDelay(tcpNoDelay)
+            .build();
+        H2Config h2Config = H2Config.custom()
+            .setPushEnabled(false)
+            .setInitialWindowSize(initialWindowSize)
+            .build();
+
+        // redirects, cookies, authentication and retransmits are handled by the conduit
+        H2AsyncClientBuilder builder = H2AsyncClientBuilder.create()
+            .setIOReactorConfig(config)
+            .setH2Config(h2Config)
+            .disableRedirectHandling()
+            .disableCookieManagement()
+            .disableAutomaticRetries()
+            .disableAuthCaching();
+        if (tlsStrategy != null) {
+            builder.setTlsStrategy(tlsStrategy);
+        }
+        if (connectionMaxIdle > 0) {
+            builder.evictIdleConnections(TimeValue.ofMilliseconds(connectionMaxIdle));
+        }
+        adaptClientBuilder(builder);
+
+        CloseableHttpAsyncClient c = builder.build();
+        c.start();
+        return c;
+    }
+
+    //provide a hook to customize the builder
+    protected void adaptClientBuilder(H2AsyncClientBuilder builder) {
+    }
+
+    public void shutdown() {
+        isShutdown = true;
+        synchronized (this) {
+            if (client != null) {
+                client.close(CloseMode.GRACEFUL);
+                client = null;
+            }
+        }
+        synchronized (tlsClients) {
+            for (TlsClient c : tlsClients.values()) {
+                c.client.close(CloseMode.GRACEFUL);
+            }
+            tlsClients.clear();
+        }
+    }
+
+    private void addListener(Bus b) {
+        BusLifeCycleManager manager = b.getExtension(BusLifeCycleManager.class);
+        if (manager != null) {
+            manager.registerLifeCycleListener(new BusLifeCycleListener() {
+                public void initComplete() {
+                }
+                public void preShutdown() {
+                    shutdown();
+                }
+                public void postShutdown() {
+                }
+            });
+        }
+    }
+
+    /**
+     * A client for https, counting the requests it is acquired for.
+     */
+    public static final class TlsClient {
+        final CloseableHttpAsyncClient client;
+        final CXFH2TlsStrategy tlsStrategy;
+        final TLSClientParameters tlsParameters;
+        // the number of requests, -1 once closed
+        final AtomicInteger requests = new AtomicInteger();
+        volatile boolean dropped;
+        volatile long lastUsed;
+
+        TlsClient(CloseableHttpAsyncClient client, CXFH2TlsStrategy tlsStrategy,
+                  TLSClientParameters tlsParameters) {
+            this.client = client;
+            this.tlsStrategy = tlsStrategy;
+            this.tlsParameters = tlsParameters;
+        }
+
+        public CloseableHttpAsyncClient getClient() {
+            return client;
+        }
+
+        public CXFH2TlsStrategy getTlsStrategy() {
+            return tlsStrategy;
+        }
+
+        boolean acquire() {
+            int n = requests.get();
+            while (n >= 0) {
+                if (requests.compareAndSet(n, n + 1)) {
+                    lastUsed = System.nanoTime();
+                    return true;
+                }
+                n = requests.get();
+            }
+            return false;
+        }
+
+        /**
+         * Releases the client once the request it was acquired for is done.
+         */
+        public void release() {
+            if (requests.decrementAndGet() == 0 && dropped) {
+                close();
+            }
+        }
+
+        void drop() {
+            dropped = true;
+            close();
+        }
+
+        private void close() {
+            if (requests.compareAndSet(0, -1)) {
+                client.close(CloseMode.GRACEFUL);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.asyncclient.hc5;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.support.classic.SharedOutputBuffer;
+
+/**
+ * Streams the request body written to the conduit's output stream into the HTTP/2
+ * DATA frames of the exchange.  The buffer blocks the writing thread while the flow
+ * control window of the stream is exhausted.
+ */
+public class CXFH2EntityProducer implements AsyncEntityProducer {
+
+    private final SharedOutputBuffer buf;
+    private final String contentType;
+    private final long contentLength;
+
+    public CXFH2EntityProducer(final SharedOutputBuffer buf, final String contentType,
+                               final long contentLength) {
+        this.buf = buf;
+        this.contentType = contentType;
+        this.contentLength = contentLength;
+    }
+
+    public int available() {
+        return buf.length();
+    }
+
+    public void produce(final DataStreamChannel channel) throws IOException {
+        buf.flush(channel);
+    }
+
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    public void failed(final Exception cause) {
+        buf.abort();
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getContentEncoding() {
+        return null;
+    }
+
+    public boolean isChunked() {
+        return contentLength < 0;
+    }
+
+    public Set<String> getTrailerNames() {
+        return null;
+    }
+
+    public void releaseResources() {
+    }
+}
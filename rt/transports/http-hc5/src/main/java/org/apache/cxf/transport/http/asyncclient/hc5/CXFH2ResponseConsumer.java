@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.asyncclient.hc5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * Hands the response head to the conduit as soon as it arrives and streams the
+ * DATA frames of the response through a CXFH2ResponseInputStream, whose capacity drives
+ * the flow control window of the stream, so large responses are never held in
+ * memory as a whole.
+ */
+public class CXFH2ResponseConsumer implements AsyncResponseConsumer<Boolean> {
+
+    private final CXFH2ResponseInputStream buf;
+    private final CXFH2ResponseCallback responseCallback;
+    private volatile FutureCallback<Boolean> resultCallback;
+
+    CXFH2ResponseConsumer(final CXFH2ResponseInputStream buf, final CXFH2ResponseCallback responseCallback) {
+        this.buf = buf;
+        this.responseCallback = responseCallback;
+    }
+
+    public void consumeResponse(final HttpResponse response, final EntityDetails entityDetails,
+                                final HttpContext context, final FutureCallback<Boolean> callback)
+        throws HttpException, IOException {
+        resultCallback = callback;
+        if (entityDetails == null) {
+            buf.markEndStream();
+        }
+        responseCallback.responseReceived(response, entityDetails);
+        if (entityDetails == null && callback != null) {
+            callback.completed(Boolean.TRUE);
+        }
+    }
+
+    public void informationResponse(final HttpResponse response, final HttpContext context) {
+    }
+
+    public void updateCapacity(final CapacityChannel capacityChannel) throws IOException {
+        buf.updateCapacity(capacityChannel);
+    }
+
+    public void consume(final ByteBuffer src) throws IOException {
+        buf.fill(src);
+    }
+
+    public void streamEnd(final List<? extends Header> trailers) {
+        buf.markEndStream();
+        if (resultCallback != null) {
+            resultCallback.completed(Boolean.TRUE);
+        }
+    }
+
+    public void failed(final Exception cause) {
+        buf.abort();
+        responseCallback.failed(cause);
+    }
+
+    public void releaseResources() {
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.transport.http.asyncclient.hc5;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.support.classic.SharedInputBuffer;
+
+/**
+ * The body of a response, read from a SharedInputBuffer filled as the DATA frames
+ * arrive.  A read waits for the next frame up to the ReceiveTimeout of the conduit,
+ * the stream is aborted once it is reached, as the HTTP/2 connection carries other
+ * requests and is not closed by a socket timeout while they are active.
+ */
+public class CXFH2ResponseInputStream extends InputStream {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dataAvailable = lock.newCondition();
+    private final SharedInputBuffer buf;
+    private final long timeout;
+    private volatile boolean aborted;
+
+    /**
+     * @param bufSize the size of the buffer
+     * @param timeout the time to wait for data in milliseconds, 0 for no limit
+     */
+    public CXFH2ResponseInputStream(int bufSize, long timeout) {
+        this.buf = new SharedInputBuffer(lock, bufSize);
+        this.timeout = timeout;
+    }
+
+    void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+        buf.updateCapacity(capacityChannel);
+    }
+
+    void fill(ByteBuffer src) {
+        buf.fill(src);
+        signal();
+    }
+
+    void markEndStream() {
+        buf.markEndStream();
+        signal();
+    }
+
+    void abort() {
+        aborted = true;
+        buf.abort();
+        signal();
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            dataAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitInput() throws IOException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (!buf.hasData() && !buf.isEndStream() && !aborted) {
+                if (timeout <= 0) {
+                    dataAvailable.await();
+                } else if (nanos <= 0) {
+                    abort();
+                    throw new SocketTimeoutException("Read Timeout");
+                } else {
+                    nanos = dataAvailable.awaitNanos(nanos);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        return buf.length();
+    }
+
+    @Override
+    public int read() throws IOException {
+        awaitInput();
+        return buf.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        awaitInput();
+        return buf.read(b, off, len);
+    }
+
+    /**
+     * Reads the rest of the body, so that the stream is complete and its flow control
+     * window is released.
+     */
+    @Override
+    public void close() throws IOException {
+        byte[] tmp = new byte[1024];
+        while (read(tmp, 0, tmp.length) != -1) {
+            // nothing
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.asyncclient.hc5;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.configuration.jsse.SSLUtils;
+import org.apache.cxf.configuration.jsse.TLSClientParameters;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+
+/**
+ * Sets up the TLS connections of the HTTP/2 client from the TLSClientParameters of
+ * the conduit, the same way AsyncHTTPConduit does: key and trust managers, cipher
+ * suites, protocol and the CXF hostname verifier.  HTTP/2 is negotiated with ALPN.
+ * <p>
+ * As the streams of all the requests to a host share one connection, the SSLSession
+ * of the connection is remembered per host for the trust decision of later requests.
+ */
+public class CXFH2TlsStrategy extends DefaultClientTlsStrategy {
+    private static final Logger LOG = LogUtils.getL7dLogger(CXFH2TlsStrategy.class);
+
+    private final SSLContext sslContext;
+    private final TLSClientParameters tlsClientParameters;
+    private final HostnameVerifier verifier;
+    private final Map<String, SSLSession> sessions = new ConcurrentHashMap<String, SSLSession>();
+
+    CXFH2TlsStrategy(SSLContext sslContext, TLSClientParameters tlsClientParameters) {
+        super(sslContext);
+        this.sslContext = sslContext;
+        this.tlsClientParameters = tlsClientParameters;
+        this.verifier = org.apache.cxf.transport.https.SSLUtils.getHostnameVerifier(tlsClientParameters);
+    }
+
+    public static CXFH2TlsStrategy create(TLSClientParameters tlsClientParameters)
+        throws GeneralSecurityException {
+        String provider = tlsClientParameters.getJsseProvider();
+        String protocol = tlsClientParameters.getSecureSocketProtocol() != null ? tlsClientParameters
+            .getSecureSocketProtocol() : "TLS";
+
+        SSLContext ctx = provider == null ? SSLContext.getInstance(protocol) : SSLContext
+            .getInstance(protocol, provider);
+        ctx.getClientSessionContext().setSessionTimeout(tlsClientParameters.getSslCacheTimeout());
+
+        KeyManager[] keyManagers = tlsClientParameters.getKeyManagers();
+        org.apache.cxf.transport.https.SSLUtils.configureKeyManagersWithCertAlias(
+            tlsClientParameters, keyManagers);
+
+        ctx.init(keyManagers, tlsClientParameters.getTrustManagers(),
+                 tlsClientParameters.getSecureRandom());
+        return new CXFH2TlsStrategy(ctx, tlsClientParameters);
+    }
+
+    @Override
+    protected void initializeEngine(SSLEngine sslengine) {
+        String[] cipherSuites =
+            SSLUtils.getCiphersuitesToInclude(tlsClientParameters.getCipherSuites(),
+                                              tlsClientParameters.getCipherSuitesFilter(),
+                                              sslContext.getSocketFactory().getDefaultCipherSuites(),
+                                              SSLUtils.getSupportedCipherSuites(sslContext),
+                                              LOG);
+        sslengine.setEnabledCipherSuites(cipherSuites);
+
+        String protocol = tlsClientParameters.getSecureSocketProtocol() != null ? tlsClientParameters
+            .getSecureSocketProtocol() : "TLS";
+
+        String p[] = findProtocols(protocol, sslengine.getSupportedProtocols());
+        if (p != null) {
+            sslengine.setEnabledProtocols(p);
+        }
+    }
+
+    @Override
+    protected void verifySession(String hostname, SSLSession sslsession) throws SSLException {
+        if (!verifier.verify(hostname, sslsession)) {
+            throw new SSLException("Could not verify host " + hostname);
+        }
+        synchronized (sessions) {
+            sessions.put(hostname, sslsession);
+            sessions.notifyAll();
+        }
+    }
+
+    /**
+     * Returns the session of the connection to the host, waiting for the handshake
+     * for up to timeout milliseconds; null if there is none.
+     */
+    public SSLSession getSession(String hostname, long timeout) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        synchronized (sessions) {
+            SSLSession session = sessions.get(hostname);
+            while (session == null || !session.isValid()) {
+                long wait = timeout <= 0 ? 0 : end - System.currentTimeMillis();
+                if (timeout > 0 && wait <= 0) {
+                    return null;
+                }
+                sessions.wait(wait);
+                session = sessions.get(hostname);
+            }
+            return session;
+        }
+    }
+
+    public TLSClientParameters getTlsClientParameters() {
+        return tlsClientParameters;
+    }
+
+    private static String[] findProtocols(String p, String[] options) {
+        List<String> list = new ArrayList<String>();
+        for (String s : options) {
+            if (s.equals(p)) {
+                return new String[] {p};
+            } else if (s.startsWith(p)) {
+                list.add(s);
+            }
+        }
+        if (list.isEmpty()) {
+            return null;
+        }
+        return list.toArray(new String[list.size()]);
+    }
+}
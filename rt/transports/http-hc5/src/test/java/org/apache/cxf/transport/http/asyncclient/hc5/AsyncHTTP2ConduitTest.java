@@ -0,0 +1,311 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.asyncclient.hc5;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.bus.extension.ExtensionManagerBus;
+import org.apache.cxf.configuration.jsse.TLSClientParameters;
+import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.service.model.EndpointInfo;
+import org.apache.cxf.transport.MessageObserver;
+import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class AsyncHTTP2ConduitTest extends Assert {
+    private static HttpAsyncServer server;
+    private static String address;
+    private static Set<SocketAddress> clientAddresses =
+        Collections.newSetFromMap(new ConcurrentHashMap<SocketAddress, Boolean>());
+
+    private Bus bus = new ExtensionManagerBus();
+
+    public AsyncHTTP2ConduitTest() {
+        bus.setProperty(AsyncHTTP2ConduitFactory.USE_POLICY, "ALWAYS");
+    }
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        // h2c echo server
+        server = H2ServerBootstrap.bootstrap()
+            .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+            .register("*", new AsyncServerRequestHandler<org.apache.hc.core5.http.Message<HttpRequest, byte[]>>() {
+                public AsyncRequestConsumer<org.apache.hc.core5.http.Message<HttpRequest, byte[]>> prepare(
+                    HttpRequest request, EntityDetails entityDetails, HttpContext context) {
+                    return new BasicRequestConsumer<byte[]>(new BasicAsyncEntityConsumer());
+                }
+                public void handle(org.apache.hc.core5.http.Message<HttpRequest, byte[]> message,
+                                   ResponseTrigger responseTrigger, HttpContext context)
+                    throws org.apache.hc.core5.http.HttpException, IOException {
+                    clientAddresses.add(HttpCoreContext.adapt(context).getEndpointDetails().getRemoteAddress());
+                    byte[] body = message.getBody();
+                    if (body == null) {
+                        body = message.getHead().getMethod().getBytes("UTF-8");
+                    }
+                    responseTrigger.submitResponse(
+                        new BasicResponseProducer(200, AsyncEntityProducers.create(body, ContentType.TEXT_PLAIN)),
+                        context);
+                }
+            })
+            .create();
+        server.start();
+        ListenerEndpoint endpoint = server.listen(new InetSocketAddress("localhost", 0)).get();
+        address = "http://localhost:" + ((InetSocketAddress)endpoint.getAddress()).getPort() + "/echo";
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close(CloseMode.IMMEDIATE);
+    }
+
+    private HTTPConduit createConduit(AsyncHTTP2ConduitFactory factory) throws IOException {
+        EndpointInfo ei = new EndpointInfo();
+        ei.setAddress(address);
+        HTTPConduit conduit = factory.createConduit(bus, ei, null);
+        conduit.finalizeConfig();
+        return conduit;
+    }
+
+    private static byte[] send(HTTPConduit conduit, String method, byte[] body) throws IOException {
+        final List<Message> responses = new ArrayList<Message>(1);
+        Message m = new MessageImpl();
+        Exchange exchange = new ExchangeImpl();
+        exchange.setOutMessage(m);
+        m.setExchange(exchange);
+        m.put(Message.HTTP_REQUEST_METHOD, method);
+        m.put(Message.CONTENT_TYPE, "text/plain");
+        m.put(MessageObserver.class, new MessageObserver() {
+            public void onMessage(Message message) {
+                responses.add(message);
+            }
+        });
+        synchronized (conduit) {
+            conduit.setMessageObserver(new MessageObserver() {
+                public void onMessage(Message message) {
+                    message.getExchange().getOutMessage().get(MessageObserver.class).onMessage(message);
+                }
+            });
+        }
+        conduit.prepare(m);
+        OutputStream out = m.getContent(OutputStream.class);
+        if (body != null) {
+            out.write(body);
+        }
+        out.close();
+        assertEquals(1, responses.size());
+        Message response = responses.get(0);
+        assertEquals(200, response.get(Message.RESPONSE_CODE));
+        InputStream in = response.getContent(InputStream.class);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        IOUtils.copy(in, bout);
+        in.close();
+        return bout.toByteArray();
+    }
+
+    @Test
+    public void testPostAndGet() throws Exception {
+        AsyncHTTP2ConduitFactory factory = new AsyncHTTP2ConduitFactory(bus);
+        try {
+            HTTPConduit conduit = createConduit(factory);
+            assertTrue(conduit instanceof AsyncHTTP2Conduit);
+            assertEquals("hello", new String(send(conduit, "POST", "hello".getBytes("UTF-8")), "UTF-8"));
+            assertEquals("GET", new String(send(conduit, "GET", null), "UTF-8"));
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testLargeBodyIsStreamed() throws Exception {
+        AsyncHTTP2ConduitFactory factory = new AsyncHTTP2ConduitFactory(bus);
+        try {
+            HTTPConduit conduit = createConduit(factory);
+            // larger than the buffers and the initial flow control window
+            byte[] body = new byte[1024 * 1024];
+            for (int i = 0; i < body.length; i++) {
+                body[i] = (byte)i;
+            }
+            assertTrue(Arrays.equals(body, send(conduit, "POST", body)));
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneConnection() throws Exception {
+        final AsyncHTTP2ConduitFactory factory = new AsyncHTTP2ConduitFactory(bus);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            clientAddresses.clear();
+            final HTTPConduit conduit = createConduit(factory);
+            final HTTPConduit conduit2 = createConduit(factory);
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 64; i++) {
+                final String s = "request " + i;
+                final HTTPConduit c = i % 2 == 0 ? conduit : conduit2;
+                results.add(executor.submit(new Callable<String>() {
+                    public String call() throws Exception {
+                        return new String(send(c, "POST", s.getBytes("UTF-8")), "UTF-8");
+                    }
+                }));
+            }
+            for (int i = 0; i < 64; i++) {
+                assertEquals("request " + i, results.get(i).get());
+            }
+            assertEquals(clientAddresses.toString(), 1, clientAddresses.size());
+        } finally {
+            executor.shutdownNow();
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testFallbackWhenDisabled() throws Exception {
+        AsyncHTTP2ConduitFactory factory = new AsyncHTTP2ConduitFactory(bus);
+        try {
+            HTTPConduit conduit = createConduit(factory);
+            Message m = new MessageImpl();
+            Exchange exchange = new ExchangeImpl();
+            exchange.setOutMessage(m);
+            m.setExchange(exchange);
+            m.put(AsyncHTTP2Conduit.USE_HTTP2, Boolean.FALSE);
+            conduit.prepare(m);
+            assertNotNull(m.get("http.connection"));
+            assertFalse(m.getContent(OutputStream.class) instanceof AsyncHTTP2Conduit.H2WrappedOutputStream);
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testNotUsedUnlessEnabled() throws Exception {
+        AsyncHTTP2ConduitFactory factory = new AsyncHTTP2ConduitFactory(new ExtensionManagerBus());
+        try {
+            assertEquals(AsyncHTTP2ConduitFactory.UseHttp2Policy.NEVER, factory.getUseHttp2Policy());
+            HTTPConduit conduit = createConduit(factory);
+            Message m = new MessageImpl();
+            Exchange exchange = new ExchangeImpl();
+            exchange.setOutMessage(m);
+            m.setExchange(exchange);
+            conduit.prepare(m);
+            assertEquals(Boolean.FALSE, m.get(AsyncHTTP2Conduit.USE_HTTP2));
+            assertFalse(m.getContent(OutputStream.class) instanceof AsyncHTTP2Conduit.H2WrappedOutputStream);
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testResponseBodyTimeout() throws Exception {
+        CXFH2ResponseInputStream in = new CXFH2ResponseInputStream(1024, 50);
+        try {
+            in.read();
+            fail("Expected a read timeout");
+        } catch (SocketTimeoutException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTlsClientsByEqualParameters() throws Exception {
+        AsyncHTTP2ConduitFactory factory = new AsyncHTTP2ConduitFactory(bus);
+        try {
+            TLSClientParameters tls = new TLSClientParameters();
+            TLSClientParameters same = new TLSClientParameters();
+            AsyncHTTP2ConduitFactory.TlsClient c = factory.acquireClient(tls);
+            assertSame(c, factory.acquireClient(same));
+            assertNotNull(factory.getTlsStrategy(same));
+
+            // the client is kept by a copy of the parameters
+            tls.setDisableCNCheck(true);
+            assertSame(c, factory.acquireClient(same));
+            assertNotSame(c, factory.acquireClient(tls));
+            assertEquals(2, factory.tlsClients.size());
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testDroppedTlsClientClosedWhenReleased() throws Exception {
+        AsyncHTTP2ConduitFactory factory = new AsyncHTTP2ConduitFactory(bus);
+        try {
+            factory.maxTlsClients = 1;
+            AsyncHTTP2ConduitFactory.TlsClient c = factory.acquireClient(new TLSClientParameters());
+
+            TLSClientParameters other = new TLSClientParameters();
+            other.setDisableCNCheck(true);
+            AsyncHTTP2ConduitFactory.TlsClient o = factory.acquireClient(other);
+            assertEquals(1, factory.tlsClients.size());
+            assertNull(factory.getTlsStrategy(new TLSClientParameters()));
+            // dropped, but still used by its request
+            assertEquals(1, c.requests.get());
+
+            c.release();
+            assertEquals(-1, c.requests.get());
+            o.release();
+            assertEquals(0, o.requests.get());
+            assertSame(o, factory.acquireClient(other));
+        } finally {
+            factory.shutdown();
+        }
+    }
+}
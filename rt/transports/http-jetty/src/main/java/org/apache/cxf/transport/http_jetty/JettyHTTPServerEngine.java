@@ -26,6 +26,7 @@ import java.net.URL;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
@@ -106,6 +107,9 @@ public class JettyHTTPServerEngine implements ServerEngine {
     private Boolean continuationsEnabled = true;
     private int maxIdleTime = 200000;
     private Boolean sendServerVersion = true;
+    private boolean http2Enabled;
+    private int http2MaxConcurrentStreams = -1;
+    private int http2InitialWindowSize = -1;
     private int servantCount;
     private Server server;
     private Connector connector;
@@ -601,6 +605,9 @@ public class JettyHTTPServerEngine implements ServerEngine {
             // unparsable version
         }
     
+        if (isHttp2Enabled() && (major < 9 || major == 9 && minor < 3)) {
+            LOG.log(Level.WARNING, "HTTP2_NOT_SUPPORTED_MSG", Server.getVersion());
+        }
         if (major >= 9) {
             result = createConnectorJetty9(sslcf, hosto, porto, major, minor);
         } else {
@@ -641,6 +648,8 @@ public class JettyHTTPServerEngine implements ServerEngine {
                                                                    Server.class)
                                                                    .getConstructor(Server.class)
                                                                    .newInstance(server);
+            // HTTP/2 needs Jetty 9.3 or later
+            boolean http2 = isHttp2Enabled() && (major > 9 || minor >= 3);
             
             if (tlsServerParameters != null) {
                 Class<?> src = ClassLoaderUtils.loadClass("org.eclipse.jetty.server.SecureRequestCustomizer",
@@ -650,12 +659,33 @@ public class JettyHTTPServerEngine implements ServerEngine {
                 Object scf = ClassLoaderUtils.loadClass("org.eclipse.jetty.server.SslConnectionFactory",
                                                         Server.class).getConstructor(SslContextFactory.class,
                                                                                      String.class)
-                                                        .newInstance(sslcf, "HTTP/1.1");
+                                                        .newInstance(sslcf, http2 ? "alpn" : "HTTP/1.1");
                 connectionFactories.add(scf);
+                if (http2) {
+                    // h2 is negotiated with ALPN, clients without ALPN get HTTP/1.1
+                    Object alpn = ClassLoaderUtils
+                        .loadClass("org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory", Server.class)
+                        .getConstructor(String[].class).newInstance((Object)new String[] {"h2", "http/1.1"});
+                    alpn.getClass().getMethod("setDefaultProtocol", String.class).invoke(alpn, "http/1.1");
+                    connectionFactories.add(alpn);
+                    connectionFactories.add(
+                        createHttp2ConnectionFactory("org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory",
+                                                     configClass, httpConfig));
+                    // HTTP/2 does not allow the cipher suites of its blacklist, prefer the others
+                    Object comparator = ClassLoaderUtils.loadClass("org.eclipse.jetty.http2.HTTP2Cipher", 
+                                                                   Server.class).getField("COMPARATOR").get(null);
+                    sslcf.getClass().getMethod("setCipherComparator", Comparator.class).invoke(sslcf, comparator);
+                }
                 String proto = (major > 9 || (major == 9 && minor >= 3)) ? "SSL" : "SSL-HTTP/1.1";
                 result.getClass().getMethod("setDefaultProtocol", String.class).invoke(result, proto);
             }
             connectionFactories.add(httpFactory);
+            if (http2 && tlsServerParameters == null) {
+                // h2c, both with prior knowledge and as an upgrade of HTTP/1.1
+                connectionFactories.add(
+                    createHttp2ConnectionFactory("org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory",
+                                                 configClass, httpConfig));
+            }
             result.getClass().getMethod("setConnectionFactories", Collection.class)
                 .invoke(result, connectionFactories);
             
@@ -670,6 +700,20 @@ public class JettyHTTPServerEngine implements ServerEngine {
         }
         return result;
     }
+    private Object createHttp2ConnectionFactory(String className, Class<?> configClass, Object httpConfig)
+        throws Exception {
+        Object factory = ClassLoaderUtils.loadClass(className, Server.class)
+            .getConstructor(configClass).newInstance(httpConfig);
+        if (getHttp2MaxConcurrentStreams() > 0) {
+            factory.getClass().getMethod("setMaxConcurrentStreams", Integer.TYPE)
+                .invoke(factory, getHttp2MaxConcurrentStreams());
+        }
+        if (getHttp2InitialWindowSize() > 0) {
+            factory.getClass().getMethod("setInitialStreamSendWindow", Integer.TYPE)
+                .invoke(factory, getHttp2InitialWindowSize());
+        }
+        return factory;
+    }
     AbstractConnector createConnectorJetty8(SslContextFactory sslcf, String hosto, int porto) {
         //Jetty 8
         AbstractConnector result = null;
@@ -1117,5 +1161,41 @@ public class JettyHTTPServerEngine implements ServerEngine {
     public Boolean getSendServerVersion() {
         return sendServerVersion;
     }
+
+    /**
+     * Enables HTTP/2 on the connector of this engine, h2c for http and h2 negotiated
+     * with ALPN for https.  Requires Jetty 9.3 or later with the http2-server module,
+     * and jetty-alpn-server with ALPN support of the JVM for https.
+     */
+    public void setHttp2Enabled(boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+    }
+
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    /**
+     * Sets the maximum number of concurrent streams a client may open on one
+     * HTTP/2 connection, -1 for the Jetty default.
+     */
+    public void setHttp2MaxConcurrentStreams(int http2MaxConcurrentStreams) {
+        this.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+    }
+
+    public int getHttp2MaxConcurrentStreams() {
+        return http2MaxConcurrentStreams;
+    }
+
+    /**
+     * Sets the initial HTTP/2 flow control window of the streams, -1 for the Jetty default.
+     */
+    public void setHttp2InitialWindowSize(int http2InitialWindowSize) {
+        this.http2InitialWindowSize = http2InitialWindowSize;
+    }
+
+    public int getHttp2InitialWindowSize() {
+        return http2InitialWindowSize;
+    }
     
 }
@@ -145,6 +145,15 @@ public class JettyHTTPServerEngineFactoryHolder {
                 if (engine.getMaxIdleTime() != null) {
                     eng.setMaxIdleTime(engine.getMaxIdleTime());
                 }
+                if (engine.isHttp2Enabled() != null) {
+                    eng.setHttp2Enabled(engine.isHttp2Enabled());
+                }
+                if (engine.getHttp2MaxConcurrentStreams() != null) {
+                    eng.setHttp2MaxConcurrentStreams(engine.getHttp2MaxConcurrentStreams());
+                }
+                if (engine.getHttp2InitialWindowSize() != null) {
+                    eng.setHttp2InitialWindowSize(engine.getHttp2InitialWindowSize());
+                }
                 if (engine.getPort() != null) {
                     eng.setPort(engine.getPort());
                 }
@@ -116,6 +116,12 @@ public class UndertowHTTPServerEngine implements ServerEngine {
     
     private int maxIdleTime = 200000;
     
+    private boolean http2Enabled;
+    
+    private int http2MaxConcurrentStreams = -1;
+    
+    private int http2InitialWindowSize = -1;
+    
     private org.apache.cxf.transport.http_undertow.ThreadingParameters threadingParameters;
     
     private List<CXFUndertowHttpHandler> handlers;
@@ -223,6 +229,7 @@ public class UndertowHTTPServerEngine implements ServerEngine {
         result = decorateUndertowSocketConnection(result);
         result = disableSSLv3(result);
         result = configureThreads(result);
+        result = configureHttp2(result);
         return result.build();
     }
     
@@ -244,6 +251,22 @@ public class UndertowHTTPServerEngine implements ServerEngine {
         return builder;
     }
 
+    private Builder configureHttp2(Builder builder) {
+        if (isHttp2Enabled()) {
+            // h2c with prior knowledge or upgrade on http listeners, ALPN on https listeners
+            builder = builder.setServerOption(UndertowOptions.ENABLE_HTTP2, true);
+            if (getHttp2MaxConcurrentStreams() > 0) {
+                builder = builder.setServerOption(UndertowOptions.HTTP2_SETTINGS_MAX_CONCURRENT_STREAMS,
+                                                  getHttp2MaxConcurrentStreams());
+            }
+            if (getHttp2InitialWindowSize() > 0) {
+                builder = builder.setServerOption(UndertowOptions.HTTP2_SETTINGS_INITIAL_WINDOW_SIZE,
+                                                  getHttp2InitialWindowSize());
+            }
+        }
+        return builder;
+    }
+
     private HttpHandler wrapHandler(HttpHandler handler) {
         HttpHandler nextHandler = handler;
         for (CXFUndertowHttpHandler h : getHandlers()) {
@@ -524,6 +547,43 @@ public class UndertowHTTPServerEngine implements ServerEngine {
     public void setMaxIdleTime(int maxIdleTime) {
         this.maxIdleTime = maxIdleTime;
     }
+
+    /**
+     * Enables HTTP/2 on the listener of this engine, h2c for http and h2 negotiated
+     * with ALPN for https, which needs ALPN support of the JVM.
+     */
+    public void setHttp2Enabled(boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+    }
+
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    /**
+     * Sets the maximum number of concurrent streams a client may open on one
+     * HTTP/2 connection, -1 for the Undertow default.  Like the initial window size,
+     * it is passed on as an Undertow server option and only takes effect with
+     * Undertow versions which announce it in their HTTP/2 settings.
+     */
+    public void setHttp2MaxConcurrentStreams(int http2MaxConcurrentStreams) {
+        this.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+    }
+
+    public int getHttp2MaxConcurrentStreams() {
+        return http2MaxConcurrentStreams;
+    }
+
+    /**
+     * Sets the initial HTTP/2 flow control window of the streams, -1 for the Undertow default.
+     */
+    public void setHttp2InitialWindowSize(int http2InitialWindowSize) {
+        this.http2InitialWindowSize = http2InitialWindowSize;
+    }
+
+    public int getHttp2InitialWindowSize() {
+        return http2InitialWindowSize;
+    }
     
         
     /**
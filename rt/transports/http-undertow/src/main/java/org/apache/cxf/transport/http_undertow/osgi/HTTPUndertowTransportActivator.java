@@ -137,6 +137,12 @@ public class HTTPUndertowTransportActivator
                 e.setContinuationsEnabled(Boolean.parseBoolean(properties.get(k)));
             } else if ("maxIdleTime".equals(k)) {
                 e.setMaxIdleTime(Integer.parseInt(properties.get(k)));
+            } else if ("http2Enabled".equals(k)) {
+                e.setHttp2Enabled(Boolean.parseBoolean(properties.get(k)));
+            } else if ("http2MaxConcurrentStreams".equals(k)) {
+                e.setHttp2MaxConcurrentStreams(Integer.parseInt(properties.get(k)));
+            } else if ("http2InitialWindowSize".equals(k)) {
+                e.setHttp2InitialWindowSize(Integer.parseInt(properties.get(k)));
             } 
         }
     }
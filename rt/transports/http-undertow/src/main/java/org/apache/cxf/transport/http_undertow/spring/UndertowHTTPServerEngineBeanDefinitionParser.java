@@ -88,6 +88,21 @@ public class UndertowHTTPServerEngineBeanDefinitionParser extends AbstractBeanDe
         if (maxIdleTimeStr != null && !"".equals(maxIdleTimeStr.trim())) {
             bean.addPropertyValue("maxIdleTime", maxIdleTimeStr);
         }
+
+        String http2EnabledStr = element.getAttribute("http2Enabled");
+        if (http2EnabledStr != null && http2EnabledStr.length() > 0) {
+            bean.addPropertyValue("http2Enabled", http2EnabledStr);
+        }
+
+        String http2MaxConcurrentStreamsStr = element.getAttribute("http2MaxConcurrentStreams");
+        if (http2MaxConcurrentStreamsStr != null && !"".equals(http2MaxConcurrentStreamsStr.trim())) {
+            bean.addPropertyValue("http2MaxConcurrentStreams", http2MaxConcurrentStreamsStr);
+        }
+
+        String http2InitialWindowSizeStr = element.getAttribute("http2InitialWindowSize");
+        if (http2InitialWindowSizeStr != null && !"".equals(http2InitialWindowSizeStr.trim())) {
+            bean.addPropertyValue("http2InitialWindowSize", http2InitialWindowSizeStr);
+        }
         
                 
         ValueHolder busValue = ctx.getContainingBeanDefinition()
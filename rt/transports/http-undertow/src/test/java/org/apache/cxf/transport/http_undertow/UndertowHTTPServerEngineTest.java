@@ -22,13 +22,18 @@ package org.apache.cxf.transport.http_undertow;
 
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.management.ManagementFactory;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.management.ObjectName;
@@ -249,6 +254,27 @@ public class UndertowHTTPServerEngineTest extends Assert {
      
     
 
+    @Test
+    public void testHttp2() throws Exception {
+        String urlStr = "http://localhost:" + PORT2 + "/hello/test";
+        UndertowHTTPServerEngine engine =
+            factory.createUndertowHTTPServerEngine(PORT2, "http");
+        engine.setHttp2Enabled(true);
+        engine.setHttp2MaxConcurrentStreams(50);
+        engine.setHttp2InitialWindowSize(1024 * 1024);
+        engine.addServant(new URL(urlStr), new UndertowHTTPTestHandler("string1", true));
+
+        // HTTP/1.1 clients are still served
+        assertEquals("string1", getResponse(urlStr));
+
+        // h2c with prior knowledge, Undertow 1.3 only announces SETTINGS_MAX_FRAME_SIZE
+        // and SETTINGS_HEADER_TABLE_SIZE
+        Map<Integer, Integer> settings = getHttp2Settings(PORT2);
+        assertEquals(Integer.valueOf(16384), settings.get(5));
+
+        UndertowHTTPServerEngineFactory.destroyForPort(PORT2);
+    }
+
     private String getResponse(String target) throws Exception {
         URL url = new URL(target);
 
@@ -261,6 +287,26 @@ public class UndertowHTTPServerEngineTest extends Assert {
         IOUtils.copy(in, buffer);
         return buffer.toString();
     }
-    
-    
+
+    private static Map<Integer, Integer> getHttp2Settings(int port) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(10000);
+            OutputStream out = socket.getOutputStream();
+            // connection preface followed by an empty SETTINGS frame
+            out.write("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes("ASCII"));
+            out.write(new byte[] {0, 0, 0, 4, 0, 0, 0, 0, 0});
+            out.flush();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            byte[] header = new byte[9];
+            in.readFully(header);
+            assertEquals("SETTINGS frame expected", 4, header[3]);
+            int length = (header[0] & 0xff) << 16 | (header[1] & 0xff) << 8 | header[2] & 0xff;
+            Map<Integer, Integer> settings = new HashMap<Integer, Integer>();
+            for (int i = 0; i < length / 6; i++) {
+                settings.put(in.readUnsignedShort(), in.readInt());
+            }
+            return settings;
+        }
+    }
 }
@@ -1644,6 +1644,7 @@ public abstract class HTTPConduit
                 outMessage.removeContent(OutputStream.class);
                 if (cachingForRetransmission && cachedStream != null) {
                     cachedStream.close();
+                    cachedStream.dispose();
                 }
                 cachedStream = null;
             }
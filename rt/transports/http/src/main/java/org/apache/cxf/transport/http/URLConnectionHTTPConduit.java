@@ -38,6 +38,7 @@ import org.apache.cxf.common.util.SystemPropertyAction;
 import org.apache.cxf.configuration.jsse.TLSClientParameters;
 import org.apache.cxf.helpers.IOUtils;
 import org.apache.cxf.io.CacheAndWriteOutputStream;
+import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageUtils;
 import org.apache.cxf.service.model.EndpointInfo;
@@ -67,6 +68,11 @@ public class URLConnectionHTTPConduit extends HTTPConduit {
      * Factory. 
      */
     protected HttpsURLConnectionFactory connectionFactory;
+
+    /**
+     * Created on the first request sent with a MaxConnectionsPerRoute greater than 0.
+     */
+    private volatile URLConnectionPool connectionPool;
         
     
     public URLConnectionHTTPConduit(Bus b, EndpointInfo ei) throws IOException {
@@ -98,6 +104,60 @@ public class URLConnectionHTTPConduit extends HTTPConduit {
             //defaultEndpointURL = null;
         }
     }    
+
+    /**
+     * Closes the response, releasing the connection of the request whether or not the
+     * response stream was read to the end.
+     */
+    @Override
+    public void close(Message msg) throws IOException {
+        try {
+            super.close(msg);
+        } finally {
+            Exchange exchange = msg.getExchange();
+            if (exchange != null && exchange.getOutMessage() != null && msg != exchange.getOutMessage()) {
+                releaseConnection(exchange.getOutMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the pool limiting the connections per route, null as long as no request
+     * has been sent with a MaxConnectionsPerRoute greater than 0.
+     */
+    public URLConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    private void leaseConnection(Message message, URI uri, Proxy proxy, HTTPClientPolicy csPolicy)
+        throws IOException {
+        releaseConnection(message);
+        int maxPerRoute = csPolicy.getMaxConnectionsPerRoute();
+        if (maxPerRoute <= 0 && connectionPool == null) {
+            return;
+        }
+        URLConnectionPool pool = connectionPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = connectionPool;
+                if (pool == null) {
+                    pool = new URLConnectionPool();
+                    connectionPool = pool;
+                }
+            }
+        }
+        message.put(URLConnectionPool.Lease.class,
+                    pool.lease(URLConnectionPool.getRoute(uri, proxy), maxPerRoute,
+                               csPolicy.getConnectionRequestTimeout()));
+    }
+
+    private static void releaseConnection(Message message) {
+        URLConnectionPool.Lease lease = message.get(URLConnectionPool.Lease.class);
+        if (lease != null) {
+            message.remove(URLConnectionPool.Lease.class.getName());
+            lease.release();
+        }
+    }
     
     private HttpURLConnection createConnection(Message message, Address address, HTTPClientPolicy csPolicy)
         throws IOException {
@@ -110,10 +170,26 @@ public class URLConnectionHTTPConduit extends HTTPConduit {
         if (clientParameters == null) {
             clientParameters = tlsClientParameters;
         }
-        return connectionFactory.createConnection(clientParameters,
-                                                  proxy != null ? proxy : address.getDefaultProxy(), url);
+        if (proxy == null) {
+            proxy = address.getDefaultProxy();
+        }
+        leaseConnection(message, uri, proxy, csPolicy);
+        return connectionFactory.createConnection(clientParameters, proxy, url);
     }
     protected void setupConnection(Message message, Address address, HTTPClientPolicy csPolicy) throws IOException {
+        try {
+            doSetupConnection(message, address, csPolicy);
+        } catch (IOException ex) {
+            releaseConnection(message);
+            throw ex;
+        } catch (RuntimeException ex) {
+            releaseConnection(message);
+            throw ex;
+        }
+    }
+
+    private void doSetupConnection(Message message, Address address, HTTPClientPolicy csPolicy)
+        throws IOException {
         HttpURLConnection connection = createConnection(message, address, csPolicy);
         connection.setDoOutput(true);       
         
@@ -313,19 +389,50 @@ public class URLConnectionHTTPConduit extends HTTPConduit {
             } else {
                 in = connection.getInputStream();
             }
-            return in;
+            URLConnectionPool.Lease lease = outMessage.get(URLConnectionPool.Lease.class);
+            return lease == null ? in : lease.wrap(in);
         }
 
         
         protected void closeInputStream() throws IOException {
-            //try and consume any content so that the connection might be reusable
-            InputStream ins = connection.getErrorStream();
-            if (ins == null) {
-                ins = connection.getInputStream();
+            try {
+                //try and consume any content so that the connection might be reusable
+                InputStream ins = connection.getErrorStream();
+                if (ins == null) {
+                    ins = connection.getInputStream();
+                }
+                if (ins != null) {
+                    IOUtils.consume(ins);
+                    ins.close();
+                }
+            } finally {
+                releaseConnection(outMessage);
+            }
+        }
+
+        @Override
+        protected void handleResponseInternal() throws IOException {
+            try {
+                super.handleResponseInternal();
+            } catch (IOException ex) {
+                releaseConnection(outMessage);
+                throw ex;
+            } catch (RuntimeException ex) {
+                releaseConnection(outMessage);
+                throw ex;
             }
-            if (ins != null) {
-                IOUtils.consume(ins);
-                ins.close();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } catch (IOException ex) {
+                releaseConnection(outMessage);
+                throw ex;
+            } catch (RuntimeException ex) {
+                releaseConnection(outMessage);
+                throw ex;
             }
         }
         protected int getResponseCode() throws IOException {
@@ -335,7 +442,9 @@ public class URLConnectionHTTPConduit extends HTTPConduit {
             return connection.getResponseMessage();
         }
         protected InputStream getPartialResponse() throws IOException {
-            return ChunkedUtil.getPartialResponse(connection, connection.getResponseCode());
+            InputStream in = ChunkedUtil.getPartialResponse(connection, connection.getResponseCode());
+            URLConnectionPool.Lease lease = outMessage.get(URLConnectionPool.Lease.class);
+            return lease == null || in == null ? in : lease.wrap(in);
         }
         protected boolean usingProxy() {
             return connection.usingProxy();
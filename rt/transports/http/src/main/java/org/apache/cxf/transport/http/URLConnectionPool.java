@@ -0,0 +1,425 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.net.Proxy;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.common.util.SystemPropertyAction;
+
+/**
+ * Limits the number of requests the {@link URLConnectionHTTPConduit} has in flight
+ * to one route, that is one scheme, host and port reached through one proxy.
+ * <p>
+ * The sockets themselves stay in the keep-alive cache of the JDK, which hands an idle
+ * socket of the route to the next HttpURLConnection.  A lease is taken before a
+ * connection is created and given back once the response has been read or closed, so
+ * with MaxConnectionsPerRoute set there are no more requests to a route at a time.
+ * The keep-alive cache however keeps at most "http.maxConnections" idle sockets per
+ * route, 5 by default, the sockets of a larger MaxConnectionsPerRoute beyond that are
+ * closed once their response has been read and opened again by later requests, so the
+ * system property should be raised along with it.  Requests over the limit wait for a
+ * lease up to the ConnectionRequestTimeout of the HTTPClientPolicy.
+ * <p>
+ * A response stream that is dropped without being read to the end or closed releases
+ * its lease once it has been garbage collected, when the next lease is taken.
+ * <p>
+ * The counters of the routes are kept for metrics, routes without leases or waiting
+ * requests are dropped once they have been idle for {@link #getRouteIdleTime()}.
+ */
+public class URLConnectionPool {
+    private static final Logger LOG = LogUtils.getL7dLogger(URLConnectionPool.class);
+    private static final long DEFAULT_ROUTE_IDLE_TIME = 60000L;
+    private static final int DEFAULT_KEEP_ALIVE_CONNECTIONS = 5;
+
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<String, Route>();
+    private final ReferenceQueue<InputStream> dropped = new ReferenceQueue<InputStream>();
+    private final Set<LeaseReference> references =
+        Collections.newSetFromMap(new ConcurrentHashMap<LeaseReference, Boolean>());
+    private final AtomicBoolean keepAliveChecked = new AtomicBoolean();
+    private final LongAdder leaseCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private volatile long routeIdleTime = DEFAULT_ROUTE_IDLE_TIME;
+    private volatile long lastEviction = System.currentTimeMillis();
+
+    /**
+     * Returns the route key of a request to the URI, e.g. "https://host:443" or
+     * "http://host:80 via HTTP @ proxy:8080".
+     */
+    public static String getRoute(URI uri, Proxy proxy) {
+        String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase();
+        int port = uri.getPort();
+        if (port == -1) {
+            port = "https".equals(scheme) ? 443 : 80;
+        }
+        StringBuilder sb = new StringBuilder(scheme).append("://").append(uri.getHost())
+            .append(':').append(port);
+        if (proxy != null && proxy.type() != Proxy.Type.DIRECT) {
+            sb.append(" via ").append(proxy);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Takes a lease on the route, waiting while maxPerRoute leases are taken.
+     *
+     * @param route the route key
+     * @param maxPerRoute the maximum number of leases, 0 or less for no limit
+     * @param timeout the time to wait in milliseconds, 0 for no limit
+     * @throws IOException if no lease became available within the timeout
+     */
+    public Lease lease(String route, int maxPerRoute, long timeout) throws IOException {
+        releaseDropped();
+        evictIdleRoutes();
+        checkKeepAlive(maxPerRoute);
+        while (true) {
+            Route r = routes.get(route);
+            if (r == null) {
+                r = new Route(route);
+                Route old = routes.putIfAbsent(route, r);
+                if (old != null) {
+                    r = old;
+                }
+            }
+            try {
+                if (!r.acquire(maxPerRoute, timeout)) {
+                    if (r.isEvicted()) {
+                        // evicted before the lease was taken, use the route that replaces it
+                        continue;
+                    }
+                    timeoutCount.increment();
+                    throw new IOException("Timeout waiting for a connection to " + route
+                                          + ", " + maxPerRoute + " connections in use");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a connection to " + route, ex);
+            }
+            leaseCount.increment();
+            return new Lease(r, this);
+        }
+    }
+
+    public Set<String> getRoutes() {
+        return Collections.unmodifiableSet(routes.keySet());
+    }
+
+    /**
+     * @return the number of leases currently taken on the route
+     */
+    public int getLeased(String route) {
+        Route r = routes.get(route);
+        return r == null ? 0 : r.leased;
+    }
+
+    /**
+     * @return the number of requests currently waiting for a lease on the route
+     */
+    public int getPending(String route) {
+        Route r = routes.get(route);
+        return r == null ? 0 : r.pending;
+    }
+
+    public int getLeased() {
+        int leased = 0;
+        for (Route r : routes.values()) {
+            leased += r.leased;
+        }
+        return leased;
+    }
+
+    public int getPending() {
+        int pending = 0;
+        for (Route r : routes.values()) {
+            pending += r.pending;
+        }
+        return pending;
+    }
+
+    /**
+     * @return the number of leases taken since the pool was created
+     */
+    public long getLeaseCount() {
+        return leaseCount.sum();
+    }
+
+    /**
+     * @return the number of requests which timed out waiting for a lease
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public long getRouteIdleTime() {
+        return routeIdleTime;
+    }
+
+    public void setRouteIdleTime(long routeIdleTime) {
+        this.routeIdleTime = routeIdleTime;
+    }
+
+    /**
+     * Releases the leases of the response streams which were garbage collected without
+     * being read to the end or closed.
+     */
+    private void releaseDropped() {
+        LeaseReference ref = (LeaseReference)dropped.poll();
+        while (ref != null) {
+            ref.lease.release();
+            ref = (LeaseReference)dropped.poll();
+        }
+    }
+
+    private void checkKeepAlive(int maxPerRoute) {
+        if (maxPerRoute <= 0 || keepAliveChecked.get()) {
+            return;
+        }
+        int keepAlive = DEFAULT_KEEP_ALIVE_CONNECTIONS;
+        String s = SystemPropertyAction.getPropertyOrNull("http.maxConnections");
+        if (s != null) {
+            try {
+                keepAlive = Integer.parseInt(s.trim());
+            } catch (NumberFormatException ex) {
+                // the JDK uses the default as well
+            }
+        }
+        if (maxPerRoute > keepAlive && keepAliveChecked.compareAndSet(false, true)) {
+            LogUtils.log(LOG, Level.WARNING, "KEEP_ALIVE_CONNECTIONS_MSG",
+                         new Object[] {maxPerRoute, keepAlive});
+        }
+    }
+
+    private void evictIdleRoutes() {
+        long now = System.currentTimeMillis();
+        long idleTime = routeIdleTime;
+        if (now - lastEviction < idleTime) {
+            return;
+        }
+        lastEviction = now;
+        for (Route r : routes.values()) {
+            if (r.evictIfIdle(now - idleTime)) {
+                routes.remove(r.name, r);
+            }
+        }
+    }
+
+    private static final class Route {
+        private final String name;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition available = lock.newCondition();
+        private volatile int leased;
+        private volatile int pending;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile boolean evicted;
+
+        Route(String name) {
+            this.name = name;
+        }
+
+        boolean acquire(int max, long timeout) throws InterruptedException {
+            lock.lock();
+            try {
+                if (evicted) {
+                    return false;
+                }
+                if (max > 0 && leased >= max) {
+                    pending++;
+                    try {
+                        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+                        while (leased >= max) {
+                            if (timeout <= 0) {
+                                available.await();
+                            } else if (nanos <= 0) {
+                                return false;
+                            } else {
+                                nanos = available.awaitNanos(nanos);
+                            }
+                        }
+                    } finally {
+                        pending--;
+                    }
+                }
+                leased++;
+                lastUsed = System.currentTimeMillis();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                leased--;
+                lastUsed = System.currentTimeMillis();
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Marks the route as evicted if it has no leases or waiting requests and was last
+         * used before the given time.  An evicted route hands out no more leases, so a
+         * request that found it in the map just before it was removed takes a new one.
+         */
+        boolean evictIfIdle(long usedBefore) {
+            lock.lock();
+            try {
+                if (leased == 0 && pending == 0 && lastUsed < usedBefore) {
+                    evicted = true;
+                }
+                return evicted;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isEvicted() {
+            return evicted;
+        }
+
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * A lease on a route, released once when the response of the request has been
+     * read or closed, or the request failed.
+     */
+    public static final class Lease {
+        private final Route route;
+        private final URLConnectionPool pool;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile LeaseReference reference;
+
+        Lease(Route route, URLConnectionPool pool) {
+            this.route = route;
+            this.pool = pool;
+        }
+
+        public String getRoute() {
+            return route.name;
+        }
+
+        public boolean isReleased() {
+            return released.get();
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                LeaseReference ref = reference;
+                if (ref != null) {
+                    pool.references.remove(ref);
+                    ref.clear();
+                }
+                route.release();
+            }
+        }
+
+        /**
+         * Wraps the response stream so that reading it to the end or closing it releases
+         * the lease.
+         */
+        public InputStream wrap(InputStream in) {
+            if (in == null) {
+                release();
+                return null;
+            }
+            LeasedInputStream lin = new LeasedInputStream(in, this);
+            LeaseReference ref = new LeaseReference(lin, this, pool.dropped);
+            pool.references.add(ref);
+            reference = ref;
+            if (released.get()) {
+                // released while being wrapped
+                pool.references.remove(ref);
+                ref.clear();
+            }
+            return lin;
+        }
+    }
+
+    /**
+     * Refers to a response stream until it is garbage collected, kept in the set of the
+     * pool until then.
+     */
+    private static final class LeaseReference extends PhantomReference<InputStream> {
+        private final Lease lease;
+
+        LeaseReference(InputStream in, Lease lease, ReferenceQueue<InputStream> queue) {
+            super(in, queue);
+            this.lease = lease;
+        }
+    }
+
+    private static final class LeasedInputStream extends FilterInputStream {
+        private final Lease lease;
+
+        LeasedInputStream(InputStream in, Lease lease) {
+            super(in);
+            this.lease = lease;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                lease.release();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n == -1) {
+                lease.release();
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                lease.release();
+            }
+        }
+    }
+}
@@ -314,6 +314,10 @@ class HttpConduitConfigApplier {
                     p.setConnectionTimeout(Long.parseLong(v.trim()));
                 } else if ("ReceiveTimeout".equals(k)) {
                     p.setReceiveTimeout(Long.parseLong(v.trim()));
+                } else if ("MaxConnectionsPerRoute".equals(k)) {
+                    p.setMaxConnectionsPerRoute(Integer.parseInt(v.trim()));
+                } else if ("ConnectionRequestTimeout".equals(k)) {
+                    p.setConnectionRequestTimeout(Long.parseLong(v.trim()));
                 } else if ("AsyncExecuteTimeout".equals(k)) {
                     p.setAsyncExecuteTimeout(Long.parseLong(v.trim()));
                 } else if ("AsyncExecuteTimeoutRejection".equals(k)) {
@@ -146,6 +146,16 @@ public class ClientPolicyCalculator implements PolicyCalculator<HTTPClientPolicy
         } else if (p2.isSetReceiveTimeout()) {
             p.setReceiveTimeout(p2.getReceiveTimeout());
         }
+        if (p1.isSetMaxConnectionsPerRoute()) {
+            p.setMaxConnectionsPerRoute(p1.getMaxConnectionsPerRoute());
+        } else if (p2.isSetMaxConnectionsPerRoute()) {
+            p.setMaxConnectionsPerRoute(p2.getMaxConnectionsPerRoute());
+        }
+        if (p1.isSetConnectionRequestTimeout()) {
+            p.setConnectionRequestTimeout(p1.getConnectionRequestTimeout());
+        } else if (p2.isSetConnectionRequestTimeout()) {
+            p.setConnectionRequestTimeout(p2.getConnectionRequestTimeout());
+        }
 
         return p;
     }
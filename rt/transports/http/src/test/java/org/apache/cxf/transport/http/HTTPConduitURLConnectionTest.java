@@ -19,6 +19,9 @@
 
 package org.apache.cxf.transport.http;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.List;
@@ -30,9 +33,12 @@ import javax.net.ssl.HttpsURLConnection;
 import org.apache.cxf.Bus;
 import org.apache.cxf.bus.extension.ExtensionManagerBus;
 import org.apache.cxf.configuration.jsse.TLSClientParameters;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageImpl;
 import org.apache.cxf.service.model.EndpointInfo;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -117,6 +123,79 @@ public class HTTPConduitURLConnectionTest extends Assert {
                 "http://somewhere.different/");
     }
 
+    /**
+     * This test verifies that MaxConnectionsPerRoute limits the connections
+     * prepared to one host until their leases are released.
+     */
+    @Test
+    public void testMaxConnectionsPerRoute() throws Exception {
+        Bus bus = new ExtensionManagerBus();
+        EndpointInfo ei = new EndpointInfo();
+        ei.setAddress("http://nowhere.null/bar/foo");
+        URLConnectionHTTPConduit conduit = new URLConnectionHTTPConduit(bus, ei, null);
+        HTTPClientPolicy policy = new HTTPClientPolicy();
+        policy.setMaxConnectionsPerRoute(1);
+        policy.setConnectionRequestTimeout(100);
+        conduit.setClient(policy);
+        conduit.finalizeConfig();
+        assertNull(conduit.getConnectionPool());
+
+        Message message = getNewMessage();
+        conduit.prepare(message);
+        URLConnectionPool pool = conduit.getConnectionPool();
+        assertNotNull(pool);
+        assertEquals(1, pool.getLeased("http://nowhere.null:80"));
+
+        Message other = getNewMessage();
+        other.put(Message.ENDPOINT_ADDRESS, "http://somewhere.different/");
+        conduit.prepare(other);
+        assertEquals(1, pool.getLeased("http://somewhere.different:80"));
+
+        try {
+            conduit.prepare(getNewMessage());
+            fail("Expected a timeout waiting for a connection");
+        } catch (IOException ex) {
+            assertEquals(1, pool.getTimeoutCount());
+        }
+
+        message.get(URLConnectionPool.Lease.class).release();
+        assertEquals(0, pool.getLeased("http://nowhere.null:80"));
+        Message next = getNewMessage();
+        conduit.prepare(next);
+        assertEquals(1, pool.getLeased("http://nowhere.null:80"));
+        assertEquals(3, pool.getLeaseCount());
+    }
+
+    /**
+     * This test verifies that closing the response releases the lease of the
+     * request, whether or not its stream was read.
+     */
+    @Test
+    public void testLeaseReleasedWhenResponseClosed() throws Exception {
+        Bus bus = new ExtensionManagerBus();
+        EndpointInfo ei = new EndpointInfo();
+        ei.setAddress("http://nowhere.null/bar/foo");
+        URLConnectionHTTPConduit conduit = new URLConnectionHTTPConduit(bus, ei, null);
+        HTTPClientPolicy policy = new HTTPClientPolicy();
+        policy.setMaxConnectionsPerRoute(1);
+        conduit.setClient(policy);
+        conduit.finalizeConfig();
+
+        Message message = getNewMessage();
+        Exchange exchange = new ExchangeImpl();
+        exchange.setOutMessage(message);
+        conduit.prepare(message);
+        URLConnectionPool pool = conduit.getConnectionPool();
+        assertEquals(1, pool.getLeased("http://nowhere.null:80"));
+
+        Message response = new MessageImpl();
+        exchange.setInMessage(response);
+        response.setContent(InputStream.class, new ByteArrayInputStream(new byte[] {1, 2}));
+        conduit.close(response);
+        assertEquals(0, pool.getLeased("http://nowhere.null:80"));
+        assertNull(message.get(URLConnectionPool.Lease.class));
+    }
+
     /**
      * This verifys that the underlying connection is an HttpsURLConnection.
      */
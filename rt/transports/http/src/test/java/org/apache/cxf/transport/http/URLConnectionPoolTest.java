@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class URLConnectionPoolTest extends Assert {
+
+    @Test
+    public void testRoute() throws Exception {
+        assertEquals("http://host:80", URLConnectionPool.getRoute(new URI("http://host/path"), null));
+        assertEquals("https://host:443", URLConnectionPool.getRoute(new URI("HTTPS://host/path"), null));
+        assertEquals("http://host:8080",
+                     URLConnectionPool.getRoute(new URI("http://host:8080/path"), Proxy.NO_PROXY));
+        Proxy proxy = new Proxy(Proxy.Type.HTTP, InetSocketAddress.createUnresolved("proxy", 3128));
+        assertEquals("http://host:80 via " + proxy,
+                     URLConnectionPool.getRoute(new URI("http://host/path"), proxy));
+    }
+
+    @Test
+    public void testUnlimited() throws Exception {
+        URLConnectionPool pool = new URLConnectionPool();
+        URLConnectionPool.Lease l1 = pool.lease("r", 0, 10);
+        URLConnectionPool.Lease l2 = pool.lease("r", 0, 10);
+        assertEquals(2, pool.getLeased("r"));
+        l1.release();
+        l1.release();
+        assertTrue(l1.isReleased());
+        assertEquals(1, pool.getLeased("r"));
+        l2.release();
+        assertEquals(0, pool.getLeased());
+        assertEquals(2, pool.getLeaseCount());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        URLConnectionPool pool = new URLConnectionPool();
+        URLConnectionPool.Lease lease = pool.lease("r", 1, 10);
+        assertEquals("r", lease.getRoute());
+        try {
+            pool.lease("r", 1, 10);
+            fail("Expected a timeout waiting for a connection");
+        } catch (IOException ex) {
+            assertEquals(1, pool.getTimeoutCount());
+        }
+        pool.lease("other", 1, 10).release();
+        lease.release();
+        pool.lease("r", 1, 10).release();
+        assertEquals(0, pool.getPending());
+        assertEquals(3, pool.getLeaseCount());
+    }
+
+    @Test
+    public void testWaitForRelease() throws Exception {
+        final URLConnectionPool pool = new URLConnectionPool();
+        URLConnectionPool.Lease lease = pool.lease("r", 1, 0);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<URLConnectionPool.Lease> next = new AtomicReference<URLConnectionPool.Lease>();
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    next.set(pool.lease("r", 1, 0));
+                } catch (IOException ex) {
+                    // left null
+                }
+                done.countDown();
+            }
+        };
+        t.start();
+        for (int i = 0; i < 100 && pool.getPending("r") == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.getPending("r"));
+        assertFalse(done.await(50, TimeUnit.MILLISECONDS));
+
+        InputStream in = lease.wrap(new ByteArrayInputStream(new byte[] {1}));
+        assertEquals(1, in.read());
+        in.close();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotNull(next.get());
+        assertEquals(1, pool.getLeased("r"));
+        assertEquals(0, pool.getPending("r"));
+    }
+
+    @Test
+    public void testReleasedAtEndOfStream() throws Exception {
+        URLConnectionPool pool = new URLConnectionPool();
+        URLConnectionPool.Lease lease = pool.lease("r", 1, 10);
+        InputStream in = lease.wrap(new ByteArrayInputStream(new byte[] {1, 2}));
+        assertEquals(2, in.read(new byte[4]));
+        assertFalse(lease.isReleased());
+        assertEquals(-1, in.read(new byte[4]));
+        assertTrue(lease.isReleased());
+        assertEquals(0, pool.getLeased("r"));
+        in.close();
+        assertEquals(0, pool.getLeased("r"));
+    }
+
+    @Test
+    public void testReleasedWhenDropped() throws Exception {
+        URLConnectionPool pool = new URLConnectionPool();
+        URLConnectionPool.Lease lease = pool.lease("r", 1, 10);
+        lease.wrap(new ByteArrayInputStream(new byte[] {1}));
+        // the stream was dropped, its lease is released when the next one is taken
+        for (int i = 0; i < 100 && !lease.isReleased(); i++) {
+            System.gc();
+            Thread.sleep(10);
+            pool.lease("other", 0, 10).release();
+        }
+        assertTrue(lease.isReleased());
+        assertEquals(0, pool.getLeased("r"));
+    }
+
+    @Test
+    public void testIdleRoutesEvicted() throws Exception {
+        URLConnectionPool pool = new URLConnectionPool();
+        pool.setRouteIdleTime(0);
+        pool.lease("r1", 1, 10).release();
+        URLConnectionPool.Lease lease = pool.lease("r2", 1, 10);
+        Thread.sleep(5);
+        pool.lease("r3", 1, 10).wrap(null);
+        assertFalse(pool.getRoutes().contains("r1"));
+        assertTrue(pool.getRoutes().contains("r2"));
+        assertTrue(pool.getRoutes().contains("r3"));
+        lease.release();
+    }
+}
@@ -24,6 +24,7 @@ import org.apache.cxf.common.injection.NoJSR250Annotations;
 import org.apache.cxf.interceptor.InterceptorProvider;
 import org.apache.cxf.ws.addressing.WSAddressingFeature;
 import org.apache.cxf.ws.addressing.soap.MAPCodec;
+import org.apache.cxf.ws.addressing.soap.MAPHeaderProcessor;
 
 
 /**
@@ -55,6 +56,8 @@ public class AddressingFeatureApplier implements WSAddressingFeature.WSAddressin
         
         provider.getOutFaultInterceptors().add(mapAggregator);
         provider.getOutFaultInterceptors().add(mapCodec);
+
+        MAPHeaderProcessor.register(bus);
     }
 
 }
@@ -481,9 +481,18 @@ public class MAPCodec extends AbstractSoapInterceptor {
                 Iterator<Header> iter = header.iterator();
                 while (iter.hasNext()) {
                     Header hdr = iter.next();
+                    Element headerElement = null;
+                    JAXBElement<?> headerValue = null;
                     if (hdr.getObject() instanceof Element) {
-                        Element headerElement = (Element)hdr.getObject();
-                        String headerURI = headerElement.getNamespaceURI();
+                        headerElement = (Element)hdr.getObject();
+                    } else if (hdr.getObject() instanceof JAXBElement
+                        && hdr.getDirection() == Header.Direction.DIRECTION_IN) {
+                        // read from the stream by a MAPHeaderProcessor
+                        headerValue = (JAXBElement<?>)hdr.getObject();
+                    }
+                    if (headerElement != null || headerValue != null) {
+                        String headerURI = headerElement != null ? headerElement.getNamespaceURI()
+                            : headerValue.getName().getNamespaceURI();
                         // Need to check the uri before getting unmarshaller else
                         // would get wrong unmarshaller and fail to process required
                         // headers.
@@ -499,65 +508,74 @@ public class MAPCodec extends AbstractSoapInterceptor {
                                 maps = new AddressingProperties();
                                 maps.exposeAs(headerURI);
                             }
-                            String localName = headerElement.getLocalName();
+                            String localName = headerElement != null ? headerElement.getLocalName()
+                                : headerValue.getName().getLocalPart();
                             if (Names.WSA_MESSAGEID_NAME.equals(localName)) {
                                 invalidCardinalityQName = maps.getMessageID() != null
                                     ? Names.WSA_MESSAGEID_QNAME : null;
-                                maps.setMessageID(decodeAsNative(
+                                maps.setMessageID(decodeHeader(
                                                        headerURI,
                                                        AttributedURIType.class,
-                                                       headerElement, 
+                                                       headerElement,
+                                                       headerValue,
                                                        unmarshaller));
                             } else if (Names.WSA_TO_NAME.equals(localName)) {
                                 invalidCardinalityQName = maps.getTo() != null ? Names.WSA_TO_QNAME : null;
-                                AttributedURIType addr = decodeAsNative(
+                                AttributedURIType addr = decodeHeader(
                                                        headerURI,
                                                        AttributedURIType.class,
-                                                       headerElement, 
+                                                       headerElement,
+                                                       headerValue,
                                                        unmarshaller);
                                 maps.setTo(EndpointReferenceUtils.getEndpointReference(addr));
                             } else if (Names.WSA_FROM_NAME.equals(localName)) {
                                 invalidCardinalityQName = maps.getFrom() != null
                                     ? Names.WSA_FROM_QNAME : null;
-                                maps.setFrom(decodeAsNative(
+                                maps.setFrom(decodeHeader(
                                                        headerURI,
                                                        EndpointReferenceType.class,
-                                                       headerElement, 
+                                                       headerElement,
+                                                       headerValue,
                                                        unmarshaller));
                             } else if (Names.WSA_REPLYTO_NAME.equals(localName)) {
                                 invalidCardinalityQName = maps.getReplyTo() != null
                                                                    ? Names.WSA_REPLYTO_QNAME : null;
 
-                                maps.setReplyTo(decodeAsNative(
+                                maps.setReplyTo(decodeHeader(
                                                        headerURI,
                                                        EndpointReferenceType.class,
-                                                       headerElement, 
+                                                       headerElement,
+                                                       headerValue,
                                                        unmarshaller));
                             } else if (Names.WSA_FAULTTO_NAME.equals(localName)) {
                                 invalidCardinalityQName = maps.getFaultTo() != null
                                     ? Names.WSA_FAULTTO_QNAME : null;
 
-                                maps.setFaultTo(decodeAsNative(
+                                maps.setFaultTo(decodeHeader(
                                                        headerURI,
                                                        EndpointReferenceType.class,
-                                                       headerElement, 
+                                                       headerElement,
+                                                       headerValue,
                                                        unmarshaller));
                             } else if (Names.WSA_RELATESTO_NAME.equals(localName)) {
-                                maps.setRelatesTo(decodeAsNative(
+                                maps.setRelatesTo(decodeHeader(
                                                        headerURI,
                                                        RelatesToType.class,
-                                                       headerElement, 
+                                                       headerElement,
+                                                       headerValue,
                                                        unmarshaller));
                             } else if (Names.WSA_ACTION_NAME.equals(localName)) {
                                 invalidCardinalityQName = maps.getAction() != null
                                     ? Names.WSA_ACTION_QNAME : null;
-                                maps.setAction(decodeAsNative(
+                                maps.setAction(decodeHeader(
                                                        headerURI,
                                                        AttributedURIType.class,
-                                                       headerElement, 
+                                                       headerElement,
+                                                       headerValue,
                                                        unmarshaller));
                             }
-                        } else if (null != headerElement.getAttribute(IS_REFERENCE_PARAM_ATTR_NAME)) {
+                        } else if (headerElement != null
+                            && null != headerElement.getAttribute(IS_REFERENCE_PARAM_ATTR_NAME)) {
                             if (null == referenceParameterHeaders) {
                                 referenceParameterHeaders = new HashSet<Element>();
                             }
@@ -644,6 +662,26 @@ public class MAPCodec extends AbstractSoapInterceptor {
         return value;
     }
     
+    /**
+     * Decodes a MAP from either the SOAP header element or the value read by a
+     * MAPHeaderProcessor.
+     */
+    private <T> T decodeHeader(String encodedAs,
+                               Class<T> clz,
+                               Element headerElement,
+                               JAXBElement<?> headerValue,
+                               Unmarshaller unmarshaller)
+        throws JAXBException {
+        if (headerElement != null) {
+            return decodeAsNative(encodedAs, clz, headerElement, unmarshaller);
+        }
+        T value = transformer.decodeAsNative(clz, headerValue.getValue());
+        LOG.log(Level.FINE,
+                "{0} : {1}",
+                new Object[] {headerValue.getName().getLocalPart(), getLogText(value)});
+        return value;
+    }
+    
     /**
      * Return a text representation of a header value for logging.
      * 
@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.addressing.soap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.databinding.DataBinding;
+import org.apache.cxf.headers.HeaderManager;
+import org.apache.cxf.headers.StreamingHeaderProcessor;
+import org.apache.cxf.interceptor.InterceptorProvider;
+import org.apache.cxf.jaxb.JAXBDataBinding;
+import org.apache.cxf.ws.addressing.Names;
+
+/**
+ * Reads the WS-Addressing headers of a version straight from the stream when the SOAP binding
+ * reads the headers in its streaming mode, so that MAPCodec gets the JAXBElements of the MAPs
+ * instead of a DOM Element per header.
+ */
+public class MAPHeaderProcessor implements StreamingHeaderProcessor {
+    private static final Logger LOG = LogUtils.getL7dLogger(MAPHeaderProcessor.class);
+    private static final Set<String> HEADER_NAMES = new HashSet<String>(Arrays.asList(
+        Names.WSA_MESSAGEID_NAME, Names.WSA_TO_NAME, Names.WSA_FROM_NAME, Names.WSA_REPLYTO_NAME,
+        Names.WSA_FAULTTO_NAME, Names.WSA_RELATESTO_NAME, Names.WSA_ACTION_NAME));
+    private static final Collection<String> NAMESPACES = Arrays.asList(
+        Names.WSA_NAMESPACE_NAME,
+        VersionTransformer.Names200408.WSA_NAMESPACE_NAME,
+        VersionTransformer.Names200403.WSA_NAMESPACE_NAME);
+
+    private final String namespace;
+    private volatile JAXBDataBinding dataBinding;
+
+    public MAPHeaderProcessor(String namespace) {
+        this.namespace = namespace;
+    }
+
+    /**
+     * Registers a processor for each supported WS-Addressing version with the HeaderManager of
+     * the bus, unless another processor is registered for its namespace already.
+     */
+    public static void register(Bus bus) {
+        HeaderManager manager = bus == null ? null : bus.getExtension(HeaderManager.class);
+        if (manager == null) {
+            return;
+        }
+        for (String ns : NAMESPACES) {
+            if (manager.getHeaderProcessor(ns) == null) {
+                manager.registerHeaderProcessor(new MAPHeaderProcessor(ns));
+            }
+        }
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * @return the DataBinding of the JAXBContext of the version, which is created on the first
+     * call, or null if the JAXBContext cannot be created
+     */
+    public DataBinding getDataBinding() {
+        JAXBDataBinding db = dataBinding;
+        if (db == null) {
+            try {
+                db = new JAXBDataBinding(VersionTransformer.getExposedJAXBContext(namespace));
+                db.setUnwrapJAXBElement(false);
+                dataBinding = db;
+            } catch (JAXBException ex) {
+                LOG.log(Level.WARNING, "SOAP_HEADER_DECODE_FAILURE_MSG", ex);
+            }
+        }
+        return db;
+    }
+
+    public InterceptorProvider getInterceptorProvider() {
+        return null;
+    }
+
+    public boolean canRead(QName name) {
+        return namespace.equals(name.getNamespaceURI()) && HEADER_NAMES.contains(name.getLocalPart());
+    }
+}
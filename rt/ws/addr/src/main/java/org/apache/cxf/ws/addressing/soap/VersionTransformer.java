@@ -169,6 +169,32 @@ public class VersionTransformer extends org.apache.cxf.ws.addressing.VersionTran
         return ret;
     }
 
+    /**
+     * Decodes a MAP read by the DataBinding of a MAPHeaderProcessor, whatever the version it
+     * was exposed as.
+     * 
+     * @param clz the class
+     * @param exposed the value read from the SOAP header
+     * @return the decoded value, or null if the value is not of the class
+     */
+    public <T> T decodeAsNative(Class<T> clz, Object exposed) {
+        Object ret;
+        if (EndpointReferenceType.class.equals(clz)) {
+            ret = convertToNative(exposed);
+        } else if (exposed instanceof AttributedURI) {
+            ret = convert((AttributedURI)exposed);
+        } else if (exposed instanceof org.apache.cxf.ws.addressing.v200403.AttributedURI) {
+            ret = convert((org.apache.cxf.ws.addressing.v200403.AttributedURI)exposed);
+        } else if (exposed instanceof Relationship) {
+            ret = convert((Relationship)exposed);
+        } else if (exposed instanceof org.apache.cxf.ws.addressing.v200403.Relationship) {
+            ret = convert((org.apache.cxf.ws.addressing.v200403.Relationship)exposed);
+        } else {
+            ret = exposed;
+        }
+        return clz.isInstance(ret) ? clz.cast(ret) : null;
+    }
+
     /**
      * Augment the set of headers understood by the protocol binding with the 2004/08 header QNames.
      */
@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.addressing.soap;
+
+import java.io.StringReader;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
+import org.apache.cxf.binding.soap.SoapHeader;
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.binding.soap.interceptor.ReadHeadersInterceptor;
+import org.apache.cxf.headers.Header;
+import org.apache.cxf.headers.HeaderManager;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.cxf.ws.addressing.AddressingProperties;
+import org.apache.cxf.ws.addressing.ContextUtils;
+import org.apache.cxf.ws.addressing.Names;
+import org.apache.cxf.ws.addressing.VersionTransformer.Names200408;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MAPHeaderProcessorTest extends Assert {
+
+    @Before
+    public void setUp() throws Exception {
+        // other tests may have left mock contexts behind
+        ContextUtils.setJAXBContext(null);
+        VersionTransformer.Names200408.setJAXBContext(null);
+        VersionTransformer.Names200403.setJAXBContext(null);
+    }
+
+    @Test
+    public void testStreamingHeaders() throws Exception {
+        doTestStreamingHeaders(Names.WSA_NAMESPACE_NAME);
+    }
+
+    @Test
+    public void testStreamingHeaders200408() throws Exception {
+        doTestStreamingHeaders(Names200408.WSA_NAMESPACE_NAME);
+    }
+
+    @Test
+    public void testRegisteredProcessorKept() throws Exception {
+        Bus bus = BusFactory.newInstance().createBus();
+        try {
+            HeaderManager manager = bus.getExtension(HeaderManager.class);
+            MAPHeaderProcessor processor = new MAPHeaderProcessor(Names.WSA_NAMESPACE_NAME);
+            manager.registerHeaderProcessor(processor);
+            MAPHeaderProcessor.register(bus);
+            assertSame(processor, manager.getHeaderProcessor(Names.WSA_NAMESPACE_NAME));
+            assertNotNull(manager.getHeaderProcessor(Names200408.WSA_NAMESPACE_NAME));
+        } finally {
+            bus.shutdown(true);
+        }
+    }
+
+    private void doTestStreamingHeaders(String ns) throws Exception {
+        Bus bus = BusFactory.newInstance().createBus();
+        try {
+            MAPHeaderProcessor.register(bus);
+            String xml = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\""
+                + " xmlns:wsa=\"" + ns + "\"><soap:Header>"
+                + "<wsa:MessageID>urn:uuid:1</wsa:MessageID>"
+                + "<wsa:To soap:mustUnderstand=\"1\">http://localhost/to</wsa:To>"
+                + "<wsa:ReplyTo><wsa:Address>http://localhost/reply</wsa:Address></wsa:ReplyTo>"
+                + "<wsa:Action>urn:action</wsa:Action>"
+                + "<wsa:RelatesTo>urn:uuid:0</wsa:RelatesTo>"
+                + "<ref xmlns=\"urn:other\">value</ref>"
+                + "</soap:Header><soap:Body><ping/></soap:Body></soap:Envelope>";
+            SoapMessage message = new SoapMessage(new MessageImpl());
+            message.setContent(XMLStreamReader.class, StaxUtils.createXMLStreamReader(new StringReader(xml)));
+            message.put(ReadHeadersInterceptor.STREAMING_HEADERS, Boolean.TRUE);
+            new ReadHeadersInterceptor(bus).handleMessage(message);
+
+            assertEquals(6, message.getHeaders().size());
+            for (Header header : message.getHeaders().subList(0, 5)) {
+                // read from the stream, not into DOM Elements
+                assertTrue(header.getObject() instanceof JAXBElement);
+            }
+            assertTrue(((SoapHeader)message.getHeaders().get(1)).isMustUnderstand());
+            // not a MAP, so still an Element
+            assertFalse(message.getHeaders().get(5).getObject() instanceof JAXBElement);
+
+            AddressingProperties maps = new MAPCodec().unmarshalMAPs(message);
+            assertEquals(ns, maps.getNamespaceURI());
+            assertEquals("urn:uuid:1", maps.getMessageID().getValue());
+            assertEquals("http://localhost/to", maps.getTo().getValue());
+            assertEquals("http://localhost/reply", maps.getReplyTo().getAddress().getValue());
+            assertEquals("urn:action", maps.getAction().getValue());
+            assertEquals("urn:uuid:0", maps.getRelatesTo().getValue());
+        } finally {
+            bus.shutdown(true);
+        }
+    }
+}
@@ -52,7 +52,7 @@ public abstract class EncoderDecoder {
      * @return context
      * @throws JAXBException
      */
-    protected abstract JAXBContext getContext() throws JAXBException;
+    public abstract JAXBContext getContext() throws JAXBException;
     
     /**
      * Get the WS-ReliableMessaging namespace used by this encoder/decoder.
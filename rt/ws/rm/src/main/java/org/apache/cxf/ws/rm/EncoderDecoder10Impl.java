@@ -89,7 +89,7 @@ public final class EncoderDecoder10Impl extends EncoderDecoder {
         return null;
     }
 
-    protected JAXBContext getContext() throws JAXBException {
+    public JAXBContext getContext() throws JAXBException {
         JAXBContext jaxbContext = jaxbContextReference.get();
         if (jaxbContext == null) {
             synchronized (EncoderDecoder10Impl.class) {
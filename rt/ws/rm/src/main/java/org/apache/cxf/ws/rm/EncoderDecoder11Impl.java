@@ -91,7 +91,7 @@ public final class EncoderDecoder11Impl extends EncoderDecoder {
         return org.apache.cxf.ws.rm.v200702.TerminateSequenceResponseType.class;
     }
 
-    protected JAXBContext getContext() throws JAXBException {
+    public JAXBContext getContext() throws JAXBException {
         JAXBContext jaxbContext = jaxbContextReference.get();
         if (jaxbContext == null) {
             synchronized (EncoderDecoder11Impl.class) {
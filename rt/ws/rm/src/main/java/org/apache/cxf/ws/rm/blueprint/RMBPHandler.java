@@ -59,6 +59,8 @@ public class RMBPHandler implements NamespaceHandler {
             return new RMBPBeanDefinitionParser(RMManager.class).parse(element, context);
         } else if ("jdbcStore".equals(s)) {
             return new RMBPTxStoreBeanDefinitionParser().parse(element, context);
+        } else if ("fileStore".equals(s)) {
+            return new RMBPFileStoreBeanDefinitionParser().parse(element, context);
         }
 
         return null;
@@ -34,6 +34,7 @@ import org.apache.cxf.ws.rm.manager.DestinationPolicyType;
 import org.apache.cxf.ws.rm.manager.RM10AddressingNamespaceType;
 import org.apache.cxf.ws.rm.manager.SourcePolicyType;
 import org.apache.cxf.ws.rm.persistence.RMStore;
+import org.apache.cxf.ws.rm.soap.RMHeaderProcessor;
 import org.apache.cxf.ws.rm.soap.RMSoapInInterceptor;
 import org.apache.cxf.ws.rm.soap.RMSoapOutInterceptor;
 import org.apache.cxf.ws.rmp.v200502.RMAssertion;
@@ -137,5 +138,6 @@ public class RMFeature extends AbstractFeature {
         provider.getOutFaultInterceptors().add(rmOutCodec);
         provider.getOutFaultInterceptors().add(rmCaptureOut);
 
+        RMHeaderProcessor.register(bus);
     }
 }
@@ -0,0 +1,59 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm.persistence;
+
+import java.util.Collection;
+
+import org.apache.cxf.ws.rm.DestinationSequence;
+import org.apache.cxf.ws.rm.SourceSequence;
+
+/**
+ * An RMStore which can persist several messages of a sequence in one operation.
+ * <p>
+ * Implementations may also group the operations of concurrent callers, provided every
+ * method returns only once its changes are durable, so that the sequences and messages
+ * recovered after a crash include everything an RM source or destination was told was
+ * persisted.
+ */
+public interface RMBatchStore extends RMStore {
+
+    /**
+     * Called by an RM source to persist the state of the sequence together with the given
+     * outbound messages.
+     *
+     * @param seq the source sequence
+     * @param msgs the outgoing messages
+     */
+    void persistOutgoingBatch(SourceSequence seq, Collection<RMMessage> msgs);
+
+    /**
+     * Called by an RM destination to persist the state of the sequence together with the
+     * given inbound messages.
+     *
+     * @param seq the destination sequence
+     * @param msgs the incoming messages
+     */
+    void persistIncomingBatch(DestinationSequence seq, Collection<RMMessage> msgs);
+
+    /**
+     * Writes the operations grouped by the store but not yet written, if any.
+     */
+    void flush();
+}
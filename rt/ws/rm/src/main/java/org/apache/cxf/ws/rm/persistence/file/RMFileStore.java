@@ -0,0 +1,711 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm.persistence.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.cxf.common.injection.NoJSR250Annotations;
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.io.CachedOutputStream;
+import org.apache.cxf.ws.rm.DestinationSequence;
+import org.apache.cxf.ws.rm.ProtocolVariation;
+import org.apache.cxf.ws.rm.RMUtils;
+import org.apache.cxf.ws.rm.SourceSequence;
+import org.apache.cxf.ws.rm.persistence.PersistenceUtils;
+import org.apache.cxf.ws.rm.persistence.RMMessage;
+import org.apache.cxf.ws.rm.persistence.RMStore;
+import org.apache.cxf.ws.rm.persistence.RMStoreException;
+import org.apache.cxf.ws.rm.v200702.Identifier;
+
+/**
+ * RMStore keeping the sequences and messages in an append-only log of memory-mapped
+ * segment files in a local directory, without the need for a database.
+ * <p>
+ * Every change is appended as a checksummed record: the full state of a sequence, a
+ * message, or the removal of a sequence or of messages.  The store keeps the offset of
+ * the latest state of every sequence and of every stored message in memory and rebuilds
+ * this index from the log in {@link #init()}, stopping at the first incomplete record of
+ * a segment, so that a store which was killed recovers everything written before.  With
+ * syncOnWrite (the default) each change is forced to disk before the call returns.
+ * <p>
+ * Once the records still in use take less than compactionThreshold of the oldest segment,
+ * they are copied to the end of the log and the segment is deleted.  Since segments are
+ * only dropped from the start of the log, a removal record is never dropped before the
+ * records it removes.
+ */
+@NoJSR250Annotations
+public class RMFileStore implements RMStore {
+
+    public static final String DEFAULT_DIRECTORY = "rmstore";
+
+    private static final Logger LOG = LogUtils.getL7dLogger(RMFileStore.class);
+
+    private static final byte SOURCE_SEQUENCE = 1;
+    private static final byte DESTINATION_SEQUENCE = 2;
+    private static final byte REMOVE_SOURCE_SEQUENCE = 3;
+    private static final byte REMOVE_DESTINATION_SEQUENCE = 4;
+    private static final byte MESSAGE = 5;
+    private static final byte REMOVE_MESSAGES = 6;
+
+    private String directory = DEFAULT_DIRECTORY;
+    private int segmentSize = 16 * 1024 * 1024;
+    private boolean syncOnWrite = true;
+    private double compactionThreshold = 0.5;
+
+    private File dir;
+    private final NavigableMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+    private Segment active;
+    private final Map<String, Location> sourceSequences = new HashMap<String, Location>();
+    private final Map<String, Location> destinationSequences = new HashMap<String, Location>();
+    private final Map<String, SortedMap<Long, Location>> outboundMessages =
+        new HashMap<String, SortedMap<Long, Location>>();
+    private final Map<String, SortedMap<Long, Location>> inboundMessages =
+        new HashMap<String, SortedMap<Long, Location>>();
+
+    // configuration
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Sets the size of the segment files, a segment holding a larger message is as large
+     * as the message.
+     */
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public boolean isSyncOnWrite() {
+        return syncOnWrite;
+    }
+
+    /**
+     * Sets whether every change is forced to disk before the call returns.  Without it the
+     * changes survive the process being killed but not the loss of the operating system.
+     */
+    public void setSyncOnWrite(boolean syncOnWrite) {
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    public double getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    /**
+     * Sets the fraction of the oldest segment below which its records still in use are
+     * copied to the end of the log and the segment is deleted.
+     */
+    public void setCompactionThreshold(double compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    // lifecycle
+
+    public synchronized void init() {
+        if (active != null) {
+            return;
+        }
+        dir = new File(directory);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new RMStoreException(new IOException("Cannot create directory " + dir));
+        }
+        try {
+            File[] files = dir.listFiles();
+            Arrays.sort(files);
+            for (File f : files) {
+                if (Segment.isSegmentFile(f.getName())) {
+                    recover(Segment.open(f));
+                }
+            }
+            if (segments.isEmpty()) {
+                active = Segment.create(dir, 1, segmentSize);
+                segments.put(active.getId(), active);
+            } else {
+                active = segments.lastEntry().getValue();
+            }
+            compact();
+        } catch (IOException ex) {
+            LogUtils.log(LOG, Level.SEVERE, "INITIALIZATION_FAILED_MSG", ex);
+            throw new RMStoreException(ex);
+        }
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Recovered " + sourceSequences.size() + " source and "
+                     + destinationSequences.size() + " destination sequences from "
+                     + segments.size() + " segments in " + dir);
+        }
+    }
+
+    public synchronized void destroy() {
+        for (Segment s : segments.values()) {
+            s.close();
+        }
+        segments.clear();
+        sourceSequences.clear();
+        destinationSequences.clear();
+        outboundMessages.clear();
+        inboundMessages.clear();
+        active = null;
+    }
+
+    // RMStore interface
+
+    public synchronized void createSourceSequence(SourceSequence seq) {
+        SequenceState state = new SequenceState(SOURCE_SEQUENCE, seq.getIdentifier().getValue());
+        state.endpointId = seq.getEndpointIdentifier();
+        state.setProtocol(seq.getProtocol());
+        Date expiry = seq.getExpires();
+        state.expiry = expiry == null ? 0 : expiry.getTime();
+        Identifier osid = seq.getOfferingSequenceIdentifier();
+        state.offeringId = osid == null ? null : osid.getValue();
+        state.messageNr = 1;
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Creating source sequence: " + state.id + ", (endpoint: " + state.endpointId + ")");
+        }
+        write(state.encode());
+    }
+
+    public synchronized void createDestinationSequence(DestinationSequence seq) {
+        SequenceState state = new SequenceState(DESTINATION_SEQUENCE, seq.getIdentifier().getValue());
+        state.endpointId = seq.getEndpointIdentifier();
+        state.setProtocol(seq.getProtocol());
+        state.acksTo = seq.getAcksTo().getAddress().getValue();
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Creating destination sequence: " + state.id + ", (endpoint: "
+                     + state.endpointId + ")");
+        }
+        write(state.encode());
+    }
+
+    public synchronized SourceSequence getSourceSequence(Identifier sid) {
+        Location l = sourceSequences.get(sid.getValue());
+        return l == null ? null : SequenceState.decode(l).toSourceSequence();
+    }
+
+    public synchronized DestinationSequence getDestinationSequence(Identifier sid) {
+        Location l = destinationSequences.get(sid.getValue());
+        return l == null ? null : SequenceState.decode(l).toDestinationSequence();
+    }
+
+    public synchronized void removeSourceSequence(Identifier sid) {
+        if (sourceSequences.containsKey(sid.getValue())) {
+            write(new SequenceState(REMOVE_SOURCE_SEQUENCE, sid.getValue()).encode());
+        }
+    }
+
+    public synchronized void removeDestinationSequence(Identifier sid) {
+        if (destinationSequences.containsKey(sid.getValue())) {
+            write(new SequenceState(REMOVE_DESTINATION_SEQUENCE, sid.getValue()).encode());
+        }
+    }
+
+    public synchronized Collection<SourceSequence> getSourceSequences(String endpointIdentifier) {
+        List<SourceSequence> seqs = new ArrayList<SourceSequence>();
+        for (Location l : sourceSequences.values()) {
+            SequenceState state = SequenceState.decode(l);
+            if (endpointIdentifier.equals(state.endpointId)) {
+                seqs.add(state.toSourceSequence());
+            }
+        }
+        return seqs;
+    }
+
+    public synchronized Collection<DestinationSequence> getDestinationSequences(String endpointIdentifier) {
+        List<DestinationSequence> seqs = new ArrayList<DestinationSequence>();
+        for (Location l : destinationSequences.values()) {
+            SequenceState state = SequenceState.decode(l);
+            if (endpointIdentifier.equals(state.endpointId)) {
+                seqs.add(state.toDestinationSequence());
+            }
+        }
+        return seqs;
+    }
+
+    public synchronized Collection<RMMessage> getMessages(Identifier sid, boolean outbound) {
+        List<RMMessage> msgs = new ArrayList<RMMessage>();
+        SortedMap<Long, Location> index = (outbound ? outboundMessages : inboundMessages).get(sid.getValue());
+        if (index != null) {
+            try {
+                for (Location l : index.values()) {
+                    msgs.add(readMessage(l));
+                }
+            } catch (IOException ex) {
+                throw new RMStoreException(ex);
+            }
+        }
+        return msgs;
+    }
+
+    public synchronized void persistOutgoing(SourceSequence seq, RMMessage msg) {
+        Location l = sourceSequences.get(seq.getIdentifier().getValue());
+        if (l != null) {
+            SequenceState state = SequenceState.decode(l);
+            state.messageNr = seq.getCurrentMessageNr();
+            state.lastMessage = seq.isLastMessage();
+            write(state.encode());
+        }
+        if (msg != null && msg.getContent() != null) {
+            writeMessage(seq.getIdentifier(), msg, true);
+        }
+    }
+
+    public synchronized void persistIncoming(DestinationSequence seq, RMMessage msg) {
+        Location l = destinationSequences.get(seq.getIdentifier().getValue());
+        if (l != null) {
+            SequenceState state = SequenceState.decode(l);
+            state.messageNr = seq.getLastMessageNumber();
+            state.lastMessage = seq.isTerminated();
+            try {
+                state.acknowledgement = IOUtils.readBytesFromStream(PersistenceUtils.getInstance()
+                    .serialiseAcknowledgment(seq.getAcknowledgment()));
+            } catch (IOException ex) {
+                throw new RMStoreException(ex);
+            }
+            write(state.encode());
+        }
+        if (msg != null && msg.getContent() != null) {
+            writeMessage(seq.getIdentifier(), msg, false);
+        }
+    }
+
+    public synchronized void removeMessages(Identifier sid, Collection<Long> messageNrs, boolean outbound) {
+        if (sid == null || messageNrs.isEmpty()) {
+            return;
+        }
+        ByteBuffer header = encodeMessageHeader(REMOVE_MESSAGES, outbound, sid.getValue(), 0);
+        header.flip();
+        ByteBuffer nrs = ByteBuffer.allocate(4 + 8 * messageNrs.size());
+        nrs.putInt(messageNrs.size());
+        for (Long nr : messageNrs) {
+            nrs.putLong(nr);
+        }
+        nrs.flip();
+        write(header, nrs);
+    }
+
+    // log
+
+    /**
+     * @return the number of segment files of the log
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    private void recover(Segment segment) {
+        segments.put(segment.getId(), segment);
+        int offset = 0;
+        int length = segment.checkRecord(offset);
+        while (length > 0) {
+            apply(segment, offset, length);
+            offset += length;
+            length = segment.checkRecord(offset);
+        }
+        if (length < 0) {
+            LogUtils.log(LOG, Level.WARNING, "INCOMPLETE_RECORD_MSG", new Object[] {segment, offset});
+            segment.truncate(offset);
+        } else {
+            segment.setPosition(offset);
+        }
+    }
+
+    private void write(ByteBuffer... body) {
+        int length = Segment.HEADER_LENGTH;
+        for (ByteBuffer b : body) {
+            length += b.remaining();
+        }
+        try {
+            Segment s = reserve(length);
+            int offset = s.append(body);
+            sync(s);
+            apply(s, offset, length);
+            compact();
+        } catch (IOException ex) {
+            throw new RMStoreException(ex);
+        }
+    }
+
+    private void writeMessage(Identifier sid, RMMessage msg, boolean outbound) {
+        CachedOutputStream cos = msg.getContent();
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.log(Level.FINE, "Storing {0} message number {1} for sequence {2}, to = {3}",
+                    new Object[] {outbound ? "outbound" : "inbound", msg.getMessageNumber(),
+                                  sid.getValue(), msg.getTo()});
+        }
+        try {
+            int contentLength = (int)cos.size();
+            byte[] to = encodeString(msg.getTo());
+            byte[] contentType = encodeString(msg.getContentType());
+            ByteBuffer header = encodeMessageHeader(MESSAGE, outbound, sid.getValue(),
+                                                    8 + to.length + 8 + contentType.length);
+            header.putLong(msg.getMessageNumber()).put(to).putLong(msg.getCreatedTime()).put(contentType);
+            header.flip();
+            int length = Segment.HEADER_LENGTH + header.remaining() + contentLength;
+            Segment s = reserve(length);
+            InputStream in = cos.getInputStream();
+            int offset;
+            try {
+                offset = s.append(header, in, contentLength);
+            } finally {
+                in.close();
+            }
+            sync(s);
+            apply(s, offset, length);
+        } catch (IOException ex) {
+            throw new RMStoreException(ex);
+        } finally {
+            try {
+                cos.close(); // needed to clean-up tmp file folder
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+
+    private RMMessage readMessage(Location l) throws IOException {
+        ByteBuffer body = l.segment.getBody(l.offset);
+        body.get();
+        body.get();
+        decodeString(body);
+        RMMessage msg = new RMMessage();
+        msg.setMessageNumber(body.getLong());
+        msg.setTo(decodeString(body));
+        msg.setCreatedTime(body.getLong());
+        msg.setContentType(decodeString(body));
+        CachedOutputStream cos = new CachedOutputStream();
+        byte[] chunk = new byte[Math.min(8192, Math.max(1, body.remaining()))];
+        while (body.hasRemaining()) {
+            int n = Math.min(chunk.length, body.remaining());
+            body.get(chunk, 0, n);
+            cos.write(chunk, 0, n);
+        }
+        cos.flush();
+        msg.setContent(cos);
+        return msg;
+    }
+
+    /**
+     * Updates the index with the record written at the offset.
+     */
+    private void apply(Segment segment, int offset, int length) {
+        ByteBuffer body = segment.getBody(offset);
+        byte type = body.get();
+        Location l = new Location(segment, offset, length);
+        switch (type) {
+        case SOURCE_SEQUENCE:
+            release(sourceSequences.put(decodeString(body), l));
+            segment.addLiveBytes(length);
+            break;
+        case DESTINATION_SEQUENCE:
+            release(destinationSequences.put(decodeString(body), l));
+            segment.addLiveBytes(length);
+            break;
+        case REMOVE_SOURCE_SEQUENCE:
+            release(sourceSequences.remove(decodeString(body)));
+            break;
+        case REMOVE_DESTINATION_SEQUENCE:
+            release(destinationSequences.remove(decodeString(body)));
+            break;
+        case MESSAGE:
+            applyMessage(body, l);
+            break;
+        case REMOVE_MESSAGES:
+            applyRemoveMessages(body);
+            break;
+        default:
+            throw new RMStoreException(new IOException("Unknown record type " + type + " in " + segment
+                                                       + " at offset " + offset));
+        }
+    }
+
+    private void applyMessage(ByteBuffer body, Location l) {
+        Map<String, SortedMap<Long, Location>> messages = body.get() == 1 ? outboundMessages : inboundMessages;
+        String sid = decodeString(body);
+        SortedMap<Long, Location> index = messages.get(sid);
+        if (index == null) {
+            index = new TreeMap<Long, Location>();
+            messages.put(sid, index);
+        }
+        release(index.put(body.getLong(), l));
+        l.segment.addLiveBytes(l.length);
+    }
+
+    private void applyRemoveMessages(ByteBuffer body) {
+        Map<String, SortedMap<Long, Location>> messages = body.get() == 1 ? outboundMessages : inboundMessages;
+        String sid = decodeString(body);
+        SortedMap<Long, Location> index = messages.get(sid);
+        if (index == null) {
+            return;
+        }
+        for (int n = body.getInt(); n > 0; n--) {
+            release(index.remove(body.getLong()));
+        }
+        if (index.isEmpty()) {
+            messages.remove(sid);
+        }
+    }
+
+    private static void release(Location l) {
+        if (l != null) {
+            l.segment.addLiveBytes(-l.length);
+        }
+    }
+
+    /**
+     * @return the segment to append a record of the given length to
+     */
+    private Segment reserve(int length) throws IOException {
+        if (active.getRemaining() < length) {
+            if (syncOnWrite) {
+                active.force();
+            }
+            active = Segment.create(dir, active.getId() + 1, Math.max(segmentSize, length));
+            segments.put(active.getId(), active);
+        }
+        return active;
+    }
+
+    private void sync(Segment s) {
+        if (syncOnWrite) {
+            s.force();
+        }
+    }
+
+    /**
+     * Drops the oldest segments while their records in use are below the threshold, after
+     * copying these records to the end of the log.
+     */
+    private void compact() throws IOException {
+        while (segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (oldest == active || oldest.getLiveBytes() > oldest.getPosition() * compactionThreshold) {
+                return;
+            }
+            List<Location> live = new ArrayList<Location>();
+            collect(sourceSequences.values(), oldest, live);
+            collect(destinationSequences.values(), oldest, live);
+            for (SortedMap<Long, Location> index : outboundMessages.values()) {
+                collect(index.values(), oldest, live);
+            }
+            for (SortedMap<Long, Location> index : inboundMessages.values()) {
+                collect(index.values(), oldest, live);
+            }
+            Segment s = null;
+            for (Location l : live) {
+                s = reserve(l.length);
+                apply(s, s.copy(oldest, l.offset), l.length);
+            }
+            if (s != null) {
+                sync(s);
+            }
+            segments.remove(oldest.getId());
+            if (!oldest.delete()) {
+                LogUtils.log(LOG, Level.WARNING, "DELETE_SEGMENT_FAILED_MSG", oldest);
+            }
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Compacted segment " + oldest + ", copied " + live.size() + " records");
+            }
+        }
+    }
+
+    private static void collect(Collection<Location> locations, Segment segment, List<Location> live) {
+        for (Location l : locations) {
+            if (l.segment == segment) {
+                live.add(l);
+            }
+        }
+    }
+
+    // encoding
+
+    private static ByteBuffer encodeMessageHeader(byte type, boolean outbound, String sid, int extra) {
+        byte[] id = encodeString(sid);
+        ByteBuffer bb = ByteBuffer.allocate(2 + id.length + extra);
+        bb.put(type).put(outbound ? (byte)1 : (byte)0).put(id);
+        return bb;
+    }
+
+    private static byte[] encodeString(String s) {
+        if (s == null) {
+            return new byte[] {-1, -1, -1, -1};
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(4 + b.length).putInt(b.length).put(b).array();
+    }
+
+    private static String decodeString(ByteBuffer bb) {
+        int length = bb.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] b = new byte[length];
+        bb.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static final class Location {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        Location(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The state of a source or destination sequence as written to the log.  For a
+     * destination sequence messageNr is the last message number and lastMessage the
+     * terminated flag.
+     */
+    private static final class SequenceState {
+        private final byte type;
+        private final String id;
+        private String endpointId;
+        private String rmNamespace;
+        private String wsaNamespace;
+        private long expiry;
+        private String offeringId;
+        private String acksTo;
+        private long messageNr;
+        private boolean lastMessage;
+        private byte[] acknowledgement;
+
+        SequenceState(byte type, String id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        void setProtocol(ProtocolVariation pv) {
+            rmNamespace = pv.getCodec().getWSRMNamespace();
+            wsaNamespace = pv.getCodec().getWSANamespace();
+        }
+
+        ProtocolVariation getProtocol() {
+            ProtocolVariation pv = rmNamespace == null
+                ? null : ProtocolVariation.findVariant(rmNamespace, wsaNamespace);
+            return pv == null ? ProtocolVariation.RM10WSA200408 : pv;
+        }
+
+        ByteBuffer encode() {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bos);
+            try {
+                out.writeByte(type);
+                out.write(encodeString(id));
+                if (type == SOURCE_SEQUENCE || type == DESTINATION_SEQUENCE) {
+                    out.write(encodeString(endpointId));
+                    out.write(encodeString(rmNamespace));
+                    out.write(encodeString(wsaNamespace));
+                    out.writeLong(messageNr);
+                    out.writeBoolean(lastMessage);
+                }
+                if (type == SOURCE_SEQUENCE) {
+                    out.writeLong(expiry);
+                    out.write(encodeString(offeringId));
+                } else if (type == DESTINATION_SEQUENCE) {
+                    out.write(encodeString(acksTo));
+                    out.writeInt(acknowledgement == null ? -1 : acknowledgement.length);
+                    if (acknowledgement != null) {
+                        out.write(acknowledgement);
+                    }
+                }
+                out.flush();
+            } catch (IOException ex) {
+                // not thrown by a ByteArrayOutputStream
+                throw new RMStoreException(ex);
+            }
+            return ByteBuffer.wrap(bos.toByteArray());
+        }
+
+        static SequenceState decode(Location l) {
+            ByteBuffer body = l.segment.getBody(l.offset);
+            SequenceState state = new SequenceState(body.get(), decodeString(body));
+            state.endpointId = decodeString(body);
+            state.rmNamespace = decodeString(body);
+            state.wsaNamespace = decodeString(body);
+            state.messageNr = body.getLong();
+            state.lastMessage = body.get() != 0;
+            if (state.type == SOURCE_SEQUENCE) {
+                state.expiry = body.getLong();
+                state.offeringId = decodeString(body);
+            } else {
+                state.acksTo = decodeString(body);
+                int length = body.getInt();
+                if (length >= 0) {
+                    state.acknowledgement = new byte[length];
+                    body.get(state.acknowledgement);
+                }
+            }
+            return state;
+        }
+
+        SourceSequence toSourceSequence() {
+            Identifier sid = RMUtils.getWSRMFactory().createIdentifier();
+            sid.setValue(id);
+            Identifier oi = null;
+            if (offeringId != null) {
+                oi = RMUtils.getWSRMFactory().createIdentifier();
+                oi.setValue(offeringId);
+            }
+            return new SourceSequence(sid, expiry == 0 ? null : new Date(expiry), oi, messageNr,
+                                      lastMessage, getProtocol());
+        }
+
+        DestinationSequence toDestinationSequence() {
+            Identifier sid = RMUtils.getWSRMFactory().createIdentifier();
+            sid.setValue(id);
+            return new DestinationSequence(sid, RMUtils.createReference(acksTo), messageNr, lastMessage,
+                acknowledgement == null ? null : PersistenceUtils.getInstance()
+                    .deserialiseAcknowledgment(new ByteArrayInputStream(acknowledgement)),
+                getProtocol());
+        }
+    }
+}
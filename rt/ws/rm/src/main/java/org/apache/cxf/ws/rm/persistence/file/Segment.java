@@ -0,0 +1,253 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm.persistence.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import org.apache.cxf.helpers.FileUtils;
+
+/**
+ * A file of the log, mapped into memory.  A record is the length of its body, the CRC32
+ * checksum of its body and the body, the unused end of a segment is filled with zeros.
+ */
+final class Segment {
+    static final int HEADER_LENGTH = 8;
+    static final String SUFFIX = ".log";
+
+    private final long id;
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int position;
+    private long liveBytes;
+    private boolean closed;
+
+    private Segment(long id, File file, int size) throws IOException {
+        this.id = id;
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                  size > 0 ? size : channel.size());
+    }
+
+    static Segment create(File dir, long id, int size) throws IOException {
+        return new Segment(id, new File(dir, getFileName(id)), size);
+    }
+
+    static Segment open(File file) throws IOException {
+        String name = file.getName();
+        return new Segment(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file, 0);
+    }
+
+    static String getFileName(long id) {
+        return String.format("%016d", id) + SUFFIX;
+    }
+
+    static boolean isSegmentFile(String name) {
+        return name.endsWith(SUFFIX) && name.length() == 16 + SUFFIX.length()
+            && name.substring(0, 16).matches("\\d+");
+    }
+
+    long getId() {
+        return id;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    void setPosition(int position) {
+        this.position = position;
+    }
+
+    int getCapacity() {
+        return buffer.capacity();
+    }
+
+    int getRemaining() {
+        return buffer.capacity() - position;
+    }
+
+    long getLiveBytes() {
+        return liveBytes;
+    }
+
+    void addLiveBytes(long n) {
+        liveBytes += n;
+    }
+
+    /**
+     * @return a buffer positioned at the start of the body of the record at the offset
+     * and limited to its end
+     */
+    ByteBuffer getBody(int offset) {
+        ByteBuffer bb = buffer.duplicate();
+        int length = bb.getInt(offset);
+        bb.limit(offset + HEADER_LENGTH + length);
+        bb.position(offset + HEADER_LENGTH);
+        return bb;
+    }
+
+    int getRecordLength(int offset) {
+        return HEADER_LENGTH + buffer.getInt(offset);
+    }
+
+    /**
+     * Checks the record at the offset.
+     * @return the length of the record, 0 at the end of the records, -1 for a record which
+     * is incomplete or does not match its checksum
+     */
+    int checkRecord(int offset) {
+        if (offset + HEADER_LENGTH > buffer.capacity()) {
+            return 0;
+        }
+        int length = buffer.getInt(offset);
+        int crc = buffer.getInt(offset + 4);
+        if (length == 0 && crc == 0) {
+            return 0;
+        }
+        if (length < 0 || length > buffer.capacity() - offset - HEADER_LENGTH) {
+            return -1;
+        }
+        return checksum(getBody(offset)) == crc ? HEADER_LENGTH + length : -1;
+    }
+
+    /**
+     * Appends a record, the body is the remaining content of the buffers.
+     * @return the offset of the record
+     */
+    int append(ByteBuffer... body) {
+        int offset = position;
+        ByteBuffer bb = buffer.duplicate();
+        bb.position(offset + HEADER_LENGTH);
+        for (ByteBuffer b : body) {
+            bb.put(b);
+        }
+        return complete(offset, bb.position());
+    }
+
+    /**
+     * Appends a record, the body is the remaining content of the header followed by the
+     * length bytes of the stream.
+     * @return the offset of the record
+     */
+    int append(ByteBuffer header, InputStream in, int length) throws IOException {
+        int offset = position;
+        ByteBuffer bb = buffer.duplicate();
+        bb.position(offset + HEADER_LENGTH);
+        bb.put(header);
+        byte[] chunk = new byte[8192];
+        int left = length;
+        while (left > 0) {
+            int n = in.read(chunk, 0, Math.min(chunk.length, left));
+            if (n == -1) {
+                throw new IOException("Content ended " + left + " bytes short of " + length);
+            }
+            bb.put(chunk, 0, n);
+            left -= n;
+        }
+        return complete(offset, bb.position());
+    }
+
+    private int complete(int offset, int end) {
+        buffer.putInt(offset, end - offset - HEADER_LENGTH);
+        buffer.putInt(offset + 4, checksum(getBody(offset)));
+        position = end;
+        return offset;
+    }
+
+    /**
+     * Copies the record at the offset of another segment.
+     * @return the offset of the copy
+     */
+    int copy(Segment from, int offset) {
+        ByteBuffer src = from.buffer.duplicate();
+        src.limit(offset + from.getRecordLength(offset));
+        src.position(offset);
+        int to = position;
+        ByteBuffer bb = buffer.duplicate();
+        bb.position(to);
+        bb.put(src);
+        position = bb.position();
+        return to;
+    }
+
+    /**
+     * Sets the end of the records, clearing whatever follows.
+     */
+    void truncate(int offset) {
+        position = offset;
+        for (int i = offset; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte)0);
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Closes the file and unmaps the buffer, the segment must not be used afterwards.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            // ignore
+        }
+        FileUtils.unmap(buffer);
+    }
+
+    /**
+     * Deletes the file of a compacted segment.  The first record is cleared before, so
+     * that a file which cannot be deleted, e.g. while the mapping is still held on
+     * Windows, holds no records to replay and is dropped by the next compaction.
+     */
+    boolean delete() {
+        if (!closed && buffer.capacity() >= HEADER_LENGTH) {
+            buffer.putLong(0, 0L);
+            buffer.force();
+        }
+        close();
+        return file.delete();
+    }
+
+    private static int checksum(ByteBuffer body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        return (int)crc.getValue();
+    }
+
+    public String toString() {
+        return file.getName();
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.apache.cxf.ws.rm.persistence.jdbc;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -33,9 +34,11 @@ import java.sql.Statement;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -59,14 +62,25 @@ import org.apache.cxf.ws.rm.ProtocolVariation;
 import org.apache.cxf.ws.rm.RMUtils;
 import org.apache.cxf.ws.rm.SourceSequence;
 import org.apache.cxf.ws.rm.persistence.PersistenceUtils;
+import org.apache.cxf.ws.rm.persistence.RMBatchStore;
 import org.apache.cxf.ws.rm.persistence.RMMessage;
-import org.apache.cxf.ws.rm.persistence.RMStore;
 import org.apache.cxf.ws.rm.persistence.RMStoreException;
 import org.apache.cxf.ws.rm.v200702.Identifier;
 import org.apache.cxf.ws.rm.v200702.SequenceAcknowledgement;
 
+/**
+ * RMStore keeping the sequences and messages in a database.
+ * <p>
+ * With a batchSize greater than 1 the messages persisted, acknowledged and removed by
+ * concurrent callers are written together, with JDBC batches in a single transaction
+ * (group commit).  A caller waits up to flushInterval milliseconds for other operations
+ * to join its batch and returns once the batch has been committed, so everything an RM
+ * source or destination has persisted is still recovered by
+ * RMManager.recoverReliableEndpoint after a crash.  The sequence rows are updated once
+ * per batch.
+ */
 @NoJSR250Annotations
-public class RMTxStore implements RMStore {
+public class RMTxStore implements RMBatchStore {
     
     public static final String DEFAULT_DATABASE_NAME = "rmdb";
     private static final String[][] DEST_SEQUENCES_TABLE_COLS 
@@ -193,6 +207,12 @@ public class RMTxStore implements RMStore {
     
     private String tableExistsState = DERBY_TABLE_EXISTS_STATE;
     private int tableExistsCode = ORACLE_TABLE_EXISTS_CODE;
+
+    private int batchSize = 1;
+    private long flushInterval;
+    private final Object batchLock = new Object();
+    private List<BatchOperation> pendingOperations = new ArrayList<BatchOperation>();
+    private boolean flushing;
     
     public RMTxStore() {
     }
@@ -303,6 +323,31 @@ public class RMTxStore implements RMStore {
         this.maxReconnectAttempts = maxReconnectAttempts;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the maximum number of operations written together, 1 (the default) writes every
+     * operation in its own transaction.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Sets the time in milliseconds an operation waits for others to join its batch before
+     * the batch is written.  With 0 (the default) a batch is written straight away and takes
+     * the operations which arrived while the previous batch was written.
+     */
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
     public void setConnection(Connection c) {
         connection = c;
         createdConnection = false;
@@ -629,6 +674,10 @@ public class RMTxStore implements RMStore {
     }
     
     public void persistIncoming(DestinationSequence seq, RMMessage msg) {        
+        if (isBatching()) {
+            submit(BatchOperation.persist(seq, msg));
+            return;
+        }
         Connection con = verifyConnection();
         SQLException conex = null;
         try {
@@ -654,6 +703,10 @@ public class RMTxStore implements RMStore {
         }
     }
     public void persistOutgoing(SourceSequence seq, RMMessage msg) {
+        if (isBatching()) {
+            submit(BatchOperation.persist(seq, msg));
+            return;
+        }
         Connection con = verifyConnection();
         SQLException conex = null;
         try {
@@ -680,6 +733,10 @@ public class RMTxStore implements RMStore {
     }
     
     public void removeMessages(Identifier sid, Collection<Long> messageNrs, boolean outbound) {
+        if (isBatching()) {
+            submit(BatchOperation.remove(sid, messageNrs, outbound));
+            return;
+        }
         Connection con = verifyConnection();
         PreparedStatement stmt = null;
         SQLException conex = null;
@@ -687,12 +744,12 @@ public class RMTxStore implements RMStore {
             stmt = getStatement(con, outbound ? DELETE_OUTBOUND_MESSAGE_STMT_STR : DELETE_INBOUND_MESSAGE_STMT_STR);
             beginTransaction();
 
-            stmt.setString(1, sid.getValue());
-
             for (Long messageNr : messageNrs) {
+                stmt.setString(1, sid.getValue());
                 stmt.setLong(2, messageNr);
-                stmt.execute();
+                stmt.addBatch();
             }
+            stmt.executeBatch();
             
             commit(con);
             
@@ -701,11 +758,234 @@ public class RMTxStore implements RMStore {
             abort(con);
             throw new RMStoreException(ex);
         } finally {
+            clearBatch(stmt);
             releaseResources(stmt, null);
             updateConnectionState(con, conex);
         }
     }
     
+    // RMBatchStore interface
+
+    public void persistIncomingBatch(DestinationSequence seq, Collection<RMMessage> msgs) {
+        BatchOperation op = new BatchOperation(null, seq, seq.getIdentifier(), msgs, null, false);
+        if (isBatching()) {
+            submit(op);
+        } else {
+            executeBatch(Collections.singletonList(op));
+        }
+    }
+
+    public void persistOutgoingBatch(SourceSequence seq, Collection<RMMessage> msgs) {
+        BatchOperation op = new BatchOperation(seq, null, seq.getIdentifier(), msgs, null, true);
+        if (isBatching()) {
+            submit(op);
+        } else {
+            executeBatch(Collections.singletonList(op));
+        }
+    }
+
+    public void flush() {
+        synchronized (batchLock) {
+            if (pendingOperations.isEmpty()) {
+                return;
+            }
+        }
+        submit(BatchOperation.flush());
+    }
+
+    // batching
+
+    protected boolean isBatching() {
+        return batchSize > 1;
+    }
+
+    /**
+     * Adds the operation to the pending batch and waits until the batch has been written.
+     * The first caller finding the batch full, its wait time elapsed or a flush requested
+     * while no other batch is being written takes the pending operations and writes them.
+     */
+    private void submit(BatchOperation op) {
+        List<BatchOperation> batch = null;
+        boolean interrupted = false;
+        synchronized (batchLock) {
+            pendingOperations.add(op);
+            if (pendingOperations.size() >= batchSize) {
+                batchLock.notifyAll();
+            }
+            long deadline = System.currentTimeMillis() + flushInterval;
+            while (!op.done) {
+                long wait = deadline - System.currentTimeMillis();
+                if (!flushing && (op.flush || wait <= 0
+                    || pendingOperations.size() >= batchSize)) {
+                    flushing = true;
+                    batch = pendingOperations;
+                    pendingOperations = new ArrayList<BatchOperation>();
+                    break;
+                }
+                try {
+                    batchLock.wait(flushing ? 0 : wait);
+                } catch (InterruptedException ex) {
+                    // the operation is pending, it has to be written before returning
+                    interrupted = true;
+                }
+            }
+        }
+        if (batch != null) {
+            Throwable error = null;
+            try {
+                executeBatch(batch);
+            } catch (RMStoreException ex) {
+                error = ex.getCause() == null ? ex : ex.getCause();
+            } catch (RuntimeException ex) {
+                error = ex;
+            } finally {
+                synchronized (batchLock) {
+                    flushing = false;
+                    for (BatchOperation o : batch) {
+                        o.error = error;
+                        o.done = true;
+                    }
+                    batchLock.notifyAll();
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (op.error != null) {
+            throw new RMStoreException(op.error);
+        }
+    }
+
+    /**
+     * Writes the operations in one transaction.  The state of every sequence is written once,
+     * the messages are inserted and deleted with JDBC batches.
+     */
+    private void executeBatch(List<BatchOperation> ops) {
+        Map<String, SourceSequence> srcSeqs = new LinkedHashMap<String, SourceSequence>();
+        Map<String, DestinationSequence> destSeqs = new LinkedHashMap<String, DestinationSequence>();
+        for (BatchOperation op : ops) {
+            if (op.sourceSequence != null) {
+                srcSeqs.put(op.sid.getValue(), op.sourceSequence);
+            } else if (op.destinationSequence != null) {
+                destSeqs.put(op.sid.getValue(), op.destinationSequence);
+            }
+        }
+        if (srcSeqs.isEmpty() && destSeqs.isEmpty() && !hasMessages(ops)) {
+            return;
+        }
+        Connection con = verifyConnection();
+        SQLException conex = null;
+        List<Closeable> resources = new ArrayList<Closeable>();
+        try {
+            beginTransaction();
+
+            for (SourceSequence seq : srcSeqs.values()) {
+                updateSourceSequence(con, seq);
+            }
+            for (DestinationSequence seq : destSeqs.values()) {
+                updateDestinationSequence(con, seq);
+            }
+            storeMessages(con, ops, true, resources);
+            storeMessages(con, ops, false, resources);
+            deleteMessages(con, ops, true);
+            deleteMessages(con, ops, false);
+
+            commit(con);
+        } catch (SQLException ex) {
+            conex = ex;
+            abort(con);
+            throw new RMStoreException(ex);
+        } catch (IOException ex) {
+            abort(con);
+            throw new RMStoreException(ex);
+        } finally {
+            for (Closeable c : resources) {
+                try {
+                    c.close();
+                } catch (IOException ex) {
+                    // ignore
+                }
+            }
+            updateConnectionState(con, conex);
+        }
+    }
+
+    private static boolean hasMessages(List<BatchOperation> ops) {
+        for (BatchOperation op : ops) {
+            if (op.messages != null || op.messageNrs != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void storeMessages(Connection con, List<BatchOperation> ops, boolean outbound,
+                               List<Closeable> resources) throws IOException, SQLException {
+        PreparedStatement stmt = null;
+        try {
+            for (BatchOperation op : ops) {
+                if (op.messages == null || op.outbound != outbound) {
+                    continue;
+                }
+                for (RMMessage msg : op.messages) {
+                    if (msg == null || msg.getContent() == null) {
+                        continue;
+                    }
+                    if (stmt == null) {
+                        stmt = getStatement(con, outbound
+                            ? CREATE_OUTBOUND_MESSAGE_STMT_STR : CREATE_INBOUND_MESSAGE_STMT_STR);
+                    }
+                    CachedOutputStream cos = msg.getContent();
+                    // needed to clean-up tmp file folder once the batch has been executed
+                    resources.add(cos);
+                    InputStream msgin = cos.getInputStream();
+                    resources.add(msgin);
+                    stmt.setString(1, op.sid.getValue());
+                    stmt.setLong(2, msg.getMessageNumber());
+                    stmt.setString(3, msg.getTo());
+                    stmt.setLong(4, msg.getCreatedTime());
+                    stmt.setBinaryStream(5, msgin);
+                    stmt.setString(6, msg.getContentType());
+                    stmt.addBatch();
+                }
+            }
+            if (stmt != null) {
+                stmt.executeBatch();
+            }
+        } finally {
+            clearBatch(stmt);
+            releaseResources(stmt, null);
+        }
+    }
+
+    private void deleteMessages(Connection con, List<BatchOperation> ops, boolean outbound)
+        throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            for (BatchOperation op : ops) {
+                if (op.messageNrs == null || op.outbound != outbound) {
+                    continue;
+                }
+                if (stmt == null) {
+                    stmt = getStatement(con, outbound
+                        ? DELETE_OUTBOUND_MESSAGE_STMT_STR : DELETE_INBOUND_MESSAGE_STMT_STR);
+                }
+                for (Long messageNr : op.messageNrs) {
+                    stmt.setString(1, op.sid.getValue());
+                    stmt.setLong(2, messageNr);
+                    stmt.addBatch();
+                }
+            }
+            if (stmt != null) {
+                stmt.executeBatch();
+            }
+        } finally {
+            clearBatch(stmt);
+            releaseResources(stmt, null);
+        }
+    }
+
     // transaction demarcation
     // 
 
@@ -1023,7 +1303,23 @@ public class RMTxStore implements RMStore {
         }
     }
 
-    
+
+    /**
+     * Clears the batch of the statement, so that a cached statement does not keep the
+     * entries of a batch that failed before it was executed.
+     *
+     * @param stmt
+     */
+    private static void clearBatch(PreparedStatement stmt) {
+        if (stmt != null) {
+            try {
+                stmt.clearBatch();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+
     protected void cacheStatement(Connection con, String sql) throws SQLException {
         PreparedStatement stmt = con.prepareStatement(sql);
         cachedStatements.put(sql, stmt);
@@ -1270,4 +1566,51 @@ public class RMTxStore implements RMStore {
         // check for a transient or non-transient connection exception
         return ex.getSQLState() != null && ex.getSQLState().startsWith("08");
     }
+
+    /**
+     * A write pending in the current batch: the state of a sequence with its new messages,
+     * or the removal of messages.
+     */
+    private static final class BatchOperation {
+        private final SourceSequence sourceSequence;
+        private final DestinationSequence destinationSequence;
+        private final Identifier sid;
+        private final Collection<RMMessage> messages;
+        private final Collection<Long> messageNrs;
+        private final boolean outbound;
+        private boolean flush;
+        private boolean done;
+        private Throwable error;
+
+        BatchOperation(SourceSequence sourceSequence, DestinationSequence destinationSequence,
+                       Identifier sid, Collection<RMMessage> messages, Collection<Long> messageNrs,
+                       boolean outbound) {
+            this.sourceSequence = sourceSequence;
+            this.destinationSequence = destinationSequence;
+            this.sid = sid;
+            this.messages = messages;
+            this.messageNrs = messageNrs;
+            this.outbound = outbound;
+        }
+
+        static BatchOperation persist(SourceSequence seq, RMMessage msg) {
+            return new BatchOperation(seq, null, seq.getIdentifier(),
+                                      msg == null ? null : Collections.singletonList(msg), null, true);
+        }
+
+        static BatchOperation persist(DestinationSequence seq, RMMessage msg) {
+            return new BatchOperation(null, seq, seq.getIdentifier(),
+                                      msg == null ? null : Collections.singletonList(msg), null, false);
+        }
+
+        static BatchOperation flush() {
+            BatchOperation op = new BatchOperation(null, null, null, null, null, false);
+            op.flush = true;
+            return op;
+        }
+
+        static BatchOperation remove(Identifier sid, Collection<Long> messageNrs, boolean outbound) {
+            return new BatchOperation(null, null, sid, null, messageNrs, outbound);
+        }
+    }
 }
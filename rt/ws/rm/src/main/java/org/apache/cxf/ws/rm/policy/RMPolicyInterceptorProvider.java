@@ -33,6 +33,7 @@ import org.apache.cxf.ws.rm.RMDeliveryInterceptor;
 import org.apache.cxf.ws.rm.RMInInterceptor;
 import org.apache.cxf.ws.rm.RMManager;
 import org.apache.cxf.ws.rm.RMOutInterceptor;
+import org.apache.cxf.ws.rm.soap.RMHeaderProcessor;
 import org.apache.cxf.ws.rm.soap.RMSoapInInterceptor;
 import org.apache.cxf.ws.rm.soap.RMSoapOutInterceptor;
 
@@ -83,5 +84,7 @@ public class RMPolicyInterceptorProvider extends AbstractPolicyInterceptorProvid
         getOutFaultInterceptors().add(rmOut);
         getOutFaultInterceptors().add(rmCaptureOut);
         getOutFaultInterceptors().add(rmOutSoap);
+
+        RMHeaderProcessor.register(bus);
     }
 }
@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm.soap;
+
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.databinding.DataBinding;
+import org.apache.cxf.headers.HeaderManager;
+import org.apache.cxf.headers.StreamingHeaderProcessor;
+import org.apache.cxf.interceptor.InterceptorProvider;
+import org.apache.cxf.jaxb.JAXBDataBinding;
+import org.apache.cxf.ws.rm.EncoderDecoder;
+import org.apache.cxf.ws.rm.EncoderDecoder10Impl;
+import org.apache.cxf.ws.rm.EncoderDecoder11Impl;
+import org.apache.cxf.ws.rm.RM10Constants;
+import org.apache.cxf.ws.rm.RM11Constants;
+import org.apache.cxf.ws.rm.VersionTransformer;
+import org.apache.cxf.ws.rm.v200702.AckRequestedType;
+import org.apache.cxf.ws.rm.v200702.CloseSequenceType;
+import org.apache.cxf.ws.rm.v200702.SequenceAcknowledgement;
+import org.apache.cxf.ws.rm.v200702.SequenceType;
+
+/**
+ * Reads the WS-RM headers of a version straight from the stream when the SOAP binding reads
+ * the headers in its streaming mode, so that RMSoapInInterceptor gets the JAXB objects of the
+ * headers instead of a DOM Element per header.
+ * <p>
+ * The WS-RM 1.0 headers are the same with either WS-Addressing version, so they are read with
+ * the JAXBContext of the 2004/08 variant and converted to the internal form the same way.
+ */
+public class RMHeaderProcessor implements StreamingHeaderProcessor {
+    private static final Logger LOG = LogUtils.getL7dLogger(RMHeaderProcessor.class);
+
+    private final String namespace;
+    private final EncoderDecoder codec;
+    private final Set<QName> headers;
+    private volatile JAXBDataBinding dataBinding;
+
+    public RMHeaderProcessor(String namespace, EncoderDecoder codec, Set<QName> headers) {
+        this.namespace = namespace;
+        this.codec = codec;
+        this.headers = headers;
+    }
+
+    /**
+     * Registers a processor for each WS-RM version with the HeaderManager of the bus, unless
+     * another processor is registered for its namespace already.
+     */
+    public static void register(Bus bus) {
+        HeaderManager manager = bus == null ? null : bus.getExtension(HeaderManager.class);
+        if (manager == null) {
+            return;
+        }
+        if (manager.getHeaderProcessor(RM10Constants.NAMESPACE_URI) == null) {
+            manager.registerHeaderProcessor(new RMHeaderProcessor(RM10Constants.NAMESPACE_URI,
+                EncoderDecoder10Impl.INSTANCE, RM10Constants.HEADERS));
+        }
+        if (manager.getHeaderProcessor(RM11Constants.NAMESPACE_URI) == null) {
+            manager.registerHeaderProcessor(new RMHeaderProcessor(RM11Constants.NAMESPACE_URI,
+                EncoderDecoder11Impl.INSTANCE, RM11Constants.HEADERS));
+        }
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * @return the DataBinding of the JAXBContext of the version, which is created on the first
+     * call, or null if the JAXBContext cannot be created
+     */
+    public DataBinding getDataBinding() {
+        JAXBDataBinding db = dataBinding;
+        if (db == null) {
+            try {
+                db = new JAXBDataBinding(codec.getContext());
+                db.setUnwrapJAXBElement(false);
+                dataBinding = db;
+            } catch (JAXBException ex) {
+                LOG.log(Level.WARNING, "SOAP_HEADER_DECODE_FAILURE_MSG", ex);
+            }
+        }
+        return db;
+    }
+
+    public InterceptorProvider getInterceptorProvider() {
+        return null;
+    }
+
+    public boolean canRead(QName name) {
+        return headers.contains(name);
+    }
+
+    /**
+     * @param header the Sequence header read by a processor
+     * @return the sequence in the internal form
+     */
+    public static SequenceType getSequence(Object header) {
+        Object value = getValue(header);
+        if (value instanceof org.apache.cxf.ws.rm.v200502.SequenceType) {
+            return VersionTransformer.convert((org.apache.cxf.ws.rm.v200502.SequenceType)value);
+        }
+        return (SequenceType)value;
+    }
+
+    /**
+     * @param header the Sequence header read by a processor
+     * @return the CloseSequenceType if the WS-RM 1.0 Sequence is in the last message state,
+     * else <code>null</code>
+     */
+    public static CloseSequenceType getCloseSequence(Object header) {
+        Object value = getValue(header);
+        if (value instanceof org.apache.cxf.ws.rm.v200502.SequenceType) {
+            org.apache.cxf.ws.rm.v200502.SequenceType seq = (org.apache.cxf.ws.rm.v200502.SequenceType)value;
+            if (seq.isSetLastMessage()) {
+                CloseSequenceType close = new CloseSequenceType();
+                close.setIdentifier(VersionTransformer.convert(seq.getIdentifier()));
+                close.setLastMsgNumber(seq.getMessageNumber());
+                return close;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param header the SequenceAcknowledgement header read by a processor
+     * @return the acknowledgement in the internal form
+     */
+    public static SequenceAcknowledgement getSequenceAcknowledgement(Object header) {
+        Object value = getValue(header);
+        if (value instanceof org.apache.cxf.ws.rm.v200502.SequenceAcknowledgement) {
+            return VersionTransformer.convert((org.apache.cxf.ws.rm.v200502.SequenceAcknowledgement)value);
+        }
+        return (SequenceAcknowledgement)value;
+    }
+
+    /**
+     * @param header the AckRequested header read by a processor
+     * @return the request in the internal form
+     */
+    public static AckRequestedType getAckRequested(Object header) {
+        Object value = getValue(header);
+        if (value instanceof org.apache.cxf.ws.rm.v200502.AckRequestedType) {
+            return VersionTransformer.convert((org.apache.cxf.ws.rm.v200502.AckRequestedType)value);
+        }
+        return (AckRequestedType)value;
+    }
+
+    private static Object getValue(Object header) {
+        return header instanceof JAXBElement ? ((JAXBElement<?>)header).getValue() : header;
+    }
+}
@@ -159,46 +159,64 @@ public class RMSoapInInterceptor extends AbstractSoapInterceptor {
             EncoderDecoder codec = null;
             Iterator<Header> iter = headers.iterator();
             while (iter.hasNext()) {
-                Object node = iter.next().getObject();
+                Header header = iter.next();
+                Object node = header.getObject();
+                Element elem = null;
+                String ns;
+                String localName;
                 if (node instanceof Element) {
-                    Element elem = (Element) node;
+                    elem = (Element) node;
                     if (Node.ELEMENT_NODE != elem.getNodeType()) {
                         continue;
                     }
-                    String ns = elem.getNamespaceURI();
-                    if (rmUri == null && (RM10Constants.NAMESPACE_URI.equals(ns)
-                        || RM11Constants.NAMESPACE_URI.equals(ns))) {
-                        LOG.log(Level.FINE, "set RM namespace {0}", ns);
-                        rmUri = ns;
-                        rmps.exposeAs(rmUri);
-                    }
-                    if (rmUri != null && rmUri.equals(ns)) {
-                        if (codec == null) {
-                            String wsauri = null;
-                            AddressingProperties maps = ContextUtils.retrieveMAPs(message, false, false, false);
-                            if (maps == null) {
-                                RMConfiguration config = getManager(message).getEffectiveConfiguration(message);
-                                wsauri = config.getAddressingNamespace();
-                            } else {
-                                wsauri = maps.getNamespaceURI();
-                            }
-                            ProtocolVariation protocol = ProtocolVariation.findVariant(rmUri, wsauri);
-                            if (protocol == null) {
-                                LOG.log(Level.WARNING, "NAMESPACE_ERROR_MSG", wsauri); 
-                                break;
-                            }
-                            codec = protocol.getCodec();
+                    ns = elem.getNamespaceURI();
+                    localName = elem.getLocalName();
+                } else if (header.getDataBinding() != null
+                    && header.getDirection() == Header.Direction.DIRECTION_IN) {
+                    // read from the stream by a RMHeaderProcessor
+                    ns = header.getName().getNamespaceURI();
+                    localName = header.getName().getLocalPart();
+                } else {
+                    continue;
+                }
+                if (rmUri == null && (RM10Constants.NAMESPACE_URI.equals(ns)
+                    || RM11Constants.NAMESPACE_URI.equals(ns))) {
+                    LOG.log(Level.FINE, "set RM namespace {0}", ns);
+                    rmUri = ns;
+                    rmps.exposeAs(rmUri);
+                }
+                if (rmUri != null && rmUri.equals(ns)) {
+                    if (codec == null) {
+                        String wsauri = null;
+                        AddressingProperties maps = ContextUtils.retrieveMAPs(message, false, false, false);
+                        if (maps == null) {
+                            RMConfiguration config = getManager(message).getEffectiveConfiguration(message);
+                            wsauri = config.getAddressingNamespace();
+                        } else {
+                            wsauri = maps.getNamespaceURI();
                         }
-                        String localName = elem.getLocalName();
-                        LOG.log(Level.FINE, "decoding RM header {0}", localName);
-                        if (RMConstants.SEQUENCE_NAME.equals(localName)) {
+                        ProtocolVariation protocol = ProtocolVariation.findVariant(rmUri, wsauri);
+                        if (protocol == null) {
+                            LOG.log(Level.WARNING, "NAMESPACE_ERROR_MSG", wsauri); 
+                            break;
+                        }
+                        codec = protocol.getCodec();
+                    }
+                    LOG.log(Level.FINE, "decoding RM header {0}", localName);
+                    if (RMConstants.SEQUENCE_NAME.equals(localName)) {
+                        if (elem != null) {
                             rmps.setSequence(codec.decodeSequenceType(elem));
                             rmps.setCloseSequence(codec.decodeSequenceTypeCloseSequence(elem));
-                        } else if (RMConstants.SEQUENCE_ACK_NAME.equals(localName)) {
-                            acks.add(codec.decodeSequenceAcknowledgement(elem));
-                        } else if (RMConstants.ACK_REQUESTED_NAME.equals(localName)) {
-                            requested.add(codec.decodeAckRequestedType(elem));
+                        } else {
+                            rmps.setSequence(RMHeaderProcessor.getSequence(node));
+                            rmps.setCloseSequence(RMHeaderProcessor.getCloseSequence(node));
                         }
+                    } else if (RMConstants.SEQUENCE_ACK_NAME.equals(localName)) {
+                        acks.add(elem != null ? codec.decodeSequenceAcknowledgement(elem)
+                            : RMHeaderProcessor.getSequenceAcknowledgement(node));
+                    } else if (RMConstants.ACK_REQUESTED_NAME.equals(localName)) {
+                        requested.add(elem != null ? codec.decodeAckRequestedType(elem)
+                            : RMHeaderProcessor.getAckRequested(node));
                     }
                 }
             }
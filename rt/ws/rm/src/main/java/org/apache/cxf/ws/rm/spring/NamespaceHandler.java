@@ -25,5 +25,6 @@ public class NamespaceHandler extends NamespaceHandlerSupport {
         registerBeanDefinitionParser("rmManager", new RMManagerBeanDefinitionParser());
         registerBeanDefinitionParser("reliableMessaging", new RMFeatureBeanDefinitionParser());
         registerBeanDefinitionParser("jdbcStore", new RMTxStoreBeanDefinitionParser()); 
+        registerBeanDefinitionParser("fileStore", new RMFileStoreBeanDefinitionParser());
     }
 }
@@ -0,0 +1,360 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm.persistence.file;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.helpers.FileUtils;
+import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.io.CachedOutputStream;
+import org.apache.cxf.ws.rm.DestinationSequence;
+import org.apache.cxf.ws.rm.ProtocolVariation;
+import org.apache.cxf.ws.rm.RMUtils;
+import org.apache.cxf.ws.rm.SourceSequence;
+import org.apache.cxf.ws.rm.persistence.RMMessage;
+import org.apache.cxf.ws.rm.v200702.Identifier;
+import org.apache.cxf.ws.rm.v200702.SequenceAcknowledgement;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RMFileStoreTest extends Assert {
+    private static final String ENDPOINT_ID =
+        "celtix.{http://celtix.objectweb.org/greeter_control}GreeterService/GreeterPort";
+    private static final String ACKS_TO = "http://localhost:9999/decoupled_endpoint";
+    private static final String READY = "READY";
+
+    private File dir;
+    private RMFileStore store;
+
+    @Before
+    public void setUp() {
+        dir = FileUtils.createTmpDir();
+        store = createStore(dir, 64 * 1024);
+    }
+
+    @After
+    public void tearDown() {
+        store.destroy();
+        FileUtils.removeDir(dir);
+    }
+
+    @Test
+    public void testSequencesAndMessages() throws Exception {
+        Identifier sid = createIdentifier("source");
+        Identifier offering = createIdentifier("offering");
+        Date expiry = new Date(System.currentTimeMillis() + 60000);
+        store.createSourceSequence(new EndpointSourceSequence(sid, expiry, offering, 0, false,
+                                                              ProtocolVariation.RM11WSA200508));
+        Identifier did = createIdentifier("destination");
+        store.createDestinationSequence(new EndpointDestinationSequence(did, 0, false, null));
+
+        store.persistOutgoing(new EndpointSourceSequence(sid, expiry, offering, 2, true,
+                                                         ProtocolVariation.RM11WSA200508),
+                              createMessage(2, ACKS_TO));
+        store.persistIncoming(new EndpointDestinationSequence(did, 5, true, createAck(1, 5)),
+                              createMessage(5, null));
+        store.persistIncoming(new EndpointDestinationSequence(did, 5, true, createAck(1, 5)),
+                              createMessage(1, null));
+
+        for (int i = 0; i < 2; i++) {
+            SourceSequence ss = store.getSourceSequence(sid);
+            assertEquals(2, ss.getCurrentMessageNr());
+            assertTrue(ss.isLastMessage());
+            assertEquals(expiry, ss.getExpires());
+            assertEquals("offering", ss.getOfferingSequenceIdentifier().getValue());
+            assertEquals(ProtocolVariation.RM11WSA200508, ss.getProtocol());
+            assertEquals(1, store.getSourceSequences(ENDPOINT_ID).size());
+            assertEquals(0, store.getSourceSequences("other").size());
+
+            DestinationSequence ds = store.getDestinationSequences(ENDPOINT_ID).iterator().next();
+            assertEquals("destination", ds.getIdentifier().getValue());
+            assertEquals(ACKS_TO, ds.getAcksTo().getAddress().getValue());
+            assertEquals(5, ds.getLastMessageNumber());
+            assertTrue(ds.isAcknowledged(3));
+            assertFalse(ds.isAcknowledged(6));
+            assertEquals(ProtocolVariation.RM10WSA200408, ds.getProtocol());
+
+            checkMessages(store.getMessages(sid, true), 2);
+            checkMessages(store.getMessages(did, false), 1, 5);
+            assertEquals(0, store.getMessages(sid, false).size());
+
+            // the same after a restart
+            store.destroy();
+            store = createStore(dir, 64 * 1024);
+        }
+
+        store.removeMessages(did, Collections.singleton(1L), false);
+        checkMessages(store.getMessages(did, false), 5);
+        store.removeSourceSequence(sid);
+        store.removeDestinationSequence(did);
+        assertNull(store.getSourceSequence(sid));
+        assertNull(store.getDestinationSequence(did));
+
+        store.destroy();
+        store = createStore(dir, 64 * 1024);
+        assertNull(store.getSourceSequence(sid));
+        assertNull(store.getDestinationSequence(did));
+        checkMessages(store.getMessages(did, false), 5);
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        store.destroy();
+        FileUtils.removeDir(dir);
+        store = createStore(dir, 4096);
+        Identifier sid = createIdentifier("source");
+        store.createSourceSequence(new EndpointSourceSequence(sid, null, null, 0, false,
+                                                              ProtocolVariation.RM10WSA200408));
+        for (long nr = 1; nr <= 200; nr++) {
+            store.persistOutgoing(new EndpointSourceSequence(sid, null, null, nr, false,
+                                                             ProtocolVariation.RM10WSA200408),
+                                  createMessage(nr, ACKS_TO));
+        }
+        int segments = store.getSegmentCount();
+        assertTrue("segments " + segments, segments > 5);
+
+        List<Long> acknowledged = new ArrayList<Long>();
+        for (long nr = 1; nr <= 200; nr++) {
+            if (nr != 7 && nr != 150) {
+                acknowledged.add(nr);
+            }
+            if (acknowledged.size() == 10) {
+                store.removeMessages(sid, acknowledged, true);
+                acknowledged.clear();
+            }
+        }
+        store.removeMessages(sid, acknowledged, true);
+        assertTrue(store.getSegmentCount() < 3);
+        assertEquals(store.getSegmentCount(), dir.list().length);
+        checkMessages(store.getMessages(sid, true), 7, 150);
+
+        store.destroy();
+        store = createStore(dir, 4096);
+        checkMessages(store.getMessages(sid, true), 7, 150);
+        assertEquals(200, store.getSourceSequence(sid).getCurrentMessageNr());
+    }
+
+    @Test
+    public void testDeletedSegmentNotReplayed() throws Exception {
+        Segment segment = Segment.create(dir, 100, 4096);
+        segment.append(ByteBuffer.wrap("record".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Segment.HEADER_LENGTH + 6, segment.checkRecord(0));
+
+        // keeps the content of the file, as if it could not be deleted
+        File file = new File(dir, Segment.getFileName(100));
+        File left = new File(dir, Segment.getFileName(101));
+        Files.createLink(left.toPath(), file.toPath());
+        assertTrue(segment.delete());
+        assertFalse(file.exists());
+
+        Segment reopened = Segment.open(left);
+        try {
+            assertEquals(0, reopened.checkRecord(0));
+        } finally {
+            reopened.delete();
+        }
+    }
+
+    @Test
+    public void testIncompleteRecordDiscarded() throws Exception {
+        Identifier sid = createIdentifier("source");
+        store.createSourceSequence(new EndpointSourceSequence(sid, null, null, 0, false,
+                                                              ProtocolVariation.RM10WSA200408));
+        store.persistOutgoing(new EndpointSourceSequence(sid, null, null, 1, false,
+                                                         ProtocolVariation.RM10WSA200408),
+                              createMessage(1, null));
+        store.persistOutgoing(new EndpointSourceSequence(sid, null, null, 2, false,
+                                                         ProtocolVariation.RM10WSA200408),
+                              createMessage(2, null));
+        store.destroy();
+
+        // damage the last byte of the last record, as if the process died while writing it
+        File segment = dir.listFiles()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            long pos = raf.length() - 1;
+            raf.seek(pos);
+            while (raf.read() == 0) {
+                raf.seek(--pos);
+            }
+            raf.seek(pos);
+            raf.write('x');
+        }
+
+        store = createStore(dir, 64 * 1024);
+        checkMessages(store.getMessages(sid, true), 1);
+        store.persistOutgoing(new EndpointSourceSequence(sid, null, null, 3, false,
+                                                         ProtocolVariation.RM10WSA200408),
+                              createMessage(3, null));
+        store.destroy();
+        store = createStore(dir, 64 * 1024);
+        checkMessages(store.getMessages(sid, true), 1, 3);
+    }
+
+    @Test
+    public void testRecoveryAfterKill() throws Exception {
+        store.destroy();
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process p = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                       RMFileStoreTest.class.getName(), dir.getAbsolutePath())
+            .redirectErrorStream(true).start();
+        try {
+            BufferedReader reader =
+                new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8));
+            String line = reader.readLine();
+            while (line != null && !READY.equals(line)) {
+                line = reader.readLine();
+            }
+            assertEquals(READY, line);
+            // let the writer go on for a while before killing it
+            Thread.sleep(200);
+        } finally {
+            p.destroyForcibly();
+            p.waitFor(10, TimeUnit.SECONDS);
+        }
+
+        store = createStore(dir, 64 * 1024);
+        Identifier sid = createIdentifier("killed");
+        SourceSequence seq = store.getSourceSequence(sid);
+        assertNotNull(seq);
+        Collection<RMMessage> msgs = store.getMessages(sid, true);
+        // 11 to 50 were written before READY, the writer may have stored more
+        assertTrue(msgs.size() >= 40);
+        long expected = 11;
+        for (RMMessage msg : msgs) {
+            assertEquals(expected, msg.getMessageNumber());
+            assertEquals("Message " + expected, IOUtils.toString(msg.getContent().getInputStream()));
+            expected++;
+        }
+        assertTrue(seq.getCurrentMessageNr() >= expected - 1);
+    }
+
+    /**
+     * Writes to the store in the directory until the process is killed.
+     */
+    public static void main(String[] args) throws Exception {
+        RMFileStore store = createStore(new File(args[0]), 4096);
+        Identifier sid = createIdentifier("killed");
+        store.createSourceSequence(new EndpointSourceSequence(sid, null, null, 0, false,
+                                                              ProtocolVariation.RM10WSA200408));
+        for (long nr = 1;; nr++) {
+            store.persistOutgoing(new EndpointSourceSequence(sid, null, null, nr, false,
+                                                             ProtocolVariation.RM10WSA200408),
+                                  createMessage(nr, null));
+            if (nr == 10) {
+                List<Long> nrs = new ArrayList<Long>();
+                for (long i = 1; i <= 10; i++) {
+                    nrs.add(i);
+                }
+                store.removeMessages(sid, nrs, true);
+            } else if (nr == 50) {
+                System.out.println(READY);
+                System.out.flush();
+            }
+        }
+    }
+
+    private static RMFileStore createStore(File dir, int segmentSize) {
+        RMFileStore s = new RMFileStore();
+        s.setDirectory(dir.getAbsolutePath());
+        s.setSegmentSize(segmentSize);
+        s.init();
+        return s;
+    }
+
+    private static Identifier createIdentifier(String value) {
+        Identifier id = RMUtils.getWSRMFactory().createIdentifier();
+        id.setValue(value);
+        return id;
+    }
+
+    private static RMMessage createMessage(long nr, String to) throws IOException {
+        RMMessage msg = new RMMessage();
+        msg.setMessageNumber(nr);
+        msg.setTo(to);
+        msg.setCreatedTime(nr * 1000);
+        msg.setContentType("text/xml");
+        CachedOutputStream cos = new CachedOutputStream();
+        cos.write(("Message " + nr).getBytes(StandardCharsets.UTF_8));
+        cos.flush();
+        msg.setContent(cos);
+        return msg;
+    }
+
+    private static SequenceAcknowledgement createAck(long lower, long upper) {
+        SequenceAcknowledgement ack = new SequenceAcknowledgement();
+        SequenceAcknowledgement.AcknowledgementRange range =
+            new SequenceAcknowledgement.AcknowledgementRange();
+        range.setLower(lower);
+        range.setUpper(upper);
+        ack.getAcknowledgementRange().add(range);
+        return ack;
+    }
+
+    private static void checkMessages(Collection<RMMessage> msgs, long... nrs) throws IOException {
+        assertEquals(nrs.length, msgs.size());
+        int i = 0;
+        for (RMMessage msg : msgs) {
+            assertEquals(nrs[i], msg.getMessageNumber());
+            assertEquals(nrs[i] * 1000, msg.getCreatedTime());
+            assertEquals("text/xml", msg.getContentType());
+            assertEquals("Message " + nrs[i], IOUtils.toString(msg.getContent().getInputStream()));
+            i++;
+        }
+    }
+
+    private static class EndpointSourceSequence extends SourceSequence {
+        EndpointSourceSequence(Identifier i, Date e, Identifier oi, long cmn, boolean lm,
+                               ProtocolVariation pv) {
+            super(i, e, oi, cmn, lm, pv);
+        }
+
+        @Override
+        public String getEndpointIdentifier() {
+            return ENDPOINT_ID;
+        }
+    }
+
+    private static class EndpointDestinationSequence extends DestinationSequence {
+        EndpointDestinationSequence(Identifier i, long lmn, boolean t, SequenceAcknowledgement ack) {
+            super(i, RMUtils.createReference(ACKS_TO), lmn, t, ack, ProtocolVariation.RM10WSA200408);
+        }
+
+        @Override
+        public String getEndpointIdentifier() {
+            return ENDPOINT_ID;
+        }
+    }
+}
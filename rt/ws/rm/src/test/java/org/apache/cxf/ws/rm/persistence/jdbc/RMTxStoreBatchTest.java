@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm.persistence.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.cxf.io.CachedOutputStream;
+import org.apache.cxf.ws.rm.ProtocolVariation;
+import org.apache.cxf.ws.rm.SourceSequence;
+import org.apache.cxf.ws.rm.persistence.RMMessage;
+import org.apache.cxf.ws.rm.v200702.Identifier;
+import org.easymock.EasyMock;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs the store tests with the operations of concurrent callers written together.
+ */
+public class RMTxStoreBatchTest extends RMTxStoreTestBase {
+    private static final int THREADS = 16;
+
+    @BeforeClass
+    public static void setUpOnce() {
+        RMTxStoreTestBase.setUpOnce();
+
+        RMTxStore.deleteDatabaseFiles("rmdbbatch", true);
+
+        store = new RMTxStore();
+        store.setUrl("jdbc:derby:rmdbbatch;create=true");
+        store.setBatchSize(8);
+        store.setFlushInterval(20);
+        store.init();
+    }
+
+    @AfterClass
+    public static void tearDownOnce() {
+        RMTxStore.deleteDatabaseFiles("rmdbbatch", false);
+    }
+
+    @Test
+    public void testConcurrentPersistAndRemove() throws Exception {
+        final Identifier sid = new Identifier();
+        sid.setValue("batchSequence");
+        SourceSequence seq = control.createMock(SourceSequence.class);
+        EasyMock.expect(seq.getIdentifier()).andReturn(sid);
+        EasyMock.expect(seq.getEndpointIdentifier()).andReturn(CLIENT_ENDPOINT_ID);
+        EasyMock.expect(seq.getProtocol()).andReturn(ProtocolVariation.RM10WSA200408);
+        control.replay();
+        store.createSourceSequence(seq);
+        control.verify();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>();
+            for (int i = 1; i <= THREADS; i++) {
+                final long nr = i;
+                futures.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        store.persistOutgoing(new SourceSequence(sid, null, null, nr, false,
+                                                                 ProtocolVariation.RM10WSA200408),
+                                              createMessage(nr));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> f : futures) {
+                f.get();
+            }
+            assertEquals(THREADS, store.getMessages(sid, true).size());
+            assertNotNull(store.getSourceSequence(sid));
+
+            futures.clear();
+            for (int i = 1; i <= THREADS; i++) {
+                final long nr = i;
+                futures.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        store.removeMessages(sid, Collections.singleton(nr), true);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> f : futures) {
+                f.get();
+            }
+            assertEquals(0, store.getMessages(sid, true).size());
+        } finally {
+            executor.shutdownNow();
+            store.removeSourceSequence(sid);
+        }
+    }
+
+    @Test
+    public void testPersistMessages() throws Exception {
+        Identifier sid = new Identifier();
+        sid.setValue("batchSequence2");
+        SourceSequence seq = control.createMock(SourceSequence.class);
+        EasyMock.expect(seq.getIdentifier()).andReturn(sid);
+        EasyMock.expect(seq.getEndpointIdentifier()).andReturn(CLIENT_ENDPOINT_ID);
+        EasyMock.expect(seq.getProtocol()).andReturn(ProtocolVariation.RM10WSA200408);
+        control.replay();
+        store.createSourceSequence(seq);
+        control.verify();
+
+        try {
+            Collection<RMMessage> msgs = new ArrayList<RMMessage>();
+            for (long nr = 1; nr <= 3; nr++) {
+                msgs.add(createMessage(nr));
+            }
+            store.persistOutgoingBatch(new SourceSequence(sid, null, null, 3, true,
+                                                     ProtocolVariation.RM10WSA200408), msgs);
+            store.flush();
+
+            assertEquals(3, store.getMessages(sid, true).size());
+            SourceSequence rseq = store.getSourceSequence(sid);
+            assertEquals(3, rseq.getCurrentMessageNr());
+            assertTrue(rseq.isLastMessage());
+        } finally {
+            store.removeMessages(sid, Arrays.asList(1L, 2L, 3L), true);
+            store.removeSourceSequence(sid);
+        }
+    }
+
+    private static RMMessage createMessage(long nr) throws IOException {
+        RMMessage msg = new RMMessage();
+        msg.setMessageNumber(nr);
+        msg.setCreatedTime(System.currentTimeMillis());
+        msg.setContentType("text/xml");
+        CachedOutputStream cos = new CachedOutputStream();
+        cos.write(("Message " + nr).getBytes());
+        cos.flush();
+        msg.setContent(cos);
+        return msg;
+    }
+
+    @Override
+    protected Connection getConnection() {
+        return store.verifyConnection();
+    }
+
+    @Override
+    protected void releaseConnection(Connection con) {
+        // the connection is held in the store, so not close it until the store is disposed.
+    }
+}
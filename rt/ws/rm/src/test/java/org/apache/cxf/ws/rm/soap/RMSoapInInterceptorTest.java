@@ -28,10 +28,14 @@ import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
+import org.w3c.dom.Element;
+
+import org.apache.cxf.Bus;
 import org.apache.cxf.BusFactory;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.interceptor.ReadHeadersInterceptor;
 import org.apache.cxf.binding.soap.interceptor.StartBodyInterceptor;
+import org.apache.cxf.headers.Header;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageImpl;
 import org.apache.cxf.ws.addressing.AddressingProperties;
@@ -152,7 +156,44 @@ public class RMSoapInInterceptorTest extends Assert {
         assertNull(rmps.getAcks());
     }
     
+    @Test
+    public void testDecodeStreamingHeaders() throws XMLStreamException {
+        Bus bus = BusFactory.newInstance().createBus();
+        try {
+            RMHeaderProcessor.register(bus);
+            SoapMessage message = setUpInboundMessage("resources/Retransmission.xml", bus);
+            for (Header header : message.getHeaders()) {
+                if (RM10Constants.NAMESPACE_URI.equals(header.getName().getNamespaceURI())) {
+                    // read from the stream, not into DOM Elements
+                    assertFalse(header.getObject() instanceof Element);
+                }
+            }
+            RMSoapInInterceptor codec = new RMSoapInInterceptor();
+            codec.handleMessage(message);
+            RMProperties rmps = RMContextUtils.retrieveRMProperties(message, false);
+            AckRequestedType ar = rmps.getAcksRequested().iterator().next();
+            assertEquals(SEQ_IDENTIFIER, ar.getIdentifier().getValue());
+            SequenceType s = rmps.getSequence();
+            assertEquals(SEQ_IDENTIFIER, s.getIdentifier().getValue());
+            assertEquals(MSG2_MESSAGE_NUMBER, s.getMessageNumber());
+
+            message = setUpInboundMessage("resources/Acknowledgment.xml", bus);
+            codec.handleMessage(message);
+            rmps = RMContextUtils.retrieveRMProperties(message, false);
+            SequenceAcknowledgement ack = rmps.getAcks().iterator().next();
+            assertEquals(SEQ_IDENTIFIER, ack.getIdentifier().getValue());
+            verifyRange(ack.getAcknowledgementRange().get(0), 1, 1);
+            verifyRange(ack.getAcknowledgementRange().get(1), 3, 3);
+        } finally {
+            bus.shutdown(true);
+        }
+    }
+
     private SoapMessage setUpInboundMessage(String resource) throws XMLStreamException {
+        return setUpInboundMessage(resource, null);
+    }
+
+    private SoapMessage setUpInboundMessage(String resource, Bus bus) throws XMLStreamException {
         Message message = new MessageImpl();
         SoapMessage soapMessage = new SoapMessage(message);
         RMProperties rmps = new RMProperties();
@@ -165,7 +206,13 @@ public class RMSoapInInterceptorTest extends Assert {
         assertNotNull(is);
         XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(is);
         soapMessage.setContent(XMLStreamReader.class, reader);
-        ReadHeadersInterceptor rji = new ReadHeadersInterceptor(BusFactory.getDefaultBus());
+        ReadHeadersInterceptor rji;
+        if (bus == null) {
+            rji = new ReadHeadersInterceptor(BusFactory.getDefaultBus());
+        } else {
+            soapMessage.put(ReadHeadersInterceptor.STREAMING_HEADERS, Boolean.TRUE);
+            rji = new ReadHeadersInterceptor(bus);
+        }
         rji.handleMessage(soapMessage); 
         StartBodyInterceptor sbi = new StartBodyInterceptor();
         sbi.handleMessage(soapMessage);
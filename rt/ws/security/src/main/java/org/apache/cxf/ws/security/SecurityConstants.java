@@ -87,6 +87,8 @@ public final class SecurityConstants extends org.apache.cxf.rt.security.Security
     /**
      * Whether to enable streaming WS-Security. If set to false (the default), the old DOM
      * implementation is used. If set to true, the new streaming (StAX) implementation is used.
+     * If set to "auto", the streaming implementation is used for the endpoints whose security
+     * policy it fully supports, and the DOM implementation for the others.
      */
     public static final String ENABLE_STREAMING_SECURITY = 
         "ws-security.enable.streaming";
@@ -202,6 +204,15 @@ public final class SecurityConstants extends org.apache.cxf.rt.security.Security
      */
     public static final String SAML_ONE_TIME_USE_CACHE_INSTANCE = "ws-security.saml.cache.instance";
     
+    /**
+     * The ReplayCacheFactory to use to create the nonce, timestamp and SAML one time use caches of an
+     * endpoint, when no instance is configured for them. The value can be a ReplayCacheFactory
+     * instance, its Class or its class name, such as the BloomFilterReplayCacheFactory for a high
+     * rate of messages. The default is an EHCacheReplayCache if EhCache is available. Otherwise it
+     * is a MemoryReplayCache.
+     */
+    public static final String REPLAY_CACHE_FACTORY = "ws-security.replay.cache.factory";
+    
     /**
      * Set this property to point to a configuration file for the underlying caching implementation.
      * The default configuration file that is used is cxf-ehcache.xml in this module.
@@ -216,6 +227,14 @@ public final class SecurityConstants extends org.apache.cxf.rt.security.Security
     public static final String TOKEN_STORE_CACHE_INSTANCE = 
         "org.apache.cxf.ws.security.tokenstore.TokenStore";
     
+    /**
+     * The TokenStoreFactory to use to create the TokenStore of an endpoint, when no TokenStore is
+     * configured with TOKEN_STORE_CACHE_INSTANCE. The value can be a TokenStoreFactory instance, its
+     * Class or its class name. The default factory creates an EHCacheTokenStore if EhCache is
+     * available. Otherwise it creates a MemoryTokenStore.
+     */
+    public static final String TOKEN_STORE_FACTORY = "ws-security.tokenstore.factory";
+    
     /**
      * The Cache Identifier to use with the TokenStore. CXF uses the following key to retrieve a
      * token store: "org.apache.cxf.ws.security.tokenstore.TokenStore-<identifier>". This key can be 
@@ -401,8 +420,8 @@ public final class SecurityConstants extends org.apache.cxf.rt.security.Security
             ACTOR, VALIDATE_TOKEN, ALWAYS_ENCRYPT_UT, IS_BSP_COMPLIANT, ENABLE_NONCE_CACHE, 
             ENABLE_TIMESTAMP_CACHE, TIMESTAMP_TTL, TIMESTAMP_FUTURE_TTL, 
             KERBEROS_CLIENT, SPNEGO_CLIENT_ACTION, KERBEROS_JAAS_CONTEXT_NAME, KERBEROS_SPN, 
-            NONCE_CACHE_INSTANCE, TIMESTAMP_CACHE_INSTANCE, CACHE_CONFIG_FILE, 
-            TOKEN_STORE_CACHE_INSTANCE, USERNAME_TOKEN_VALIDATOR, SAML1_TOKEN_VALIDATOR, 
+            NONCE_CACHE_INSTANCE, TIMESTAMP_CACHE_INSTANCE, REPLAY_CACHE_FACTORY, CACHE_CONFIG_FILE, 
+            TOKEN_STORE_CACHE_INSTANCE, TOKEN_STORE_FACTORY, USERNAME_TOKEN_VALIDATOR, SAML1_TOKEN_VALIDATOR, 
             SAML2_TOKEN_VALIDATOR, TIMESTAMP_TOKEN_VALIDATOR, SIGNATURE_TOKEN_VALIDATOR, 
             BST_TOKEN_VALIDATOR, SCT_TOKEN_VALIDATOR, TOKEN, TOKEN_ID, SUBJECT_ROLE_CLASSIFIER, 
             SUBJECT_ROLE_CLASSIFIER_TYPE, MUST_UNDERSTAND, ASYMMETRIC_SIGNATURE_ALGORITHM, 
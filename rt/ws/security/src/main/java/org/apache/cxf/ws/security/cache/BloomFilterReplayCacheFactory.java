@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.security.cache;
+
+import org.apache.cxf.rt.security.cache.BloomFilterReplayCache;
+import org.apache.wss4j.common.cache.ReplayCache;
+import org.apache.wss4j.common.cache.ReplayCacheFactory;
+
+/**
+ * A factory to return a WSS4JBloomFilterReplayCache instance, configured with the properties of the
+ * factory. It is selected with SecurityConstants.REPLAY_CACHE_FACTORY.
+ */
+public class BloomFilterReplayCacheFactory extends ReplayCacheFactory {
+    
+    private long ttl = BloomFilterReplayCache.DEFAULT_TTL;
+    private long window = BloomFilterReplayCache.DEFAULT_WINDOW;
+    private double falsePositiveProbability = BloomFilterReplayCache.DEFAULT_FALSE_POSITIVE_PROBABILITY;
+    private int maxWindowEntries = BloomFilterReplayCache.DEFAULT_MAX_WINDOW_ENTRIES;
+    
+    public ReplayCache newReplayCache(String key, Object configuration) {
+        WSS4JBloomFilterReplayCache replayCache = new WSS4JBloomFilterReplayCache();
+        replayCache.setTTL(ttl);
+        replayCache.setWindow(window);
+        replayCache.setFalsePositiveProbability(falsePositiveProbability);
+        replayCache.setMaxWindowEntries(maxWindowEntries);
+        return replayCache;
+    }
+
+    public long getTTL() {
+        return ttl;
+    }
+
+    /**
+     * Set the default TTL of the identifiers in seconds
+     */
+    public void setTTL(long newTtl) {
+        ttl = newTtl;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * Set the length in seconds of the windows whose identifiers are kept in an exact set
+     */
+    public void setWindow(long newWindow) {
+        window = newWindow;
+    }
+
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * Set the probability that a new identifier is taken for a replay
+     */
+    public void setFalsePositiveProbability(double probability) {
+        falsePositiveProbability = probability;
+    }
+
+    public int getMaxWindowEntries() {
+        return maxWindowEntries;
+    }
+
+    public void setMaxWindowEntries(int newMaxWindowEntries) {
+        maxWindowEntries = newMaxWindowEntries;
+    }
+    
+}
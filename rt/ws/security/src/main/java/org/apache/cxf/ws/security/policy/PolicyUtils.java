@@ -26,6 +26,7 @@ import javax.xml.namespace.QName;
 
 import org.apache.cxf.ws.policy.AssertionInfo;
 import org.apache.cxf.ws.policy.AssertionInfoMap;
+import org.apache.neethi.Assertion;
 import org.apache.wss4j.policy.SP11Constants;
 import org.apache.wss4j.policy.SP12Constants;
 import org.apache.wss4j.policy.SPConstants;
@@ -71,6 +72,20 @@ public final class PolicyUtils {
         return false;
     }
     
+    /**
+     * Assert the AssertionInfos of the given assertion object only.
+     */
+    public static boolean assertPolicy(AssertionInfoMap aim, Assertion assertion) {
+        boolean asserted = false;
+        for (AssertionInfo ai : aim.getAssertionInfo(assertion.getName())) {
+            if (ai.getAssertion() == assertion) {
+                ai.setAsserted(true);
+                asserted = true;
+            }
+        }
+        return asserted;
+    }
+    
     public static boolean assertPolicy(AssertionInfoMap aim, String localname) {
         Collection<AssertionInfo> ais = getAllAssertionsByLocalname(aim, localname);
         if (!ais.isEmpty()) {
@@ -44,6 +44,7 @@ import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JInInterceptor;
 import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JOutInterceptor;
 import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JStaxInInterceptor;
 import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JStaxOutInterceptor;
+import org.apache.cxf.ws.security.wss4j.StreamingSecurityTimerInterceptor;
 import org.apache.cxf.ws.security.wss4j.WSS4JInInterceptor;
 import org.apache.cxf.ws.security.wss4j.policyvalidators.PolicyValidatorParameters;
 import org.apache.cxf.ws.security.wss4j.policyvalidators.SecurityPolicyValidator;
@@ -86,6 +87,8 @@ public class IssuedTokenInterceptorProvider extends AbstractPolicyInterceptorPro
         this.getOutFaultInterceptors().add(so);
         this.getInInterceptors().add(si);
         this.getInFaultInterceptors().add(si);
+        this.getInInterceptors().add(StreamingSecurityTimerInterceptor.INSTANCE);
+        this.getInFaultInterceptors().add(StreamingSecurityTimerInterceptor.INSTANCE);
     }
     
     protected static void assertIssuedToken(IssuedToken issuedToken, AssertionInfoMap aim) {
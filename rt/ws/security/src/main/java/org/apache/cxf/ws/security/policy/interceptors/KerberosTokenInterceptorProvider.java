@@ -34,7 +34,6 @@ import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.message.Message;
-import org.apache.cxf.message.MessageUtils;
 import org.apache.cxf.phase.AbstractPhaseInterceptor;
 import org.apache.cxf.phase.Phase;
 import org.apache.cxf.ws.policy.AbstractPolicyInterceptorProvider;
@@ -51,6 +50,8 @@ import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JInInterceptor;
 import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JStaxInInterceptor;
 import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JStaxOutInterceptor;
 import org.apache.cxf.ws.security.wss4j.StaxSecurityContextInInterceptor;
+import org.apache.cxf.ws.security.wss4j.StreamingSecuritySelector;
+import org.apache.cxf.ws.security.wss4j.StreamingSecurityTimerInterceptor;
 import org.apache.cxf.ws.security.wss4j.WSS4JInInterceptor;
 import org.apache.cxf.ws.security.wss4j.policyvalidators.PolicyValidatorParameters;
 import org.apache.cxf.ws.security.wss4j.policyvalidators.SecurityPolicyValidator;
@@ -95,6 +96,8 @@ public class KerberosTokenInterceptorProvider extends AbstractPolicyInterceptorP
         this.getOutFaultInterceptors().add(so);
         this.getInInterceptors().add(si);
         this.getInFaultInterceptors().add(si);
+        this.getInInterceptors().add(StreamingSecurityTimerInterceptor.INSTANCE);
+        this.getInFaultInterceptors().add(StreamingSecurityTimerInterceptor.INSTANCE);
     }
     
     static class KerberosTokenOutInterceptor extends AbstractPhaseInterceptor<Message> {
@@ -162,8 +165,7 @@ public class KerberosTokenInterceptorProvider extends AbstractPolicyInterceptorP
             AssertionInfoMap aim = message.get(AssertionInfoMap.class);
             // extract Assertion information
             
-            boolean enableStax = 
-                MessageUtils.isTrue(message.getContextualProperty(SecurityConstants.ENABLE_STREAMING_SECURITY));
+            boolean enableStax = StreamingSecuritySelector.isStreaming(message);
             if (aim != null && !enableStax) {
                 Collection<AssertionInfo> ais = 
                     PolicyUtils.getAllAssertionsByLocalname(aim, SPConstants.KERBEROS_TOKEN);
@@ -224,8 +226,7 @@ public class KerberosTokenInterceptorProvider extends AbstractPolicyInterceptorP
             AssertionInfoMap aim = message.get(AssertionInfoMap.class);
             // extract Assertion information
             
-            boolean enableStax = 
-                MessageUtils.isTrue(message.getContextualProperty(SecurityConstants.ENABLE_STREAMING_SECURITY));
+            boolean enableStax = StreamingSecuritySelector.isStreaming(message);
             if (aim != null && enableStax) {
                 Collection<AssertionInfo> ais = 
                     PolicyUtils.getAllAssertionsByLocalname(aim, SPConstants.KERBEROS_TOKEN);
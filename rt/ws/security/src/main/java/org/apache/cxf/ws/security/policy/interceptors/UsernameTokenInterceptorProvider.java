@@ -25,6 +25,7 @@ import org.apache.cxf.Bus;
 import org.apache.cxf.ws.policy.AbstractPolicyInterceptorProvider;
 import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JStaxInInterceptor;
 import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JStaxOutInterceptor;
+import org.apache.cxf.ws.security.wss4j.StreamingSecurityTimerInterceptor;
 import org.apache.cxf.ws.security.wss4j.UsernameTokenInterceptor;
 import org.apache.wss4j.policy.SP11Constants;
 import org.apache.wss4j.policy.SP12Constants;
@@ -57,6 +58,8 @@ public class UsernameTokenInterceptorProvider extends AbstractPolicyInterceptorP
         this.getOutFaultInterceptors().add(so);
         this.getInInterceptors().add(si);
         this.getInFaultInterceptors().add(si);
+        this.getInInterceptors().add(StreamingSecurityTimerInterceptor.INSTANCE);
+        this.getInFaultInterceptors().add(StreamingSecurityTimerInterceptor.INSTANCE);
     }
     
 }
@@ -29,6 +29,7 @@ import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JInInterceptor;
 import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JOutInterceptor;
 import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JStaxInInterceptor;
 import org.apache.cxf.ws.security.wss4j.PolicyBasedWSS4JStaxOutInterceptor;
+import org.apache.cxf.ws.security.wss4j.StreamingSecurityTimerInterceptor;
 import org.apache.wss4j.policy.SP11Constants;
 import org.apache.wss4j.policy.SP12Constants;
 
@@ -68,5 +69,7 @@ public class WSSecurityInterceptorProvider extends AbstractPolicyInterceptorProv
         this.getOutFaultInterceptors().add(so);
         this.getInInterceptors().add(si);
         this.getInFaultInterceptors().add(si);
+        this.getInInterceptors().add(StreamingSecurityTimerInterceptor.INSTANCE);
+        this.getInFaultInterceptors().add(StreamingSecurityTimerInterceptor.INSTANCE);
     }
 }
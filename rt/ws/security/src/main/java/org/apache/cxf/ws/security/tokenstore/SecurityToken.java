@@ -562,6 +562,34 @@ public class SecurityToken implements Serializable {
         this.data = data;
     }
     
+    /**
+     * Copy this token, with the given DOM elements in place of the token element and of the
+     * attached and unattached references. The elements are taken as they are, not cloned.
+     */
+    SecurityToken copy(Element tokenElem, Element attachedRef, Element unattachedRef) {
+        SecurityToken copy = new SecurityToken(null, created, expires);
+        copy.id = id;
+        copy.wsuId = wsuId;
+        copy.token = tokenElem;
+        copy.tokenStr = tokenStr;
+        copy.attachedReference = attachedRef;
+        copy.unattachedReference = unattachedRef;
+        copy.properties = properties;
+        copy.secret = secret;
+        copy.data = data;
+        copy.key = key;
+        copy.issuerAddress = issuerAddress;
+        copy.encrKeySha1Value = encrKeySha1Value;
+        copy.tokenHash = tokenHash;
+        copy.transformedTokenIdentifier = transformedTokenIdentifier;
+        copy.tokenType = tokenType;
+        copy.x509cert = x509cert;
+        copy.crypto = crypto;
+        copy.principal = principal;
+        copy.securityContext = securityContext;
+        return copy;
+    }
+    
     private void writeObject(ObjectOutputStream stream) throws IOException {
         if (token != null && tokenStr == null) {
             tokenStr = DOM2Writer.nodeToString(token);
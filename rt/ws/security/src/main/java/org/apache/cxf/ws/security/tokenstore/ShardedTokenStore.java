@@ -0,0 +1,644 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.security.tokenstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.w3c.dom.Element;
+import org.apache.cxf.common.util.StringUtils;
+import org.apache.cxf.helpers.FileUtils;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.wss4j.common.util.DOM2Writer;
+
+/**
+ * A TokenStore for a large number of tokens. The tokens are spread over lock striped segments,
+ * each of which holds at most its share of the maximum number of tokens and evicts its least
+ * recently used tokens beyond that. Expired tokens are found through a timer wheel, so removing
+ * them costs in proportion to the number of expired tokens rather than to the size of the store.
+ * The TTL applies as in the MemoryTokenStore.
+ * <p>
+ * Optionally the DOM elements of the tokens, which make up most of their size, are kept off the
+ * heap as serialized XML, bounded by a maximum number of bytes of direct memory. Each segment
+ * allocates them from slabs, which are reused once the tokens are removed, and evicts its least
+ * recently used tokens when its share of the direct memory is used up. getToken then returns a
+ * copy of the stored token with newly parsed elements, so a token that is changed has to be
+ * added again for the change to be stored.
+ */
+public class ShardedTokenStore implements TokenStore, Closeable {
+    public static final int DEFAULT_SEGMENTS = 16;
+    public static final int DEFAULT_MAX_TOKENS = 100000;
+    public static final long DEFAULT_MAX_OFF_HEAP_BYTES = 256L * 1024L * 1024L;
+
+    private static final long TICK_MILLIS = 1000L;
+    private static final int WHEEL_SIZE = 512;
+
+    private final Segment[] segments;
+    private final boolean offHeap;
+    private volatile long ttl = MemoryTokenStore.DEFAULT_TTL;
+
+    public ShardedTokenStore() {
+        this(DEFAULT_SEGMENTS, DEFAULT_MAX_TOKENS, false, DEFAULT_MAX_OFF_HEAP_BYTES);
+    }
+
+    /**
+     * @param segments the number of segments, rounded up to a power of two
+     * @param maxTokens the maximum number of tokens of the store
+     * @param offHeap whether to keep the DOM elements of the tokens off the heap
+     * @param maxOffHeapBytes the maximum size of the DOM elements kept off the heap
+     */
+    public ShardedTokenStore(int segments, int maxTokens, boolean offHeap, long maxOffHeapBytes) {
+        if (segments < 1 || maxTokens < 1 || maxOffHeapBytes < 1) {
+            throw new IllegalArgumentException("The number of segments, the maximum number of tokens "
+                                               + "and the maximum off-heap size must be positive");
+        }
+        int n = 1;
+        while (n < segments) {
+            n <<= 1;
+        }
+        int maxSegmentTokens = Math.max(1, (maxTokens + n - 1) / n);
+        long maxSegmentBytes = Math.max(1L, maxOffHeapBytes / n);
+        long tick = System.currentTimeMillis() / TICK_MILLIS;
+        this.segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            this.segments[i] = new Segment(maxSegmentTokens, maxSegmentBytes, tick);
+        }
+        this.offHeap = offHeap;
+    }
+
+    public void add(SecurityToken token) {
+        if (token != null && !StringUtils.isEmpty(token.getId())) {
+            put(token.getId(), token);
+        }
+    }
+
+    public void add(String identifier, SecurityToken token) {
+        if (token != null && !StringUtils.isEmpty(identifier)) {
+            put(identifier, token);
+        }
+    }
+
+    /**
+     * Set a new (default) TTL value in seconds
+     * @param newTtl a new (default) TTL value in seconds
+     */
+    public void setTTL(long newTtl) {
+        ttl = newTtl;
+    }
+
+    public void remove(String identifier) {
+        if (!StringUtils.isEmpty(identifier)) {
+            getSegment(identifier).remove(identifier);
+        }
+    }
+
+    public Collection<String> getTokenIdentifiers() {
+        long now = System.currentTimeMillis();
+        List<String> identifiers = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.addIdentifiers(identifiers, now);
+        }
+        return identifiers;
+    }
+
+    public SecurityToken getToken(String identifier) {
+        if (StringUtils.isEmpty(identifier)) {
+            return null;
+        }
+        Segment segment = getSegment(identifier);
+        Entry entry = segment.get(identifier, System.currentTimeMillis());
+        if (entry == null) {
+            return null;
+        } else if (!offHeap) {
+            return entry.token;
+        }
+        byte[] elements = segment.readElements(entry);
+        if (elements == null) {
+            // removed since
+            return null;
+        }
+        return entry.toSecurityToken(elements);
+    }
+
+    public void close() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return the number of tokens, including expired tokens that were not removed yet
+     */
+    public long getSize() {
+        return sum(0);
+    }
+
+    /**
+     * @return the number of bytes of the DOM elements kept off the heap
+     */
+    public long getOffHeapSize() {
+        return sum(1);
+    }
+
+    /**
+     * @return the number of bytes of direct memory allocated for the DOM elements kept off the heap
+     */
+    public long getOffHeapAllocatedSize() {
+        return sum(6);
+    }
+
+    public long getHitCount() {
+        return sum(2);
+    }
+
+    public long getMissCount() {
+        return sum(3);
+    }
+
+    /**
+     * @return the number of tokens removed to keep the store within its bounds
+     */
+    public long getEvictionCount() {
+        return sum(4);
+    }
+
+    /**
+     * @return the number of tokens removed as their TTL had passed
+     */
+    public long getExpirationCount() {
+        return sum(5);
+    }
+
+    private long sum(int statistic) {
+        long sum = 0;
+        for (Segment segment : segments) {
+            sum += segment.getStatistics()[statistic];
+        }
+        return sum;
+    }
+
+    private void put(String identifier, SecurityToken token) {
+        long now = System.currentTimeMillis();
+        Entry entry = offHeap ? new Entry(identifier, token.copy(null, null, null))
+            : new Entry(identifier, token);
+        entry.expires = now + ttl * 1000L;
+        if (offHeap) {
+            // serialized before the segment is locked, copied off the heap by the segment
+            entry.serializeElements(token);
+        }
+        getSegment(identifier).put(entry, now);
+    }
+
+    private Segment getSegment(String identifier) {
+        int h = identifier.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (segments.length - 1)];
+    }
+
+    private static final class Entry {
+        private final String identifier;
+        private final SecurityToken token;
+        private long expires;
+
+        // the token, attached and unattached reference elements, one after the other
+        private byte[] serialized;
+        private int tokenLength;
+        private int attachedLength;
+        private int unattachedLength;
+
+        // the block of the arena holding the elements
+        private ByteBuffer buffer;
+        private Slab slab;
+        private int offset;
+        private int blockShift;
+        private int size;
+
+        // the timer wheel slot
+        private int slot;
+        private Entry prev;
+        private Entry next;
+
+        Entry(String identifier, SecurityToken token) {
+            this.identifier = identifier;
+            this.token = token;
+        }
+
+        void serializeElements(SecurityToken securityToken) {
+            byte[] tokenBytes = toBytes(securityToken.getToken());
+            byte[] attachedBytes = toBytes(securityToken.getAttachedReference());
+            byte[] unattachedBytes = toBytes(securityToken.getUnattachedReference());
+            tokenLength = tokenBytes.length;
+            attachedLength = attachedBytes.length;
+            unattachedLength = unattachedBytes.length;
+            serialized = new byte[tokenLength + attachedLength + unattachedLength];
+            System.arraycopy(tokenBytes, 0, serialized, 0, tokenLength);
+            System.arraycopy(attachedBytes, 0, serialized, tokenLength, attachedLength);
+            System.arraycopy(unattachedBytes, 0, serialized, tokenLength + attachedLength, unattachedLength);
+        }
+
+        int getLength() {
+            return tokenLength + attachedLength + unattachedLength;
+        }
+
+        SecurityToken toSecurityToken(byte[] elements) {
+            ByteBuffer bb = ByteBuffer.wrap(elements);
+            Element tokenElement = toElement(bb, tokenLength);
+            Element attachedReference = toElement(bb, attachedLength);
+            Element unattachedReference = toElement(bb, unattachedLength);
+            return token.copy(tokenElement, attachedReference, unattachedReference);
+        }
+
+        private static byte[] toBytes(Element element) {
+            if (element == null) {
+                return new byte[0];
+            }
+            return DOM2Writer.nodeToString(element).getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static Element toElement(ByteBuffer buffer, int length) {
+            if (length == 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            try {
+                return StaxUtils.read(new ByteArrayInputStream(bytes)).getDocumentElement();
+            } catch (XMLStreamException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    /**
+     * The tokens of a segment in the order of their last use, and a timer wheel of one second
+     * ticks, where each slot links the tokens that expire in the ticks of the slot. Advancing the
+     * wheel to the current tick removes the expired tokens of the slots passed.
+     */
+    private static final class Segment {
+        private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final Entry[] wheel = new Entry[WHEEL_SIZE];
+        private final Arena arena;
+        private final int maxTokens;
+        private final long maxBytes;
+        private long tick;
+        private long bytes;
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long expirations;
+
+        Segment(int maxTokens, long maxBytes, long tick) {
+            this.maxTokens = maxTokens;
+            this.maxBytes = maxBytes;
+            this.tick = tick;
+            this.arena = new Arena(maxBytes);
+        }
+
+        synchronized void put(Entry entry, long now) {
+            expire(now);
+            Entry old = entries.remove(entry.identifier);
+            if (old != null) {
+                unlink(old);
+            }
+            if (entry.serialized != null) {
+                if (entry.serialized.length > 0) {
+                    if (!allocate(entry)) {
+                        // larger than the off-heap size of the segment
+                        entry.serialized = null;
+                        evictions++;
+                        return;
+                    }
+                    ByteBuffer bb = entry.buffer.duplicate();
+                    bb.position(entry.offset);
+                    bb.put(entry.serialized);
+                }
+                entry.serialized = null;
+            }
+            entries.put(entry.identifier, entry);
+            link(entry);
+            Iterator<Entry> it = entries.values().iterator();
+            while (entries.size() > maxTokens && it.hasNext()) {
+                Entry eldest = it.next();
+                it.remove();
+                unlink(eldest);
+                evictions++;
+            }
+        }
+
+        synchronized Entry get(String identifier, long now) {
+            expire(now);
+            Entry entry = entries.get(identifier);
+            if (entry != null && entry.expires <= now) {
+                entries.remove(identifier);
+                unlink(entry);
+                expirations++;
+                entry = null;
+            }
+            if (entry == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return entry;
+        }
+
+        /**
+         * @return a copy of the serialized elements of the entry, null if it was removed
+         */
+        synchronized byte[] readElements(Entry entry) {
+            int length = entry.getLength();
+            if (length == 0) {
+                return new byte[0];
+            } else if (entry.buffer == null) {
+                return null;
+            }
+            byte[] elements = new byte[length];
+            ByteBuffer bb = entry.buffer.duplicate();
+            bb.position(entry.offset);
+            bb.get(elements);
+            return elements;
+        }
+
+        synchronized void remove(String identifier) {
+            Entry entry = entries.remove(identifier);
+            if (entry != null) {
+                unlink(entry);
+            }
+        }
+
+        synchronized void addIdentifiers(Collection<String> identifiers, long now) {
+            expire(now);
+            identifiers.addAll(entries.keySet());
+        }
+
+        synchronized void clear() {
+            for (Entry entry : entries.values()) {
+                arena.free(entry);
+            }
+            entries.clear();
+            Arrays.fill(wheel, null);
+            arena.clear();
+            bytes = 0;
+        }
+
+        synchronized long[] getStatistics() {
+            return new long[] {entries.size(), bytes, hits, misses, evictions, expirations, arena.allocated};
+        }
+
+        /**
+         * Allocates the block of the elements of the entry, evicting the least recently used
+         * tokens while the direct memory of the segment would exceed its maximum size.
+         */
+        private boolean allocate(Entry entry) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (!arena.allocate(entry, entry.serialized.length, maxBytes)) {
+                if (!it.hasNext()) {
+                    return false;
+                }
+                Entry eldest = it.next();
+                it.remove();
+                unlink(eldest);
+                evictions++;
+            }
+            return true;
+        }
+
+        private void expire(long now) {
+            long currentTick = now / TICK_MILLIS;
+            if (currentTick <= tick) {
+                return;
+            }
+            long from = currentTick - tick >= WHEEL_SIZE ? currentTick - WHEEL_SIZE + 1 : tick + 1;
+            for (long t = from; t <= currentTick; t++) {
+                Entry entry = wheel[(int)(t & (WHEEL_SIZE - 1))];
+                while (entry != null) {
+                    Entry next = entry.next;
+                    // the slot also links tokens that expire in later rounds of the wheel
+                    if (entry.expires <= now) {
+                        entries.remove(entry.identifier);
+                        unlink(entry);
+                        expirations++;
+                    }
+                    entry = next;
+                }
+            }
+            tick = currentTick;
+        }
+
+        private void link(Entry entry) {
+            // the tick at the end of which the token has expired
+            long expiryTick = (entry.expires + TICK_MILLIS - 1) / TICK_MILLIS;
+            entry.slot = (int)(expiryTick & (WHEEL_SIZE - 1));
+            entry.prev = null;
+            entry.next = wheel[entry.slot];
+            if (entry.next != null) {
+                entry.next.prev = entry;
+            }
+            wheel[entry.slot] = entry;
+            bytes += entry.size;
+        }
+
+        private void unlink(Entry entry) {
+            if (entry.prev != null) {
+                entry.prev.next = entry.next;
+            } else {
+                wheel[entry.slot] = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+            bytes -= entry.size;
+            arena.free(entry);
+        }
+    }
+
+    /**
+     * The direct memory holding the serialized elements of the tokens of a segment. Blocks of a
+     * power of two bytes are carved from slabs, and a block is put on the free list of its slab
+     * when its token is removed, so memory is only allocated while the segment grows. A slab
+     * whose blocks are all free is carved again for blocks of any size. Elements larger than a
+     * slab get a buffer of their own, which is freed when the token is removed. The slabs and
+     * buffers together never exceed the maximum size of the segment.
+     */
+    private static final class Arena {
+        private static final int MIN_BLOCK_SHIFT = 8;
+        private static final int MAX_SLAB_SHIFT = 20;
+
+        private final int slabShift;
+        private final List<Slab> slabs = new ArrayList<>();
+        private long allocated;
+
+        Arena(long maxBytes) {
+            int shift = MIN_BLOCK_SHIFT;
+            while (shift < MAX_SLAB_SHIFT && (1L << (shift + 1)) <= maxBytes) {
+                shift++;
+            }
+            slabShift = shift;
+        }
+
+        /**
+         * @return whether the block could be allocated within the given number of bytes
+         */
+        boolean allocate(Entry entry, int length, long maxBytes) {
+            int shift = MIN_BLOCK_SHIFT;
+            while ((1 << shift) < length) {
+                shift++;
+            }
+            int slabSize = 1 << slabShift;
+            if (shift > slabShift || slabSize > maxBytes) {
+                if (allocated + length > maxBytes && (!releaseEmptySlabs() || allocated + length > maxBytes)) {
+                    return false;
+                }
+                entry.buffer = ByteBuffer.allocateDirect(length);
+                entry.slab = null;
+                entry.offset = 0;
+                entry.blockShift = -1;
+                entry.size = length;
+                allocated += length;
+                return true;
+            }
+            int blockSize = 1 << shift;
+            Slab slab = null;
+            int offset = -1;
+            for (int i = 0; i < slabs.size() && offset < 0; i++) {
+                slab = slabs.get(i);
+                offset = slab.poll(shift);
+            }
+            for (int i = 0; i < slabs.size() && offset < 0; i++) {
+                slab = slabs.get(i);
+                offset = slab.carve(blockSize, slabSize);
+            }
+            if (offset < 0) {
+                if (allocated + slabSize > maxBytes) {
+                    return false;
+                }
+                slab = new Slab(ByteBuffer.allocateDirect(slabSize), slabShift);
+                slabs.add(slab);
+                allocated += slabSize;
+                offset = slab.carve(blockSize, slabSize);
+            }
+            slab.used++;
+            entry.buffer = slab.buffer;
+            entry.slab = slab;
+            entry.offset = offset;
+            entry.blockShift = shift;
+            entry.size = blockSize;
+            return true;
+        }
+
+        void free(Entry entry) {
+            if (entry.buffer == null) {
+                return;
+            }
+            if (entry.slab == null) {
+                FileUtils.unmap(entry.buffer);
+                allocated -= entry.size;
+            } else {
+                entry.slab.push(entry.blockShift, entry.offset);
+                entry.slab.used--;
+            }
+            entry.buffer = null;
+            entry.slab = null;
+            entry.size = 0;
+        }
+
+        /**
+         * Frees the slabs, once all the blocks were freed.
+         */
+        void clear() {
+            for (Slab slab : slabs) {
+                FileUtils.unmap(slab.buffer);
+            }
+            slabs.clear();
+            allocated = 0;
+        }
+
+        private boolean releaseEmptySlabs() {
+            boolean released = false;
+            for (Iterator<Slab> it = slabs.iterator(); it.hasNext();) {
+                Slab slab = it.next();
+                if (slab.used == 0) {
+                    it.remove();
+                    FileUtils.unmap(slab.buffer);
+                    allocated -= slab.buffer.capacity();
+                    released = true;
+                }
+            }
+            return released;
+        }
+    }
+
+    /**
+     * A slab of the arena, with the free blocks of each size, by their offset.
+     */
+    private static final class Slab {
+        private final ByteBuffer buffer;
+        private final List<Deque<Integer>> freeBlocks = new ArrayList<>();
+        private int position;
+        private int used;
+
+        Slab(ByteBuffer buffer, int slabShift) {
+            this.buffer = buffer;
+            for (int i = Arena.MIN_BLOCK_SHIFT; i <= slabShift; i++) {
+                freeBlocks.add(new ArrayDeque<Integer>());
+            }
+        }
+
+        int poll(int shift) {
+            Integer offset = freeBlocks.get(shift - Arena.MIN_BLOCK_SHIFT).poll();
+            return offset == null ? -1 : offset;
+        }
+
+        void push(int shift, int offset) {
+            freeBlocks.get(shift - Arena.MIN_BLOCK_SHIFT).push(offset);
+        }
+
+        int carve(int blockSize, int slabSize) {
+            if (used == 0) {
+                // all the blocks are free, so the slab is carved again for blocks of any size
+                for (Deque<Integer> blocks : freeBlocks) {
+                    blocks.clear();
+                }
+                position = 0;
+            }
+            if (position + blockSize > slabSize) {
+                return -1;
+            }
+            int offset = position;
+            position += blockSize;
+            return offset;
+        }
+    }
+}
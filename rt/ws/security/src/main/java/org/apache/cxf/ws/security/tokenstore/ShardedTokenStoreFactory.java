@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.security.tokenstore;
+
+import org.apache.cxf.message.Message;
+
+
+/**
+ * A factory to return a ShardedTokenStore instance, configured with the properties of the factory.
+ */
+public class ShardedTokenStoreFactory extends TokenStoreFactory {
+    
+    private int segments = ShardedTokenStore.DEFAULT_SEGMENTS;
+    private int maxTokens = ShardedTokenStore.DEFAULT_MAX_TOKENS;
+    private boolean offHeap;
+    private long maxOffHeapBytes = ShardedTokenStore.DEFAULT_MAX_OFF_HEAP_BYTES;
+    private long ttl = MemoryTokenStore.DEFAULT_TTL;
+    
+    public TokenStore newTokenStore(String key, Message message) {
+        ShardedTokenStore store = new ShardedTokenStore(segments, maxTokens, offHeap, maxOffHeapBytes);
+        store.setTTL(ttl);
+        return store;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    public void setSegments(int segments) {
+        this.segments = segments;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Set whether the stores keep the DOM elements of their tokens off the heap
+     */
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    public long getMaxOffHeapBytes() {
+        return maxOffHeapBytes;
+    }
+
+    public void setMaxOffHeapBytes(long maxOffHeapBytes) {
+        this.maxOffHeapBytes = maxOffHeapBytes;
+    }
+
+    public long getTTL() {
+        return ttl;
+    }
+
+    /**
+     * Set the TTL of the tokens of the stores in seconds
+     */
+    public void setTTL(long newTtl) {
+        ttl = newTtl;
+    }
+    
+}
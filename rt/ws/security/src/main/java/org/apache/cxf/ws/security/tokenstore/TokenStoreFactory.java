@@ -19,11 +19,15 @@
 
 package org.apache.cxf.ws.security.tokenstore;
 
+import org.apache.cxf.common.classloader.ClassLoaderUtils;
+import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.message.Message;
+import org.apache.cxf.ws.security.SecurityConstants;
 
 /**
  * An abstract factory to return a TokenStore instance. It returns an EHCacheTokenStoreFactory
- * if EH-Cache is available. Otherwise it returns a MemoryTokenStoreFactory.
+ * if EH-Cache is available. Otherwise it returns a MemoryTokenStoreFactory. A message can configure
+ * another factory, such as the ShardedTokenStoreFactory, with SecurityConstants.TOKEN_STORE_FACTORY.
  */
 public abstract class TokenStoreFactory {
     
@@ -52,6 +56,29 @@ public abstract class TokenStoreFactory {
         return new MemoryTokenStoreFactory();
     }
     
+    /**
+     * Return the TokenStoreFactory configured for the message with
+     * SecurityConstants.TOKEN_STORE_FACTORY, or else the default TokenStoreFactory.
+     */
+    public static TokenStoreFactory newInstance(Message message) {
+        Object o = message.getContextualProperty(SecurityConstants.TOKEN_STORE_FACTORY);
+        if (o == null) {
+            return newInstance();
+        }
+        try {
+            if (o instanceof TokenStoreFactory) {
+                return (TokenStoreFactory)o;
+            } else if (o instanceof Class) {
+                return (TokenStoreFactory)((Class<?>)o).newInstance();
+            } else {
+                return (TokenStoreFactory)ClassLoaderUtils.loadClass(o.toString(), TokenStoreFactory.class)
+                    .newInstance();
+            }
+        } catch (Exception ex) {
+            throw new Fault(ex);
+        }
+    }
+    
     public abstract TokenStore newTokenStore(String key, Message message);
     
 }
@@ -40,7 +40,7 @@ public final class TokenStoreUtils {
                 tokenStore = (TokenStore)info.getProperty(SecurityConstants.TOKEN_STORE_CACHE_INSTANCE);
             }
             if (tokenStore == null) {
-                TokenStoreFactory tokenStoreFactory = TokenStoreFactory.newInstance();
+                TokenStoreFactory tokenStoreFactory = TokenStoreFactory.newInstance(message);
                 String cacheKey = SecurityConstants.TOKEN_STORE_CACHE_INSTANCE;
                 String cacheIdentifier = 
                     (String)message.getContextualProperty(SecurityConstants.CACHE_IDENTIFIER);
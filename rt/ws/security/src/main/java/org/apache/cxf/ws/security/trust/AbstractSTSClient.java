@@ -22,9 +22,13 @@ package org.apache.cxf.ws.security.trust;
 import java.io.IOException;
 import java.io.StringReader;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
@@ -32,6 +36,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -151,6 +157,34 @@ import org.apache.xml.security.keys.content.keyvalues.RSAKeyValue;
  */
 public abstract class AbstractSTSClient implements Configurable, InterceptorProvider {
     private static final Logger LOG = LogUtils.getL7dLogger(AbstractSTSClient.class);
+
+    /**
+     * The properties holding the credentials sent to the STS, which are part of the key of a
+     * request in the IssuedTokenCache. The other properties, such as the token store of an
+     * endpoint, are set while the requests are made and are left out.
+     */
+    private static final Set<String> ISSUED_TOKEN_KEY_PROPERTIES;
+
+    static {
+        Set<String> s = new TreeSet<>();
+        for (String property : Arrays.asList(
+            SecurityConstants.USERNAME, SecurityConstants.PASSWORD, SecurityConstants.SIGNATURE_USERNAME,
+            SecurityConstants.ENCRYPT_USERNAME, SecurityConstants.CALLBACK_HANDLER,
+            SecurityConstants.SAML_CALLBACK_HANDLER, SecurityConstants.SIGNATURE_PROPERTIES,
+            SecurityConstants.SIGNATURE_CRYPTO, SecurityConstants.ENCRYPT_PROPERTIES,
+            SecurityConstants.ENCRYPT_CRYPTO, SecurityConstants.ENCRYPT_CERT,
+            SecurityConstants.STS_TOKEN_USERNAME, SecurityConstants.STS_TOKEN_PROPERTIES,
+            SecurityConstants.STS_TOKEN_CRYPTO, SecurityConstants.STS_TOKEN_USE_CERT_FOR_KEYINFO,
+            SecurityConstants.SC_FROM_JAAS_SUBJECT)) {
+            s.add(property);
+            s.add("ws-" + property);
+        }
+        s.addAll(Arrays.asList(
+            SecurityConstants.KERBEROS_CLIENT, SecurityConstants.KERBEROS_JAAS_CONTEXT_NAME,
+            SecurityConstants.KERBEROS_SPN, SecurityConstants.KERBEROS_USE_CREDENTIAL_DELEGATION,
+            SecurityConstants.DELEGATED_CREDENTIAL));
+        ISSUED_TOKEN_KEY_PROPERTIES = s;
+    }
     
     protected Bus bus;
     protected String name = "default.sts-client";
@@ -191,6 +225,8 @@ public abstract class AbstractSTSClient implements Configurable, InterceptorProv
     protected Message message;
     protected String context;
     protected X509Certificate useKeyCertificate;
+    protected boolean cacheIssuedTokens;
+    protected IssuedTokenCache issuedTokenCache;
 
     protected Map<String, Object> ctx = new HashMap<>();
     
@@ -443,6 +479,34 @@ public abstract class AbstractSTSClient implements Configurable, InterceptorProv
     public boolean isUseCertificateForConfirmationKeyInfo() {
         return useCertificateForConfirmationKeyInfo;
     }
+
+    /**
+     * Indicate whether to share the tokens issued by the STS with the other STSClients of the
+     * bus, through the IssuedTokenCache. Only "Issue" requests for tokens other than
+     * SecureConversation and SPNEGO tokens are cached, and not when the OnBehalfOf or ActAs
+     * token is obtained from a CallbackHandler.
+     */
+    public void setCacheIssuedTokens(boolean cacheIssuedTokens) {
+        this.cacheIssuedTokens = cacheIssuedTokens;
+    }
+
+    public boolean isCacheIssuedTokens() {
+        return cacheIssuedTokens;
+    }
+
+    public void setIssuedTokenCache(IssuedTokenCache issuedTokenCache) {
+        this.issuedTokenCache = issuedTokenCache;
+    }
+
+    /**
+     * @return the IssuedTokenCache that was set, or else that of the bus
+     */
+    public IssuedTokenCache getIssuedTokenCache() {
+        if (issuedTokenCache == null) {
+            issuedTokenCache = IssuedTokenCache.getInstance(bus);
+        }
+        return issuedTokenCache;
+    }
     
     protected void setPolicyInternal(Policy newPolicy) {
         this.policy = newPolicy;
@@ -732,6 +796,18 @@ public abstract class AbstractSTSClient implements Configurable, InterceptorProv
      */
     protected STSResponse issue(
         String appliesTo, String action, String requestType, String binaryExchange
+    ) throws Exception {
+        return issue(appliesTo, action, requestType, binaryExchange,
+                     getClaimsToSerialize(), getOnBehalfOfToken(), getActAsToken());
+    }
+
+    /**
+     * Make an "Issue" invocation with the given claims and OnBehalfOf and ActAs tokens, and
+     * return the response as a STSResponse Object
+     */
+    protected STSResponse issue(
+        String appliesTo, String action, String requestType, String binaryExchange,
+        Object claimsToSerialize, Element onBehalfOfToken, Element actAsSecurityToken
     ) throws Exception {
         createClient();
         BindingOperationInfo boi = findOperation("/RST/Issue");
@@ -792,9 +868,8 @@ public abstract class AbstractSTSClient implements Configurable, InterceptorProv
             addAppliesTo(writer, appliesTo);
         }
         
-        addClaims(writer);
+        addClaims(writer, claimsToSerialize);
         
-        Element onBehalfOfToken = getOnBehalfOfToken();
         if (onBehalfOfToken != null) {
             writer.writeStartElement("wst", "OnBehalfOf", namespace);
             StaxUtils.copy(onBehalfOfToken, writer);
@@ -836,7 +911,6 @@ public abstract class AbstractSTSClient implements Configurable, InterceptorProv
             addBinaryExchange(binaryExchange, writer);
         }
 
-        Element actAsSecurityToken = getActAsToken();
         if (actAsSecurityToken != null) {
             writer.writeStartElement(STSUtils.WST_NS_08_02, "ActAs");
             StaxUtils.copy(actAsSecurityToken, writer);
@@ -867,6 +941,118 @@ public abstract class AbstractSTSClient implements Configurable, InterceptorProv
         return getDelegationSecurityToken(this.actAs);
     }
     
+    /**
+     * Create the key of an "Issue" request in the IssuedTokenCache. It is a digest of the STS,
+     * the parameters of the request, including the claims and the OnBehalfOf and ActAs tokens,
+     * and the properties of this STSClient which hold the credentials sent to the STS. The
+     * values of properties that are not Strings, Numbers, Booleans or Elements are held by the
+     * key and compared by identity, so tokens are only shared by clients configured with the
+     * same instances.
+     */
+    protected Object createIssuedTokenKey(
+        String appliesTo, String action, Object claimsToSerialize, Element onBehalfOfToken,
+        Element actAsToken
+    ) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        List<Object> references = new ArrayList<>();
+        updateDigest(digest, references, location);
+        updateDigest(digest, references, wsdlLocation);
+        updateDigest(digest, references, serviceName);
+        updateDigest(digest, references, endpointName);
+        updateDigest(digest, references, namespace);
+        updateDigest(digest, references, enableAppliesTo ? appliesTo : null);
+        updateDigest(digest, references, action);
+        updateDigest(digest, references, context);
+        updateDigest(digest, references, tokenType);
+        updateDigest(digest, references, sendKeyType ? keyType : null);
+        updateDigest(digest, references, keySize);
+        updateDigest(digest, references, enableLifetime ? ttl : null);
+        updateDigest(digest, references, template == null ? null : StaxUtils.toString(template));
+
+        W3CDOMStreamWriter writer = new W3CDOMStreamWriter();
+        writer.writeStartElement("wst", "Claims", namespace);
+        writer.writeNamespace("wst", namespace);
+        addClaims(writer, claimsToSerialize);
+        writer.writeEndElement();
+        updateDigest(digest, references, StaxUtils.toString(writer.getDocument()));
+        updateDigest(digest, references, onBehalfOfToken);
+        updateDigest(digest, references, actAsToken);
+        updateDigest(digest, references, useKeyCertificate == null ? null : useKeyCertificate.getEncoded());
+
+        for (String key : ISSUED_TOKEN_KEY_PROPERTIES) {
+            if (!ctx.containsKey(key)) {
+                continue;
+            }
+            updateDigest(digest, references, key);
+            updateDigest(digest, references, ctx.get(key));
+        }
+        return new IssuedTokenKey(Base64.getEncoder().encodeToString(digest.digest()), references);
+    }
+
+    private static void updateDigest(MessageDigest digest, List<Object> references, Object value) {
+        byte[] bytes;
+        if (value == null) {
+            digest.update((byte)0);
+            return;
+        } else if (value instanceof byte[]) {
+            bytes = (byte[])value;
+        } else if (value instanceof Element) {
+            bytes = StaxUtils.toString((Element)value).getBytes(StandardCharsets.UTF_8);
+        } else if (value instanceof String || value instanceof Number || value instanceof Boolean
+            || value instanceof QName) {
+            bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+        } else {
+            references.add(value);
+            bytes = value.getClass().getName().getBytes(StandardCharsets.UTF_8);
+        }
+        // the length keeps the values apart
+        digest.update((byte)1);
+        digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    /**
+     * The digest of the values of a request, and the other objects it was made with, which are
+     * compared by identity.
+     */
+    private static final class IssuedTokenKey {
+        private final String digest;
+        private final List<Object> references;
+
+        IssuedTokenKey(String digest, List<Object> references) {
+            this.digest = digest;
+            this.references = references;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = digest.hashCode();
+            for (Object reference : references) {
+                h = 31 * h + System.identityHashCode(reference);
+            }
+            return h;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof IssuedTokenKey)) {
+                return false;
+            }
+            IssuedTokenKey other = (IssuedTokenKey)obj;
+            if (!digest.equals(other.digest) || references.size() != other.references.size()) {
+                return false;
+            }
+            for (int i = 0; i < references.size(); i++) {
+                if (references.get(i) != other.references.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     protected Element getDelegationSecurityToken(Object delegationObject) throws Exception {
         if (delegationObject != null) {
             final boolean isString = delegationObject instanceof String;
@@ -1392,17 +1578,27 @@ public abstract class AbstractSTSClient implements Configurable, InterceptorProv
     }
     
     protected void addClaims(XMLStreamWriter writer) throws Exception {
+        addClaims(writer, getClaimsToSerialize());
+    }
+
+    /**
+     * Get the claims to be sent to the STS, from the claims CallbackHandler if no claims are set.
+     */
+    protected Object getClaimsToSerialize() throws Exception {
         Object claimsToSerialize = claims;
         if (claimsToSerialize == null && claimsCallbackHandler != null) {
             ClaimsCallback callback = new ClaimsCallback(message);
             claimsCallbackHandler.handle(new Callback[]{callback});
             claimsToSerialize = callback.getClaims();
         }
-        
+        return claimsToSerialize;
+    }
+
+    protected void addClaims(XMLStreamWriter writer, Object claimsToSerialize) throws Exception {
         if (claimsToSerialize instanceof Element) {
             StaxUtils.copy((Element)claimsToSerialize, writer);
         } else if (claimsToSerialize instanceof ClaimCollection) {
-            ClaimCollection claimCollection = (ClaimCollection)claims;
+            ClaimCollection claimCollection = (ClaimCollection)claimsToSerialize;
             claimCollection.serialize(writer, "wst", namespace);
         }
     }
@@ -0,0 +1,330 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.security.trust;
+
+import java.io.Closeable;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.buslifecycle.BusLifeCycleListener;
+import org.apache.cxf.buslifecycle.BusLifeCycleManager;
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.management.InstrumentationManager;
+import org.apache.cxf.management.ManagedComponent;
+import org.apache.cxf.management.ManagementConstants;
+import org.apache.cxf.management.annotation.ManagedAttribute;
+import org.apache.cxf.management.annotation.ManagedOperation;
+import org.apache.cxf.management.annotation.ManagedResource;
+import org.apache.cxf.ws.security.tokenstore.SecurityToken;
+
+/**
+ * The tokens issued by an STS to the STSClients of a bus, by a key of what was requested (see
+ * AbstractSTSClient#createIssuedTokenKey). Concurrent requests with the same key make a single
+ * call to the STS, whose token or error is returned to all of them.
+ * <p>
+ * A cached token is returned while it is valid for longer than the minimum validity. Once it is
+ * within the refresh time of its expiry, one request gets a new token from the STS while the
+ * others keep using the cached token, so that the requests do not wait for the STS when the
+ * token expires. Tokens without an expiry and SAML2 "OneTimeUse" assertions are not cached.
+ * <p>
+ * The counters are registered with the InstrumentationManager of the bus, if there is one.
+ */
+@ManagedResource(componentName = "WSSecurity",
+    description = "The tokens issued by an STS to the clients of a bus.")
+public class IssuedTokenCache implements ManagedComponent, Closeable, BusLifeCycleListener {
+    public static final long DEFAULT_MIN_VALIDITY = 10L;
+    public static final long DEFAULT_REFRESH_TIME = 60L;
+    public static final int DEFAULT_MAX_TOKENS = 10000;
+
+    private static final Logger LOG = LogUtils.getL7dLogger(IssuedTokenCache.class);
+
+    private final Bus bus;
+    private final ConcurrentMap<Object, SecurityToken> tokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, FutureTask<SecurityToken>> requests = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong stsRequests = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private volatile long minValidity = DEFAULT_MIN_VALIDITY;
+    private volatile long refreshTime = DEFAULT_REFRESH_TIME;
+    private volatile int maxTokens = DEFAULT_MAX_TOKENS;
+    private InstrumentationManager instrumentationManager;
+
+    public IssuedTokenCache() {
+        this(null);
+    }
+
+    public IssuedTokenCache(Bus bus) {
+        this.bus = bus;
+        if (bus != null) {
+            BusLifeCycleManager manager = bus.getExtension(BusLifeCycleManager.class);
+            if (manager != null) {
+                manager.registerLifeCycleListener(this);
+            }
+        }
+    }
+
+    /**
+     * @return the cache of the bus, which is created on the first call
+     */
+    public static IssuedTokenCache getInstance(Bus bus) {
+        synchronized (bus) {
+            IssuedTokenCache cache = (IssuedTokenCache)bus.getProperty(IssuedTokenCache.class.getName());
+            if (cache == null) {
+                cache = new IssuedTokenCache(bus);
+                cache.register();
+                bus.setProperty(IssuedTokenCache.class.getName(), cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Set the time in seconds for which a token must still be valid to be returned from the cache
+     */
+    public void setMinValidity(long minValidity) {
+        this.minValidity = minValidity;
+    }
+
+    public long getMinValidity() {
+        return minValidity;
+    }
+
+    /**
+     * Set the time in seconds before the expiry of a token from which it is refreshed. At most
+     * half the lifetime of a token is used, so that a short lived token is not requested again
+     * on every call.
+     */
+    public void setRefreshTime(long refreshTime) {
+        this.refreshTime = refreshTime;
+    }
+
+    public long getRefreshTime() {
+        return refreshTime;
+    }
+
+    /**
+     * Set the number of tokens that are cached. Once it is reached, the expired tokens are
+     * dropped, and new tokens are not cached while the cache is still full.
+     */
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * Return the token cached for the given key, or else the token of the call to the STS
+     * already made for it, or else call the STS with the given request.
+     * @param key the key of what is requested, compared by equals
+     * @param request the call to the STS
+     * @return the token
+     */
+    public SecurityToken getToken(Object key, Callable<SecurityToken> request) throws Exception {
+        SecurityToken token = tokens.get(key);
+        if (token != null) {
+            if (token.isExpired() || token.isAboutToExpire(minValidity)) {
+                tokens.remove(key, token);
+                token = null;
+            } else if (!token.isAboutToExpire(getRefreshTime(token)) || requests.containsKey(key)) {
+                hits.incrementAndGet();
+                return token;
+            }
+        }
+
+        FutureTask<SecurityToken> task = new FutureTask<>(request);
+        FutureTask<SecurityToken> inProgress = requests.putIfAbsent(key, task);
+        if (inProgress != null) {
+            if (token != null) {
+                // it is being refreshed, but is still valid
+                hits.incrementAndGet();
+                return token;
+            }
+            coalesced.incrementAndGet();
+            return getResult(inProgress);
+        }
+
+        try {
+            stsRequests.incrementAndGet();
+            task.run();
+            SecurityToken issuedToken;
+            if (token == null) {
+                issuedToken = getResult(task);
+            } else {
+                refreshes.incrementAndGet();
+                try {
+                    issuedToken = getResult(task);
+                } catch (Exception ex) {
+                    LOG.log(Level.WARNING, "Could not refresh the issued token, using the cached token", ex);
+                    return token;
+                }
+            }
+            if (isCacheable(issuedToken)) {
+                put(key, issuedToken);
+            } else {
+                tokens.remove(key);
+            }
+            return issuedToken;
+        } finally {
+            requests.remove(key, task);
+        }
+    }
+
+    public void remove(Object key) {
+        tokens.remove(key);
+    }
+
+    public void close() {
+        tokens.clear();
+        if (instrumentationManager != null) {
+            try {
+                instrumentationManager.unregister(this);
+            } catch (JMException ex) {
+                LOG.log(Level.FINE, "Could not unregister the issued token cache", ex);
+            }
+            instrumentationManager = null;
+        }
+    }
+
+    public void initComplete() {
+    }
+
+    public void preShutdown() {
+        close();
+    }
+
+    public void postShutdown() {
+        close();
+    }
+
+    @ManagedAttribute(description = "Tokens in the cache")
+    public int getSize() {
+        return tokens.size();
+    }
+
+    @ManagedAttribute(description = "Requests served from the cache")
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @ManagedAttribute(description = "Requests that waited for the STS call of an identical request")
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    @ManagedAttribute(description = "Calls made to the STS")
+    public long getStsRequestCount() {
+        return stsRequests.get();
+    }
+
+    @ManagedAttribute(description = "Calls made to the STS to refresh a cached token")
+    public long getRefreshCount() {
+        return refreshes.get();
+    }
+
+    @ManagedAttribute(description = "Calls to the STS avoided by the cache")
+    public long getStsRequestsAvoided() {
+        return hits.get() + coalesced.get();
+    }
+
+    @ManagedOperation(description = "Reset the counters")
+    public void reset() {
+        hits.set(0);
+        coalesced.set(0);
+        stsRequests.set(0);
+        refreshes.set(0);
+    }
+
+    public ObjectName getObjectName() throws JMException {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append(ManagementConstants.DEFAULT_DOMAIN_NAME).append(':');
+        buffer.append(ManagementConstants.BUS_ID_PROP).append('=').append(bus.getId()).append(',');
+        buffer.append(ManagementConstants.TYPE_PROP).append("=WSSecurity.IssuedTokenCache");
+        return new ObjectName(buffer.toString());
+    }
+
+    private void register() {
+        InstrumentationManager manager = bus.getExtension(InstrumentationManager.class);
+        if (manager != null) {
+            try {
+                manager.register(this);
+                instrumentationManager = manager;
+            } catch (JMException ex) {
+                LOG.log(Level.WARNING, "Could not register the issued token cache", ex);
+            }
+        }
+    }
+
+    private long getRefreshTime(SecurityToken token) {
+        Date created = token.getCreated();
+        if (created == null) {
+            return refreshTime;
+        }
+        long lifetime = (token.getExpires().getTime() - created.getTime()) / 1000L;
+        return Math.min(refreshTime, lifetime / 2L);
+    }
+
+    private boolean isCacheable(SecurityToken token) {
+        return token != null && token.getExpires() != null && !token.isAboutToExpire(minValidity)
+            && !STSTokenRetriever.isOneTimeUse(token);
+    }
+
+    private void put(Object key, SecurityToken token) {
+        if (tokens.size() >= maxTokens && !tokens.containsKey(key)) {
+            for (Iterator<SecurityToken> it = tokens.values().iterator(); it.hasNext();) {
+                if (it.next().isExpired()) {
+                    it.remove();
+                }
+            }
+            if (tokens.size() >= maxTokens) {
+                return;
+            }
+        }
+        tokens.put(key, token);
+    }
+
+    private static SecurityToken getResult(FutureTask<SecurityToken> task) throws Exception {
+        try {
+            return task.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw ex;
+        }
+    }
+}
@@ -21,9 +21,12 @@ package org.apache.cxf.ws.security.trust;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.security.auth.callback.CallbackHandler;
+
 import org.w3c.dom.Element;
 
 import org.apache.cxf.Bus;
@@ -56,10 +59,28 @@ public class STSClient extends AbstractSTSClient {
     }
     
     public SecurityToken requestSecurityToken(
-        String appliesTo, String action, String requestType, String binaryExchange
+        final String appliesTo, final String action, String requestType, String binaryExchange
     ) throws Exception {
-        STSResponse response = issue(appliesTo, action, requestType, binaryExchange);
+        if (cacheIssuedTokens && binaryExchange == null && !isSecureConv && !isSpnego
+            && "/Issue".equals(requestType)
+            && !(onBehalfOf instanceof CallbackHandler) && !(actAs instanceof CallbackHandler)) {
+            // OnBehalfOf and ActAs tokens from a CallbackHandler may differ on every call,
+            // so are not cached. The elements of the key are sent to the STS.
+            final Object claimsToSerialize = getClaimsToSerialize();
+            final Element onBehalfOfToken = getOnBehalfOfToken();
+            final Element actAsToken = getActAsToken();
+            Object key = createIssuedTokenKey(appliesTo, action, claimsToSerialize, onBehalfOfToken, actAsToken);
+            return getIssuedTokenCache().getToken(key, new Callable<SecurityToken>() {
+                public SecurityToken call() throws Exception {
+                    return toSecurityToken(issue(appliesTo, action, "/Issue", null,
+                                                 claimsToSerialize, onBehalfOfToken, actAsToken));
+                }
+            });
+        }
+        return toSecurityToken(issue(appliesTo, action, requestType, binaryExchange));
+    }
 
+    private SecurityToken toSecurityToken(STSResponse response) throws Exception {
         SecurityToken token = 
             createSecurityToken(getDocumentElement(response.getResponse()), response.getEntropy());
         
@@ -267,7 +267,7 @@ public final class STSTokenRetriever {
 
     // Check to see if the received token is a SAML2 Token with "OneTimeUse" set. If so,
     // it should not be cached on the endpoint, but only on the message.
-    private static boolean isOneTimeUse(SecurityToken issuedToken) {
+    static boolean isOneTimeUse(SecurityToken issuedToken) {
         Element token = issuedToken.getToken();
         if (token != null && "Assertion".equals(token.getLocalName())
             && WSConstants.SAML2_NS.equals(token.getNamespaceURI())) {
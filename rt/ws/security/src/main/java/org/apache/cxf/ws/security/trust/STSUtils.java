@@ -177,6 +177,8 @@ public final class STSUtils {
                                                      false)) {
             client.setSoap12();
         }
+        client.setCacheIssuedTokens(
+            SecurityUtils.getSecurityPropertyBoolean(SecurityConstants.STS_ISSUED_TOKEN_CACHE, message, false));
         
         return client;
     }
@@ -79,8 +79,7 @@ public abstract class AbstractTokenInterceptor extends AbstractSoapInterceptor {
 
     public void handleMessage(SoapMessage message) throws Fault {
 
-        boolean enableStax = 
-            MessageUtils.isTrue(message.getContextualProperty(SecurityConstants.ENABLE_STREAMING_SECURITY));
+        boolean enableStax = StreamingSecuritySelector.isStreaming(message);
         if (enableStax) {
             return;
         }
@@ -33,7 +33,6 @@ import org.w3c.dom.Element;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.interceptor.Fault;
-import org.apache.cxf.message.MessageUtils;
 import org.apache.cxf.rt.security.utils.SecurityUtils;
 import org.apache.cxf.ws.policy.AssertionInfo;
 import org.apache.cxf.ws.policy.AssertionInfoMap;
@@ -73,10 +72,20 @@ public class PolicyBasedWSS4JInInterceptor extends WSS4JInInterceptor {
     
     public void handleMessage(SoapMessage msg) throws Fault {
         AssertionInfoMap aim = msg.get(AssertionInfoMap.class);
-        boolean enableStax = 
-            MessageUtils.isTrue(msg.getContextualProperty(SecurityConstants.ENABLE_STREAMING_SECURITY));
+        boolean enableStax = StreamingSecuritySelector.isStreaming(msg);
         if (aim != null && !enableStax) {
-            super.handleMessage(msg);
+            if (msg.containsKey(SECURITY_PROCESSED) || isGET(msg)) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                super.handleMessage(msg);
+            } finally {
+                SecurityProcessingCounters counters = SecurityProcessingCounters.getCounters(msg);
+                if (counters != null) {
+                    counters.recordDom(System.nanoTime() - start);
+                }
+            }
         }
     }
     
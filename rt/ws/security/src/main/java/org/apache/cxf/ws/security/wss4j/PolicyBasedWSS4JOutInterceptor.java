@@ -44,6 +44,7 @@ import org.apache.cxf.ws.policy.AssertionInfoMap;
 import org.apache.cxf.ws.security.SecurityConstants;
 import org.apache.cxf.ws.security.policy.PolicyUtils;
 import org.apache.cxf.ws.security.wss4j.policyhandlers.AsymmetricBindingHandler;
+import org.apache.cxf.ws.security.wss4j.policyhandlers.SecurityPlan;
 import org.apache.cxf.ws.security.wss4j.policyhandlers.SymmetricBindingHandler;
 import org.apache.cxf.ws.security.wss4j.policyhandlers.TransportBindingHandler;
 import org.apache.neethi.Policy;
@@ -75,8 +76,7 @@ public class PolicyBasedWSS4JOutInterceptor extends AbstractPhaseInterceptor<Soa
 
 
     public void handleMessage(SoapMessage mc) throws Fault {
-        boolean enableStax = 
-            MessageUtils.isTrue(mc.getContextualProperty(SecurityConstants.ENABLE_STREAMING_SECURITY));
+        boolean enableStax = StreamingSecuritySelector.isStreaming(mc);
         if (!enableStax) {
             if (mc.getContent(SOAPMessage.class) == null) {
                 saajOut.handleMessage(mc);
@@ -135,7 +135,11 @@ public class PolicyBasedWSS4JOutInterceptor extends AbstractPhaseInterceptor<Soa
             }
             
             // extract Assertion information
-            AbstractBinding binding = PolicyUtils.getSecurityBinding(aim);
+            SecurityPlan plan = SecurityPlan.getSecurityPlan(message);
+            AbstractBinding binding = plan.getBinding();
+            if (binding != null) {
+                PolicyUtils.assertPolicy(aim, binding);
+            }
 
             if (binding == null && isRequestor(message)) {
                 Policy policy = new Policy();
@@ -71,9 +71,16 @@ public class PolicyBasedWSS4JStaxInInterceptor extends WSS4JStaxInInterceptor {
 
     public void handleMessage(SoapMessage msg) throws Fault {
         AssertionInfoMap aim = msg.get(AssertionInfoMap.class);
-        boolean enableStax = 
-            MessageUtils.isTrue(msg.getContextualProperty(SecurityConstants.ENABLE_STREAMING_SECURITY));
+        boolean enableStax = StreamingSecuritySelector.isStreaming(msg);
         if (aim != null && enableStax) {
+            if (msg.containsKey(SECURITY_PROCESSED) || isGET(msg)) {
+                return;
+            }
+            if (SecurityProcessingCounters.getCounters(msg) != null) {
+                // recorded by the StreamingSecurityTimerInterceptor, as the security header
+                // is processed while the headers are read
+                msg.put(StreamingSecurityTimerInterceptor.START, System.nanoTime());
+            }
             super.handleMessage(msg);
         }
     }
@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.security.wss4j;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.management.InstrumentationManager;
+import org.apache.cxf.management.ManagedComponent;
+import org.apache.cxf.management.ManagementConstants;
+import org.apache.cxf.management.annotation.ManagedAttribute;
+import org.apache.cxf.management.annotation.ManagedOperation;
+import org.apache.cxf.management.annotation.ManagedResource;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.service.model.EndpointInfo;
+
+/**
+ * The number of inbound messages of an endpoint processed by the DOM and by the streaming
+ * WS-Security code, with the time spent on them.  The DOM time includes building the SAAJ
+ * tree; the streaming time runs until the security header has been processed, as the parts
+ * of the body are verified while the body is read.
+ * <p>
+ * The counters are only kept when SecurityConstants.ENABLE_STREAMING_SECURITY is "auto", and are
+ * registered with the InstrumentationManager of the bus, if there is one.
+ */
+@ManagedResource(componentName = "WSSecurity",
+    description = "WS-Security processing counters of an endpoint.")
+public class SecurityProcessingCounters implements ManagedComponent, Closeable {
+
+    private static final Logger LOG = LogUtils.getL7dLogger(SecurityProcessingCounters.class);
+
+    private final Bus bus;
+    private final Endpoint endpoint;
+    private final AtomicLong domMessages = new AtomicLong();
+    private final AtomicLong domNanos = new AtomicLong();
+    private final AtomicLong streamingMessages = new AtomicLong();
+    private final AtomicLong streamingNanos = new AtomicLong();
+    private InstrumentationManager instrumentationManager;
+
+    SecurityProcessingCounters(Bus bus, Endpoint endpoint) {
+        this.bus = bus;
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @return the counters of the endpoint of the message, null if it has no endpoint or the
+     * code is not selected from the policy
+     */
+    public static SecurityProcessingCounters getCounters(Message message) {
+        if (!StreamingSecuritySelector.isAuto(message)) {
+            return null;
+        }
+        Endpoint ep = message.getExchange().getEndpoint();
+        if (ep == null || ep.getEndpointInfo() == null) {
+            return null;
+        }
+        EndpointInfo info = ep.getEndpointInfo();
+        SecurityProcessingCounters counters = info.getProperty(SecurityProcessingCounters.class.getName(),
+                                                               SecurityProcessingCounters.class);
+        if (counters != null) {
+            return counters;
+        }
+        synchronized (info) {
+            counters = info.getProperty(SecurityProcessingCounters.class.getName(),
+                                        SecurityProcessingCounters.class);
+            if (counters == null) {
+                counters = new SecurityProcessingCounters(message.getExchange().getBus(), ep);
+                counters.register();
+                info.setProperty(SecurityProcessingCounters.class.getName(), counters);
+            }
+            return counters;
+        }
+    }
+
+    private void register() {
+        if (bus == null) {
+            return;
+        }
+        InstrumentationManager manager = bus.getExtension(InstrumentationManager.class);
+        if (manager != null) {
+            try {
+                manager.register(this);
+                instrumentationManager = manager;
+                endpoint.addCleanupHook(this);
+            } catch (JMException ex) {
+                LOG.log(Level.WARNING, "Could not register the WS-Security counters", ex);
+            }
+        }
+    }
+
+    public void close() {
+        if (instrumentationManager != null) {
+            try {
+                instrumentationManager.unregister(this);
+            } catch (JMException ex) {
+                LOG.log(Level.FINE, "Could not unregister the WS-Security counters", ex);
+            }
+            instrumentationManager = null;
+        }
+    }
+
+    public void recordDom(long nanos) {
+        domMessages.incrementAndGet();
+        domNanos.addAndGet(nanos);
+    }
+
+    public void recordStreaming(long nanos) {
+        streamingMessages.incrementAndGet();
+        streamingNanos.addAndGet(nanos);
+    }
+
+    @ManagedAttribute(description = "Messages processed by the DOM code")
+    public long getDomMessages() {
+        return domMessages.get();
+    }
+
+    @ManagedAttribute(description = "Milliseconds spent in the DOM code")
+    public long getDomProcessingTime() {
+        return TimeUnit.NANOSECONDS.toMillis(domNanos.get());
+    }
+
+    @ManagedAttribute(description = "Messages processed by the streaming code")
+    public long getStreamingMessages() {
+        return streamingMessages.get();
+    }
+
+    @ManagedAttribute(description = "Milliseconds spent in the streaming code")
+    public long getStreamingProcessingTime() {
+        return TimeUnit.NANOSECONDS.toMillis(streamingNanos.get());
+    }
+
+    @ManagedOperation(description = "Reset the counters")
+    public void reset() {
+        domMessages.set(0);
+        domNanos.set(0);
+        streamingMessages.set(0);
+        streamingNanos.set(0);
+    }
+
+    public ObjectName getObjectName() throws JMException {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append(ManagementConstants.DEFAULT_DOMAIN_NAME).append(':');
+        buffer.append(ManagementConstants.BUS_ID_PROP).append('=').append(bus.getId()).append(',');
+        buffer.append(ManagementConstants.TYPE_PROP).append("=WSSecurity.Endpoint,");
+        buffer.append(ManagementConstants.SERVICE_NAME_PROP).append('=')
+            .append(ObjectName.quote(endpoint.getService().getName().toString())).append(',');
+        buffer.append(ManagementConstants.PORT_NAME_PROP).append('=')
+            .append(ObjectName.quote(endpoint.getEndpointInfo().getName().toString())).append(',');
+        // the instance id makes the name unique
+        buffer.append(ManagementConstants.INSTANCE_ID_PROP).append('=').append(endpoint.hashCode());
+        return new ObjectName(buffer.toString());
+    }
+}
@@ -0,0 +1,268 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.security.wss4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageUtils;
+import org.apache.cxf.service.model.EndpointInfo;
+import org.apache.cxf.ws.policy.AssertionInfo;
+import org.apache.cxf.ws.policy.AssertionInfoMap;
+import org.apache.cxf.ws.security.SecurityConstants;
+import org.apache.cxf.ws.security.policy.PolicyUtils;
+import org.apache.neethi.Assertion;
+import org.apache.wss4j.policy.SPConstants;
+import org.apache.wss4j.policy.model.AbstractToken;
+import org.apache.wss4j.policy.model.AbstractTokenWrapper;
+import org.apache.wss4j.policy.model.IssuedToken;
+import org.apache.wss4j.policy.model.KerberosToken;
+import org.apache.wss4j.policy.model.RequiredElements;
+import org.apache.wss4j.policy.model.SamlToken;
+import org.apache.wss4j.policy.model.SupportingTokens;
+import org.apache.wss4j.policy.model.SymmetricBinding;
+import org.apache.wss4j.policy.model.UsernameToken;
+import org.apache.wss4j.policy.model.XPath;
+
+/**
+ * Decides whether the policy based interceptors use the streaming (StAX) or the DOM
+ * WS-Security implementation for a message.
+ * <p>
+ * If SecurityConstants.ENABLE_STREAMING_SECURITY is set to "auto", the streaming code is used
+ * unless the effective policy contains an assertion it does not support.  The decision is
+ * made once for each effective policy of an endpoint, that is each set of assertion objects,
+ * compared by identity, which the policy engine caches, and the assertions which forced the
+ * DOM code are logged at that point.  Any other value of the property selects the streaming
+ * code if it is "true", as before.
+ */
+public final class StreamingSecuritySelector {
+
+    public static final String AUTO = "auto";
+
+    private static final Logger LOG = LogUtils.getL7dLogger(StreamingSecuritySelector.class);
+
+    private static final String STREAMING = StreamingSecuritySelector.class.getName() + ".STREAMING";
+    private static final String DECISIONS = StreamingSecuritySelector.class.getName() + ".DECISIONS";
+    /**
+     * The number of effective policies per endpoint whose decision is kept, beyond it, e.g. with
+     * policies set on the messages, the policy is checked for every message.
+     */
+    private static final int MAX_DECISIONS = 64;
+
+    /**
+     * The XPath expressions the streaming code supports: a path of (prefixed) element names.
+     */
+    private static final Pattern ELEMENT_PATH = Pattern.compile("(/([\\w.\\-]+:)?[\\w.\\-]+)+");
+
+    private StreamingSecuritySelector() {
+        // complete
+    }
+
+    /**
+     * @return whether the streaming code is to process the security of the message
+     */
+    public static boolean isStreaming(Message message) {
+        Object value = message.getContextualProperty(SecurityConstants.ENABLE_STREAMING_SECURITY);
+        if (!isAuto(value)) {
+            return MessageUtils.isTrue(value);
+        }
+        // the request and the response of an exchange have to use the same code
+        Exchange exchange = message.getExchange();
+        Boolean streaming = exchange == null ? null : (Boolean)exchange.get(STREAMING);
+        if (streaming == null) {
+            streaming = select(message);
+            if (exchange != null) {
+                exchange.put(STREAMING, streaming);
+            }
+        }
+        return streaming;
+    }
+
+    /**
+     * @return whether the code is selected from the policy for the message
+     */
+    public static boolean isAuto(Message message) {
+        return isAuto(message.getContextualProperty(SecurityConstants.ENABLE_STREAMING_SECURITY));
+    }
+
+    private static boolean isAuto(Object value) {
+        return value instanceof String && AUTO.equalsIgnoreCase(((String)value).trim());
+    }
+
+    private static boolean select(Message message) {
+        AssertionInfoMap aim = message.get(AssertionInfoMap.class);
+        if (aim == null) {
+            return false;
+        }
+        Endpoint ep = message.getExchange().getEndpoint();
+        if (ep == null || ep.getEndpointInfo() == null) {
+            return getUnsupportedAssertions(aim).isEmpty();
+        }
+        Map<AssertionsKey, Boolean> decisions = getDecisions(ep.getEndpointInfo());
+        AssertionsKey key = new AssertionsKey(aim);
+        Boolean streaming = decisions.get(key);
+        if (streaming == null) {
+            List<String> unsupported = getUnsupportedAssertions(aim);
+            streaming = unsupported.isEmpty();
+            if (decisions.size() < MAX_DECISIONS && decisions.putIfAbsent(key, streaming) == null) {
+                if (streaming) {
+                    LOG.fine("Using streaming WS-Security for " + ep.getEndpointInfo().getName());
+                } else {
+                    LogUtils.log(LOG, Level.INFO, "STREAMING_SECURITY_FALLBACK",
+                                 new Object[] {ep.getEndpointInfo().getName(), unsupported});
+                }
+            }
+        }
+        return streaming;
+    }
+
+    private static Map<AssertionsKey, Boolean> getDecisions(EndpointInfo info) {
+        Map<AssertionsKey, Boolean> decisions = CastUtils.cast((Map<?, ?>)info.getProperty(DECISIONS));
+        if (decisions != null) {
+            return decisions;
+        }
+        synchronized (info) {
+            decisions = CastUtils.cast((Map<?, ?>)info.getProperty(DECISIONS));
+            if (decisions == null) {
+                decisions = new ConcurrentHashMap<>();
+                info.setProperty(DECISIONS, decisions);
+            }
+            return decisions;
+        }
+    }
+
+    /**
+     * @return descriptions of the assertions of the map which the streaming code does not
+     * support, empty if it supports all of them
+     */
+    public static List<String> getUnsupportedAssertions(AssertionInfoMap aim) {
+        boolean transportBinding =
+            PolicyUtils.getFirstAssertionByLocalname(aim, SPConstants.TRANSPORT_BINDING) != null;
+        List<String> unsupported = new ArrayList<>();
+        for (Collection<AssertionInfo> ais : aim.values()) {
+            for (AssertionInfo ai : ais) {
+                Assertion assertion = ai.getAssertion();
+                if (assertion instanceof RequiredElements) {
+                    checkXPaths((RequiredElements)assertion, unsupported);
+                } else if (assertion instanceof SupportingTokens) {
+                    checkSupportingTokens((SupportingTokens)assertion, transportBinding, unsupported);
+                } else if (assertion instanceof SymmetricBinding) {
+                    checkSymmetricBinding((SymmetricBinding)assertion, unsupported);
+                }
+            }
+        }
+        return unsupported;
+    }
+
+    private static void checkXPaths(RequiredElements elements, List<String> unsupported) {
+        if (elements.getXPaths() == null) {
+            return;
+        }
+        for (XPath xpath : elements.getXPaths()) {
+            if (xpath.getVersion() != XPath.Version.V1 || !ELEMENT_PATH.matcher(xpath.getXPath()).matches()) {
+                addUnsupported(unsupported, elements.getName().getLocalPart() + " " + xpath.getXPath());
+            }
+        }
+    }
+
+    private static void checkSupportingTokens(SupportingTokens supportingTokens, boolean transportBinding,
+                                              List<String> unsupported) {
+        String name = supportingTokens.getName().getLocalPart();
+        for (AbstractToken token : supportingTokens.getTokens()) {
+            if (supportingTokens.isEndorsing()) {
+                if (token instanceof UsernameToken) {
+                    addUnsupported(unsupported, name + " " + token.getName().getLocalPart());
+                }
+            } else if (transportBinding && !(token instanceof UsernameToken || token instanceof IssuedToken
+                || token instanceof KerberosToken || token instanceof SamlToken)) {
+                addUnsupported(unsupported, name + " " + token.getName().getLocalPart());
+            }
+        }
+    }
+
+    private static void checkSymmetricBinding(SymmetricBinding binding, List<String> unsupported) {
+        for (AbstractTokenWrapper wrapper
+            : new AbstractTokenWrapper[] {binding.getProtectionToken(), binding.getSignatureToken(),
+                                          binding.getEncryptionToken()}) {
+            if (wrapper != null && wrapper.getToken() instanceof UsernameToken) {
+                addUnsupported(unsupported, binding.getName().getLocalPart() + " "
+                               + wrapper.getName().getLocalPart() + " "
+                               + wrapper.getToken().getName().getLocalPart());
+            }
+        }
+    }
+
+    private static void addUnsupported(List<String> unsupported, String description) {
+        if (!unsupported.contains(description)) {
+            unsupported.add(description);
+        }
+    }
+
+    /**
+     * The assertions of an effective policy, compared by identity as the WS-SecurityPolicy
+     * assertions compare by their content.
+     */
+    private static final class AssertionsKey {
+        private final Set<Assertion> assertions =
+            Collections.newSetFromMap(new IdentityHashMap<Assertion, Boolean>());
+        private final int hashCode;
+
+        AssertionsKey(AssertionInfoMap aim) {
+            int h = 0;
+            for (Collection<AssertionInfo> ais : aim.values()) {
+                for (AssertionInfo ai : ais) {
+                    if (assertions.add(ai.getAssertion())) {
+                        h += System.identityHashCode(ai.getAssertion());
+                    }
+                }
+            }
+            hashCode = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof AssertionsKey)) {
+                return false;
+            }
+            Set<Assertion> other = ((AssertionsKey)o).assertions;
+            // the identity set compares the assertions of the other set by identity
+            return other.size() == assertions.size() && assertions.containsAll(other);
+        }
+    }
+}
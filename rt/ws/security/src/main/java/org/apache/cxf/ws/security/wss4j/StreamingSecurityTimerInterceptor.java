@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.ws.security.wss4j;
+
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+/**
+ * Records the time the streaming WS-Security code took for an inbound message in the
+ * SecurityProcessingCounters, once the security header has been processed.  The start of the
+ * processing is set on the message by the PolicyBasedWSS4JStaxInInterceptor.
+ */
+public class StreamingSecurityTimerInterceptor extends AbstractPhaseInterceptor<SoapMessage> {
+    public static final StreamingSecurityTimerInterceptor INSTANCE = new StreamingSecurityTimerInterceptor();
+
+    static final String START = StreamingSecurityTimerInterceptor.class.getName() + ".START";
+
+    public StreamingSecurityTimerInterceptor() {
+        super(Phase.PRE_PROTOCOL);
+        addAfter(StaxSecurityContextInInterceptor.class.getName());
+    }
+
+    public void handleMessage(SoapMessage message) throws Fault {
+        Long start = (Long)message.get(START);
+        if (start == null) {
+            return;
+        }
+        SecurityProcessingCounters counters = SecurityProcessingCounters.getCounters(message);
+        if (counters != null) {
+            counters.recordStreaming(System.nanoTime() - start);
+        }
+    }
+}
@@ -36,8 +36,10 @@ import org.apache.cxf.Bus;
 import org.apache.cxf.binding.soap.SoapFault;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.SoapVersion;
+import org.apache.cxf.common.classloader.ClassLoaderUtils;
 import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageUtils;
 import org.apache.cxf.rt.security.utils.SecurityUtils;
@@ -121,12 +123,14 @@ public final class WSS4JUtils {
                     URL configFile = SecurityUtils.getConfigFileURL(message, SecurityConstants.CACHE_CONFIG_FILE,
                                                                     "cxf-ehcache.xml");
 
-                    if (ReplayCacheFactory.isEhCacheInstalled()) {
+                    ReplayCacheFactory replayCacheFactory = getReplayCacheFactory(message);
+                    if (replayCacheFactory != null) {
+                        replayCache = replayCacheFactory.newReplayCache(cacheKey, configFile);
+                    } else if (ReplayCacheFactory.isEhCacheInstalled()) {
                         Bus bus = message.getExchange().getBus();
                         replayCache = new CXFEHCacheReplayCache(cacheKey, bus, configFile);
                     } else {
-                        ReplayCacheFactory replayCacheFactory = ReplayCacheFactory.newInstance();
-                        replayCache = replayCacheFactory.newReplayCache(cacheKey, configFile);
+                        replayCache = ReplayCacheFactory.newInstance().newReplayCache(cacheKey, configFile);
                     }
                     
                     info.setProperty(instanceKey, replayCache);
@@ -137,6 +141,25 @@ public final class WSS4JUtils {
         return null;
     }
     
+    private static ReplayCacheFactory getReplayCacheFactory(Message message) {
+        Object o = message.getContextualProperty(SecurityConstants.REPLAY_CACHE_FACTORY);
+        if (o == null) {
+            return null;
+        }
+        try {
+            if (o instanceof ReplayCacheFactory) {
+                return (ReplayCacheFactory)o;
+            } else if (o instanceof Class) {
+                return (ReplayCacheFactory)((Class<?>)o).newInstance();
+            } else {
+                return (ReplayCacheFactory)ClassLoaderUtils.loadClass(o.toString(), WSS4JUtils.class)
+                    .newInstance();
+            }
+        } catch (Exception ex) {
+            throw new Fault(ex);
+        }
+    }
+    
     public static String parseAndStoreStreamingSecurityToken(
         org.apache.xml.security.stax.securityToken.SecurityToken securityToken,
         Message message
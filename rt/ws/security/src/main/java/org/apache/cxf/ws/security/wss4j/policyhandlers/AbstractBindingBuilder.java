@@ -23,7 +23,6 @@ import java.net.URL;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -157,6 +156,7 @@ public abstract class AbstractBindingBuilder extends AbstractCommonBindingHandle
     protected SOAPMessage saaj;
     protected WSSecHeader secHeader;
     protected AssertionInfoMap aim;
+    protected SecurityPlan securityPlan;
     protected AbstractBinding binding;
     protected WSSecTimestamp timestampEl;
     protected String mainSigId;
@@ -192,6 +192,7 @@ public abstract class AbstractBindingBuilder extends AbstractCommonBindingHandle
         this.wssConfig = config;
         this.binding = binding;
         this.aim = aim;
+        this.securityPlan = SecurityPlan.getSecurityPlan(message);
         this.secHeader = secHeader;
         this.saaj = saaj;
         message.getExchange().put(WSHandlerConstants.SEND_SIGV, signatures);
@@ -414,19 +415,17 @@ public abstract class AbstractBindingBuilder extends AbstractCommonBindingHandle
     }
     
     private List<SupportingToken> handleSupportingTokens(
-        Collection<AssertionInfo> tokensInfos, 
+        String localname, 
         boolean endorse
     ) throws WSSecurityException {
         List<SupportingToken> ret = new ArrayList<>();
-        if (tokensInfos != null) {
-            for (AssertionInfo assertionInfo : tokensInfos) {
-                if (assertionInfo.getAssertion() instanceof SupportingTokens) {
-                    assertionInfo.setAsserted(true);
-                    try {
-                        handleSupportingTokens((SupportingTokens)assertionInfo.getAssertion(), endorse, ret);
-                    } catch (SOAPException ex) {
-                        throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, ex);
-                    }
+        for (Assertion assertion : securityPlan.getAssertions(localname)) {
+            if (assertion instanceof SupportingTokens) {
+                assertPolicy(assertion);
+                try {
+                    handleSupportingTokens((SupportingTokens)assertion, endorse, ret);
+                } catch (SOAPException ex) {
+                    throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, ex);
                 }
             }
         }
@@ -1067,28 +1066,19 @@ public abstract class AbstractBindingBuilder extends AbstractCommonBindingHandle
         EncryptedElements elements = null;
         ContentEncryptedElements celements = null;
 
-        Collection<AssertionInfo> ais = getAllAssertionsByLocalname(SPConstants.ENCRYPTED_PARTS);
-        if (!ais.isEmpty()) {
-            for (AssertionInfo ai : ais) {
-                parts = (EncryptedParts)ai.getAssertion();
-                ai.setAsserted(true);
-            }            
+        for (Assertion assertion : securityPlan.getAssertions(SPConstants.ENCRYPTED_PARTS)) {
+            parts = (EncryptedParts)assertion;
+            assertPolicy(assertion);
         }
         
-        ais = getAllAssertionsByLocalname(SPConstants.ENCRYPTED_ELEMENTS);
-        if (!ais.isEmpty()) {
-            for (AssertionInfo ai : ais) {
-                elements = (EncryptedElements)ai.getAssertion();
-                ai.setAsserted(true);
-            }            
+        for (Assertion assertion : securityPlan.getAssertions(SPConstants.ENCRYPTED_ELEMENTS)) {
+            elements = (EncryptedElements)assertion;
+            assertPolicy(assertion);
         }
         
-        ais = getAllAssertionsByLocalname(SPConstants.CONTENT_ENCRYPTED_ELEMENTS);
-        if (!ais.isEmpty()) {
-            for (AssertionInfo ai : ais) {
-                celements = (ContentEncryptedElements)ai.getAssertion();
-                ai.setAsserted(true);
-            }            
+        for (Assertion assertion : securityPlan.getAssertions(SPConstants.CONTENT_ENCRYPTED_ELEMENTS)) {
+            celements = (ContentEncryptedElements)assertion;
+            assertPolicy(assertion);
         }
         
         if (parts == null && elements == null && celements == null) {
@@ -1150,26 +1140,20 @@ public abstract class AbstractBindingBuilder extends AbstractCommonBindingHandle
                 this.assertPolicy(elements.getName());
             }
         } else {
-            Collection<AssertionInfo> ais = getAllAssertionsByLocalname(SPConstants.SIGNED_PARTS);
-            if (!ais.isEmpty()) {
-                for (AssertionInfo ai : ais) {
-                    SignedParts signedParts = (SignedParts)ai.getAssertion();
-                    ai.setAsserted(true);
-                    if (!suppTokenParts.contains(signedParts)) {
-                        parts = signedParts;
-                    }
-                }            
+            for (Assertion assertion : securityPlan.getAssertions(SPConstants.SIGNED_PARTS)) {
+                SignedParts signedParts = (SignedParts)assertion;
+                assertPolicy(assertion);
+                if (!suppTokenParts.contains(signedParts)) {
+                    parts = signedParts;
+                }
             }
             
-            ais = getAllAssertionsByLocalname(SPConstants.SIGNED_ELEMENTS);
-            if (!ais.isEmpty()) {
-                for (AssertionInfo ai : ais) {
-                    SignedElements signedElements = (SignedElements)ai.getAssertion();
-                    ai.setAsserted(true);
-                    if (!suppTokenParts.contains(signedElements)) {
-                        elements = signedElements;
-                    }
-                }            
+            for (Assertion assertion : securityPlan.getAssertions(SPConstants.SIGNED_ELEMENTS)) {
+                SignedElements signedElements = (SignedElements)assertion;
+                assertPolicy(assertion);
+                if (!suppTokenParts.contains(signedElements)) {
+                    elements = signedElements;
+                }
             }
         }
         
@@ -2078,38 +2062,24 @@ public abstract class AbstractBindingBuilder extends AbstractCommonBindingHandle
     }
     
     protected void addSupportingTokens(List<WSEncryptionPart> sigs) throws WSSecurityException {
-        Collection<AssertionInfo> sgndSuppTokens = 
-            PolicyUtils.getAllAssertionsByLocalname(aim, SPConstants.SIGNED_SUPPORTING_TOKENS);
-        List<SupportingToken> sigSuppTokList = this.handleSupportingTokens(sgndSuppTokens, false);
+        List<SupportingToken> sigSuppTokList = 
+            this.handleSupportingTokens(SPConstants.SIGNED_SUPPORTING_TOKENS, false);
         
-        Collection<AssertionInfo> endSuppTokens = 
-            PolicyUtils.getAllAssertionsByLocalname(aim, SPConstants.ENDORSING_SUPPORTING_TOKENS);
-        endSuppTokList = this.handleSupportingTokens(endSuppTokens, true);
+        endSuppTokList = this.handleSupportingTokens(SPConstants.ENDORSING_SUPPORTING_TOKENS, true);
 
-        Collection<AssertionInfo> sgndEndSuppTokens =
-            PolicyUtils.getAllAssertionsByLocalname(aim, SPConstants.SIGNED_ENDORSING_SUPPORTING_TOKENS);
-        sgndEndSuppTokList = this.handleSupportingTokens(sgndEndSuppTokens, true);
+        sgndEndSuppTokList = this.handleSupportingTokens(SPConstants.SIGNED_ENDORSING_SUPPORTING_TOKENS, true);
         
-        Collection<AssertionInfo> sgndEncryptedSuppTokens =
-            PolicyUtils.getAllAssertionsByLocalname(aim, SPConstants.SIGNED_ENCRYPTED_SUPPORTING_TOKENS);
         List<SupportingToken> sgndEncSuppTokList 
-            = this.handleSupportingTokens(sgndEncryptedSuppTokens, false);
+            = this.handleSupportingTokens(SPConstants.SIGNED_ENCRYPTED_SUPPORTING_TOKENS, false);
         
-        Collection<AssertionInfo> endorsingEncryptedSuppTokens =
-            PolicyUtils.getAllAssertionsByLocalname(aim, SPConstants.ENDORSING_ENCRYPTED_SUPPORTING_TOKENS);
-        endSuppTokList.addAll(this.handleSupportingTokens(endorsingEncryptedSuppTokens, true));
+        endSuppTokList.addAll(this.handleSupportingTokens(SPConstants.ENDORSING_ENCRYPTED_SUPPORTING_TOKENS, true));
 
-        Collection<AssertionInfo> sgndEndEncSuppTokens =
-            PolicyUtils.getAllAssertionsByLocalname(aim, SPConstants.SIGNED_ENDORSING_ENCRYPTED_SUPPORTING_TOKENS);
-        sgndEndSuppTokList.addAll(this.handleSupportingTokens(sgndEndEncSuppTokens, true));
+        sgndEndSuppTokList.addAll(
+            this.handleSupportingTokens(SPConstants.SIGNED_ENDORSING_ENCRYPTED_SUPPORTING_TOKENS, true));
 
-        Collection<AssertionInfo> supportingToks =
-            PolicyUtils.getAllAssertionsByLocalname(aim, SPConstants.SUPPORTING_TOKENS);
-        this.handleSupportingTokens(supportingToks, false);
+        this.handleSupportingTokens(SPConstants.SUPPORTING_TOKENS, false);
 
-        Collection<AssertionInfo> encryptedSupportingToks =
-            PolicyUtils.getAllAssertionsByLocalname(aim, SPConstants.ENCRYPTED_SUPPORTING_TOKENS);
-        this.handleSupportingTokens(encryptedSupportingToks, false);
+        this.handleSupportingTokens(SPConstants.ENCRYPTED_SUPPORTING_TOKENS, false);
 
         //Setup signature parts
         addSignatureParts(sigSuppTokList, sigs);
@@ -2134,6 +2104,11 @@ public abstract class AbstractBindingBuilder extends AbstractCommonBindingHandle
         doEndorsedSignatures(sgndEndSuppTokList, tokenProtect, sigProtect);
     } 
 
+    @Override
+    protected Wss10 getWss10() {
+        return securityPlan.getWss10();
+    }
+
     protected void addSignatureConfirmation(List<WSEncryptionPart> sigParts) {
         Wss10 wss10 = getWss10();
         
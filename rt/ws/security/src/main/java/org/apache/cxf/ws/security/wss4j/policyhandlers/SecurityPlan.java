@@ -0,0 +1,239 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.security.wss4j.policyhandlers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.namespace.QName;
+
+import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.ws.policy.AssertionInfo;
+import org.apache.cxf.ws.policy.AssertionInfoMap;
+import org.apache.cxf.ws.policy.EffectivePolicy;
+import org.apache.neethi.Assertion;
+import org.apache.wss4j.policy.SP11Constants;
+import org.apache.wss4j.policy.SP12Constants;
+import org.apache.wss4j.policy.SPConstants;
+import org.apache.wss4j.policy.model.AbstractBinding;
+import org.apache.wss4j.policy.model.Wss10;
+
+/**
+ * The WS-SecurityPolicy assertions of a policy alternative, indexed by local name, so that the
+ * binding handlers do not search the AssertionInfoMap of every outbound message for the binding,
+ * the signed and encrypted parts and the supporting tokens.
+ * <p>
+ * A plan is immutable.  It is built once for each chosen alternative of an operation and cached
+ * on the BindingOperationInfo, keyed by the identity of the assertions of the alternative, as the
+ * AssertionInfoMap of each message refers to the same assertion objects.  The AssertionInfos of
+ * a message are still asserted for each message.
+ */
+public final class SecurityPlan {
+
+    private static final String PLANS = SecurityPlan.class.getName() + ".PLANS";
+
+    /**
+     * Bounds the plans of an operation, as an overridden policy yields a new alternative for
+     * each message.  Messages of further alternatives get a plan of their own.
+     */
+    private static final int MAX_PLANS = 16;
+
+    private static final String[] NAMESPACES = {SP11Constants.SP_NS, SP12Constants.SP_NS};
+
+    private final Map<String, List<Assertion>> assertions;
+    private final AbstractBinding binding;
+    private final Wss10 wss10;
+
+    SecurityPlan(AssertionInfoMap aim) {
+        Map<String, List<Assertion>> byLocalname = new HashMap<>();
+        // SP 1.1 assertions come first, as in PolicyUtils.getFirstAssertionByLocalname
+        for (String namespace : NAMESPACES) {
+            for (Map.Entry<QName, Collection<AssertionInfo>> entry : aim.entrySet()) {
+                if (!namespace.equals(entry.getKey().getNamespaceURI())) {
+                    continue;
+                }
+                List<Assertion> list = byLocalname.get(entry.getKey().getLocalPart());
+                if (list == null) {
+                    list = new ArrayList<>();
+                    byLocalname.put(entry.getKey().getLocalPart(), list);
+                }
+                for (AssertionInfo ai : entry.getValue()) {
+                    list.add(ai.getAssertion());
+                }
+            }
+        }
+        for (Map.Entry<String, List<Assertion>> entry : byLocalname.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        assertions = byLocalname;
+
+        AbstractBinding b = (AbstractBinding)getFirstAssertion(SPConstants.ASYMMETRIC_BINDING);
+        if (b == null) {
+            b = (AbstractBinding)getFirstAssertion(SPConstants.SYMMETRIC_BINDING);
+        }
+        if (b == null) {
+            b = (AbstractBinding)getFirstAssertion(SPConstants.TRANSPORT_BINDING);
+        }
+        binding = b;
+
+        Assertion wss = getFirstAssertion(SPConstants.WSS10);
+        if (wss == null) {
+            wss = getFirstAssertion(SPConstants.WSS11);
+        }
+        wss10 = (Wss10)wss;
+    }
+
+    /**
+     * @return the plan of the AssertionInfoMap of the message, null if the message has none
+     */
+    public static SecurityPlan getSecurityPlan(Message message) {
+        SecurityPlan plan = message.get(SecurityPlan.class);
+        if (plan != null) {
+            return plan;
+        }
+        AssertionInfoMap aim = message.get(AssertionInfoMap.class);
+        if (aim == null) {
+            return null;
+        }
+        EffectivePolicy effectivePolicy = message.get(EffectivePolicy.class);
+        Exchange exchange = message.getExchange();
+        BindingOperationInfo boi = exchange == null ? null : exchange.getBindingOperationInfo();
+        if (effectivePolicy == null || effectivePolicy.getChosenAlternative() == null || boi == null) {
+            plan = new SecurityPlan(aim);
+        } else {
+            Map<AlternativeKey, SecurityPlan> plans = getPlans(boi);
+            AlternativeKey key = new AlternativeKey(effectivePolicy.getChosenAlternative());
+            plan = plans.get(key);
+            if (plan == null || !plan.isPlanOf(aim)) {
+                plan = new SecurityPlan(aim);
+                if (plans.size() < MAX_PLANS) {
+                    plans.put(key, plan);
+                }
+            }
+        }
+        message.put(SecurityPlan.class, plan);
+        return plan;
+    }
+
+    private static Map<AlternativeKey, SecurityPlan> getPlans(BindingOperationInfo boi) {
+        synchronized (boi) {
+            Map<AlternativeKey, SecurityPlan> plans = CastUtils.cast((Map<?, ?>)boi.getProperty(PLANS));
+            if (plans == null) {
+                plans = new ConcurrentHashMap<>();
+                boi.setProperty(PLANS, plans);
+            }
+            return plans;
+        }
+    }
+
+    /**
+     * The AssertionInfoMap of a message is built from the chosen alternative, so it holds the
+     * binding of the plan unless the map was replaced.
+     */
+    private boolean isPlanOf(AssertionInfoMap aim) {
+        if (binding == null) {
+            return true;
+        }
+        for (AssertionInfo ai : aim.getAssertionInfo(binding.getName())) {
+            if (ai.getAssertion() == binding) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the security binding, null if there is none
+     */
+    public AbstractBinding getBinding() {
+        return binding;
+    }
+
+    /**
+     * @return the Wss10 or Wss11 assertion, null if there is none
+     */
+    public Wss10 getWss10() {
+        return wss10;
+    }
+
+    /**
+     * @return the SP 1.1 and SP 1.2 assertions with the local name, in the order of the policy
+     */
+    public List<Assertion> getAssertions(String localname) {
+        List<Assertion> list = assertions.get(localname);
+        return list == null ? Collections.<Assertion>emptyList() : list;
+    }
+
+    public Assertion getFirstAssertion(String localname) {
+        List<Assertion> list = assertions.get(localname);
+        return list == null || list.isEmpty() ? null : list.get(0);
+    }
+
+    public boolean hasAssertion(String localname) {
+        return getFirstAssertion(localname) != null;
+    }
+
+    /**
+     * Compares the assertions of an alternative by identity.
+     */
+    private static final class AlternativeKey {
+        private final Assertion[] alternative;
+        private final int hashCode;
+
+        AlternativeKey(Collection<Assertion> alternative) {
+            this.alternative = alternative.toArray(new Assertion[alternative.size()]);
+            int h = 1;
+            for (Assertion a : this.alternative) {
+                h = 31 * h + System.identityHashCode(a);
+            }
+            hashCode = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof AlternativeKey)) {
+                return false;
+            }
+            Assertion[] other = ((AlternativeKey)o).alternative;
+            if (other.length != alternative.length) {
+                return false;
+            }
+            for (int i = 0; i < alternative.length; i++) {
+                if (other[i] != alternative[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
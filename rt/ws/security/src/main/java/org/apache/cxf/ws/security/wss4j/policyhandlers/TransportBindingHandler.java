@@ -20,7 +20,6 @@
 package org.apache.cxf.ws.security.wss4j.policyhandlers;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.logging.Level;
@@ -34,10 +33,10 @@ import org.w3c.dom.Element;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.rt.security.utils.SecurityUtils;
-import org.apache.cxf.ws.policy.AssertionInfo;
 import org.apache.cxf.ws.policy.AssertionInfoMap;
 import org.apache.cxf.ws.security.SecurityConstants;
 import org.apache.cxf.ws.security.tokenstore.SecurityToken;
+import org.apache.neethi.Assertion;
 import org.apache.wss4j.common.WSEncryptionPart;
 import org.apache.wss4j.common.bsp.BSPEnforcer;
 import org.apache.wss4j.common.crypto.Crypto;
@@ -187,51 +186,27 @@ public class TransportBindingHandler extends AbstractBindingBuilder {
      * Handle the non-endorsing supporting tokens
      */
     private void handleNonEndorsingSupportingTokens() throws Exception {
-        Collection<AssertionInfo> ais;
-        
-        ais = getAllAssertionsByLocalname(SPConstants.SIGNED_SUPPORTING_TOKENS);
-        if (!ais.isEmpty()) {
-            for (AssertionInfo ai : ais) {
-                SupportingTokens sgndSuppTokens = (SupportingTokens)ai.getAssertion();
-                if (sgndSuppTokens != null) {
-                    addSignedSupportingTokens(sgndSuppTokens);
-                }
-                ai.setAsserted(true);
-            }
+        for (Assertion assertion : securityPlan.getAssertions(SPConstants.SIGNED_SUPPORTING_TOKENS)) {
+            addSignedSupportingTokens((SupportingTokens)assertion);
+            assertPolicy(assertion);
         }
         
-        ais = getAllAssertionsByLocalname(SPConstants.SIGNED_ENCRYPTED_SUPPORTING_TOKENS);
-        if (!ais.isEmpty()) {
-            for (AssertionInfo ai : ais) {
-                SupportingTokens sgndSuppTokens = (SupportingTokens)ai.getAssertion();
-                if (sgndSuppTokens != null) {
-                    addSignedSupportingTokens(sgndSuppTokens);
-                }
-                ai.setAsserted(true);
-            }
+        for (Assertion assertion : securityPlan.getAssertions(SPConstants.SIGNED_ENCRYPTED_SUPPORTING_TOKENS)) {
+            addSignedSupportingTokens((SupportingTokens)assertion);
+            assertPolicy(assertion);
         }
         
-        ais = getAllAssertionsByLocalname(SPConstants.ENCRYPTED_SUPPORTING_TOKENS);
-        if (!ais.isEmpty()) {
-            for (AssertionInfo ai : ais) {
-                SupportingTokens encrSuppTokens = (SupportingTokens)ai.getAssertion();
-                if (encrSuppTokens != null) {
-                    addSignedSupportingTokens(encrSuppTokens);
-                }
-                ai.setAsserted(true);
-            }
+        for (Assertion assertion : securityPlan.getAssertions(SPConstants.ENCRYPTED_SUPPORTING_TOKENS)) {
+            addSignedSupportingTokens((SupportingTokens)assertion);
+            assertPolicy(assertion);
         }
         
-        ais = getAllAssertionsByLocalname(SPConstants.SUPPORTING_TOKENS);
-        if (!ais.isEmpty()) {
-            for (AssertionInfo ai : ais) {
-                SupportingTokens suppTokens = (SupportingTokens)ai.getAssertion();
-                if (suppTokens != null && suppTokens.getTokens() != null 
-                    && suppTokens.getTokens().size() > 0) {
-                    handleSupportingTokens(suppTokens, false, new ArrayList<SupportingToken>());
-                }
-                ai.setAsserted(true);
+        for (Assertion assertion : securityPlan.getAssertions(SPConstants.SUPPORTING_TOKENS)) {
+            SupportingTokens suppTokens = (SupportingTokens)assertion;
+            if (suppTokens.getTokens() != null && suppTokens.getTokens().size() > 0) {
+                handleSupportingTokens(suppTokens, false, new ArrayList<SupportingToken>());
             }
+            assertPolicy(assertion);
         }
     }
     
@@ -239,62 +214,22 @@ public class TransportBindingHandler extends AbstractBindingBuilder {
      * Handle the endorsing supporting tokens
      */
     private void handleEndorsingSupportingTokens() throws Exception {
-        Collection<AssertionInfo> ais;
-        
-        ais = getAllAssertionsByLocalname(SPConstants.SIGNED_ENDORSING_SUPPORTING_TOKENS);
-        if (!ais.isEmpty()) {
-            SupportingTokens sgndSuppTokens = null;
-            for (AssertionInfo ai : ais) {
-                sgndSuppTokens = (SupportingTokens)ai.getAssertion();
-                ai.setAsserted(true);
-            }
-            if (sgndSuppTokens != null) {
-                for (AbstractToken token : sgndSuppTokens.getTokens()) {
-                    handleEndorsingToken(token, sgndSuppTokens);
-                }
-            }
+        handleEndorsingSupportingTokens(SPConstants.SIGNED_ENDORSING_SUPPORTING_TOKENS);
+        handleEndorsingSupportingTokens(SPConstants.ENDORSING_SUPPORTING_TOKENS);
+        handleEndorsingSupportingTokens(SPConstants.ENDORSING_ENCRYPTED_SUPPORTING_TOKENS);
+        handleEndorsingSupportingTokens(SPConstants.SIGNED_ENDORSING_ENCRYPTED_SUPPORTING_TOKENS);
+    }
+    
+    private void handleEndorsingSupportingTokens(String localname) throws Exception {
+        SupportingTokens endSuppTokens = null;
+        for (Assertion assertion : securityPlan.getAssertions(localname)) {
+            endSuppTokens = (SupportingTokens)assertion;
+            assertPolicy(assertion);
         }
         
-        ais = getAllAssertionsByLocalname(SPConstants.ENDORSING_SUPPORTING_TOKENS);
-        if (!ais.isEmpty()) {
-            SupportingTokens endSuppTokens = null;
-            for (AssertionInfo ai : ais) {
-                endSuppTokens = (SupportingTokens)ai.getAssertion();
-                ai.setAsserted(true);
-            } 
-            
-            if (endSuppTokens != null) {
-                for (AbstractToken token : endSuppTokens.getTokens()) {
-                    handleEndorsingToken(token, endSuppTokens);
-                }
-            }
-        }
-        ais = getAllAssertionsByLocalname(SPConstants.ENDORSING_ENCRYPTED_SUPPORTING_TOKENS);
-        if (!ais.isEmpty()) {
-            SupportingTokens endSuppTokens = null;
-            for (AssertionInfo ai : ais) {
-                endSuppTokens = (SupportingTokens)ai.getAssertion();
-                ai.setAsserted(true);
-            } 
-            
-            if (endSuppTokens != null) {
-                for (AbstractToken token : endSuppTokens.getTokens()) {
-                    handleEndorsingToken(token, endSuppTokens);
-                }
-            }
-        }
-        ais = getAllAssertionsByLocalname(SPConstants.SIGNED_ENDORSING_ENCRYPTED_SUPPORTING_TOKENS);
-        if (!ais.isEmpty()) {
-            SupportingTokens endSuppTokens = null;
-            for (AssertionInfo ai : ais) {
-                endSuppTokens = (SupportingTokens)ai.getAssertion();
-                ai.setAsserted(true);
-            } 
-            
-            if (endSuppTokens != null) {
-                for (AbstractToken token : endSuppTokens.getTokens()) {
-                    handleEndorsingToken(token, endSuppTokens);
-                }
+        if (endSuppTokens != null) {
+            for (AbstractToken token : endSuppTokens.getTokens()) {
+                handleEndorsingToken(token, endSuppTokens);
             }
         }
     }
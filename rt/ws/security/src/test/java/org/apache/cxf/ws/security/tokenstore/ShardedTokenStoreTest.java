@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.ws.security.tokenstore;
+
+import java.io.StringReader;
+
+import org.w3c.dom.Element;
+
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.cxf.ws.security.SecurityConstants;
+
+public class ShardedTokenStoreTest extends org.junit.Assert {
+
+    @org.junit.Test
+    public void testTokenAdd() throws Exception {
+        ShardedTokenStore store = new ShardedTokenStore();
+        SecurityToken token = new SecurityToken("key");
+        store.add(token);
+        assertSame(token, store.getToken("key"));
+        store.add("xyz", token);
+        assertSame(token, store.getToken("xyz"));
+        assertEquals(2, store.getTokenIdentifiers().size());
+
+        store.remove("key");
+        assertNull(store.getToken("key"));
+        store.remove("xyz");
+        assertTrue(store.getTokenIdentifiers().isEmpty());
+        assertEquals(2, store.getHitCount());
+        assertEquals(1, store.getMissCount());
+    }
+
+    @org.junit.Test
+    public void testTokenExpiry() throws Exception {
+        ShardedTokenStore store = new ShardedTokenStore();
+        store.setTTL(0L);
+        store.add(new SecurityToken("expired"));
+        assertNull(store.getToken("expired"));
+        assertEquals(1, store.getExpirationCount());
+        assertEquals(0, store.getSize());
+    }
+
+    @org.junit.Test
+    public void testEviction() throws Exception {
+        ShardedTokenStore store = new ShardedTokenStore(1, 3, false, 1L);
+        for (int i = 0; i < 3; i++) {
+            store.add(new SecurityToken("token" + i));
+        }
+        // token0 becomes the most recently used
+        assertNotNull(store.getToken("token0"));
+        store.add(new SecurityToken("token3"));
+
+        assertEquals(3, store.getSize());
+        assertEquals(1, store.getEvictionCount());
+        assertNull(store.getToken("token1"));
+        assertNotNull(store.getToken("token0"));
+        assertNotNull(store.getToken("token3"));
+    }
+
+    @org.junit.Test
+    public void testOffHeap() throws Exception {
+        ShardedTokenStore store = new ShardedTokenStore(4, 100, true, 1024L * 1024L);
+        SecurityToken token = new SecurityToken("sct");
+        token.setToken(readElement("<wsc:SecurityContextToken "
+            + "xmlns:wsc=\"http://docs.oasis-open.org/ws-sx/ws-secureconversation/200512\">"
+            + "<wsc:Identifier>urn:sct</wsc:Identifier></wsc:SecurityContextToken>"));
+        token.setUnattachedReference(readElement("<wsse:SecurityTokenReference xmlns:wsse=\""
+            + "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd\"/>"));
+        byte[] secret = {1, 2, 3};
+        token.setSecret(secret);
+        store.add(token);
+
+        // the elements of the stored token were serialized
+        assertNotNull(token.getToken());
+        assertTrue(store.getOffHeapSize() > 0);
+
+        SecurityToken stored = store.getToken("sct");
+        assertNotSame(token, stored);
+        assertEquals("sct", stored.getId());
+        assertSame(secret, stored.getSecret());
+        assertEquals("SecurityContextToken", stored.getToken().getLocalName());
+        assertEquals("urn:sct", stored.getToken().getTextContent());
+        assertNull(stored.getAttachedReference());
+        assertEquals("SecurityTokenReference", stored.getUnattachedReference().getLocalName());
+
+        store.close();
+        assertEquals(0, store.getOffHeapSize());
+        assertNull(store.getToken("sct"));
+    }
+
+    @org.junit.Test
+    public void testOffHeapBlocksFreed() throws Exception {
+        ShardedTokenStore store = new ShardedTokenStore(1, 100, true, 1024L * 1024L);
+        SecurityToken token = new SecurityToken("sct");
+        token.setToken(readElement("<wsc:SecurityContextToken "
+            + "xmlns:wsc=\"http://docs.oasis-open.org/ws-sx/ws-secureconversation/200512\">"
+            + "<wsc:Identifier>urn:sct</wsc:Identifier></wsc:SecurityContextToken>"));
+        store.add(token);
+        long size = store.getOffHeapSize();
+        assertTrue(size > 0);
+
+        SecurityToken stored = store.getToken("sct");
+        store.remove("sct");
+        assertEquals(0, store.getOffHeapSize());
+
+        // the block of the removed token is used again
+        store.add("sct2", stored);
+        assertEquals(size, store.getOffHeapSize());
+        assertEquals("urn:sct", store.getToken("sct2").getToken().getTextContent());
+        store.close();
+    }
+
+    @org.junit.Test
+    public void testOffHeapBoundedAcrossBlockSizes() throws Exception {
+        long maxOffHeapBytes = 64L * 1024L;
+        ShardedTokenStore store = new ShardedTokenStore(1, 1000, true, maxOffHeapBytes);
+        for (int i = 0; i < 200; i++) {
+            store.add(createToken("small" + i, 400));
+        }
+        assertTrue(store.getOffHeapAllocatedSize() <= maxOffHeapBytes);
+        // the memory of the small tokens is used again for larger tokens
+        for (int i = 0; i < 200; i++) {
+            store.add(createToken("large" + i, 3000));
+        }
+        assertTrue(store.getOffHeapAllocatedSize() <= maxOffHeapBytes);
+        assertTrue(store.getEvictionCount() > 0);
+        assertNotNull(store.getToken("large199"));
+        assertNull(store.getToken("small0"));
+
+        // larger than the store, so not kept
+        store.add(createToken("huge", 100000));
+        assertNull(store.getToken("huge"));
+        assertTrue(store.getOffHeapAllocatedSize() <= maxOffHeapBytes);
+        store.close();
+    }
+
+    @org.junit.Test
+    public void testFactory() throws Exception {
+        Message message = new MessageImpl();
+        assertFalse(TokenStoreFactory.newInstance(message) instanceof ShardedTokenStoreFactory);
+
+        message.put(SecurityConstants.TOKEN_STORE_FACTORY, ShardedTokenStoreFactory.class.getName());
+        TokenStoreFactory factory = TokenStoreFactory.newInstance(message);
+        assertTrue(factory instanceof ShardedTokenStoreFactory);
+        assertTrue(factory.newTokenStore(SecurityConstants.TOKEN_STORE_CACHE_INSTANCE, message)
+                   instanceof ShardedTokenStore);
+    }
+
+    private static SecurityToken createToken(String id, int length) throws Exception {
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append('x');
+        }
+        SecurityToken token = new SecurityToken(id);
+        token.setToken(readElement("<Token>" + sb + "</Token>"));
+        return token;
+    }
+
+    private static Element readElement(String xml) throws Exception {
+        return StaxUtils.read(new StringReader(xml)).getDocumentElement();
+    }
+}
@@ -0,0 +1,299 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.ws.security.trust;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.namespace.QName;
+import javax.xml.transform.dom.DOMSource;
+
+import org.w3c.dom.Element;
+
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.service.model.EndpointInfo;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.cxf.ws.security.SecurityConstants;
+import org.apache.cxf.ws.security.tokenstore.SecurityToken;
+import org.apache.cxf.ws.security.tokenstore.ShardedTokenStoreFactory;
+import org.apache.wss4j.dom.util.XmlSchemaDateFormat;
+import org.easymock.EasyMock;
+
+public class IssuedTokenCacheTest extends org.junit.Assert {
+
+    @org.junit.Test
+    public void testCachedToken() throws Exception {
+        IssuedTokenCache cache = new IssuedTokenCache();
+        TestRequest request = new TestRequest(300L);
+        SecurityToken token = cache.getToken("key", request);
+        assertSame(token, cache.getToken("key", request));
+        assertNotSame(token, cache.getToken("other", request));
+
+        assertEquals(2, request.calls.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getStsRequestCount());
+        assertEquals(1, cache.getStsRequestsAvoided());
+        assertEquals(2, cache.getSize());
+    }
+
+    @org.junit.Test
+    public void testNotCached() throws Exception {
+        IssuedTokenCache cache = new IssuedTokenCache();
+        // no expiry
+        TestRequest request = new TestRequest(-1L);
+        assertNotSame(cache.getToken("key", request), cache.getToken("key", request));
+
+        // expires within the minimum validity
+        request = new TestRequest(5L);
+        assertNotSame(cache.getToken("key", request), cache.getToken("key", request));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @org.junit.Test
+    public void testRefresh() throws Exception {
+        IssuedTokenCache cache = new IssuedTokenCache();
+        cache.setRefreshTime(200L);
+        TestRequest request = new TestRequest(300L);
+        SecurityToken token = cache.getToken("key", request);
+        // a lifetime of 300 seconds refreshes the token from 150 seconds before its expiry
+        assertSame(token, cache.getToken("key", request));
+
+        // the tokens expire within 100 seconds
+        request = new TestRequest(100L, 300L);
+        SecurityToken cached = cache.getToken("refresh", request);
+        SecurityToken refreshed = cache.getToken("refresh", request);
+        assertNotSame(cached, refreshed);
+        assertEquals(1, cache.getRefreshCount());
+
+        // a failed refresh returns the cached token
+        SecurityToken failed = cache.getToken("refresh", new Callable<SecurityToken>() {
+            public SecurityToken call() throws Exception {
+                throw new Exception("STS unavailable");
+            }
+        });
+        assertSame(refreshed, failed);
+        assertEquals(2, cache.getRefreshCount());
+    }
+
+    @org.junit.Test
+    public void testCoalescedRequests() throws Exception {
+        final IssuedTokenCache cache = new IssuedTokenCache();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestRequest request = new TestRequest(300L) {
+            @Override
+            public SecurityToken call() throws Exception {
+                started.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                return super.call();
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<SecurityToken>> results = new ArrayList<>();
+            Callable<SecurityToken> caller = new Callable<SecurityToken>() {
+                public SecurityToken call() throws Exception {
+                    return cache.getToken("key", request);
+                }
+            };
+            results.add(executor.submit(caller));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(caller));
+            }
+            // wait for the other callers to join the request in progress
+            long end = System.currentTimeMillis() + 10000L;
+            while (cache.getCoalescedCount() < 3 && System.currentTimeMillis() < end) {
+                Thread.sleep(10L);
+            }
+            release.countDown();
+
+            SecurityToken token = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<SecurityToken> result : results) {
+                assertSame(token, result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, request.calls.get());
+            assertEquals(3, cache.getCoalescedCount());
+            assertEquals(3, cache.getStsRequestsAvoided());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @org.junit.Test
+    public void testError() throws Exception {
+        IssuedTokenCache cache = new IssuedTokenCache();
+        try {
+            cache.getToken("key", new Callable<SecurityToken>() {
+                public SecurityToken call() throws Exception {
+                    throw new TrustException(new Exception("STS unavailable"));
+                }
+            });
+            fail("Failure expected");
+        } catch (TrustException ex) {
+            assertEquals(0, cache.getSize());
+        }
+    }
+
+    @org.junit.Test
+    public void testIssuedTokenKey() throws Exception {
+        Object callbackHandler = new Object();
+        Object key = createKey("user", callbackHandler);
+        assertEquals(key, createKey("user", callbackHandler));
+        assertEquals(key.hashCode(), createKey("user", callbackHandler).hashCode());
+        assertFalse(key.equals(createKey("other", callbackHandler)));
+        // other instances are different, whatever their identity hash codes
+        assertFalse(key.equals(createKey("user", new Object())));
+    }
+
+    @org.junit.Test
+    public void testSharedByEndpoints() throws Exception {
+        IssuedTokenCache cache = new IssuedTokenCache();
+        Object callbackHandler = new Object();
+        TestSTSClient client1 = new TestSTSClient(cache);
+        TestSTSClient client2 = new TestSTSClient(cache);
+        Endpoint endpoint1 = createEndpoint("endpoint1", client1, callbackHandler);
+        Endpoint endpoint2 = createEndpoint("endpoint2", client2, callbackHandler);
+
+        // the token store set on an endpoint by its first request is not part of the key
+        for (int i = 0; i < 2; i++) {
+            STSTokenRetriever.getToken(createMessage(endpoint1), new STSTokenRetriever.TokenRequestParams());
+            STSTokenRetriever.getToken(createMessage(endpoint2), new STSTokenRetriever.TokenRequestParams());
+        }
+        assertEquals(1, client1.calls.get() + client2.calls.get());
+        assertEquals(1, cache.getSize());
+        assertEquals(3, cache.getHitCount());
+    }
+
+    @org.junit.Test
+    public void testDelegationCallbackHandlerNotCached() throws Exception {
+        IssuedTokenCache cache = new IssuedTokenCache();
+        TestSTSClient client = new TestSTSClient(cache);
+        client.setOnBehalfOf(new javax.security.auth.callback.CallbackHandler() {
+            public void handle(javax.security.auth.callback.Callback[] callbacks) {
+                // a new token on every call
+            }
+        });
+        client.requestSecurityToken("https://localhost/service");
+        client.requestSecurityToken("https://localhost/service");
+        assertEquals(2, client.calls.get());
+        assertEquals(0, cache.getSize());
+    }
+
+    private static Endpoint createEndpoint(String name, STSClient client, Object callbackHandler) {
+        EndpointInfo endpointInfo = new EndpointInfo();
+        endpointInfo.setName(new QName("urn:test", name));
+        endpointInfo.setProperty(SecurityConstants.STS_CLIENT, client);
+        endpointInfo.setProperty(SecurityConstants.CALLBACK_HANDLER, callbackHandler);
+        endpointInfo.setProperty(SecurityConstants.USERNAME, "user");
+        endpointInfo.setProperty(SecurityConstants.TOKEN_STORE_FACTORY, ShardedTokenStoreFactory.class.getName());
+        endpointInfo.setProperty(SecurityConstants.CACHE_ISSUED_TOKEN_IN_ENDPOINT, Boolean.FALSE);
+        Endpoint endpoint = EasyMock.createNiceMock(Endpoint.class);
+        EasyMock.expect(endpoint.getEndpointInfo()).andReturn(endpointInfo).anyTimes();
+        EasyMock.replay(endpoint);
+        return endpoint;
+    }
+
+    private static Message createMessage(Endpoint endpoint) {
+        Message message = new MessageImpl();
+        Exchange exchange = new ExchangeImpl();
+        exchange.put(Endpoint.class, endpoint);
+        message.setExchange(exchange);
+        message.put(Message.ENDPOINT_ADDRESS, "https://localhost/service");
+        return message;
+    }
+
+    private static Object createKey(String username, Object callbackHandler) throws Exception {
+        STSClient client = new STSClient(null);
+        client.setLocation("https://localhost/sts");
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("security.username", username);
+        properties.put("security.callback-handler", callbackHandler);
+        client.setProperties(properties);
+        return client.createIssuedTokenKey("https://localhost/service", null, null, null, null);
+    }
+
+    private static class TestSTSClient extends STSClient {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        TestSTSClient(IssuedTokenCache cache) {
+            super(null);
+            setLocation("https://localhost/sts");
+            setCacheIssuedTokens(true);
+            setIssuedTokenCache(cache);
+        }
+
+        @Override
+        protected STSResponse issue(String appliesTo, String action, String requestType, String binaryExchange,
+                                    Object claimsToSerialize, Element onBehalfOfToken, Element actAsToken)
+            throws Exception {
+            XmlSchemaDateFormat format = new XmlSchemaDateFormat();
+            long now = System.currentTimeMillis();
+            String response = "<wst:RequestSecurityTokenResponse xmlns:wst=\"" + namespace + "\" "
+                + "xmlns:wsu=\"http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-utility-1.0.xsd\">"
+                + "<wst:RequestedSecurityToken><Token xmlns=\"urn:test\" wsu:Id=\"token"
+                + calls.incrementAndGet() + "\"/></wst:RequestedSecurityToken><wst:Lifetime>"
+                + "<wsu:Created>" + format.format(new Date(now)) + "</wsu:Created>"
+                + "<wsu:Expires>" + format.format(new Date(now + 300000L)) + "</wsu:Expires>"
+                + "</wst:Lifetime></wst:RequestSecurityTokenResponse>";
+            return new STSResponse(new DOMSource(StaxUtils.read(new java.io.StringReader(response))), null);
+        }
+    }
+
+    private static class TestRequest implements Callable<SecurityToken> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final long expires;
+        private final long lifetime;
+
+        TestRequest(long expires) {
+            this(expires, expires);
+        }
+
+        TestRequest(long expires, long lifetime) {
+            this.expires = expires;
+            this.lifetime = lifetime;
+        }
+
+        public SecurityToken call() throws Exception {
+            String id = "token" + calls.incrementAndGet();
+            if (expires < 0) {
+                return new SecurityToken(id);
+            }
+            long now = System.currentTimeMillis();
+            return new SecurityToken(id, new Date(now + (expires - lifetime) * 1000L),
+                                     new Date(now + expires * 1000L));
+        }
+    }
+}
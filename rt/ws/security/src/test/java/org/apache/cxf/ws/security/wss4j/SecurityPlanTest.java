@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.security.wss4j;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.service.model.BindingInfo;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.service.model.InterfaceInfo;
+import org.apache.cxf.service.model.ServiceInfo;
+import org.apache.cxf.ws.policy.AssertionInfoMap;
+import org.apache.cxf.ws.policy.EffectivePolicy;
+import org.apache.cxf.ws.policy.EffectivePolicyImpl;
+import org.apache.cxf.ws.security.wss4j.policyhandlers.SecurityPlan;
+import org.apache.neethi.Assertion;
+import org.apache.neethi.Policy;
+import org.apache.wss4j.policy.SPConstants;
+import org.apache.wss4j.policy.model.AsymmetricBinding;
+import org.apache.wss4j.policy.model.Header;
+import org.apache.wss4j.policy.model.SignedParts;
+import org.junit.Test;
+
+public class SecurityPlanTest extends AbstractPolicySecurityTest {
+
+    private static final String POLICY = "signed_parts_policy_header_and_body_encrypted.xml";
+
+    @Test
+    public void testAssertions() throws Exception {
+        Message msg = new MessageImpl();
+        msg.setExchange(new ExchangeImpl());
+        msg.put(AssertionInfoMap.class, new AssertionInfoMap(getAlternative()));
+
+        SecurityPlan plan = SecurityPlan.getSecurityPlan(msg);
+        assertTrue(plan.getBinding() instanceof AsymmetricBinding);
+        assertNull(plan.getWss10());
+        assertTrue(plan.hasAssertion(SPConstants.ENCRYPTED_PARTS));
+        assertFalse(plan.hasAssertion(SPConstants.SIGNED_ELEMENTS));
+        assertTrue(plan.getAssertions(SPConstants.SUPPORTING_TOKENS).isEmpty());
+
+        // in the order of the policy
+        List<Assertion> signedParts = plan.getAssertions(SPConstants.SIGNED_PARTS);
+        assertEquals(2, signedParts.size());
+        Header header = ((SignedParts)signedParts.get(1)).getHeaders().get(0);
+        assertNull(header.getName());
+
+        assertSame(plan, SecurityPlan.getSecurityPlan(msg));
+    }
+
+    @Test
+    public void testCaching() throws Exception {
+        BindingOperationInfo boi = createBindingOperationInfo();
+        Collection<Assertion> alternative = getAlternative();
+
+        SecurityPlan plan = SecurityPlan.getSecurityPlan(createMessage(boi, alternative));
+        assertSame(plan, SecurityPlan.getSecurityPlan(createMessage(boi, alternative)));
+
+        // the same policy with other assertion objects
+        SecurityPlan other = SecurityPlan.getSecurityPlan(createMessage(boi, getAlternative()));
+        assertNotSame(plan, other);
+        assertNotSame(plan.getBinding(), other.getBinding());
+
+        // another operation
+        assertNotSame(plan, SecurityPlan.getSecurityPlan(createMessage(createBindingOperationInfo(),
+                                                                       alternative)));
+    }
+
+    private Message createMessage(BindingOperationInfo boi, final Collection<Assertion> alternative) {
+        Message msg = new MessageImpl();
+        Exchange ex = new ExchangeImpl();
+        ex.put(BindingOperationInfo.class, boi);
+        ex.setOutMessage(msg);
+        EffectivePolicy effectivePolicy = new EffectivePolicyImpl() {
+            {
+                chosenAlternative = alternative;
+            }
+        };
+        msg.put(EffectivePolicy.class, effectivePolicy);
+        msg.put(AssertionInfoMap.class, new AssertionInfoMap(alternative));
+        return msg;
+    }
+
+    private Collection<Assertion> getAlternative() throws Exception {
+        Policy policy = policyBuilder.getPolicy(readDocument(POLICY).getDocumentElement());
+        return policy.getAlternatives().next();
+    }
+
+    private static BindingOperationInfo createBindingOperationInfo() {
+        QName name = new QName("http://www.sdj.pl", "echo");
+        ServiceInfo si = new ServiceInfo();
+        InterfaceInfo ii = new InterfaceInfo(si, new QName("http://www.sdj.pl", "Echo"));
+        ii.addOperation(name);
+        BindingInfo bi = new BindingInfo(si, "http://schemas.xmlsoap.org/wsdl/soap/");
+        return bi.buildOperation(name, null, null);
+    }
+}
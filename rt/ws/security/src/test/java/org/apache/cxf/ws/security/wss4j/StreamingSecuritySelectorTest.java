@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.security.wss4j;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.service.model.EndpointInfo;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.cxf.ws.policy.AssertionInfoMap;
+import org.apache.cxf.ws.security.SecurityConstants;
+import org.apache.neethi.Policy;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class StreamingSecuritySelectorTest extends AbstractPolicySecurityTest {
+
+    private static final String SYMMETRIC_USERNAME_TOKEN_POLICY =
+        "<wsp:Policy xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2004/09/policy\""
+        + " xmlns:sp=\"http://docs.oasis-open.org/ws-sx/ws-securitypolicy/200702\""
+        + " xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:ser=\"http://www.sdj.pl\">"
+        + "<sp:SymmetricBinding><wsp:Policy>"
+        + "<sp:ProtectionToken><wsp:Policy>"
+        + "<sp:UsernameToken><wsp:Policy/></sp:UsernameToken>"
+        + "</wsp:Policy></sp:ProtectionToken>"
+        + "<sp:AlgorithmSuite><wsp:Policy><sp:Basic128/></wsp:Policy></sp:AlgorithmSuite>"
+        + "</wsp:Policy></sp:SymmetricBinding>"
+        + "<sp:SignedElements><sp:XPath>/soap:Envelope/soap:Header/ser:Header</sp:XPath>"
+        + "</sp:SignedElements>"
+        + "</wsp:Policy>";
+
+    @Test
+    public void testSupportedPolicy() throws Exception {
+        AssertionInfoMap aim = getAssertionInfoMap("signed_parts_policy_body.xml");
+        assertTrue(StreamingSecuritySelector.getUnsupportedAssertions(aim).isEmpty());
+    }
+
+    @Test
+    public void testXPathExpression() throws Exception {
+        AssertionInfoMap aim = getAssertionInfoMap("signed_elements_policy.xml");
+        List<String> unsupported = StreamingSecuritySelector.getUnsupportedAssertions(aim);
+        assertEquals(1, unsupported.size());
+        assertEquals("SignedElements //ser:Header", unsupported.get(0));
+    }
+
+    @Test
+    public void testUsernameProtectionToken() throws Exception {
+        Policy policy = policyBuilder.getPolicy(
+            StaxUtils.read(new StringReader(SYMMETRIC_USERNAME_TOKEN_POLICY)).getDocumentElement());
+        List<String> unsupported =
+            StreamingSecuritySelector.getUnsupportedAssertions(new AssertionInfoMap(policy));
+        // the element path is supported
+        assertEquals(1, unsupported.size());
+        assertEquals("SymmetricBinding ProtectionToken UsernameToken", unsupported.get(0));
+    }
+
+    @Test
+    public void testDecisionPerPolicy() throws Exception {
+        EndpointInfo ei = new EndpointInfo();
+        Endpoint ep = EasyMock.createMock(Endpoint.class);
+        EasyMock.expect(ep.getEndpointInfo()).andReturn(ei).anyTimes();
+        EasyMock.replay(ep);
+
+        // the same assertion types, only the XPath differs
+        Policy supported = getSignedElementsPolicy("/soap:Envelope/soap:Body/ser:Body");
+        Policy unsupported = getSignedElementsPolicy("//ser:Header");
+        for (int i = 0; i < 2; i++) {
+            assertTrue(StreamingSecuritySelector.isStreaming(createMessage(supported, ep)));
+            assertFalse(StreamingSecuritySelector.isStreaming(createMessage(unsupported, ep)));
+        }
+    }
+
+    @Test
+    public void testDecisionPerAssertionObjects() throws Exception {
+        EndpointInfo ei = new EndpointInfo();
+        Endpoint ep = EasyMock.createMock(Endpoint.class);
+        EasyMock.expect(ep.getEndpointInfo()).andReturn(ei).anyTimes();
+        EasyMock.replay(ep);
+
+        // equal assertions of two policies are different policies to the selector
+        Policy policy = getSignedElementsPolicy("/soap:Envelope/soap:Body/ser:Body");
+        Policy equalPolicy = getSignedElementsPolicy("/soap:Envelope/soap:Body/ser:Body");
+        assertTrue(StreamingSecuritySelector.isStreaming(createMessage(policy, ep)));
+        assertTrue(StreamingSecuritySelector.isStreaming(createMessage(policy, ep)));
+        Map<?, ?> decisions = (Map<?, ?>)ei.getProperty(StreamingSecuritySelector.class.getName() + ".DECISIONS");
+        assertEquals(1, decisions.size());
+        assertTrue(StreamingSecuritySelector.isStreaming(createMessage(equalPolicy, ep)));
+        assertEquals(2, decisions.size());
+    }
+
+    @Test
+    public void testCountersOnlyWhenAuto() throws Exception {
+        EndpointInfo ei = new EndpointInfo();
+        Endpoint ep = EasyMock.createMock(Endpoint.class);
+        EasyMock.expect(ep.getEndpointInfo()).andReturn(ei).anyTimes();
+        EasyMock.replay(ep);
+
+        Message msg = createMessage(getSignedElementsPolicy("/soap:Envelope/soap:Body"), ep);
+        msg.put(SecurityConstants.ENABLE_STREAMING_SECURITY, "true");
+        assertNull(SecurityProcessingCounters.getCounters(msg));
+        msg.put(SecurityConstants.ENABLE_STREAMING_SECURITY, StreamingSecuritySelector.AUTO);
+        SecurityProcessingCounters counters = SecurityProcessingCounters.getCounters(msg);
+        assertNotNull(counters);
+        assertSame(counters, SecurityProcessingCounters.getCounters(msg));
+    }
+
+    @Test
+    public void testSelection() throws Exception {
+        Message msg = createMessage("signed_parts_policy_body.xml");
+        assertFalse(StreamingSecuritySelector.isStreaming(msg));
+
+        msg.put(SecurityConstants.ENABLE_STREAMING_SECURITY, "true");
+        assertTrue(StreamingSecuritySelector.isStreaming(msg));
+
+        msg.put(SecurityConstants.ENABLE_STREAMING_SECURITY, StreamingSecuritySelector.AUTO);
+        assertTrue(StreamingSecuritySelector.isStreaming(msg));
+
+        msg = createMessage("signed_elements_policy.xml");
+        msg.put(SecurityConstants.ENABLE_STREAMING_SECURITY, StreamingSecuritySelector.AUTO);
+        assertFalse(StreamingSecuritySelector.isStreaming(msg));
+
+        // the response follows the request
+        Message response = createMessage("signed_parts_policy_body.xml");
+        response.put(SecurityConstants.ENABLE_STREAMING_SECURITY, StreamingSecuritySelector.AUTO);
+        response.setExchange(msg.getExchange());
+        assertFalse(StreamingSecuritySelector.isStreaming(response));
+    }
+
+    private Message createMessage(String policyDocument) throws Exception {
+        Message msg = new MessageImpl();
+        Exchange ex = new ExchangeImpl();
+        ex.setInMessage(msg);
+        msg.put(AssertionInfoMap.class, getAssertionInfoMap(policyDocument));
+        return msg;
+    }
+
+    private Message createMessage(Policy policy, Endpoint ep) {
+        Message msg = new MessageImpl();
+        Exchange ex = new ExchangeImpl();
+        ex.setInMessage(msg);
+        ex.put(Endpoint.class, ep);
+        msg.put(AssertionInfoMap.class, new AssertionInfoMap(policy));
+        msg.put(SecurityConstants.ENABLE_STREAMING_SECURITY, StreamingSecuritySelector.AUTO);
+        return msg;
+    }
+
+    private Policy getSignedElementsPolicy(String xpath) throws Exception {
+        String policy = "<wsp:Policy xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2004/09/policy\""
+            + " xmlns:sp=\"http://docs.oasis-open.org/ws-sx/ws-securitypolicy/200702\""
+            + " xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:ser=\"http://www.sdj.pl\">"
+            + "<sp:SignedElements><sp:XPath>" + xpath + "</sp:XPath></sp:SignedElements>"
+            + "</wsp:Policy>";
+        return policyBuilder.getPolicy(StaxUtils.read(new StringReader(policy)).getDocumentElement());
+    }
+
+    private AssertionInfoMap getAssertionInfoMap(String policyDocument) throws Exception {
+        Policy policy = policyBuilder.getPolicy(readDocument(policyDocument).getDocumentElement());
+        return new AssertionInfoMap(policy);
+    }
+}